@@ -0,0 +1,67 @@
+package dev.xdark.ssvm.bench;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.ExecutionMode;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.type.ArrayClass;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.value.ArrayValue;
+import dev.xdark.ssvm.value.InstanceValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures heap allocation rate of the memory manager.
+ *
+ * @author xDark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+	private VirtualMachine vm;
+	private MemoryManager memoryManager;
+	private InstanceClass objectClass;
+	private ArrayClass intArrayClass;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		VirtualMachine vm = BenchUtil.newVirtualMachine(ExecutionMode.INTERPRETED);
+		vm.bootstrap();
+		this.vm = vm;
+		memoryManager = vm.getMemoryManager();
+		objectClass = vm.getSymbols().java_lang_Object();
+		intArrayClass = vm.getPrimitives().intPrimitive().newArrayClass();
+	}
+
+	@TearDown(Level.Iteration)
+	public void collect() {
+		// Nothing references allocated objects
+		vm.getMemoryManager().getGarbageCollector().invoke();
+	}
+
+	@Benchmark
+	public InstanceValue newInstance() {
+		return memoryManager.newInstance(objectClass);
+	}
+
+	@Benchmark
+	public ArrayValue newArray() {
+		return memoryManager.newArray(intArrayClass, 16);
+	}
+}
@@ -0,0 +1,62 @@
+package dev.xdark.ssvm.bench;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.ExecutionEngine;
+import dev.xdark.ssvm.execution.ExecutionMode;
+import dev.xdark.ssvm.execution.SimpleExecutionEngine;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.value.ObjectValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+final class BenchUtil {
+
+	private BenchUtil() {
+	}
+
+	static VirtualMachine newVirtualMachine(ExecutionMode mode) {
+		return new VirtualMachine() {
+			@Override
+			protected ExecutionEngine createExecutionEngine() {
+				return new SimpleExecutionEngine(this, mode);
+			}
+		};
+	}
+
+	/**
+	 * Defines host classes in the VM, using the boot class loader.
+	 * Classes must be passed in the dependency order.
+	 *
+	 * @param vm      VM instance.
+	 * @param classes Classes to define.
+	 * @return last defined class.
+	 */
+	static InstanceClass defineClasses(VirtualMachine vm, Class<?>... classes) {
+		VMOperations ops = vm.getOperations();
+		ObjectValue nullValue = vm.getMemoryManager().nullValue();
+		InstanceClass result = null;
+		for (Class<?> klass : classes) {
+			byte[] bytes = readClass(klass);
+			result = ops.defineClass(nullValue, null, bytes, 0, bytes.length, nullValue, "JVM_DefineClass");
+		}
+		return result;
+	}
+
+	private static byte[] readClass(Class<?> klass) {
+		try (InputStream in = klass.getClassLoader().getResourceAsStream(klass.getName().replace('.', '/') + ".class")) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+			byte[] buffer = new byte[1024];
+			int r;
+			while ((r = in.read(buffer)) != -1) {
+				out.write(buffer, 0, r);
+			}
+			return out.toByteArray();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+}
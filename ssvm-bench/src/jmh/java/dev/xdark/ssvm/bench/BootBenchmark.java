@@ -0,0 +1,69 @@
+package dev.xdark.ssvm.bench;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.ExecutionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures VM startup, both cold
+ * and from a snapshot of a booted VM.
+ *
+ * @author xDark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BootBenchmark {
+	@Param({"INTERPRETED", "THREADED", "TIERED"})
+	public ExecutionMode mode;
+	private byte[] snapshot;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		VirtualMachine vm = BenchUtil.newVirtualMachine(mode);
+		vm.bootstrap();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		vm.writeSnapshot(out);
+		snapshot = out.toByteArray();
+	}
+
+	@Benchmark
+	public VirtualMachine initialize() {
+		VirtualMachine vm = BenchUtil.newVirtualMachine(mode);
+		vm.initialize();
+		return vm;
+	}
+
+	@Benchmark
+	public VirtualMachine bootstrap() {
+		VirtualMachine vm = BenchUtil.newVirtualMachine(mode);
+		vm.bootstrap();
+		return vm;
+	}
+
+	@Benchmark
+	public VirtualMachine restore() throws IOException {
+		VirtualMachine vm = BenchUtil.newVirtualMachine(mode);
+		vm.bootstrap(new ByteArrayInputStream(snapshot));
+		return vm;
+	}
+}
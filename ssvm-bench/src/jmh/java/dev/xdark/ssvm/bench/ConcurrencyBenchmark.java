@@ -0,0 +1,104 @@
+package dev.xdark.ssvm.bench;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.bench.guest.Rectangle;
+import dev.xdark.ssvm.bench.guest.Scalable;
+import dev.xdark.ssvm.bench.guest.Shape;
+import dev.xdark.ssvm.bench.guest.Square;
+import dev.xdark.ssvm.bench.guest.Workloads;
+import dev.xdark.ssvm.execution.ExecutionMode;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures guest call throughput when several
+ * host threads invoke into the same VM.
+ * Total throughput should grow with the amount of threads,
+ * up to the amount of host cores.
+ *
+ * @author xDark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrencyBenchmark {
+	private static final int ITERATIONS = 1000;
+	private VirtualMachine vm;
+	private JavaMethod virtualCalls;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		VirtualMachine vm = BenchUtil.newVirtualMachine(ExecutionMode.INTERPRETED);
+		vm.bootstrap();
+		this.vm = vm;
+		InstanceClass workloads = BenchUtil.defineClasses(vm, Shape.class, Scalable.class, Square.class, Rectangle.class, Workloads.class);
+		vm.getOperations().initialize(workloads);
+		virtualCalls = workloads.getMethod("virtualCalls", "(I)I");
+	}
+
+	@Benchmark
+	@Threads(1)
+	@OperationsPerInvocation(ITERATIONS)
+	public int threads1(HostThread thread) {
+		return run();
+	}
+
+	@Benchmark
+	@Threads(2)
+	@OperationsPerInvocation(ITERATIONS)
+	public int threads2(HostThread thread) {
+		return run();
+	}
+
+	@Benchmark
+	@Threads(4)
+	@OperationsPerInvocation(ITERATIONS)
+	public int threads4(HostThread thread) {
+		return run();
+	}
+
+	@Benchmark
+	@Threads(8)
+	@OperationsPerInvocation(ITERATIONS)
+	public int threads8(HostThread thread) {
+		return run();
+	}
+
+	private int run() {
+		JavaMethod method = virtualCalls;
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setInt(0, ITERATIONS);
+		return vm.getOperations().invokeInt(method, locals);
+	}
+
+	/**
+	 * Attaches benchmark thread to the VM.
+	 */
+	@State(Scope.Thread)
+	public static class HostThread {
+
+		@Setup(Level.Iteration)
+		public void attach(ConcurrencyBenchmark benchmark) {
+			benchmark.vm.getThreadManager().attachCurrentThread();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package dev.xdark.ssvm.bench;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.ExecutionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a new sandbox,
+ * forked from a booted VM or booted from scratch.
+ * <p>
+ * Besides the time, heap retained by the sandbox
+ * is printed after each iteration. Parent VM stays alive,
+ * so everything the fork shares with it is not counted.
+ *
+ * @author xDark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ForkBenchmark {
+	@Param({"INTERPRETED", "THREADED", "TIERED"})
+	public ExecutionMode mode;
+	private VirtualMachine parent;
+	private final List<VirtualMachine> sandboxes = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		VirtualMachine vm = BenchUtil.newVirtualMachine(mode);
+		vm.bootstrap();
+		parent = vm;
+	}
+
+	@TearDown(Level.Iteration)
+	public void retained() {
+		List<VirtualMachine> sandboxes = this.sandboxes;
+		int count = sandboxes.size();
+		if (count == 0) {
+			return;
+		}
+		long used = usedHeap();
+		// Attached thread would keep the sandbox reachable
+		for (VirtualMachine vm : sandboxes) {
+			vm.getThreadManager().detachCurrentThread();
+		}
+		sandboxes.clear();
+		long retained = (used - usedHeap()) / count;
+		System.out.printf("Retained heap per sandbox: %d KiB%n", retained >> 10);
+	}
+
+	@Benchmark
+	public VirtualMachine fork() {
+		ExecutionMode mode = this.mode;
+		VirtualMachine vm = parent.fork(() -> BenchUtil.newVirtualMachine(mode));
+		sandboxes.add(vm);
+		return vm;
+	}
+
+	@Benchmark
+	public VirtualMachine bootstrap() {
+		VirtualMachine vm = BenchUtil.newVirtualMachine(mode);
+		vm.bootstrap();
+		sandboxes.add(vm);
+		return vm;
+	}
+
+	private static long usedHeap() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		// Second run collects what was only made unreachable by the first one
+		memory.gc();
+		memory.gc();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
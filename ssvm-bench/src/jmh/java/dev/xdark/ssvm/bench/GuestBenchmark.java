@@ -0,0 +1,116 @@
+package dev.xdark.ssvm.bench;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.bench.guest.Rectangle;
+import dev.xdark.ssvm.bench.guest.Scalable;
+import dev.xdark.ssvm.bench.guest.Shape;
+import dev.xdark.ssvm.bench.guest.Square;
+import dev.xdark.ssvm.bench.guest.Workloads;
+import dev.xdark.ssvm.execution.ExecutionMode;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures execution of the guest code,
+ * see {@link Workloads}.
+ * Every benchmark runs {@link #ITERATIONS} iterations
+ * of the workload loop per invocation.
+ *
+ * @author xDark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GuestBenchmark {
+	private static final int ITERATIONS = 1000;
+	@Param({"INTERPRETED", "THREADED", "TIERED"})
+	public ExecutionMode mode;
+	private VirtualMachine vm;
+	private VMOperations ops;
+	private InstanceClass workloads;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		VirtualMachine vm = BenchUtil.newVirtualMachine(mode);
+		vm.bootstrap();
+		this.vm = vm;
+		ops = vm.getOperations();
+		workloads = BenchUtil.defineClasses(vm, Shape.class, Scalable.class, Square.class, Rectangle.class, Workloads.class);
+		ops.initialize(workloads);
+	}
+
+	@TearDown(Level.Iteration)
+	public void collect() {
+		vm.getMemoryManager().getGarbageCollector().invoke();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ITERATIONS)
+	public int arithmetic() {
+		return run("arithmetic");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ITERATIONS)
+	public int virtualCalls() {
+		return run("virtualCalls");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ITERATIONS)
+	public int interfaceCalls() {
+		return run("interfaceCalls");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ITERATIONS)
+	public int arraycopy() {
+		return run("arraycopy");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ITERATIONS)
+	public int exceptions() {
+		return run("exceptions");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ITERATIONS)
+	public int lambdas() {
+		return run("lambdas");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ITERATIONS)
+	public int stringConcat() {
+		return run("stringConcat");
+	}
+
+	private int run(String name) {
+		JavaMethod method = workloads.getMethod(name, "(I)I");
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setInt(0, ITERATIONS);
+		return ops.invokeInt(method, locals);
+	}
+}
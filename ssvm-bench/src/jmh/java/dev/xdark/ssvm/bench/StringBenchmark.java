@@ -0,0 +1,66 @@
+package dev.xdark.ssvm.bench;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.ExecutionMode;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.value.InstanceValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures conversion of guest strings to host strings.
+ * Cached reads should not depend on the length of the string.
+ *
+ * @author xDark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringBenchmark {
+	@Param({"16", "1024", "65536"})
+	public int length;
+	private VMOperations ops;
+	private InstanceValue latin1;
+	private InstanceValue utf16;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		VirtualMachine vm = BenchUtil.newVirtualMachine(ExecutionMode.INTERPRETED);
+		vm.bootstrap();
+		VMOperations ops = vm.getOperations();
+		this.ops = ops;
+		StringBuilder latin1 = new StringBuilder(length);
+		StringBuilder utf16 = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			latin1.append((char) ('a' + i % 26));
+			utf16.append((char) ('\u0430' + i % 32));
+		}
+		this.latin1 = ops.newUtf8(latin1.toString());
+		this.utf16 = ops.newUtf8(utf16.toString());
+	}
+
+	@Benchmark
+	public String readLatin1() {
+		return ops.readUtf8(latin1);
+	}
+
+	@Benchmark
+	public String readUtf16() {
+		return ops.readUtf8(utf16);
+	}
+}
@@ -0,0 +1,24 @@
+package dev.xdark.ssvm.bench.guest;
+
+/**
+ * @author xDark
+ */
+public final class Rectangle extends Shape implements Scalable {
+	private final int width;
+	private final int height;
+
+	public Rectangle(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	public int area() {
+		return width * height;
+	}
+
+	@Override
+	public int scale(int factor) {
+		return (width + height) * factor;
+	}
+}
@@ -0,0 +1,11 @@
+package dev.xdark.ssvm.bench.guest;
+
+/**
+ * Interface for interface call benchmarks.
+ *
+ * @author xDark
+ */
+public interface Scalable {
+
+	int scale(int factor);
+}
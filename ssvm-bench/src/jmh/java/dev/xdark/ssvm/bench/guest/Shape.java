@@ -0,0 +1,11 @@
+package dev.xdark.ssvm.bench.guest;
+
+/**
+ * Base class for virtual call benchmarks.
+ *
+ * @author xDark
+ */
+public abstract class Shape {
+
+	public abstract int area();
+}
@@ -0,0 +1,22 @@
+package dev.xdark.ssvm.bench.guest;
+
+/**
+ * @author xDark
+ */
+public final class Square extends Shape implements Scalable {
+	private final int side;
+
+	public Square(int side) {
+		this.side = side;
+	}
+
+	@Override
+	public int area() {
+		return side * side;
+	}
+
+	@Override
+	public int scale(int factor) {
+		return side * factor;
+	}
+}
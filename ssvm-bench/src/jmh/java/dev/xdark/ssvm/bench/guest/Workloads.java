@@ -0,0 +1,95 @@
+package dev.xdark.ssvm.bench.guest;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Code that is executed inside of the VM.
+ * Every workload takes amount of iterations
+ * and returns a value, so that nothing gets optimized away.
+ *
+ * @author xDark
+ */
+public final class Workloads {
+	private static final Shape[] SHAPES = {
+		new Square(3), new Rectangle(2, 5), new Square(7), new Rectangle(4, 1)
+	};
+
+	private Workloads() {
+	}
+
+	public static int arithmetic(int iterations) {
+		int acc = 0;
+		for (int i = 0; i < iterations; i++) {
+			acc += (i * 31) ^ (acc >>> 3);
+			if ((i & 7) == 0) {
+				acc -= i;
+			}
+		}
+		return acc;
+	}
+
+	public static int virtualCalls(int iterations) {
+		Shape[] shapes = SHAPES;
+		int acc = 0;
+		for (int i = 0; i < iterations; i++) {
+			acc += shapes[i & 3].area();
+		}
+		return acc;
+	}
+
+	public static int interfaceCalls(int iterations) {
+		Shape[] shapes = SHAPES;
+		int acc = 0;
+		for (int i = 0; i < iterations; i++) {
+			acc += ((Scalable) shapes[i & 3]).scale(i);
+		}
+		return acc;
+	}
+
+	public static int arraycopy(int iterations) {
+		int[] src = new int[1024];
+		int[] dst = new int[1024];
+		for (int i = 0; i < src.length; i++) {
+			src[i] = i;
+		}
+		for (int i = 0; i < iterations; i++) {
+			System.arraycopy(src, 0, dst, i & 511, 512);
+		}
+		return dst[iterations & 511];
+	}
+
+	public static int exceptions(int iterations) {
+		int caught = 0;
+		for (int i = 0; i < iterations; i++) {
+			try {
+				fail(i);
+			} catch (IllegalStateException ex) {
+				caught++;
+			}
+		}
+		return caught;
+	}
+
+	public static int lambdas(int iterations) {
+		int acc = 0;
+		for (int i = 0; i < iterations; i++) {
+			int captured = i;
+			IntUnaryOperator op = x -> x + captured;
+			acc = op.applyAsInt(acc);
+		}
+		return acc;
+	}
+
+	public static int stringConcat(int iterations) {
+		int length = 0;
+		for (int i = 0; i < iterations; i++) {
+			String s = "value=" + i + ", next=" + (i + 1);
+			length += s.length();
+		}
+		return length;
+	}
+
+	private static void fail(int value) {
+		throw new IllegalStateException();
+	}
+}
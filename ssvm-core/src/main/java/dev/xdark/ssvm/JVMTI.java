@@ -24,6 +24,7 @@ final class JVMTI implements VMEventCollection {
 	private final ClassLink classLink;
 	private final MethodEnter methodEnter;
 	private final MethodExit methodExit;
+	private volatile boolean methodEvents;
 
 	JVMTI(VirtualMachine vm) {
 		this.vm = vm;
@@ -85,27 +86,50 @@ public MethodExit getMethodExit() {
 		return methodExit;
 	}
 
+	@Override
+	public boolean hasMethodEvents() {
+		return methodEvents;
+	}
+
 	JVMTIEnv create() {
-		JVMTIEnv env = new JVMTIEnvImpl(vm, environmentList);
+		JVMTIEnv env = new JVMTIEnvImpl(vm, this);
 		synchronized (environmentList) {
 			environmentList.add(env);
 		}
 		return env;
 	}
 
+	/**
+	 * Recomputes method events flag,
+	 * once environment hooks change.
+	 */
+	private void updateMethodEvents() {
+		List<JVMTIEnv> environmentList = this.environmentList;
+		synchronized (environmentList) {
+			boolean methodEvents = false;
+			for (JVMTIEnv env : environmentList) {
+				if (env.hasMethodEvents()) {
+					methodEvents = true;
+					break;
+				}
+			}
+			this.methodEvents = methodEvents;
+		}
+	}
+
 	private static final class JVMTIEnvImpl implements JVMTIEnv {
 
 		private final AtomicBoolean disposed = new AtomicBoolean();
 		private final VirtualMachine vm;
-		private final List<JVMTIEnv> environmentList;
+		private final JVMTI jvmti;
 		private ClassPrepare classPrepare;
 		private ClassLink classLink;
-		private MethodEnter methodEnter;
-		private MethodExit methodExit;
+		private volatile MethodEnter methodEnter;
+		private volatile MethodExit methodExit;
 
-		JVMTIEnvImpl(VirtualMachine vm, List<JVMTIEnv> environmentList) {
+		JVMTIEnvImpl(VirtualMachine vm, JVMTI jvmti) {
 			this.vm = vm;
-			this.environmentList = environmentList;
+			this.jvmti = jvmti;
 		}
 
 		@Override
@@ -126,11 +150,13 @@ public void setClassLink(ClassLink cl) {
 		@Override
 		public void setMethodEnter(MethodEnter methodEnter) {
 			this.methodEnter = methodEnter;
+			jvmti.updateMethodEvents();
 		}
 
 		@Override
 		public void setMethodExit(MethodExit methodExit) {
 			this.methodExit = methodExit;
+			jvmti.updateMethodEvents();
 		}
 
 		@Override
@@ -153,12 +179,19 @@ public MethodExit getMethodExit() {
 			return methodExit;
 		}
 
+		@Override
+		public boolean hasMethodEvents() {
+			return methodEnter != null || methodExit != null;
+		}
+
 		@Override
 		public void close() {
 			if (disposed.compareAndSet(false, true)) {
+				List<JVMTIEnv> environmentList = jvmti.environmentList;
 				synchronized (environmentList) {
 					environmentList.remove(this);
 				}
+				jvmti.updateMethodEvents();
 			}
 		}
 	}
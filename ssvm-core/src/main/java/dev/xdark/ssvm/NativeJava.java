@@ -157,6 +157,7 @@
 import dev.xdark.ssvm.execution.rewrite.array.ReferenceArrayProcessor;
 import dev.xdark.ssvm.execution.rewrite.array.ShortArrayProcessor;
 import dev.xdark.ssvm.execution.rewrite.VMCastProcessor;
+import dev.xdark.ssvm.execution.rewrite.VMInstanceofProcessor;
 import dev.xdark.ssvm.execution.rewrite.method.VMInterfaceCallProcessor;
 import dev.xdark.ssvm.execution.rewrite.VMNewProcessor;
 import dev.xdark.ssvm.execution.rewrite.method.VMSpecialCallProcessor;
@@ -213,6 +214,7 @@
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_GETSTATIC_LONG;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_GETSTATIC_REFERENCE;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_GETSTATIC_SHORT;
+import static dev.xdark.ssvm.asm.VMOpcodes.VM_INSTANCEOF;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_INT_NEW_ARRAY;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_INVOKEINTERFACE;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_INVOKESPECIAL;
@@ -820,6 +822,7 @@ static void setInstructions(VirtualMachine vm) {
 		vmi.setProcessor(VM_INVOKEVIRTUAL, new VMVirtualCallProcessor());
 		vmi.setProcessor(VM_INVOKEINTERFACE, new VMInterfaceCallProcessor());
 		vmi.setProcessor(VM_CHECKCAST, new VMCastProcessor());
+		vmi.setProcessor(VM_INSTANCEOF, new VMInstanceofProcessor());
 		vmi.setProcessor(VM_GETSTATIC_BOOLEAN, new GetStaticByteProcessor());
 		vmi.setProcessor(VM_GETSTATIC_CHAR, new GetStaticCharProcessor());
 		vmi.setProcessor(VM_GETSTATIC_BYTE, new GetStaticByteProcessor());
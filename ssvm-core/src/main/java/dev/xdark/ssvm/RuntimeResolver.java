@@ -27,7 +27,10 @@ public JavaMethod resolveVirtualMethod(ObjectValue value, String name, String de
 		if (value.isNull()) {
 			vm.getOperations().throwException(vm.getSymbols().java_lang_NullPointerException());
 		}
-		JavaClass type = value.getJavaClass();
+		return resolveVirtualMethod(value.getJavaClass(), name, descriptor);
+	}
+
+	public JavaMethod resolveVirtualMethod(JavaClass type, String name, String descriptor) {
 		Result<Resolution<JavaClass, JavaMethod>> result = delegate.resolveVirtualMethod(type.linkerInfo(), name, descriptor);
 		linkHelper.checkMethod(type, name, descriptor, result);
 		return result.value().member().innerValue();
@@ -37,7 +40,10 @@ public JavaMethod resolveInterfaceMethod(ObjectValue value, String name, String
 		if (value.isNull()) {
 			vm.getOperations().throwException(vm.getSymbols().java_lang_NullPointerException());
 		}
-		JavaClass type = value.getJavaClass();
+		return resolveInterfaceMethod(value.getJavaClass(), name, descriptor);
+	}
+
+	public JavaMethod resolveInterfaceMethod(JavaClass type, String name, String descriptor) {
 		Result<Resolution<JavaClass, JavaMethod>> result = delegate.resolveInterfaceMethod(type.linkerInfo(), name, descriptor);
 		linkHelper.checkMethod(type, name, descriptor, result);
 		return result.value().member().innerValue();
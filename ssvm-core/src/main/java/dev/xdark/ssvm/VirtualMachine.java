@@ -2,6 +2,7 @@
 
 import dev.xdark.ssvm.api.SimpleVMInterface;
 import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.asm.LazyMethodNode;
 import dev.xdark.ssvm.classloading.BootClassFinder;
 import dev.xdark.ssvm.classloading.ClassDefiner;
 import dev.xdark.ssvm.classloading.ClassLoaderData;
@@ -25,8 +26,8 @@
 import dev.xdark.ssvm.jvm.SimpleManagementInterface;
 import dev.xdark.ssvm.jvmti.JVMTIEnv;
 import dev.xdark.ssvm.jvmti.VMEventCollection;
+import dev.xdark.ssvm.memory.allocation.ArenaMemoryAllocator;
 import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
-import dev.xdark.ssvm.memory.allocation.NavigableMemoryAllocator;
 import dev.xdark.ssvm.memory.management.MemoryManager;
 import dev.xdark.ssvm.memory.management.SimpleMemoryManager;
 import dev.xdark.ssvm.memory.management.SimpleStringPool;
@@ -38,8 +39,11 @@
 import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.natives.IntrinsicsNatives;
 import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.snapshot.SnapshotReader;
+import dev.xdark.ssvm.snapshot.SnapshotWriter;
 import dev.xdark.ssvm.symbol.Primitives;
 import dev.xdark.ssvm.symbol.Symbols;
+import dev.xdark.ssvm.synchronizer.MonitorScheduler;
 import dev.xdark.ssvm.synchronizer.ObjectSynchronizer;
 import dev.xdark.ssvm.synchronizer.java.LockObjectSynchronizer;
 import dev.xdark.ssvm.thread.JavaThread;
@@ -49,18 +53,28 @@
 import dev.xdark.ssvm.thread.virtual.VirtualThreadManager;
 import dev.xdark.ssvm.timezone.SimpleTimeManager;
 import dev.xdark.ssvm.timezone.TimeManager;
+import dev.xdark.ssvm.util.ClassUtil;
 import dev.xdark.ssvm.util.CloseableLock;
 import dev.xdark.ssvm.util.Reflection;
 import dev.xdark.ssvm.value.InstanceValue;
 import lombok.experimental.Delegate;
 import org.jetbrains.annotations.Nullable;
-
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteOrder;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class VirtualMachine implements VMEventCollection {
 
@@ -125,10 +139,11 @@ public <V extends VirtualMachine> VirtualMachine(Consumer<V> consumer) {
 		delegatingPrimitives.setPrimitives(new UninitializedPrimitives());
 		primitives = delegatingPrimitives;
 		memoryAllocator = createMemoryAllocator();
+		// Synchronizer may need the thread manager
+		threadManager = createThreadManager();
 		objectSynchronizer = createObjectSynchronizer();
 		memoryManager = createMemoryManager();
 		classDefiner = createClassDefiner();
-		threadManager = createThreadManager();
 		fileManager = createFileManager();
 		nativeLibraryManager = createNativeLibraryManager();
 		timeManager = createTimeManager();
@@ -151,10 +166,14 @@ protected VMInterface createVMInterface() {
 	}
 
 	protected MemoryAllocator createMemoryAllocator() {
-		return new NavigableMemoryAllocator();
+		return new ArenaMemoryAllocator();
 	}
 
 	protected ObjectSynchronizer createObjectSynchronizer() {
+		ThreadManager threadManager = this.threadManager;
+		if (threadManager instanceof MonitorScheduler) {
+			return new LockObjectSynchronizer((MonitorScheduler) threadManager);
+		}
 		return new LockObjectSynchronizer();
 	}
 
@@ -271,6 +290,110 @@ public void bootstrap() {
 		}
 	}
 
+	/**
+	 * Boots the VM from the image written by {@link #writeSnapshot(OutputStream)}.
+	 * After this method is called, caller thread will remain attached.
+	 *
+	 * @param snapshot Stream to read VM image from.
+	 * @throws IOException           If any I/O error occurs.
+	 * @throws IllegalStateException If VM fails to transit to {@link InitializationState#BOOTING} state,
+	 *                               or fails to restore the image.
+	 * @see SnapshotReader
+	 */
+	public void bootstrap(InputStream snapshot) throws IOException {
+		restore(snapshot, null);
+	}
+
+	/**
+	 * Writes an image of the booted VM,
+	 * must be called from the thread attached to the VM.
+	 * Host handles are not part of the image: standard streams
+	 * are re-opened on restore, other file descriptors and zip files
+	 * must be closed before the image is written.
+	 *
+	 * @param out Stream to write VM image to.
+	 * @throws IOException           If any I/O error occurs.
+	 * @throws IllegalStateException If VM is not booted,
+	 *                               or the guest holds open host handles.
+	 * @see SnapshotWriter
+	 */
+	public void writeSnapshot(OutputStream out) throws IOException {
+		assertBooted();
+		new SnapshotWriter(this).write(out);
+	}
+
+	/**
+	 * Forks the VM.
+	 * Fork gets a copy of the heap and the class state of this VM,
+	 * and then runs independently of it.
+	 * Fork shares class files and parsed class nodes of this VM,
+	 * including the ones of non-boot classes, instead of loading them again.
+	 * Method code is parsed by each VM on first use.
+	 * The heap is copied, as references and class ids are per-VM.
+	 * Caller thread must be attached to this VM,
+	 * and will remain attached to the fork.
+	 *
+	 * @param factory VM factory, must produce VMs that were not initialized yet.
+	 * @return booted fork.
+	 * @throws IllegalStateException If VM is not booted,
+	 *                               holds open host handles,
+	 *                               or fork fails to boot.
+	 * @see #writeSnapshot(OutputStream)
+	 */
+	public <V extends VirtualMachine> V fork(Supplier<? extends V> factory) {
+		assertBooted();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		V vm = factory.get();
+		try {
+			writeSnapshot(out);
+			ClassStorage classStorage = this.classStorage;
+			((VirtualMachine) vm).restore(new ByteArrayInputStream(out.toByteArray()), (id, name) -> {
+				// Image was just written, ids are still valid
+				JavaClass klass = classStorage.lookup(id);
+				if (!(klass instanceof InstanceClass) || !name.equals(klass.getInternalName())) {
+					return null;
+				}
+				InstanceClass parent = (InstanceClass) klass;
+				ClassReader reader = parent.getClassReader();
+				if (reader == null) {
+					// Boot class that does not keep its class file,
+					// the fork reads it again
+					return null;
+				}
+				// Each VM copies the parsed node before modifying it,
+				// and lazy methods before parsing their code
+				ClassNode node = parent.getParsedNode();
+				if (!isShareable(node)) {
+					node = ClassUtil.readNode(reader);
+				}
+				return new ParsedClassData(reader, node);
+			});
+		} catch (IOException ex) {
+			throw new IllegalStateException("VM fork failed", ex);
+		}
+		return vm;
+	}
+
+	private static boolean isShareable(ClassNode node) {
+		// Eagerly parsed code is rewritten in place
+		for (MethodNode method : node.methods) {
+			if (!(method instanceof LazyMethodNode)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Forks the VM.
+	 *
+	 * @return booted fork.
+	 * @see #fork(Supplier)
+	 */
+	public VirtualMachine fork() {
+		return fork(VirtualMachine::new);
+	}
+
 	/**
 	 * @return current initialization state.
 	 */
@@ -704,6 +827,28 @@ else if (unsafeConstants.getField("ADDRESS_SIZE0", "I") != null) // Renamed in l
 		//</editor-fold>
 	}
 
+	private void restore(InputStream snapshot, SnapshotReader.ClassSource classSource) throws IOException {
+		tryInitialize();
+		assertInitialized();
+		if (!state.compareAndSet(InitializationState.INITIALIZED, InitializationState.BOOTING)) {
+			throw new IllegalStateException("Failed to enter in BOOTING state");
+		}
+		try {
+			threadManager.attachCurrentThread();
+			SnapshotReader reader = new SnapshotReader(this, classSource);
+			reader.read(snapshot);
+			systemThreadGroup = reader.getSystemThreadGroup();
+			mainThreadGroup = reader.getMainThreadGroup();
+			state.set(InitializationState.BOOTED);
+		} catch (IOException ex) {
+			state.set(InitializationState.FAILED);
+			throw ex;
+		} catch (Exception ex) {
+			state.set(InitializationState.FAILED);
+			throw new IllegalStateException("VM restore failed", ex);
+		}
+	}
+
 	private InstanceClass internalLink(String name) {
 		// Loading java/lang/Class may be enough
 		// to trigger code that will load other classes for us.
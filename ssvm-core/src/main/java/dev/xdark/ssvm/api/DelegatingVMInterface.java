@@ -44,6 +44,16 @@ public MethodInvoker getInvoker(JavaMethod method) {
 		return delegate.getInvoker(method);
 	}
 
+	@Override
+	public InvokerBinding getInvokerBinding(JavaMethod method) {
+		return delegate.getInvokerBinding(method);
+	}
+
+	@Override
+	public int getVersion() {
+		return delegate.getVersion();
+	}
+
 	@Override
 	public void setInvoker(JavaMethod method, MethodInvoker invoker) {
 		delegate.setInvoker(method, invoker);
@@ -0,0 +1,57 @@
+package dev.xdark.ssvm.api;
+
+/**
+ * Invoker of a method, resolved by the VM interface
+ * and cached on the method itself.
+ *
+ * @author xDark
+ * @see VMInterface#getInvokerBinding(dev.xdark.ssvm.mirror.member.JavaMethod)
+ */
+public final class InvokerBinding {
+	private final MethodInvoker invoker;
+	private final int version;
+	private final boolean instrumented;
+
+	/**
+	 * @param invoker      Method invoker, may be {@code null}.
+	 * @param version      Version of the interface this binding was resolved against.
+	 * @param instrumented Whether any method listener or instruction interceptor is registered.
+	 */
+	public InvokerBinding(MethodInvoker invoker, int version, boolean instrumented) {
+		this.invoker = invoker;
+		this.version = version;
+		this.instrumented = instrumented;
+	}
+
+	/**
+	 * @return method invoker or {@code null},
+	 * if the method has no invoker.
+	 */
+	public MethodInvoker getInvoker() {
+		return invoker;
+	}
+
+	/**
+	 * @return version of the interface this binding was resolved against.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return {@code true} if any method listener
+	 * or instruction interceptor is registered.
+	 */
+	public boolean isInstrumented() {
+		return instrumented;
+	}
+
+	/**
+	 * @return {@code true} if the method has no invoker,
+	 * and there are no method listeners or instruction interceptors,
+	 * so it may be passed straight into the interpreter.
+	 */
+	public boolean isDirect() {
+		return invoker == null && !instrumented;
+	}
+}
@@ -7,6 +7,9 @@
 import org.objectweb.asm.tree.AbstractInsnNode;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
@@ -17,16 +20,18 @@
 public class SimpleVMInterface implements VMInterface {
 	private static final int MAX_INSNS = 1024;
 	private final InstructionProcessor[] processors = new InstructionProcessor[MAX_INSNS];
-	private final Map<JavaMethod, MethodInvoker> invokerMap = new HashMap<>();
-	private final List<MethodEnterListener> methodEnters = new ArrayList<>();
-	private final List<MethodExitListener> methodExits = new ArrayList<>();
+	private final Map<JavaMethod, MethodInvoker> invokerMap = new ConcurrentHashMap<>();
+	private final List<MethodEnterListener> methodEnters = new CopyOnWriteArrayList<>();
+	private final List<MethodExitListener> methodExits = new CopyOnWriteArrayList<>();
 	private final List<MethodEnterListener> methodEntersView = Collections.unmodifiableList(methodEnters);
 	private final List<MethodExitListener> methodExitsView = Collections.unmodifiableList(methodExits);
-	private final List<InstructionInterceptor> instructionInterceptors = new ArrayList<>();
+	private final List<InstructionInterceptor> instructionInterceptors = new CopyOnWriteArrayList<>();
 	private final List<InstructionInterceptor> instructionInterceptorsView = Collections.unmodifiableList(instructionInterceptors);
 	private Consumer<ExecutionContext<?>> linkageErrorHandler = SimpleVMInterface::handleLinkageError0;
 	private Consumer<ExecutionContext<?>> abstractMethodHandler = SimpleVMInterface::handleAbstractMethodError0;
 	private Consumer<ExecutionContext<?>> maxIterationsHandler = SimpleVMInterface::handleMaxIterations0;
+	// Invalidates invoker bindings cached on methods
+	private final AtomicInteger version = new AtomicInteger();
 
 	public SimpleVMInterface() {
 		Arrays.fill(processors, new UnknownInstructionProcessor());
@@ -52,9 +57,30 @@ public MethodInvoker getInvoker(JavaMethod method) {
 		return invokerMap.get(method);
 	}
 
+	@Override
+	public InvokerBinding getInvokerBinding(JavaMethod method) {
+		int version = this.version.get();
+		InvokerBinding binding = method.getInvokerBinding();
+		if (binding == null || binding.getVersion() != version) {
+			MethodInvoker invoker = invokerMap.get(method);
+			boolean instrumented = !methodEnters.isEmpty()
+				|| !methodExits.isEmpty()
+				|| !instructionInterceptors.isEmpty();
+			binding = new InvokerBinding(invoker, version, instrumented);
+			method.setInvokerBinding(binding);
+		}
+		return binding;
+	}
+
+	@Override
+	public int getVersion() {
+		return version.get();
+	}
+
 	@Override
 	public void setInvoker(JavaMethod method, MethodInvoker invoker) {
 		invokerMap.put(method, invoker);
+		version.incrementAndGet();
 	}
 
 	@Override
@@ -84,31 +110,37 @@ public void onMethodExit(ExecutionContext<?> ctx) {
 	@Override
 	public void registerInstructionInterceptor(InstructionInterceptor interceptor) {
 		instructionInterceptors.add(interceptor);
+		version.incrementAndGet();
 	}
 
 	@Override
 	public void removeInstructionInterceptor(InstructionInterceptor interceptor) {
 		instructionInterceptors.remove(interceptor);
+		version.incrementAndGet();
 	}
 
 	@Override
 	public void registerMethodEnterListener(MethodEnterListener listener) {
 		methodEnters.add(listener);
+		version.incrementAndGet();
 	}
 
 	@Override
 	public void registerMethodExitListener(MethodExitListener listener) {
 		methodExits.add(listener);
+		version.incrementAndGet();
 	}
 
 	@Override
 	public void removeMethodEnterListener(MethodEnterListener listener) {
 		methodEnters.remove(listener);
+		version.incrementAndGet();
 	}
 
 	@Override
 	public void removeMethodExitListener(MethodExitListener listener) {
 		methodExits.remove(listener);
+		version.incrementAndGet();
 	}
 
 	@Override
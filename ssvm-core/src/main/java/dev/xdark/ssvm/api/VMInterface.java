@@ -51,6 +51,26 @@ public interface VMInterface {
 	 */
 	MethodInvoker getInvoker(JavaMethod method);
 
+	/**
+	 * Returns invoker binding of the method.
+	 * Binding is cached on the method and is resolved again
+	 * once invokers, listeners or interceptors change.
+	 *
+	 * @param method Method to get binding for.
+	 * @return invoker binding.
+	 */
+	InvokerBinding getInvokerBinding(JavaMethod method);
+
+	/**
+	 * Version of the interface, changes whenever
+	 * invokers, listeners or interceptors change.
+	 * Reading it is as cheap as a volatile read, so that
+	 * interpreter loops may poll it.
+	 *
+	 * @return interface version.
+	 */
+	int getVersion();
+
 	/**
 	 * Sets an invoker for the method.
 	 *
@@ -0,0 +1,59 @@
+package dev.xdark.ssvm.asm;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Reads single methods of a class.
+ * <p>
+ * The class is visited with a visitor that
+ * declines everything but the requested method,
+ * so the reader only goes over the headers of fields
+ * and other methods, without parsing their contents.
+ *
+ * @author xDark
+ */
+public final class CodeSource {
+	private final ClassReader reader;
+
+	/**
+	 * @param reader Class to read methods from.
+	 */
+	public CodeSource(ClassReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Makes the visitor visit the method.
+	 *
+	 * @param index   Index of the method in the class file.
+	 * @param visitor Visitor to visit the method with.
+	 * @param flags   Flags passed to {@link ClassReader#accept(ClassVisitor, int)}.
+	 */
+	public void accept(int index, MethodVisitor visitor, int flags) {
+		reader.accept(new MethodSelector(index, visitor), flags);
+	}
+
+	/**
+	 * Forwards the method with the given index,
+	 * methods are visited in the class file order.
+	 */
+	private static final class MethodSelector extends ClassVisitor {
+		private final int index;
+		private final MethodVisitor visitor;
+		private int current;
+
+		MethodSelector(int index, MethodVisitor visitor) {
+			super(Opcodes.ASM9);
+			this.index = index;
+			this.visitor = visitor;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+			return current++ == index ? visitor : null;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package dev.xdark.ssvm.asm;
+
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.JavaClass;
+
+/**
+ * Polymorphic inline cache of the call site.
+ * <p>
+ * Maps receiver types to resolved methods.
+ * The cache starts empty, becomes monomorphic after the first call
+ * and grows up to {@link #MAX_ENTRIES} receiver types.
+ * Once a site sees more types than that, it becomes megamorphic
+ * and callers fall back to the generic dispatch.
+ * Hit and miss counters are not synchronized and
+ * are only approximate if the site is shared between threads.
+ *
+ * @author xDark
+ */
+public final class InlineCache {
+	public static final int MAX_ENTRIES = 4;
+	private static final JavaClass[] NO_TYPES = {};
+	private static final JavaMethod[] NO_METHODS = {};
+	// Types and methods are published together
+	private volatile Entries entries = new Entries(NO_TYPES, NO_METHODS);
+	private volatile boolean megamorphic;
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param type Receiver type.
+	 * @return cached method or {@code null},
+	 * if the type is not in the cache.
+	 */
+	public JavaMethod lookup(JavaClass type) {
+		Entries entries = this.entries;
+		JavaClass[] types = entries.types;
+		for (int i = 0; i < types.length; i++) {
+			if (types[i] == type) {
+				hits++;
+				return entries.methods[i];
+			}
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Records resolved method for the receiver type.
+	 *
+	 * @param type   Receiver type.
+	 * @param method Resolved method.
+	 */
+	public void update(JavaClass type, JavaMethod method) {
+		if (megamorphic) {
+			return;
+		}
+		synchronized (this) {
+			Entries entries = this.entries;
+			JavaClass[] types = entries.types;
+			int length = types.length;
+			for (int i = 0; i < length; i++) {
+				if (types[i] == type) {
+					// Another thread won the race
+					return;
+				}
+			}
+			if (length == MAX_ENTRIES) {
+				megamorphic = true;
+				this.entries = new Entries(NO_TYPES, NO_METHODS);
+				return;
+			}
+			JavaClass[] newTypes = new JavaClass[length + 1];
+			JavaMethod[] newMethods = new JavaMethod[length + 1];
+			System.arraycopy(types, 0, newTypes, 0, length);
+			System.arraycopy(entries.methods, 0, newMethods, 0, length);
+			newTypes[length] = type;
+			newMethods[length] = method;
+			this.entries = new Entries(newTypes, newMethods);
+		}
+	}
+
+	/**
+	 * Clears the cache, bringing it back
+	 * to the uninitialized state.
+	 */
+	public synchronized void invalidate() {
+		entries = new Entries(NO_TYPES, NO_METHODS);
+		megamorphic = false;
+	}
+
+	/**
+	 * @return {@code true} if the site has seen
+	 * too many receiver types.
+	 */
+	public boolean isMegamorphic() {
+		return megamorphic;
+	}
+
+	/**
+	 * @return amount of cached receiver types.
+	 */
+	public int size() {
+		return entries.types.length;
+	}
+
+	/**
+	 * @return amount of cache hits.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return amount of cache misses.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	private static final class Entries {
+		final JavaClass[] types;
+		final JavaMethod[] methods;
+
+		Entries(JavaClass[] types, JavaMethod[] methods) {
+			this.types = types;
+			this.methods = methods;
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package dev.xdark.ssvm.asm;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.TypePath;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Method node which code is not parsed
+ * until it is requested with {@link #load()}.
+ * <p>
+ * Everything outside of the {@code Code} attribute,
+ * i.e. annotations, exceptions and parameters,
+ * is available right away.
+ * <p>
+ * Node may also serve as a template, see {@link #copy()}.
+ *
+ * @author xDark
+ */
+public final class LazyMethodNode extends MethodNode {
+	private final int index;
+	private CodeSource source;
+	private volatile boolean loaded;
+
+	/**
+	 * @param source     Class source to read the code from.
+	 * @param index      Index of the method in the class file.
+	 * @param access     Method access.
+	 * @param name       Method name.
+	 * @param descriptor Method descriptor.
+	 * @param signature  Method signature.
+	 * @param exceptions Method exceptions.
+	 */
+	public LazyMethodNode(CodeSource source, int index, int access, String name, String descriptor, String signature, String[] exceptions) {
+		super(Opcodes.ASM9, access, name, descriptor, signature, exceptions);
+		this.source = source;
+		this.index = index;
+		// Abstract and native methods have no code
+		loaded = (access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0;
+	}
+
+	/**
+	 * @return {@code true} if the code of the method is parsed.
+	 */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Parses the code of the method, if not parsed yet.
+	 *
+	 * @return this node.
+	 */
+	public LazyMethodNode load() {
+		if (!loaded) {
+			synchronized (this) {
+				if (!loaded) {
+					readCode();
+					// Code is no longer needed
+					source = null;
+					loaded = true;
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Creates a copy of this node that has the code.
+	 * Code is parsed right into the copy, unless
+	 * this node has it already, and this node is left as is,
+	 * so that it can be shared by several owners
+	 * that modify their copies.
+	 *
+	 * @return copy of this node.
+	 */
+	public synchronized MethodNode copy() {
+		String[] exceptions = this.exceptions.toArray(new String[0]);
+		if (loaded) {
+			MethodNode copy = new MethodNode(Opcodes.ASM9, access, name, desc, signature, exceptions) {
+				private final Map<Label, LabelNode> labels = new HashMap<>();
+
+				@Override
+				protected LabelNode getLabelNode(Label label) {
+					// Default implementation caches the node in the label,
+					// which is shared with this node
+					return labels.computeIfAbsent(label, __ -> new LabelNode());
+				}
+			};
+			super.accept(copy);
+			return copy;
+		}
+		MethodNode copy = new MethodNode(Opcodes.ASM9, access, name, desc, signature, exceptions);
+		// No code yet, only annotations, parameters and attributes are copied
+		super.accept(copy);
+		source.accept(index, new CodeVisitor(copy), ClassReader.SKIP_FRAMES);
+		return copy;
+	}
+
+	@Override
+	public void accept(MethodVisitor methodVisitor) {
+		load();
+		super.accept(methodVisitor);
+	}
+
+	private void readCode() {
+		source.accept(index, new CodeVisitor(this), ClassReader.SKIP_FRAMES);
+	}
+
+	/**
+	 * Forwards only the code of the method,
+	 * everything else is already in the node.
+	 */
+	private static final class CodeVisitor extends MethodVisitor {
+
+		CodeVisitor(MethodVisitor mv) {
+			super(Opcodes.ASM9, mv);
+		}
+
+		@Override
+		public void visitParameter(String name, int access) {
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotationDefault() {
+			return null;
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+			return null;
+		}
+
+		@Override
+		public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+			return null;
+		}
+
+		@Override
+		public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
+		}
+
+		@Override
+		public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
+			return null;
+		}
+
+		@Override
+		public void visitAttribute(Attribute attribute) {
+		}
+
+		@Override
+		public void visitEnd() {
+		}
+	}
+}
@@ -1,7 +1,8 @@
 package dev.xdark.ssvm.asm;
 
-import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.mirror.type.JavaClass;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.MethodInsnNode;
 
@@ -16,6 +17,9 @@ public final class VMCallInsnNode extends DelegatingInsnNode<MethodInsnNode> {
 	private JavaMethod resolved;
 	private int argCount = -1;
 	private JavaClass javaClass;
+	private InlineCache inlineCache;
+	private InstanceClass tableOwner;
+	private int tableIndex = -2;
 
 	/**
 	 * @param delegate      Backing instruction.
@@ -63,6 +67,45 @@ public int getArgCount() {
 		return argCount;
 	}
 
+	/**
+	 * @return inline cache of the call site.
+	 */
+	public InlineCache getInlineCache() {
+		// Its okay if this gets created multiple times
+		InlineCache inlineCache = this.inlineCache;
+		if (inlineCache == null) {
+			inlineCache = new InlineCache();
+			this.inlineCache = inlineCache;
+		}
+		return inlineCache;
+	}
+
+	/**
+	 * @return class that defines layout of the dispatch table.
+	 * For interface calls, this is the interface that declares the method.
+	 */
+	public InstanceClass getTableOwner() {
+		return tableOwner;
+	}
+
+	/**
+	 * @return index in the virtual or interface method table,
+	 * {@code -1} if the method cannot be dispatched through the table,
+	 * or {@code -2} if the index is not yet resolved.
+	 */
+	public int getTableIndex() {
+		return tableIndex;
+	}
+
+	/**
+	 * @param tableOwner Class that defines layout of the dispatch table.
+	 * @param tableIndex Index in the table.
+	 */
+	public void setTableIndex(InstanceClass tableOwner, int tableIndex) {
+		this.tableOwner = tableOwner;
+		this.tableIndex = tableIndex;
+	}
+
 	// For INVOKEINTERFACE
 	public JavaClass getJavaClass() {
 		return javaClass;
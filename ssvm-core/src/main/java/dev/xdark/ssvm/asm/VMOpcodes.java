@@ -64,4 +64,5 @@ public interface VMOpcodes {
 	int VM_GETFIELD_LONG = VM_GETFIELD_FLOAT + 1;
 	int VM_GETFIELD_DOUBLE = VM_GETFIELD_LONG + 1;
 	int VM_GETFIELD_REFERENCE = VM_GETFIELD_DOUBLE + 1;
+	int VM_INSTANCEOF = VM_GETFIELD_REFERENCE + 1;
 }
@@ -11,6 +11,8 @@
 public final class VMTypeInsnNode extends DelegatingInsnNode<TypeInsnNode> {
 
 	private final JavaClass type;
+	private JavaClass lastSubtype;
+	private JavaClass lastNonSubtype;
 
 	/**
 	 * @param delegate      Backing instruction.
@@ -28,4 +30,27 @@ public VMTypeInsnNode(TypeInsnNode delegate, int virtualOpcode, JavaClass type)
 	public JavaClass getJavaType() {
 		return type;
 	}
+
+	/**
+	 * Checks whether the type is assignable from another type,
+	 * remembering the last seen types.
+	 *
+	 * @param other Type to check.
+	 * @return {@code true} if the type is assignable from another type.
+	 * @see JavaClass#isAssignableFrom(JavaClass)
+	 */
+	public boolean isAssignableFrom(JavaClass other) {
+		if (other == lastSubtype) {
+			return true;
+		}
+		if (other == lastNonSubtype) {
+			return false;
+		}
+		if (type.isAssignableFrom(other)) {
+			lastSubtype = other;
+			return true;
+		}
+		lastNonSubtype = other;
+		return false;
+	}
 }
@@ -12,14 +12,28 @@ public final class ParsedClassData {
 
 	private final ClassReader classReader;
 	private final ClassNode node;
+	private final boolean retainReader;
+
+	/**
+	 * @param classReader  Class source.
+	 * @param node         ASM node.
+	 * @param retainReader Whether the class should keep the reader once defined.
+	 *                     Class that does not keep it reads the boot class file again
+	 *                     when it is needed, and cannot be written to a snapshot
+	 *                     if it is not a boot class.
+	 */
+	public ParsedClassData(ClassReader classReader, ClassNode node, boolean retainReader) {
+		this.classReader = classReader;
+		this.node = node;
+		this.retainReader = retainReader;
+	}
 
 	/**
 	 * @param classReader Class source.
 	 * @param node        ASM node.
 	 */
 	public ParsedClassData(ClassReader classReader, ClassNode node) {
-		this.classReader = classReader;
-		this.node = node;
+		this(classReader, node, true);
 	}
 
 	/**
@@ -39,4 +53,11 @@ public ClassReader getClassReader() {
 	public ClassNode getNode() {
 		return node;
 	}
+
+	/**
+	 * @return {@code true} if the class should keep the reader once defined.
+	 */
+	public boolean shouldRetainReader() {
+		return retainReader;
+	}
 }
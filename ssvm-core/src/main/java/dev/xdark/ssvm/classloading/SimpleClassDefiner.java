@@ -9,10 +9,37 @@
  * @author xDark
  */
 public final class SimpleClassDefiner implements ClassDefiner {
+	private final boolean lazyCode;
+	private final boolean retainReader;
+
+	/**
+	 * @param lazyCode     Whether the code of the methods
+	 *                     should be parsed on first use.
+	 * @param retainReader Whether defined classes should keep their class file.
+	 *                     Methods which code was not parsed yet
+	 *                     keep it regardless.
+	 * @see ParsedClassData#ParsedClassData(ClassReader, org.objectweb.asm.tree.ClassNode, boolean)
+	 */
+	public SimpleClassDefiner(boolean lazyCode, boolean retainReader) {
+		this.lazyCode = lazyCode;
+		this.retainReader = retainReader;
+	}
+
+	/**
+	 * @param lazyCode Whether the code of the methods
+	 *                 should be parsed on first use.
+	 */
+	public SimpleClassDefiner(boolean lazyCode) {
+		this(lazyCode, true);
+	}
+
+	public SimpleClassDefiner() {
+		this(true);
+	}
 
 	@Override
 	public ParsedClassData parseClass(String name, byte[] classBytes, int off, int len, String source) {
 		ClassReader cr = new ClassReader(classBytes, off, len);
-		return new ParsedClassData(cr, ClassUtil.readNode(cr));
+		return new ParsedClassData(cr, ClassUtil.readNode(cr, lazyCode), retainReader);
 	}
 }
@@ -13,8 +13,8 @@
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Simple class loaders storage.
@@ -23,11 +23,11 @@
  */
 public class SimpleClassLoaders implements ClassLoaders {
 
-	private final Set<InstanceValue> classLoaders = new HashSet<>();
+	private final Set<InstanceValue> classLoaders = ConcurrentHashMap.newKeySet();
 	private final Set<InstanceValue> classLoadersView = Collections.unmodifiableSet(classLoaders);
 	private final MetadataStorage<ClassLoaderData> classLoaderMap = new SimpleMetadataStorage<>();
 	private final VirtualMachine vm;
-	private ClassLoaderData bootClassLoaderData;
+	private volatile ClassLoaderData bootClassLoaderData;
 	private long anonymousClassLoaderOffset = -1L;
 
 	public SimpleClassLoaders(VirtualMachine vm) {
@@ -72,7 +72,7 @@ public void copyFrom(Locals locals, int srcOffset, int destOffset, int length) {
 
 	@Override
 	public int maxSlots() {
-		return panicEmpty();
+		return 0;
 	}
 
 	private static <T> T panicEmpty() {
@@ -0,0 +1,114 @@
+package dev.xdark.ssvm.execution;
+
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.util.AsmUtil;
+
+import java.util.List;
+
+/**
+ * Exception table of a method.
+ * Block ranges are resolved to instruction indices once,
+ * and each block remembers the last exception type it was matched against.
+ *
+ * @author xDark
+ */
+public final class ExceptionTable {
+	private static final ExceptionTable EMPTY = new ExceptionTable(new VMTryCatchBlock[0], new int[0], Integer.MAX_VALUE, Integer.MIN_VALUE);
+	private final VMTryCatchBlock[] blocks;
+	// start, end and handler index of each block
+	private final int[] ranges;
+	private final int minIndex;
+	private final int maxIndex;
+	private final Match[] matches;
+
+	private ExceptionTable(VMTryCatchBlock[] blocks, int[] ranges, int minIndex, int maxIndex) {
+		this.blocks = blocks;
+		this.ranges = ranges;
+		this.minIndex = minIndex;
+		this.maxIndex = maxIndex;
+		matches = new Match[blocks.length];
+	}
+
+	/**
+	 * Finds exception handler.
+	 *
+	 * @param index         Index of the instruction that threw an exception.
+	 * @param exceptionType Exception type.
+	 * @return handler instruction index or {@code -1},
+	 * if exception is not handled.
+	 */
+	public int findHandler(int index, InstanceClass exceptionType) {
+		if (index < minIndex || index > maxIndex) {
+			return -1;
+		}
+		VMTryCatchBlock[] blocks = this.blocks;
+		int[] ranges = this.ranges;
+		search:
+		while (true) {
+			for (int i = 0, j = 0; i < blocks.length; i++, j += 3) {
+				if (index < ranges[j] || index > ranges[j + 1]) {
+					continue;
+				}
+				boolean handle;
+				try {
+					handle = matches(i, exceptionType);
+				} catch (VMException ex) {
+					// Catch type failed to resolve, continue from the handler
+					index = ranges[j + 2];
+					continue search;
+				}
+				if (handle) {
+					return ranges[j + 2];
+				}
+			}
+			return -1;
+		}
+	}
+
+	private boolean matches(int block, InstanceClass exceptionType) {
+		Match match = matches[block];
+		if (match != null && match.type == exceptionType) {
+			return match.handle;
+		}
+		InstanceClass candidate = blocks[block].getType();
+		boolean handle = candidate == null || candidate.isAssignableFrom(exceptionType);
+		matches[block] = new Match(exceptionType, handle);
+		return handle;
+	}
+
+	/**
+	 * @param tryCatchBlocks Try/catch blocks of the method.
+	 * @return exception table.
+	 */
+	public static ExceptionTable create(List<VMTryCatchBlock> tryCatchBlocks) {
+		int size = tryCatchBlocks.size();
+		if (size == 0) {
+			return EMPTY;
+		}
+		VMTryCatchBlock[] blocks = tryCatchBlocks.toArray(new VMTryCatchBlock[0]);
+		int[] ranges = new int[size * 3];
+		int minIndex = Integer.MAX_VALUE;
+		int maxIndex = Integer.MIN_VALUE;
+		for (int i = 0, j = 0; i < size; i++) {
+			VMTryCatchBlock block = blocks[i];
+			int start = AsmUtil.getIndex(block.getStart());
+			int end = AsmUtil.getIndex(block.getEnd());
+			ranges[j++] = start;
+			ranges[j++] = end;
+			ranges[j++] = AsmUtil.getIndex(block.getHandler());
+			minIndex = Math.min(minIndex, start);
+			maxIndex = Math.max(maxIndex, end);
+		}
+		return new ExceptionTable(blocks, ranges, minIndex, maxIndex);
+	}
+
+	private static final class Match {
+		final InstanceClass type;
+		final boolean handle;
+
+		Match(InstanceClass type, boolean handle) {
+			this.type = type;
+			this.handle = handle;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package dev.xdark.ssvm.execution;
+
+/**
+ * How method bodies are executed.
+ *
+ * @author xDark
+ */
+public enum ExecutionMode {
+
+	/**
+	 * Walks over the instruction list, see {@link Interpreter}.
+	 */
+	INTERPRETED,
+	/**
+	 * Runs over the pre-decoded method body, see {@link ThreadedInterpreter}.
+	 */
+	THREADED,
+	/**
+	 * Runs methods in the {@link #THREADED} mode until they get hot,
+	 * then compiles them into host classes,
+	 * see {@link dev.xdark.ssvm.execution.compiler.TieredInvoker}.
+	 */
+	TIERED,
+	/**
+	 * Walks over the instruction list, but runs calls to interpreted methods
+	 * in the same loop instead of recursing through the host stack,
+	 * see {@link StacklessInterpreter}.
+	 */
+	STACKLESS,
+}
@@ -12,6 +12,18 @@
  * @author xDark
  */
 public final class InterpretedInvoker implements MethodInvoker {
+	private final ExecutionMode mode;
+
+	/**
+	 * @param mode Execution mode.
+	 */
+	public InterpretedInvoker(ExecutionMode mode) {
+		this.mode = mode;
+	}
+
+	public InterpretedInvoker() {
+		this(ExecutionMode.INTERPRETED);
+	}
 
 	@Override
 	public Result intercept(ExecutionContext<?> ctx) {
@@ -33,7 +45,13 @@ public Result intercept(ExecutionContext<?> ctx) {
 			return Result.ABORT;
 		}
 
-		Interpreter.execute(ctx);
+		if (mode == ExecutionMode.THREADED) {
+			ThreadedInterpreter.execute(ctx);
+		} else if (mode == ExecutionMode.STACKLESS) {
+			StacklessInterpreter.execute(ctx);
+		} else {
+			Interpreter.execute(ctx);
+		}
 		return Result.ABORT;
 	}
 }
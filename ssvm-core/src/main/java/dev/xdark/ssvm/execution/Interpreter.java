@@ -2,8 +2,6 @@
 
 import dev.xdark.ssvm.api.InstructionInterceptor;
 import dev.xdark.ssvm.api.VMInterface;
-import dev.xdark.ssvm.mirror.type.InstanceClass;
-import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.util.AsmUtil;
 import dev.xdark.ssvm.value.InstanceValue;
 import lombok.experimental.UtilityClass;
@@ -22,15 +20,18 @@ public class Interpreter {
 
 	/**
 	 * Processes {@link ExecutionContext}.
+	 * Instruction interceptors are only consulted
+	 * if any are registered, the interface version
+	 * is re-checked at back-edges and calls.
 	 *
 	 * @param ctx Context to process.
 	 */
 	public void execute(ExecutionContext<?> ctx) {
-		JavaMethod jm = ctx.getMethod();
 		VMInterface vmi = ctx.getVM().getInterface();
-		MethodNode mn = jm.getNode();
-		InsnList instructions = mn.instructions;
+		InsnList instructions = ctx.getMethod().getNode().instructions;
 		List<InstructionInterceptor> interceptors = vmi.getInstructionInterceptors();
+		int version = vmi.getVersion();
+		boolean intercept = !interceptors.isEmpty();
 		int iter = 0;
 		exec:
 		while (true) {
@@ -45,9 +46,11 @@ public void execute(ExecutionContext<?> ctx) {
 				if (insn instanceof LineNumberNode) {
 					ctx.setLineNumber(((LineNumberNode) insn).line);
 				}
-				for (int i = 0, j = interceptors.size(); i < j; i++) {
-					if (interceptors.get(i).intercept(ctx, insn) == Result.ABORT) {
-						break exec;
+				if (intercept) {
+					for (int i = 0, j = interceptors.size(); i < j; i++) {
+						if (interceptors.get(i).intercept(ctx, insn) == Result.ABORT) {
+							break exec;
+						}
 					}
 				}
 				if (insn.getOpcode() == -1 || !AsmUtil.isValid(insn)) {
@@ -57,6 +60,13 @@ public void execute(ExecutionContext<?> ctx) {
 				if (processor.execute(insn, ctx) == Result.ABORT) {
 					break;
 				}
+				if (ctx.getInsnPosition() <= pos || isCall(insn)) {
+					int newVersion = vmi.getVersion();
+					if (newVersion != version) {
+						version = newVersion;
+						intercept = !interceptors.isEmpty();
+					}
+				}
 			} catch (VMException ex) {
 				handleExceptionCaught(ctx, ex);
 			}
@@ -77,44 +87,29 @@ public static int getMaxIterations() {
 		return maxIterations;
 	}
 
-	private static void handleMaxIterations(ExecutionContext<?> ctx) {
+	/**
+	 * @param insn Instruction to check.
+	 * @return {@code true} if the instruction is a method call,
+	 * after which registered interceptors may have changed.
+	 */
+	static boolean isCall(AbstractInsnNode insn) {
+		int type = insn.getType();
+		return type == AbstractInsnNode.METHOD_INSN || type == AbstractInsnNode.INVOKE_DYNAMIC_INSN;
+	}
+
+	static void handleMaxIterations(ExecutionContext<?> ctx) {
 		ctx.getVM().getInterface().handleMaxInterations(ctx);
 	}
 
-	private static void handleExceptionCaught(ExecutionContext<?> ctx, VMException ex) {
+	static void handleExceptionCaught(ExecutionContext<?> ctx, VMException ex) {
 		Stack stack = ctx.getStack();
 		stack.clear();
 		InstanceValue oop = ex.getOop();
-		InstanceClass exceptionType = oop.getJavaClass();
-		List<VMTryCatchBlock> tryCatchBlocks = ctx.getMethod().getTryCatchBlocks();
-		int index = ctx.getInsnPosition() - 1;
-		boolean shouldRepeat;
-		search:
-		do {
-			shouldRepeat = false;
-			for (int i = 0, j = tryCatchBlocks.size(); i < j; i++) {
-				VMTryCatchBlock block = tryCatchBlocks.get(i);
-				if (index < AsmUtil.getIndex(block.getStart()) || index > AsmUtil.getIndex(block.getEnd())) {
-					continue;
-				}
-				InstanceClass candidate = block.getType();
-				boolean handle = candidate == null;
-				if (!handle) {
-					try {
-						handle = candidate.isAssignableFrom(exceptionType);
-					} catch (VMException hex) {
-						index = AsmUtil.getIndex(block.getHandler());
-						shouldRepeat = true;
-						continue search;
-					}
-				}
-				if (handle) {
-					stack.pushReference(oop);
-					ctx.setInsnPosition(AsmUtil.getIndex(block.getHandler()));
-					return;
-				}
-			}
-		} while (shouldRepeat);
-		throw ex;
+		int handler = ctx.getMethod().getExceptionTable().findHandler(ctx.getInsnPosition() - 1, oop.getJavaClass());
+		if (handler == -1) {
+			throw ex;
+		}
+		stack.pushReference(oop);
+		ctx.setInsnPosition(handler);
 	}
 }
@@ -2,7 +2,8 @@
 
 import dev.xdark.ssvm.VirtualMachine;
 import dev.xdark.ssvm.api.MethodInvoker;
-import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.api.InvokerBinding;
+import dev.xdark.ssvm.execution.compiler.TieredInvoker;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.thread.ThreadManager;
 import dev.xdark.ssvm.thread.backtrace.Backtrace;
@@ -16,12 +17,32 @@
  * @author xDark
  */
 public class SimpleExecutionEngine implements ExecutionEngine {
+	// Frame events
+	static final int NOTIFY_INTERFACE = 1;
+	static final int NOTIFY_JVMTI = 2;
 
-	private static final MethodInvoker FALLBACK = new InterpretedInvoker();
 	private final VirtualMachine vm;
+	private final MethodInvoker fallback;
 
-	public SimpleExecutionEngine(VirtualMachine vm) {
+	/**
+	 * @param vm   VM instance.
+	 * @param mode Mode used to execute methods without an invoker.
+	 */
+	public SimpleExecutionEngine(VirtualMachine vm, ExecutionMode mode) {
+		this(vm, mode == ExecutionMode.TIERED ? new TieredInvoker(new InterpretedInvoker(ExecutionMode.THREADED)) : new InterpretedInvoker(mode));
+	}
+
+	/**
+	 * @param vm       VM instance.
+	 * @param fallback Invoker used to execute methods without an invoker.
+	 */
+	public SimpleExecutionEngine(VirtualMachine vm, MethodInvoker fallback) {
 		this.vm = vm;
+		this.fallback = fallback;
+	}
+
+	public SimpleExecutionEngine(VirtualMachine vm) {
+		this(vm, ExecutionMode.INTERPRETED);
 	}
 
 	@Override
@@ -31,30 +52,27 @@ public <R extends ValueSink> ExecutionContext<R> execute(ExecutionRequest<R> req
 		Backtrace backtrace = threadManager.currentOsThread().getBacktrace();
 		ExecutionContext<R> ctx = backtrace.push(request);
 		JavaMethod jm = ctx.getMethod();
-		int access = jm.getModifiers();
-		boolean isNative = (access & Opcodes.ACC_NATIVE) != 0;
-		if (isNative) {
+		if ((jm.getModifiers() & Opcodes.ACC_NATIVE) != 0) {
 			ctx.setLineNumber(-2);
 		}
-		VMInterface vmi = vm.getInterface();
-		jm.increaseInvocation();
-		ObjectValue lock = null;
-		if ((access & Opcodes.ACC_SYNCHRONIZED) != 0) {
-			if (((access & Opcodes.ACC_STATIC)) == 0) {
-				lock = ctx.getLocals().loadReference(0);
-			} else {
-				lock = jm.getOwner().getOop();
+		InvokerBinding binding = vm.getInterface().getInvokerBinding(jm);
+		MethodInvoker invoker;
+		int events;
+		if (binding.isDirect()) {
+			// Nothing to intercept, hand the frame straight to the interpreter
+			invoker = fallback;
+			events = vm.hasMethodEvents() ? NOTIFY_JVMTI : 0;
+		} else {
+			invoker = binding.getInvoker();
+			if (invoker == null) {
+				invoker = fallback;
 			}
-			vm.getOperations().monitorEnter(lock);
+			// Only pay for listeners if any are registered
+			events = frameEvents(vm, binding);
 		}
-		vmi.onMethodEnter(ctx);
-		vm.getMethodEnter().invoke(ctx);
+		ObjectValue lock = enterFrame(vm, ctx, events);
 		boolean doCleanup = true;
 		try {
-			MethodInvoker invoker = vmi.getInvoker(jm);
-			if (invoker == null) {
-				invoker = FALLBACK;
-			}
 			Result result = invoker.intercept(ctx);
 			if (result == Result.ABORT) {
 				return ctx;
@@ -70,20 +88,107 @@ public <R extends ValueSink> ExecutionContext<R> execute(ExecutionRequest<R> req
 			throw t;
 		} finally {
 			if (doCleanup) {
-				try {
-					if (lock != null) {
-						vm.getOperations().monitorExit(lock);
-					}
-				} finally {
-					try {
-						vmi.onMethodExit(ctx);
-						vm.getMethodExit().invoke(ctx);
-					} finally {
-						backtrace.pop();
-					}
-				}
+				exitFrame(vm, ctx, lock, backtrace, events);
 			}
 		}
 		throw new PanicException("unreachable code");
 	}
+
+	/**
+	 * Decides which method listeners are notified about the frame.
+	 * The result is captured once when the frame is entered
+	 * and passed to both {@link #enterFrame(VirtualMachine, ExecutionContext, int)}
+	 * and {@link #exitFrame(VirtualMachine, ExecutionContext, ObjectValue, Backtrace, int)},
+	 * so that every notified enter is paired with an exit,
+	 * even if listeners are registered while the method runs.
+	 *
+	 * @param vm      VM instance.
+	 * @param binding Invoker binding of the method.
+	 * @return frame events.
+	 */
+	static int frameEvents(VirtualMachine vm, InvokerBinding binding) {
+		int events = 0;
+		if (binding.isInstrumented()) {
+			events |= NOTIFY_INTERFACE;
+		}
+		if (vm.hasMethodEvents()) {
+			events |= NOTIFY_JVMTI;
+		}
+		return events;
+	}
+
+	/**
+	 * Runs method entry actions for the frame
+	 * that was just pushed to the backtrace.
+	 *
+	 * @param vm     VM instance.
+	 * @param ctx    Method frame.
+	 * @param events Frame events, see {@link #frameEvents(VirtualMachine, InvokerBinding)}.
+	 * @return Monitor entered by the synchronized method, or {@code null}.
+	 */
+	static ObjectValue enterFrame(VirtualMachine vm, ExecutionContext<?> ctx, int events) {
+		return enterFrame(vm, ctx, events, null);
+	}
+
+	/**
+	 * Runs method entry actions for the frame
+	 * that was just pushed to the backtrace.
+	 *
+	 * @param vm      VM instance.
+	 * @param ctx     Method frame.
+	 * @param events  Frame events, see {@link #frameEvents(VirtualMachine, InvokerBinding)}.
+	 * @param entered Monitor of the synchronized method that
+	 *                the caller has entered already, or {@code null}.
+	 * @return Monitor entered by the synchronized method, or {@code null}.
+	 */
+	static ObjectValue enterFrame(VirtualMachine vm, ExecutionContext<?> ctx, int events, ObjectValue entered) {
+		JavaMethod jm = ctx.getMethod();
+		int access = jm.getModifiers();
+		vm.getMemoryManager().getGarbageCollector().safepoint();
+		jm.increaseInvocation();
+		ObjectValue lock = entered;
+		if (lock == null && (access & Opcodes.ACC_SYNCHRONIZED) != 0) {
+			if (((access & Opcodes.ACC_STATIC)) == 0) {
+				lock = ctx.getLocals().loadReference(0);
+			} else {
+				lock = jm.getOwner().getOop();
+			}
+			vm.getOperations().monitorEnter(lock);
+		}
+		if ((events & NOTIFY_INTERFACE) != 0) {
+			vm.getInterface().onMethodEnter(ctx);
+		}
+		if ((events & NOTIFY_JVMTI) != 0) {
+			vm.getMethodEnter().invoke(ctx);
+		}
+		return lock;
+	}
+
+	/**
+	 * Runs method exit actions and pops the frame.
+	 *
+	 * @param vm        VM instance.
+	 * @param ctx       Method frame.
+	 * @param lock      Monitor returned by {@link #enterFrame(VirtualMachine, ExecutionContext, int)}.
+	 * @param backtrace Backtrace of the current thread.
+	 * @param events    Frame events the frame was entered with.
+	 */
+	static void exitFrame(VirtualMachine vm, ExecutionContext<?> ctx, ObjectValue lock, Backtrace backtrace, int events) {
+		try {
+			if (lock != null) {
+				vm.getOperations().monitorExit(lock);
+			}
+		} finally {
+			try {
+				if ((events & NOTIFY_INTERFACE) != 0) {
+					vm.getInterface().onMethodExit(ctx);
+				}
+				if ((events & NOTIFY_JVMTI) != 0) {
+					vm.getMethodExit().invoke(ctx);
+				}
+			} finally {
+				backtrace.pop();
+			}
+		}
+	}
 }
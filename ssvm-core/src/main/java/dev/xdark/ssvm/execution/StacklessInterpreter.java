@@ -0,0 +1,446 @@
+package dev.xdark.ssvm.execution;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.api.InstructionInterceptor;
+import dev.xdark.ssvm.api.InvokerBinding;
+import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.asm.VMCallInsnNode;
+import dev.xdark.ssvm.execution.rewrite.method.AbstractVMCallProcessor;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.thread.ThreadStorage;
+import dev.xdark.ssvm.thread.backtrace.Backtrace;
+import dev.xdark.ssvm.util.AsmUtil;
+import dev.xdark.ssvm.value.ObjectValue;
+import dev.xdark.ssvm.value.sink.BlackholeValueSink;
+import dev.xdark.ssvm.value.sink.ValueSink;
+import lombok.experimental.UtilityClass;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.LineNumberNode;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link ExecutionContext} processor that does not
+ * recurse through the host stack for guest calls.
+ * <p>
+ * Calls to interpreted methods push a new frame to the {@link Backtrace}
+ * and continue in the same loop, returns pop it.
+ * Guest recursion depth is therefore only limited by the memory,
+ * and the state of the guest thread is fully described by its backtrace.
+ * Methods with an invoker, native methods and calls made by
+ * custom processors still go through the {@link ExecutionEngine}.
+ * <p>
+ * Because no guest state lives on the host stack, the loop
+ * may be suspended between two instructions and resumed later,
+ * see {@link Continuation}. This is how
+ * {@link dev.xdark.ssvm.thread.virtual.VirtualThreadManager}
+ * time-slices green threads.
+ *
+ * @author xDark
+ */
+@UtilityClass
+public class StacklessInterpreter {
+	private static final int NOT_INTERPRETED = Opcodes.ACC_NATIVE | Opcodes.ACC_ABSTRACT;
+
+	/**
+	 * Processes {@link ExecutionContext}.
+	 *
+	 * @param ctx Context to process.
+	 */
+	public void execute(ExecutionContext<?> ctx) {
+		ThreadManager threadManager = ctx.getVM().getThreadManager();
+		Backtrace backtrace = threadManager.currentOsThread().getBacktrace();
+		run(new Continuation(ctx, backtrace, threadManager.currentThreadStorage(), false), Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param vm     VM instance.
+	 * @param method Method to check.
+	 * @return {@code true} if the method would run in the loop.
+	 */
+	public boolean isInterpreted(VirtualMachine vm, JavaMethod method) {
+		return (method.getModifiers() & NOT_INTERPRETED) == 0 && vm.getInterface().getInvokerBinding(method).getInvoker() == null;
+	}
+
+	/**
+	 * Pushes the frame of the method to the backtrace
+	 * of the current thread, without running it.
+	 *
+	 * @param vm     VM instance.
+	 * @param method Method to run, must be interpreted.
+	 * @param locals Method locals.
+	 * @return continuation of the method.
+	 * @see #isInterpreted(VirtualMachine, JavaMethod)
+	 */
+	public Continuation start(VirtualMachine vm, JavaMethod method, Locals locals) {
+		ThreadManager threadManager = vm.getThreadManager();
+		Backtrace backtrace = threadManager.currentOsThread().getBacktrace();
+		ThreadStorage storage = threadManager.currentThreadStorage();
+		CallRequest request = new CallRequest();
+		request.init(method, storage.newStack(method), locals, BlackholeValueSink.INSTANCE);
+		ExecutionContext<?> ctx = backtrace.push(request);
+		int events = SimpleExecutionEngine.frameEvents(vm, vm.getInterface().getInvokerBinding(method));
+		ObjectValue lock;
+		try {
+			lock = SimpleExecutionEngine.enterFrame(vm, ctx, events);
+		} catch (VMException ex) {
+			backtrace.pop();
+			throw ex;
+		}
+		Continuation continuation = new Continuation(ctx, backtrace, storage, true);
+		continuation.lock = lock;
+		continuation.entryEvents = events;
+		return continuation;
+	}
+
+	/**
+	 * Runs the continuation on the current thread
+	 * until it completes or is suspended.
+	 * The entry frame is popped once the method completes.
+	 *
+	 * @param continuation Continuation to run.
+	 * @param quantum      Amount of instructions to run
+	 *                     before the continuation is suspended.
+	 * @return {@code true} if the method has completed.
+	 * @throws VMException If the method completed abruptly.
+	 */
+	public boolean resume(Continuation continuation, long quantum) {
+		boolean done;
+		try {
+			done = run(continuation, quantum);
+		} catch (VMException ex) {
+			finish(continuation);
+			throw ex;
+		}
+		if (done) {
+			finish(continuation);
+		}
+		return done;
+	}
+
+	private static void finish(Continuation continuation) {
+		ExecutionContext<?> entry = continuation.entry;
+		SimpleExecutionEngine.exitFrame(entry.getVM(), entry, continuation.lock, continuation.backtrace, continuation.entryEvents);
+	}
+
+	private static boolean run(Continuation c, long quantum) {
+		ExecutionContext<?> ctx = c.entry;
+		VirtualMachine vm = ctx.getVM();
+		VMInterface vmi = vm.getInterface();
+		Backtrace backtrace = c.backtrace;
+		ThreadStorage storage = c.storage;
+		List<InstructionInterceptor> interceptors = vmi.getInstructionInterceptors();
+		CallRequest request = c.request;
+		// Green threads yield instead of blocking on monitors
+		boolean green = c.owned;
+		ExecutionContext<?> frame = c.frame;
+		InsnList instructions = frame.getMethod().getNode().instructions;
+		// Interceptors are only consulted if any are registered,
+		// re-checked at back-edges and calls
+		int version = vmi.getVersion();
+		boolean intercept = !interceptors.isEmpty();
+		int maxIterations = Interpreter.getMaxIterations();
+		int iter = c.iterations;
+		boolean done = false;
+		c.suspended = false;
+		c.contended = null;
+		c.running = true;
+		try {
+			VMException pending = c.pending;
+			if (pending != null) {
+				c.pending = null;
+				frame = handleException(ctx, frame, pending, vm, c);
+				instructions = frame.getMethod().getNode().instructions;
+			}
+			exec:
+			while (true) {
+				if (c.suspended || quantum-- == 0L) {
+					break;
+				}
+				try {
+					if (iter++ >= maxIterations) {
+						Interpreter.handleMaxIterations(frame);
+						done = true;
+						break;
+					}
+					int pos = frame.getInsnPosition();
+					frame.setInsnPosition(pos + 1);
+					AbstractInsnNode insn = instructions.get(pos);
+					if (insn instanceof LineNumberNode) {
+						frame.setLineNumber(((LineNumberNode) insn).line);
+					}
+					if (green && insn.getOpcode() == Opcodes.MONITORENTER) {
+						ObjectValue value = frame.getStack().peekReference();
+						if (!value.isNull()) {
+							if (!vm.getMemoryManager().tryMonitorEnter(value)) {
+								// Let the owner run, retry later
+								frame.setInsnPosition(pos);
+								c.contended = value;
+								c.suspended = true;
+								continue;
+							}
+							frame.getStack().popReference();
+							continue;
+						}
+					}
+					if (intercept) {
+						for (int i = 0, j = interceptors.size(); i < j; i++) {
+							if (interceptors.get(i).intercept(frame, insn) == Result.ABORT) {
+								done = true;
+								break exec;
+							}
+						}
+					}
+					if (insn.getOpcode() == -1 || !AsmUtil.isValid(insn)) {
+						continue;
+					}
+					InstructionProcessor<AbstractInsnNode> processor = vmi.getProcessor(insn);
+					InstructionProcessor<?> callProcessor = processor;
+					if (callProcessor instanceof AbstractVMCallProcessor) {
+						JavaMethod method = ((AbstractVMCallProcessor) callProcessor).resolveTarget((VMCallInsnNode) insn, frame);
+						Stack callerStack = frame.getStack();
+						InvokerBinding binding = vmi.getInvokerBinding(method);
+						int modifiers = method.getModifiers();
+						boolean interpreted = (modifiers & NOT_INTERPRETED) == 0 && binding.getInvoker() == null;
+						ObjectValue entered = null;
+						if (green && interpreted && (modifiers & Opcodes.ACC_SYNCHRONIZED) != 0) {
+							if ((modifiers & Opcodes.ACC_STATIC) == 0) {
+								entered = callerStack.getReferenceAt(callerStack.position() - method.getMaxArgs());
+							} else {
+								entered = method.getOwner().getOop();
+							}
+							if (entered.isNull()) {
+								// Let the frame throw
+								entered = null;
+							} else if (!vm.getMemoryManager().tryMonitorEnter(entered)) {
+								// Same as for MONITORENTER, call is retried
+								frame.setInsnPosition(pos);
+								c.contended = entered;
+								c.suspended = true;
+								continue;
+							}
+						}
+						Locals locals = storage.newLocals(method);
+						callerStack.sinkInto(locals, method.getMaxArgs());
+						// Arguments are in the callee frame now
+						backtrace.markGuestCall(method);
+						if (interpreted) {
+							request.init(method, storage.newStack(method), locals, callerStack);
+							ExecutionContext<?> callee = backtrace.push(request);
+							int events = SimpleExecutionEngine.frameEvents(vm, binding);
+							ObjectValue lock;
+							try {
+								lock = SimpleExecutionEngine.enterFrame(vm, callee, events, entered);
+							} catch (VMException ex) {
+								backtrace.pop();
+								throw ex;
+							}
+							c.pushFrame(lock, events);
+							frame = callee;
+							instructions = method.getNode().instructions;
+						} else {
+							vm.getOperations().invoke(method, locals, callerStack);
+						}
+					} else if (processor.execute(insn, frame) == Result.ABORT) {
+						if (frame == ctx) {
+							done = true;
+							break;
+						}
+						// Return value is already in the caller stack
+						ExecutionContext<?> callee = frame;
+						frame = backtrace.at(2);
+						instructions = frame.getMethod().getNode().instructions;
+						exitFrame(vm, callee, c);
+					} else if (frame.getInsnPosition() > pos && !Interpreter.isCall(insn)) {
+						continue;
+					}
+					// Back-edge, call or return
+					int newVersion = vmi.getVersion();
+					if (newVersion != version) {
+						version = newVersion;
+						intercept = !interceptors.isEmpty();
+					}
+				} catch (VMException ex) {
+					frame = handleException(ctx, frame, ex, vm, c);
+					instructions = frame.getMethod().getNode().instructions;
+				}
+			}
+			if (done) {
+				// Execution was aborted, drop frames pushed by this loop
+				while (frame != ctx) {
+					ExecutionContext<?> callee = frame;
+					frame = backtrace.at(2);
+					exitFrame(vm, callee, c);
+				}
+			}
+			return done;
+		} finally {
+			c.frame = frame;
+			c.iterations = iter;
+			c.running = false;
+		}
+	}
+
+	private static ExecutionContext<?> handleException(ExecutionContext<?> entry, ExecutionContext<?> frame, VMException ex, VirtualMachine vm, Continuation c) {
+		Backtrace backtrace = c.backtrace;
+		while (true) {
+			try {
+				Interpreter.handleExceptionCaught(frame, ex);
+				return frame;
+			} catch (VMException unhandled) {
+				ex = unhandled;
+			}
+			if (frame == entry) {
+				// Let the execution engine unwind the entry frame
+				throw ex;
+			}
+			ExecutionContext<?> callee = frame;
+			frame = backtrace.at(2);
+			try {
+				exitFrame(vm, callee, c);
+			} catch (VMException exitEx) {
+				// Exception in the exit actions replaces the pending one,
+				// the frame is popped either way
+				ex = exitEx;
+			}
+		}
+	}
+
+	private static void exitFrame(VirtualMachine vm, ExecutionContext<?> frame, Continuation c) {
+		int index = --c.frames;
+		ObjectValue lock = c.locks[index];
+		c.locks[index] = null;
+		SimpleExecutionEngine.exitFrame(vm, frame, lock, c.backtrace, c.events[index]);
+	}
+
+	private static final class CallRequest implements ExecutionRequest<ValueSink> {
+		private JavaMethod method;
+		private Stack stack;
+		private Locals locals;
+		private ValueSink resultSink;
+
+		void init(JavaMethod method, Stack stack, Locals locals, ValueSink resultSink) {
+			this.method = method;
+			this.stack = stack;
+			this.locals = locals;
+			this.resultSink = resultSink;
+		}
+
+		@Override
+		public JavaMethod getMethod() {
+			return method;
+		}
+
+		@Override
+		public Stack getStack() {
+			return stack;
+		}
+
+		@Override
+		public Locals getLocals() {
+			return locals;
+		}
+
+		@Override
+		public ValueSink getResultSink() {
+			return resultSink;
+		}
+	}
+
+	/**
+	 * State of the loop that is kept between suspensions.
+	 * Only continuations made by {@link #start(VirtualMachine, JavaMethod, Locals)}
+	 * may be suspended, and only on the thread they were started on.
+	 */
+	public static final class Continuation {
+		final ExecutionContext<?> entry;
+		final Backtrace backtrace;
+		final ThreadStorage storage;
+		// Whether the continuation owns its entry frame
+		final boolean owned;
+		// Monitors and events of the frames pushed by this loop,
+		// last ones belong to the top frame
+		ObjectValue[] locks = new ObjectValue[16];
+		int[] events = new int[16];
+		int frames;
+		final CallRequest request = new CallRequest();
+		ExecutionContext<?> frame;
+		int iterations;
+		boolean suspended;
+		boolean running;
+		ObjectValue contended;
+		VMException pending;
+		// Entry frame exit state
+		ObjectValue lock;
+		int entryEvents;
+
+		Continuation(ExecutionContext<?> entry, Backtrace backtrace, ThreadStorage storage, boolean owned) {
+			this.entry = entry;
+			this.backtrace = backtrace;
+			this.storage = storage;
+			this.owned = owned;
+			frame = entry;
+		}
+
+		void pushFrame(ObjectValue lock, int events) {
+			int index = frames;
+			if (index == locks.length) {
+				locks = Arrays.copyOf(locks, index * 2);
+				this.events = Arrays.copyOf(this.events, index * 2);
+			}
+			locks[index] = lock;
+			this.events[index] = events;
+			frames = index + 1;
+		}
+
+		/**
+		 * Suspends the continuation before the next instruction.
+		 * Called by the code that runs inside of the loop,
+		 * for example, by a native method.
+		 *
+		 * @see #canSuspend()
+		 */
+		public void suspend() {
+			suspended = true;
+		}
+
+		/**
+		 * @return {@code true} if the loop is running.
+		 */
+		public boolean isRunning() {
+			return running;
+		}
+
+		/**
+		 * @return {@code true} if the continuation is running
+		 * and may be suspended, i.e. there are no host frames
+		 * between the current frame and the loop.
+		 */
+		public boolean canSuspend() {
+			return owned && running && backtrace.hostCalls() == 1;
+		}
+
+		/**
+		 * @return monitor the continuation was suspended on,
+		 * because it is held by another thread, or {@code null}.
+		 * The monitor is tried again once the continuation is resumed.
+		 */
+		public ObjectValue getContendedMonitor() {
+			return contended;
+		}
+
+		/**
+		 * Throws an exception in the current frame
+		 * once the continuation is resumed.
+		 *
+		 * @param ex Exception to throw.
+		 */
+		public void raise(VMException ex) {
+			pending = ex;
+		}
+	}
+}
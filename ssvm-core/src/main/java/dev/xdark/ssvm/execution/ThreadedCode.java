@@ -0,0 +1,318 @@
+package dev.xdark.ssvm.execution;
+
+import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.execution.asm.BiIntJumpProcessor;
+import dev.xdark.ssvm.execution.asm.BiIntProcessor;
+import dev.xdark.ssvm.execution.asm.BytePushProcessor;
+import dev.xdark.ssvm.execution.asm.ConstantIntProcessor;
+import dev.xdark.ssvm.execution.asm.GotoProcessor;
+import dev.xdark.ssvm.execution.asm.IntJumpProcessor;
+import dev.xdark.ssvm.execution.asm.IntLoadProcessor;
+import dev.xdark.ssvm.execution.asm.IntStoreProcessor;
+import dev.xdark.ssvm.execution.asm.ReferenceStoreProcessor;
+import dev.xdark.ssvm.execution.asm.ShortPushProcessor;
+import dev.xdark.ssvm.execution.asm.ValueLoadProcessor;
+import dev.xdark.ssvm.execution.asm.VariableIncrementProcessor;
+import dev.xdark.ssvm.util.AsmUtil;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * Pre-decoded method body, used by {@link ThreadedInterpreter}.
+ * <p>
+ * Instruction list is flattened into arrays indexed by instruction position.
+ * Labels, frames and line numbers are stripped into side tables,
+ * jump targets are resolved to positions.
+ * Simple instructions get an opcode that the interpreter
+ * executes in place, the rest is dispatched to the instruction processor,
+ * which is looked up once, when the instruction is decoded.
+ * <p>
+ * Decoded arrays are never modified once published.
+ * When a processor rewrites an instruction, a copy is decoded
+ * and published as a new {@link Snapshot}, so that threads
+ * running the same method always see a consistent body.
+ *
+ * @author xDark
+ */
+public final class ThreadedCode {
+	static final int DISPATCH = 0;
+	static final int SKIP = 1;
+	static final int ILOAD = 2;
+	static final int ALOAD = 3;
+	static final int ISTORE = 4;
+	static final int ASTORE = 5;
+	static final int IINC = 6;
+	static final int ICONST = 7;
+	static final int IADD = 8;
+	static final int ISUB = 9;
+	static final int IMUL = 10;
+	static final int IAND = 11;
+	static final int IOR = 12;
+	static final int IXOR = 13;
+	static final int ISHL = 14;
+	static final int ISHR = 15;
+	static final int IUSHR = 16;
+	static final int GOTO = 17;
+	static final int IFEQ = 18;
+	static final int IFNE = 19;
+	static final int IFLT = 20;
+	static final int IFGE = 21;
+	static final int IFGT = 22;
+	static final int IFLE = 23;
+	static final int IF_ICMPEQ = 24;
+	static final int IF_ICMPNE = 25;
+	static final int IF_ICMPLT = 26;
+	static final int IF_ICMPGE = 27;
+	static final int IF_ICMPGT = 28;
+	static final int IF_ICMPLE = 29;
+
+	final MethodNode node;
+	private final VMInterface vmi;
+	private final int length;
+	// Replaced as a whole, never mutated once published
+	private volatile Snapshot snapshot;
+
+	private ThreadedCode(MethodNode node, VMInterface vmi) {
+		this.node = node;
+		this.vmi = vmi;
+		AbstractInsnNode[] instructions;
+		InsnList list = node.instructions;
+		// Processors replace instructions under the lock
+		synchronized (list) {
+			instructions = list.toArray();
+		}
+		int count = instructions.length;
+		length = count;
+		Snapshot snapshot = new Snapshot(instructions, new InstructionProcessor[count], new int[count], new int[count], new int[count], new int[count]);
+		int[] opcodes = snapshot.opcodes;
+		int[] extras = snapshot.extras;
+		int[] lines = snapshot.lines;
+		int line = -1;
+		// Walk backwards, so that pseudo instructions
+		// know the next real one
+		int next = count;
+		for (int i = count - 1; i >= 0; i--) {
+			AbstractInsnNode insn = instructions[i];
+			if (insn.getOpcode() == -1) {
+				opcodes[i] = SKIP;
+				extras[i] = next;
+				lines[i] = -1;
+			} else {
+				next = i;
+				decode(snapshot, i, insn);
+			}
+		}
+		// Line numbers go forward
+		for (int i = 0; i < count; i++) {
+			AbstractInsnNode insn = instructions[i];
+			if (insn instanceof LineNumberNode) {
+				line = ((LineNumberNode) insn).line;
+			} else if (insn.getOpcode() != -1) {
+				lines[i] = line;
+				line = -1;
+			}
+		}
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * @param node Method node.
+	 * @param vmi  VM interface to get processors from.
+	 * @return decoded method body.
+	 */
+	static ThreadedCode decode(MethodNode node, VMInterface vmi) {
+		return new ThreadedCode(node, vmi);
+	}
+
+	/**
+	 * @param node Method node.
+	 * @param vmi  VM interface.
+	 * @return {@code true} if this code is still
+	 * in sync with the method.
+	 */
+	boolean isValidFor(MethodNode node, VMInterface vmi) {
+		return this.node == node && this.vmi == vmi && length == node.instructions.size();
+	}
+
+	/**
+	 * @return current decoded body.
+	 */
+	Snapshot snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Decodes instruction again, if a processor
+	 * has replaced it in the instruction list.
+	 * The instruction is decoded into a copy,
+	 * which is then published.
+	 *
+	 * @param list     Instruction list.
+	 * @param position Instruction position.
+	 * @return current decoded body.
+	 */
+	Snapshot refresh(InsnList list, int position) {
+		// Same lock as AsmUtil#replace
+		synchronized (list) {
+			Snapshot snapshot = this.snapshot;
+			AbstractInsnNode insn = list.get(position);
+			if (insn != snapshot.instructions[position]) {
+				snapshot = snapshot.copy();
+				snapshot.instructions[position] = insn;
+				decode(snapshot, position, insn);
+				this.snapshot = snapshot;
+			}
+			return snapshot;
+		}
+	}
+
+	private void decode(Snapshot snapshot, int position, AbstractInsnNode insn) {
+		int[] operands = snapshot.operands;
+		int opcode = insn.getOpcode();
+		InstructionProcessor<AbstractInsnNode> processor = vmi.getProcessor(opcode);
+		snapshot.processors[position] = processor;
+		int decoded = DISPATCH;
+		// Only inline instructions that were not overridden
+		Class<?> type = processor.getClass();
+		switch (opcode) {
+			case Opcodes.ILOAD:
+				if (type == IntLoadProcessor.class) {
+					decoded = ILOAD;
+					operands[position] = ((VarInsnNode) insn).var;
+				}
+				break;
+			case Opcodes.ALOAD:
+				if (type == ValueLoadProcessor.class) {
+					decoded = ALOAD;
+					operands[position] = ((VarInsnNode) insn).var;
+				}
+				break;
+			case Opcodes.ISTORE:
+				if (type == IntStoreProcessor.class) {
+					decoded = ISTORE;
+					operands[position] = ((VarInsnNode) insn).var;
+				}
+				break;
+			case Opcodes.ASTORE:
+				if (type == ReferenceStoreProcessor.class) {
+					decoded = ASTORE;
+					operands[position] = ((VarInsnNode) insn).var;
+				}
+				break;
+			case Opcodes.IINC:
+				if (type == VariableIncrementProcessor.class) {
+					decoded = IINC;
+					IincInsnNode iinc = (IincInsnNode) insn;
+					operands[position] = iinc.var;
+					snapshot.extras[position] = iinc.incr;
+				}
+				break;
+			case Opcodes.ICONST_M1:
+			case Opcodes.ICONST_0:
+			case Opcodes.ICONST_1:
+			case Opcodes.ICONST_2:
+			case Opcodes.ICONST_3:
+			case Opcodes.ICONST_4:
+			case Opcodes.ICONST_5:
+				if (type == ConstantIntProcessor.class) {
+					decoded = ICONST;
+					operands[position] = opcode - Opcodes.ICONST_0;
+				}
+				break;
+			case Opcodes.BIPUSH:
+			case Opcodes.SIPUSH:
+				if (type == BytePushProcessor.class || type == ShortPushProcessor.class) {
+					decoded = ICONST;
+					operands[position] = ((IntInsnNode) insn).operand;
+				}
+				break;
+			case Opcodes.IADD:
+			case Opcodes.ISUB:
+			case Opcodes.IMUL:
+				if (type == BiIntProcessor.class) {
+					decoded = IADD + (opcode - Opcodes.IADD) / 4;
+				}
+				break;
+			case Opcodes.ISHL:
+			case Opcodes.ISHR:
+			case Opcodes.IUSHR:
+				if (type == BiIntProcessor.class) {
+					decoded = ISHL + (opcode - Opcodes.ISHL) / 2;
+				}
+				break;
+			case Opcodes.IAND:
+			case Opcodes.IOR:
+			case Opcodes.IXOR:
+				if (type == BiIntProcessor.class) {
+					decoded = IAND + (opcode - Opcodes.IAND) / 2;
+				}
+				break;
+			case Opcodes.GOTO:
+				if (type == GotoProcessor.class) {
+					decoded = GOTO;
+				}
+				break;
+			case Opcodes.IFEQ:
+			case Opcodes.IFNE:
+			case Opcodes.IFLT:
+			case Opcodes.IFGE:
+			case Opcodes.IFGT:
+			case Opcodes.IFLE:
+				if (type == IntJumpProcessor.class) {
+					decoded = IFEQ + (opcode - Opcodes.IFEQ);
+				}
+				break;
+			case Opcodes.IF_ICMPEQ:
+			case Opcodes.IF_ICMPNE:
+			case Opcodes.IF_ICMPLT:
+			case Opcodes.IF_ICMPGE:
+			case Opcodes.IF_ICMPGT:
+			case Opcodes.IF_ICMPLE:
+				if (type == BiIntJumpProcessor.class) {
+					decoded = IF_ICMPEQ + (opcode - Opcodes.IF_ICMPEQ);
+				}
+				break;
+		}
+		if (decoded >= GOTO) {
+			snapshot.extras[position] = AsmUtil.getIndex(((JumpInsnNode) insn).label);
+		}
+		snapshot.opcodes[position] = decoded;
+	}
+
+	/**
+	 * Decoded instructions, flattened into arrays
+	 * indexed by instruction position.
+	 */
+	static final class Snapshot {
+		final AbstractInsnNode[] instructions;
+		final InstructionProcessor<AbstractInsnNode>[] processors;
+		final int[] opcodes;
+		// Local variable index or constant
+		final int[] operands;
+		// Jump target, IINC increment or next instruction for SKIP
+		final int[] extras;
+		// Line number to set once the instruction is reached, -1 if none
+		final int[] lines;
+
+		Snapshot(AbstractInsnNode[] instructions, InstructionProcessor<AbstractInsnNode>[] processors, int[] opcodes, int[] operands, int[] extras, int[] lines) {
+			this.instructions = instructions;
+			this.processors = processors;
+			this.opcodes = opcodes;
+			this.operands = operands;
+			this.extras = extras;
+			this.lines = lines;
+		}
+
+		Snapshot copy() {
+			// Line numbers never change
+			return new Snapshot(instructions.clone(), processors.clone(), opcodes.clone(), operands.clone(), extras.clone(), lines);
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package dev.xdark.ssvm.execution;
+
+import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import lombok.experimental.UtilityClass;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * {@link ExecutionContext} processor that runs
+ * over the pre-decoded method body.
+ * <p>
+ * Method is decoded on the first invocation, see {@link ThreadedCode}.
+ * Instruction processors are captured at that time,
+ * processors replaced later only affect newly decoded methods.
+ * If any instruction interceptor is registered,
+ * execution falls back to the {@link Interpreter}.
+ *
+ * @author xDark
+ */
+@UtilityClass
+public class ThreadedInterpreter {
+
+	/**
+	 * Processes {@link ExecutionContext}.
+	 *
+	 * @param ctx Context to process.
+	 */
+	public void execute(ExecutionContext<?> ctx) {
+		VMInterface vmi = ctx.getVM().getInterface();
+		if (!vmi.getInstructionInterceptors().isEmpty()) {
+			Interpreter.execute(ctx);
+			return;
+		}
+		JavaMethod jm = ctx.getMethod();
+		MethodNode mn = jm.getNode();
+		ThreadedCode code = jm.getThreadedCode();
+		if (code == null || !code.isValidFor(mn, vmi)) {
+			code = ThreadedCode.decode(mn, vmi);
+			jm.setThreadedCode(code);
+		}
+		InsnList list = mn.instructions;
+		ThreadedCode.Snapshot snapshot = code.snapshot();
+		AbstractInsnNode[] instructions = snapshot.instructions;
+		InstructionProcessor<AbstractInsnNode>[] processors = snapshot.processors;
+		int[] opcodes = snapshot.opcodes;
+		int[] operands = snapshot.operands;
+		int[] extras = snapshot.extras;
+		int[] lines = snapshot.lines;
+		Stack stack = ctx.getStack();
+		Locals locals = ctx.getLocals();
+		int maxIterations = Interpreter.getMaxIterations();
+		int iter = 0;
+		while (true) {
+			try {
+				while (true) {
+					if (iter++ >= maxIterations) {
+						Interpreter.handleMaxIterations(ctx);
+						return;
+					}
+					int pos = ctx.getInsnPosition();
+					int opcode = opcodes[pos];
+					if (opcode == ThreadedCode.SKIP) {
+						ctx.setInsnPosition(extras[pos]);
+						continue;
+					}
+					int line = lines[pos];
+					if (line != -1) {
+						ctx.setLineNumber(line);
+					}
+					ctx.setInsnPosition(pos + 1);
+					switch (opcode) {
+						case ThreadedCode.ILOAD:
+							stack.pushInt(locals.loadInt(operands[pos]));
+							break;
+						case ThreadedCode.ALOAD:
+							stack.pushReference(locals.loadReference(operands[pos]));
+							break;
+						case ThreadedCode.ISTORE:
+							locals.setInt(operands[pos], stack.popInt());
+							break;
+						case ThreadedCode.ASTORE:
+							locals.setReference(operands[pos], stack.popReference());
+							break;
+						case ThreadedCode.IINC: {
+							int idx = operands[pos];
+							locals.setInt(idx, locals.loadInt(idx) + extras[pos]);
+							break;
+						}
+						case ThreadedCode.ICONST:
+							stack.pushInt(operands[pos]);
+							break;
+						case ThreadedCode.IADD: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() + v2);
+							break;
+						}
+						case ThreadedCode.ISUB: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() - v2);
+							break;
+						}
+						case ThreadedCode.IMUL: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() * v2);
+							break;
+						}
+						case ThreadedCode.IAND: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() & v2);
+							break;
+						}
+						case ThreadedCode.IOR: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() | v2);
+							break;
+						}
+						case ThreadedCode.IXOR: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() ^ v2);
+							break;
+						}
+						case ThreadedCode.ISHL: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() << v2);
+							break;
+						}
+						case ThreadedCode.ISHR: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() >> v2);
+							break;
+						}
+						case ThreadedCode.IUSHR: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() >>> v2);
+							break;
+						}
+						case ThreadedCode.GOTO:
+							ctx.setInsnPosition(extras[pos]);
+							break;
+						case ThreadedCode.IFEQ:
+						case ThreadedCode.IFNE:
+						case ThreadedCode.IFLT:
+						case ThreadedCode.IFGE:
+						case ThreadedCode.IFGT:
+						case ThreadedCode.IFLE:
+							if (compare(opcode - ThreadedCode.IFEQ, stack.popInt(), 0)) {
+								ctx.setInsnPosition(extras[pos]);
+							}
+							break;
+						case ThreadedCode.IF_ICMPEQ:
+						case ThreadedCode.IF_ICMPNE:
+						case ThreadedCode.IF_ICMPLT:
+						case ThreadedCode.IF_ICMPGE:
+						case ThreadedCode.IF_ICMPGT:
+						case ThreadedCode.IF_ICMPLE: {
+							int v2 = stack.popInt();
+							if (compare(opcode - ThreadedCode.IF_ICMPEQ, stack.popInt(), v2)) {
+								ctx.setInsnPosition(extras[pos]);
+							}
+							break;
+						}
+						default: {
+							AbstractInsnNode insn = instructions[pos];
+							if (processors[pos].execute(insn, ctx) == Result.ABORT) {
+								return;
+							}
+							if (insn.getOpcode() <= Opcodes.IFNONNULL) {
+								// Processor might have rewritten the instruction
+								ThreadedCode.Snapshot refreshed = code.refresh(list, pos);
+								if (refreshed != snapshot) {
+									snapshot = refreshed;
+									instructions = refreshed.instructions;
+									processors = refreshed.processors;
+									opcodes = refreshed.opcodes;
+									operands = refreshed.operands;
+									extras = refreshed.extras;
+								}
+							}
+						}
+					}
+				}
+			} catch (VMException ex) {
+				Interpreter.handleExceptionCaught(ctx, ex);
+			}
+		}
+	}
+
+	private static boolean compare(int condition, int v1, int v2) {
+		switch (condition) {
+			case 0:
+				return v1 == v2;
+			case 1:
+				return v1 != v2;
+			case 2:
+				return v1 < v2;
+			case 3:
+				return v1 >= v2;
+			case 4:
+				return v1 > v2;
+			default:
+				return v1 <= v2;
+		}
+	}
+}
@@ -22,7 +22,7 @@ public final class CastProcessor implements InstructionProcessor<TypeInsnNode> {
 	public Result execute(TypeInsnNode insn, ExecutionContext<?> ctx) {
 		JavaClass type = ctx.getOperations().findClass(ctx.getOwner(), Type.getObjectType(insn.desc), true);
 		InsnList list = ctx.getMethod().getNode().instructions;
-		list.set(insn, new VMTypeInsnNode(insn, VMOpcodes.VM_CHECKCAST, type));
+		AsmUtil.replace(list, insn, new VMTypeInsnNode(insn, VMOpcodes.VM_CHECKCAST, type));
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		return Result.CONTINUE;
 	}
@@ -1,11 +1,13 @@
 package dev.xdark.ssvm.execution.asm;
 
+import dev.xdark.ssvm.asm.VMOpcodes;
+import dev.xdark.ssvm.asm.VMTypeInsnNode;
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.InstructionProcessor;
 import dev.xdark.ssvm.execution.Result;
-import dev.xdark.ssvm.execution.Stack;
 import dev.xdark.ssvm.mirror.type.JavaClass;
-import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.util.AsmUtil;
+import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.TypeInsnNode;
 
 /**
@@ -15,11 +17,10 @@ public final class InstanceofProcessor implements InstructionProcessor<TypeInsnN
 
 	@Override
 	public Result execute(TypeInsnNode insn, ExecutionContext<?> ctx) {
-		VMOperations ops = ctx.getOperations();
-		JavaClass klass = ops.findClass(ctx.getOwner(), insn.desc, false);
-		Stack stack = ctx.getStack();
-		boolean result = ops.isInstanceOf(stack.popReference(), klass);
-		stack.pushInt(result ? 1 : 0);
+		JavaClass klass = ctx.getOperations().findClass(ctx.getOwner(), insn.desc, false);
+		InsnList list = ctx.getMethod().getNode().instructions;
+		AsmUtil.replace(list, insn, new VMTypeInsnNode(insn, VMOpcodes.VM_INSTANCEOF, klass));
+		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		return Result.CONTINUE;
 	}
 }
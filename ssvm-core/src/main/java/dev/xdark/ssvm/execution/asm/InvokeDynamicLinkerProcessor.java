@@ -4,6 +4,7 @@
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.InstructionProcessor;
 import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.util.AsmUtil;
 import dev.xdark.ssvm.value.InstanceValue;
 import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.InvokeDynamicInsnNode;
@@ -18,9 +19,11 @@ public final class InvokeDynamicLinkerProcessor implements InstructionProcessor<
 	@Override
 	public Result execute(InvokeDynamicInsnNode insn, ExecutionContext<?> ctx) {
 		InstanceValue linked = ctx.getOperations().linkCall(insn, ctx.getOwner());
+		// Call site is now referenced by the method body
+		ctx.getVM().getMemoryManager().getGarbageCollector().makeHandle(linked);
 		// Rewrite instruction
 		InsnList list = ctx.getMethod().getNode().instructions;
-		list.set(insn, new LinkedDynamicCallNode(insn, linked));
+		AsmUtil.replace(list, insn, new LinkedDynamicCallNode(insn, linked));
 		// Move insn position backwards so that VM visits
 		// us yet again.
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
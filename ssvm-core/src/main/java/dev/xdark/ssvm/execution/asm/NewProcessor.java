@@ -6,6 +6,7 @@
 import dev.xdark.ssvm.execution.InstructionProcessor;
 import dev.xdark.ssvm.execution.Result;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.util.AsmUtil;
 import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.TypeInsnNode;
 
@@ -21,7 +22,7 @@ public Result execute(TypeInsnNode insn, ExecutionContext<?> ctx) {
 		String desc = insn.desc;
 		InstanceClass klass = (InstanceClass) ctx.getOperations().findClass(ctx.getOwner(), desc, true);
 		InsnList list = ctx.getMethod().getNode().instructions;
-		list.set(insn, new VMTypeInsnNode(insn, VMOpcodes.VM_NEW, klass));
+		AsmUtil.replace(list, insn, new VMTypeInsnNode(insn, VMOpcodes.VM_NEW, klass));
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		return Result.CONTINUE;
 	}
@@ -6,6 +6,7 @@
 import dev.xdark.ssvm.execution.InstructionProcessor;
 import dev.xdark.ssvm.execution.Result;
 import dev.xdark.ssvm.mirror.type.JavaClass;
+import dev.xdark.ssvm.util.AsmUtil;
 import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.TypeInsnNode;
 
@@ -21,7 +22,7 @@ public Result execute(TypeInsnNode insn, ExecutionContext<?> ctx) {
 		JavaClass type = ctx.getOperations().findClass(ctx.getOwner(), insn.desc, false);
 		VMTypeInsnNode wrapper = new VMTypeInsnNode(insn, VMOpcodes.VM_REFERENCE_NEW_ARRAY, type);
 		InsnList list = ctx.getMethod().getNode().instructions;
-		list.set(insn, wrapper);
+		AsmUtil.replace(list, insn, wrapper);
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		return Result.CONTINUE;
 	}
@@ -0,0 +1,42 @@
+package dev.xdark.ssvm.execution.compiler;
+
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.value.ObjectValue;
+
+/**
+ * Base class of the host classes
+ * generated by {@link MethodCompiler}.
+ *
+ * @author xDark
+ */
+public abstract class CompiledCode {
+	/**
+	 * Marker for methods that cannot be compiled.
+	 */
+	public static final CompiledCode UNSUPPORTED = new CompiledCode(new Object[0], null) {
+		@Override
+		public void execute(ExecutionContext<?> ctx) {
+			throw new IllegalStateException("Method is not compiled");
+		}
+	};
+	protected final Object[] constants;
+	protected final ObjectValue nullValue;
+
+	/**
+	 * @param constants Sites referenced by the code.
+	 * @param nullValue VM null value.
+	 */
+	protected CompiledCode(Object[] constants, ObjectValue nullValue) {
+		this.constants = constants;
+		this.nullValue = nullValue;
+	}
+
+	/**
+	 * Runs the method.
+	 * Arguments are taken from the context locals,
+	 * return value is passed to the context.
+	 *
+	 * @param ctx Execution context.
+	 */
+	public abstract void execute(ExecutionContext<?> ctx);
+}
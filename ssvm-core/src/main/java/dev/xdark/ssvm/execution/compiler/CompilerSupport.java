@@ -0,0 +1,489 @@
+package dev.xdark.ssvm.execution.compiler;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.asm.InlineCache;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.memory.allocation.MemoryData;
+import dev.xdark.ssvm.mirror.member.JavaField;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.mirror.type.JavaClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.value.ObjectValue;
+import lombok.experimental.UtilityClass;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Runtime entry points of the compiled code.
+ * <p>
+ * Everything that compiled code cannot do with plain
+ * host bytecode is delegated here. Symbolic references
+ * are kept in sites, which are resolved on the first use,
+ * the same way instruction processors do that.
+ *
+ * @author xDark
+ */
+@UtilityClass
+public class CompilerSupport {
+
+	/**
+	 * @param method Method to allocate locals for.
+	 * @param ctx    Execution context.
+	 * @return new locals.
+	 */
+	public Locals newLocals(JavaMethod method, ExecutionContext<?> ctx) {
+		return ctx.getVM().getThreadStorage().newLocals(method);
+	}
+
+	public JavaMethod resolveStatic(CallSite site, ExecutionContext<?> ctx) {
+		JavaMethod method = site.resolved;
+		if (method == null) {
+			InstanceClass klass = (InstanceClass) ctx.getOperations().findClass(ctx.getOwner(), site.owner, true);
+			method = ctx.getLinkResolver().resolveStaticMethod(klass, site.name, site.desc);
+			site.resolved = method;
+		}
+		ctx.getOperations().initialize(method.getOwner());
+		return method;
+	}
+
+	public JavaMethod resolveSpecial(CallSite site, ExecutionContext<?> ctx) {
+		JavaMethod method = site.resolved;
+		if (method == null) {
+			InstanceClass klass = (InstanceClass) ctx.getOperations().findClass(ctx.getOwner(), site.owner, true);
+			method = site.itf ? ctx.getLinkResolver().resolveInterfaceMethod(klass, site.name, site.desc) :
+					ctx.getLinkResolver().resolveVirtualMethod(klass, site.name, site.desc);
+			site.resolved = method;
+		}
+		ctx.getOperations().initialize(method.getOwner());
+		return method;
+	}
+
+	public JavaMethod resolveVirtual(ObjectValue receiver, CallSite site, ExecutionContext<?> ctx) {
+		VirtualMachine vm = ctx.getVM();
+		if (receiver.isNull()) {
+			vm.getOperations().throwException(vm.getSymbols().java_lang_NullPointerException());
+		}
+		JavaClass type = receiver.getJavaClass();
+		InlineCache cache = site.cache;
+		JavaMethod method = cache.lookup(type);
+		if (method == null) {
+			method = site.itf ? vm.getRuntimeResolver().resolveInterfaceMethod(type, site.name, site.desc) :
+					vm.getRuntimeResolver().resolveVirtualMethod(type, site.name, site.desc);
+			cache.update(type, method);
+		}
+		ctx.getOperations().initialize(method.getOwner());
+		return method;
+	}
+
+	public int getFieldInt(ObjectValue value, FieldSite site, ExecutionContext<?> ctx) {
+		ObjectValue instance = ctx.getOperations().checkNotNull(value);
+		return readInt(instance.getData(), site.resolve(ctx).getOffset(), site.sort);
+	}
+
+	public long getFieldLong(ObjectValue value, FieldSite site, ExecutionContext<?> ctx) {
+		ObjectValue instance = ctx.getOperations().checkNotNull(value);
+		return instance.getData().readLong(site.resolve(ctx).getOffset());
+	}
+
+	public float getFieldFloat(ObjectValue value, FieldSite site, ExecutionContext<?> ctx) {
+		ObjectValue instance = ctx.getOperations().checkNotNull(value);
+		return Float.intBitsToFloat(instance.getData().readInt(site.resolve(ctx).getOffset()));
+	}
+
+	public double getFieldDouble(ObjectValue value, FieldSite site, ExecutionContext<?> ctx) {
+		ObjectValue instance = ctx.getOperations().checkNotNull(value);
+		return Double.longBitsToDouble(instance.getData().readLong(site.resolve(ctx).getOffset()));
+	}
+
+	public ObjectValue getFieldReference(ObjectValue value, FieldSite site, ExecutionContext<?> ctx) {
+		ObjectValue instance = ctx.getOperations().checkNotNull(value);
+		return ctx.getMemoryManager().readReference(instance, site.resolve(ctx).getOffset());
+	}
+
+	public void putFieldInt(ObjectValue value, int v, FieldSite site, ExecutionContext<?> ctx) {
+		ObjectValue instance = ctx.getOperations().checkNotNull(value);
+		writeInt(instance.getData(), site.resolve(ctx).getOffset(), site.sort, v);
+	}
+
+	public void putFieldLong(ObjectValue value, long v, FieldSite site, ExecutionContext<?> ctx) {
+		ObjectValue instance = ctx.getOperations().checkNotNull(value);
+		instance.getData().writeLong(site.resolve(ctx).getOffset(), v);
+	}
+
+	public void putFieldFloat(ObjectValue value, float v, FieldSite site, ExecutionContext<?> ctx) {
+		ObjectValue instance = ctx.getOperations().checkNotNull(value);
+		instance.getData().writeInt(site.resolve(ctx).getOffset(), Float.floatToRawIntBits(v));
+	}
+
+	public void putFieldDouble(ObjectValue value, double v, FieldSite site, ExecutionContext<?> ctx) {
+		ObjectValue instance = ctx.getOperations().checkNotNull(value);
+		instance.getData().writeLong(site.resolve(ctx).getOffset(), Double.doubleToRawLongBits(v));
+	}
+
+	public void putFieldReference(ObjectValue value, ObjectValue v, FieldSite site, ExecutionContext<?> ctx) {
+		ObjectValue instance = ctx.getOperations().checkNotNull(value);
+		ctx.getMemoryManager().writeValue(instance, site.resolve(ctx).getOffset(), v);
+	}
+
+	public int getStaticInt(FieldSite site, ExecutionContext<?> ctx) {
+		JavaField field = site.resolve(ctx);
+		return readInt(field.getOwner().getOop().getData(), field.getOffset(), site.sort);
+	}
+
+	public long getStaticLong(FieldSite site, ExecutionContext<?> ctx) {
+		JavaField field = site.resolve(ctx);
+		return field.getOwner().getOop().getData().readLong(field.getOffset());
+	}
+
+	public float getStaticFloat(FieldSite site, ExecutionContext<?> ctx) {
+		JavaField field = site.resolve(ctx);
+		return Float.intBitsToFloat(field.getOwner().getOop().getData().readInt(field.getOffset()));
+	}
+
+	public double getStaticDouble(FieldSite site, ExecutionContext<?> ctx) {
+		JavaField field = site.resolve(ctx);
+		return Double.longBitsToDouble(field.getOwner().getOop().getData().readLong(field.getOffset()));
+	}
+
+	public ObjectValue getStaticReference(FieldSite site, ExecutionContext<?> ctx) {
+		JavaField field = site.resolve(ctx);
+		return ctx.getMemoryManager().readReference(field.getOwner().getOop(), field.getOffset());
+	}
+
+	public void putStaticInt(int v, FieldSite site, ExecutionContext<?> ctx) {
+		JavaField field = site.resolve(ctx);
+		writeInt(field.getOwner().getOop().getData(), field.getOffset(), site.sort, v);
+	}
+
+	public void putStaticLong(long v, FieldSite site, ExecutionContext<?> ctx) {
+		JavaField field = site.resolve(ctx);
+		field.getOwner().getOop().getData().writeLong(field.getOffset(), v);
+	}
+
+	public void putStaticFloat(float v, FieldSite site, ExecutionContext<?> ctx) {
+		JavaField field = site.resolve(ctx);
+		field.getOwner().getOop().getData().writeInt(field.getOffset(), Float.floatToRawIntBits(v));
+	}
+
+	public void putStaticDouble(double v, FieldSite site, ExecutionContext<?> ctx) {
+		JavaField field = site.resolve(ctx);
+		field.getOwner().getOop().getData().writeLong(field.getOffset(), Double.doubleToRawLongBits(v));
+	}
+
+	public void putStaticReference(ObjectValue v, FieldSite site, ExecutionContext<?> ctx) {
+		JavaField field = site.resolve(ctx);
+		ctx.getMemoryManager().writeValue(field.getOwner().getOop(), field.getOffset(), v);
+	}
+
+	public ObjectValue allocateInstance(TypeSite site, ExecutionContext<?> ctx) {
+		return ctx.getOperations().allocateInstance(site.resolve(ctx, true));
+	}
+
+	public ObjectValue allocateArray(int length, TypeSite site, ExecutionContext<?> ctx) {
+		return ctx.getOperations().allocateArray(site.resolve(ctx, false), length);
+	}
+
+	public ObjectValue allocatePrimitiveArray(int length, int type, VMOperations ops) {
+		switch (type) {
+			case Opcodes.T_BOOLEAN:
+				return ops.allocateBooleanArray(length);
+			case Opcodes.T_CHAR:
+				return ops.allocateCharArray(length);
+			case Opcodes.T_FLOAT:
+				return ops.allocateFloatArray(length);
+			case Opcodes.T_DOUBLE:
+				return ops.allocateDoubleArray(length);
+			case Opcodes.T_BYTE:
+				return ops.allocateByteArray(length);
+			case Opcodes.T_SHORT:
+				return ops.allocateShortArray(length);
+			case Opcodes.T_INT:
+				return ops.allocateIntArray(length);
+			default:
+				return ops.allocateLongArray(length);
+		}
+	}
+
+	public ObjectValue checkCast(ObjectValue value, TypeSite site, ExecutionContext<?> ctx) {
+		if (!value.isNull()) {
+			JavaClass type = site.resolve(ctx, true);
+			if (!type.isAssignableFrom(value.getJavaClass())) {
+				// Let VM throw an exception
+				ctx.getOperations().checkCast(value, type);
+			}
+		}
+		return value;
+	}
+
+	public int instanceOf(ObjectValue value, TypeSite site, ExecutionContext<?> ctx) {
+		return !value.isNull() && site.resolve(ctx, false).isAssignableFrom(value.getJavaClass()) ? 1 : 0;
+	}
+
+	public ObjectValue constant(ConstantSite site, ExecutionContext<?> ctx) {
+		ObjectValue value = site.value;
+		if (value == null) {
+			Object cst = site.cst;
+			if (cst instanceof String) {
+				value = ctx.getVM().getStringPool().intern((String) cst);
+			} else {
+				value = cst instanceof ObjectValue ? (ObjectValue) cst : ctx.getOperations().referenceValue(cst);
+				// Constant is now referenced by the method body
+				ctx.getMemoryManager().getGarbageCollector().makeHandle(value);
+			}
+			site.value = value;
+		}
+		return value;
+	}
+
+	public int idiv(int v1, int v2, ExecutionContext<?> ctx) {
+		if (v2 == 0) {
+			throwDivisionByZero(ctx);
+		}
+		return v1 / v2;
+	}
+
+	public int irem(int v1, int v2, ExecutionContext<?> ctx) {
+		if (v2 == 0) {
+			throwDivisionByZero(ctx);
+		}
+		return v1 % v2;
+	}
+
+	public long ldiv(long v1, long v2, ExecutionContext<?> ctx) {
+		if (v2 == 0L) {
+			throwDivisionByZero(ctx);
+		}
+		return v1 / v2;
+	}
+
+	public long lrem(long v1, long v2, ExecutionContext<?> ctx) {
+		if (v2 == 0L) {
+			throwDivisionByZero(ctx);
+		}
+		return v1 % v2;
+	}
+
+	public int arrayLength(ObjectValue array, VMOperations ops) {
+		return ops.getArrayLength(array);
+	}
+
+	public int arrayLoadInt(ObjectValue array, int index, VMOperations ops) {
+		return ops.arrayLoadInt(array, index);
+	}
+
+	public long arrayLoadLong(ObjectValue array, int index, VMOperations ops) {
+		return ops.arrayLoadLong(array, index);
+	}
+
+	public float arrayLoadFloat(ObjectValue array, int index, VMOperations ops) {
+		return ops.arrayLoadFloat(array, index);
+	}
+
+	public double arrayLoadDouble(ObjectValue array, int index, VMOperations ops) {
+		return ops.arrayLoadDouble(array, index);
+	}
+
+	public ObjectValue arrayLoadReference(ObjectValue array, int index, VMOperations ops) {
+		return ops.arrayLoadReference(array, index);
+	}
+
+	public int arrayLoadByte(ObjectValue array, int index, VMOperations ops) {
+		return ops.arrayLoadByte(array, index);
+	}
+
+	public int arrayLoadChar(ObjectValue array, int index, VMOperations ops) {
+		return ops.arrayLoadChar(array, index);
+	}
+
+	public int arrayLoadShort(ObjectValue array, int index, VMOperations ops) {
+		return ops.arrayLoadShort(array, index);
+	}
+
+	public void arrayStoreInt(ObjectValue array, int index, int value, VMOperations ops) {
+		ops.arrayStoreInt(array, index, value);
+	}
+
+	public void arrayStoreLong(ObjectValue array, int index, long value, VMOperations ops) {
+		ops.arrayStoreLong(array, index, value);
+	}
+
+	public void arrayStoreFloat(ObjectValue array, int index, float value, VMOperations ops) {
+		ops.arrayStoreFloat(array, index, value);
+	}
+
+	public void arrayStoreDouble(ObjectValue array, int index, double value, VMOperations ops) {
+		ops.arrayStoreDouble(array, index, value);
+	}
+
+	public void arrayStoreReference(ObjectValue array, int index, ObjectValue value, VMOperations ops) {
+		ops.arrayStoreReference(array, index, value);
+	}
+
+	public void arrayStoreByte(ObjectValue array, int index, int value, VMOperations ops) {
+		ops.arrayStoreByte(array, index, (byte) value);
+	}
+
+	public void arrayStoreChar(ObjectValue array, int index, int value, VMOperations ops) {
+		ops.arrayStoreChar(array, index, (char) value);
+	}
+
+	public void arrayStoreShort(ObjectValue array, int index, int value, VMOperations ops) {
+		ops.arrayStoreShort(array, index, (short) value);
+	}
+
+	/**
+	 * @param exception Exception to throw.
+	 * @param ops       VM operations.
+	 * @return nothing, the method always throws.
+	 */
+	public RuntimeException throwException(ObjectValue exception, VMOperations ops) {
+		ops.throwException(exception);
+		throw new IllegalStateException("Exception was not thrown");
+	}
+
+	public void returnInt(int value, ExecutionContext<?> ctx) {
+		ctx.setResult(value);
+	}
+
+	public void returnLong(long value, ExecutionContext<?> ctx) {
+		ctx.setResult(value);
+	}
+
+	public void returnFloat(float value, ExecutionContext<?> ctx) {
+		ctx.setResult(value);
+	}
+
+	public void returnDouble(double value, ExecutionContext<?> ctx) {
+		ctx.setResult(value);
+	}
+
+	public void returnReference(ObjectValue value, ExecutionContext<?> ctx) {
+		ctx.setResult(value);
+	}
+
+	private static void throwDivisionByZero(ExecutionContext<?> ctx) {
+		ctx.getOperations().throwException(ctx.getSymbols().java_lang_ArithmeticException(), "/ by zero");
+	}
+
+	private static int readInt(MemoryData data, long offset, int sort) {
+		switch (sort) {
+			case Type.BOOLEAN:
+			case Type.BYTE:
+				return data.readByte(offset);
+			case Type.CHAR:
+				return data.readChar(offset);
+			case Type.SHORT:
+				return data.readShort(offset);
+			default:
+				return data.readInt(offset);
+		}
+	}
+
+	private static void writeInt(MemoryData data, long offset, int sort, int value) {
+		switch (sort) {
+			case Type.BOOLEAN:
+			case Type.BYTE:
+				data.writeByte(offset, (byte) value);
+				break;
+			case Type.CHAR:
+				data.writeChar(offset, (char) value);
+				break;
+			case Type.SHORT:
+				data.writeShort(offset, (short) value);
+				break;
+			default:
+				data.writeInt(offset, value);
+		}
+	}
+
+	/**
+	 * Method call site.
+	 */
+	public static final class CallSite {
+		final String owner;
+		final String name;
+		final String desc;
+		final boolean itf;
+		final InlineCache cache = new InlineCache();
+		JavaMethod resolved;
+
+		CallSite(String owner, String name, String desc, boolean itf, JavaMethod resolved) {
+			this.owner = owner;
+			this.name = name;
+			this.desc = desc;
+			this.itf = itf;
+			this.resolved = resolved;
+		}
+	}
+
+	/**
+	 * Field access site.
+	 */
+	public static final class FieldSite {
+		final String owner;
+		final String name;
+		final String desc;
+		final boolean isStatic;
+		final int sort;
+		JavaField resolved;
+
+		FieldSite(String owner, String name, String desc, boolean isStatic, JavaField resolved) {
+			this.owner = owner;
+			this.name = name;
+			this.desc = desc;
+			this.isStatic = isStatic;
+			this.resolved = resolved;
+			sort = Type.getType(desc).getSort();
+		}
+
+		JavaField resolve(ExecutionContext<?> ctx) {
+			JavaField field = resolved;
+			if (field == null) {
+				VMOperations ops = ctx.getOperations();
+				InstanceClass klass = (InstanceClass) ops.findClass(ctx.getOwner(), owner, true);
+				field = isStatic ? ctx.getLinkResolver().resolveStaticField(klass, name, desc) :
+						ctx.getLinkResolver().resolveVirtualField(klass, name, desc);
+				ops.initialize(field.getOwner());
+				resolved = field;
+			}
+			return field;
+		}
+	}
+
+	/**
+	 * Type reference site.
+	 */
+	public static final class TypeSite {
+		final String desc;
+		JavaClass resolved;
+
+		TypeSite(String desc, JavaClass resolved) {
+			this.desc = desc;
+			this.resolved = resolved;
+		}
+
+		JavaClass resolve(ExecutionContext<?> ctx, boolean initialize) {
+			JavaClass type = resolved;
+			if (type == null) {
+				type = ctx.getOperations().findClass(ctx.getOwner(), desc, initialize);
+				resolved = type;
+			}
+			return type;
+		}
+	}
+
+	/**
+	 * Constant reference site.
+	 */
+	public static final class ConstantSite {
+		final Object cst;
+		ObjectValue value;
+
+		ConstantSite(Object cst, ObjectValue value) {
+			this.cst = cst;
+			this.value = value;
+		}
+	}
+}
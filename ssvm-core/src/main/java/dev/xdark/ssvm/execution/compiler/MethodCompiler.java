@@ -0,0 +1,606 @@
+package dev.xdark.ssvm.execution.compiler;
+
+import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.asm.ConstantReferenceInsnNode;
+import dev.xdark.ssvm.asm.DelegatingInsnNode;
+import dev.xdark.ssvm.asm.VMCallInsnNode;
+import dev.xdark.ssvm.asm.VMFieldInsnNode;
+import dev.xdark.ssvm.asm.VMTypeInsnNode;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.InstructionProcessor;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.compiler.CompilerSupport.CallSite;
+import dev.xdark.ssvm.execution.compiler.CompilerSupport.ConstantSite;
+import dev.xdark.ssvm.execution.compiler.CompilerSupport.FieldSite;
+import dev.xdark.ssvm.execution.compiler.CompilerSupport.TypeSite;
+import dev.xdark.ssvm.mirror.member.JavaField;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.JavaClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Translates method bytecode into a host class.
+ * <p>
+ * Guest locals and operand stack become host locals and operand stack,
+ * references are represented by {@link ObjectValue}.
+ * Everything else goes through {@link CompilerSupport}.
+ * Methods with exception handlers, monitors, subroutines,
+ * dynamic or signature polymorphic calls are not compiled.
+ * Neither are methods that use instructions
+ * with processors replaced by the user.
+ *
+ * @author xDark
+ */
+public final class MethodCompiler {
+	private static final String PACKAGE = "dev/xdark/ssvm/execution/compiler/generated/";
+	private static final String CODE = Type.getInternalName(CompiledCode.class);
+	private static final String SUPPORT = Type.getInternalName(CompilerSupport.class);
+	private static final String CTX = Type.getInternalName(ExecutionContext.class);
+	private static final String LOCALS = Type.getInternalName(Locals.class);
+	private static final String OPS = Type.getInternalName(VMOperations.class);
+	private static final String VALUE = Type.getInternalName(ObjectValue.class);
+	private static final String CTX_DESC = 'L' + CTX + ';';
+	private static final String LOCALS_DESC = 'L' + LOCALS + ';';
+	private static final String OPS_DESC = 'L' + OPS + ';';
+	private static final String VALUE_DESC = 'L' + VALUE + ';';
+	private static final String METHOD_DESC = Type.getDescriptor(JavaMethod.class);
+	private static final String CALL_SITE_DESC = Type.getDescriptor(CallSite.class);
+	private static final String FIELD_SITE_DESC = Type.getDescriptor(FieldSite.class);
+	private static final String TYPE_SITE_DESC = Type.getDescriptor(TypeSite.class);
+	private static final String CONSTANT_SITE_DESC = Type.getDescriptor(ConstantSite.class);
+	private static final String STOCK_PROCESSORS = "dev.xdark.ssvm.execution.";
+	// Host local variable layout
+	private static final int CTX_SLOT = 1;
+	private static final int OPS_SLOT = 2;
+	private static final int LOCALS_BASE = 3;
+	private final AtomicInteger counter = new AtomicInteger();
+	private final CodeLoader loader = new CodeLoader(MethodCompiler.class.getClassLoader());
+
+	/**
+	 * @param method Method to compile.
+	 * @return compiled method or {@code null},
+	 * if the method cannot be compiled.
+	 */
+	public CompiledCode compile(JavaMethod method) {
+		MethodNode node = method.getNode();
+		if ((method.getModifiers() & (ACC_NATIVE | ACC_ABSTRACT)) != 0 || node.instructions.size() == 0 || !node.tryCatchBlocks.isEmpty()) {
+			return null;
+		}
+		String name = PACKAGE + "Compiled" + counter.incrementAndGet();
+		// Pre-Java 6 classes do not need stack map frames
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, name, null, CODE, null);
+		writer.visitSource(method.getOwner().getInternalName() + '.' + method.getName(), null);
+		MethodVisitor mv = writer.visitMethod(ACC_PUBLIC, "<init>", "([Ljava/lang/Object;" + VALUE_DESC + ")V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitMethodInsn(INVOKESPECIAL, CODE, "<init>", "([Ljava/lang/Object;" + VALUE_DESC + ")V", false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		mv = writer.visitMethod(ACC_PUBLIC, "execute", '(' + CTX_DESC + ")V", null, null);
+		try {
+			Translator translator = new Translator(method, mv);
+			if (!translator.translate()) {
+				return null;
+			}
+			writer.visitEnd();
+			byte[] bytes = writer.toByteArray();
+			Class<?> klass = loader.define(name.replace('/', '.'), bytes);
+			ObjectValue nullValue = method.getOwner().getVM().getMemoryManager().nullValue();
+			return (CompiledCode) klass.getConstructor(Object[].class, ObjectValue.class)
+					.newInstance(translator.constants.toArray(), nullValue);
+		} catch (RuntimeException | LinkageError | ReflectiveOperationException ex) {
+			// Code too large or rejected by the verifier
+			return null;
+		}
+	}
+
+	private static final class Translator {
+		final List<Object> constants = new ArrayList<>();
+		private final Map<LabelNode, Label> labels = new HashMap<>();
+		private final JavaMethod method;
+		private final MethodNode node;
+		private final MethodVisitor mv;
+		private final VMInterface vmi;
+		// Scratch host locals, used to pass arguments
+		private final int tempBase;
+
+		Translator(JavaMethod method, MethodVisitor mv) {
+			this.method = method;
+			node = method.getNode();
+			this.mv = mv;
+			vmi = method.getOwner().getVM().getInterface();
+			tempBase = LOCALS_BASE + node.maxLocals;
+		}
+
+		boolean translate() {
+			MethodVisitor mv = this.mv;
+			mv.visitCode();
+			prologue();
+			for (AbstractInsnNode insn : node.instructions) {
+				if (!translate(insn)) {
+					return false;
+				}
+			}
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+			return true;
+		}
+
+		private void prologue() {
+			MethodVisitor mv = this.mv;
+			mv.visitVarInsn(ALOAD, CTX_SLOT);
+			mv.visitMethodInsn(INVOKEINTERFACE, CTX, "getOperations", "()" + OPS_DESC, true);
+			mv.visitVarInsn(ASTORE, OPS_SLOT);
+			int locals = tempBase;
+			mv.visitVarInsn(ALOAD, CTX_SLOT);
+			mv.visitMethodInsn(INVOKEINTERFACE, CTX, "getLocals", "()" + LOCALS_DESC, true);
+			mv.visitVarInsn(ASTORE, locals);
+			int slot = 0;
+			if ((method.getModifiers() & ACC_STATIC) == 0) {
+				mv.visitVarInsn(ALOAD, locals);
+				push(0);
+				mv.visitMethodInsn(INVOKEINTERFACE, LOCALS, "loadReference", "(I)" + VALUE_DESC, true);
+				mv.visitVarInsn(ASTORE, LOCALS_BASE);
+				slot = 1;
+			}
+			for (Type arg : method.getType().getArgumentTypes()) {
+				mv.visitVarInsn(ALOAD, locals);
+				push(slot);
+				mv.visitMethodInsn(INVOKEINTERFACE, LOCALS, "load" + suffix(arg), "(I)" + hostDescriptor(arg), true);
+				mv.visitVarInsn(arg.getOpcode(ISTORE), LOCALS_BASE + slot);
+				slot += arg.getSize();
+			}
+		}
+
+		private boolean translate(AbstractInsnNode insn) {
+			MethodVisitor mv = this.mv;
+			int opcode = insn.getOpcode();
+			if (opcode == -1) {
+				if (insn instanceof LabelNode) {
+					mv.visitLabel(label((LabelNode) insn));
+				} else if (insn instanceof LineNumberNode) {
+					mv.visitVarInsn(ALOAD, CTX_SLOT);
+					push(((LineNumberNode) insn).line);
+					mv.visitMethodInsn(INVOKEINTERFACE, CTX, "setLineNumber", "(I)V", true);
+				}
+				return true;
+			}
+			InstructionProcessor<?> processor = vmi.getProcessor(opcode);
+			if (processor == null || !processor.getClass().getName().startsWith(STOCK_PROCESSORS)) {
+				return false;
+			}
+			// Rewritten instructions may carry resolved data
+			Object resolved = null;
+			if (insn instanceof VMCallInsnNode) {
+				resolved = ((VMCallInsnNode) insn).getResolved();
+			} else if (insn instanceof VMFieldInsnNode) {
+				resolved = ((VMFieldInsnNode) insn).getResolved();
+			} else if (insn instanceof VMTypeInsnNode) {
+				resolved = ((VMTypeInsnNode) insn).getJavaType();
+			} else if (insn instanceof ConstantReferenceInsnNode) {
+				resolved = ((ConstantReferenceInsnNode) insn).getValue();
+			}
+			while (insn instanceof DelegatingInsnNode) {
+				insn = ((DelegatingInsnNode<?>) insn).getDelegate();
+			}
+			opcode = insn.getOpcode();
+			switch (opcode) {
+				case NOP:
+					return true;
+				case ACONST_NULL:
+					mv.visitVarInsn(ALOAD, 0);
+					mv.visitFieldInsn(GETFIELD, CODE, "nullValue", VALUE_DESC);
+					return true;
+				case LDC:
+					return constant(((LdcInsnNode) insn).cst, (ObjectValue) resolved);
+				case ILOAD:
+				case LLOAD:
+				case FLOAD:
+				case DLOAD:
+				case ALOAD:
+				case ISTORE:
+				case LSTORE:
+				case FSTORE:
+				case DSTORE:
+				case ASTORE:
+					mv.visitVarInsn(opcode, LOCALS_BASE + ((VarInsnNode) insn).var);
+					return true;
+				case IINC: {
+					IincInsnNode iinc = (IincInsnNode) insn;
+					mv.visitIincInsn(LOCALS_BASE + iinc.var, iinc.incr);
+					return true;
+				}
+				case BIPUSH:
+				case SIPUSH:
+					mv.visitIntInsn(opcode, ((IntInsnNode) insn).operand);
+					return true;
+				case IALOAD:
+					return arrayLoad("Int", "I");
+				case LALOAD:
+					return arrayLoad("Long", "J");
+				case FALOAD:
+					return arrayLoad("Float", "F");
+				case DALOAD:
+					return arrayLoad("Double", "D");
+				case AALOAD:
+					return arrayLoad("Reference", VALUE_DESC);
+				case BALOAD:
+					return arrayLoad("Byte", "I");
+				case CALOAD:
+					return arrayLoad("Char", "I");
+				case SALOAD:
+					return arrayLoad("Short", "I");
+				case IASTORE:
+					return arrayStore("Int", "I");
+				case LASTORE:
+					return arrayStore("Long", "J");
+				case FASTORE:
+					return arrayStore("Float", "F");
+				case DASTORE:
+					return arrayStore("Double", "D");
+				case AASTORE:
+					return arrayStore("Reference", VALUE_DESC);
+				case BASTORE:
+					return arrayStore("Byte", "I");
+				case CASTORE:
+					return arrayStore("Char", "I");
+				case SASTORE:
+					return arrayStore("Short", "I");
+				case IDIV:
+				case IREM:
+				case LDIV:
+				case LREM: {
+					// Division by zero must throw guest exception
+					boolean isInt = opcode == IDIV || opcode == IREM;
+					String name = (isInt ? "i" : "l") + (opcode == IDIV || opcode == LDIV ? "div" : "rem");
+					mv.visitVarInsn(ALOAD, CTX_SLOT);
+					mv.visitMethodInsn(INVOKESTATIC, SUPPORT, name, isInt ? "(II" + CTX_DESC + ")I" : "(JJ" + CTX_DESC + ")J", false);
+					return true;
+				}
+				case IFNULL:
+				case IFNONNULL:
+					mv.visitMethodInsn(INVOKEINTERFACE, VALUE, "isNull", "()Z", true);
+					mv.visitJumpInsn(opcode == IFNULL ? IFNE : IFEQ, label(((JumpInsnNode) insn).label));
+					return true;
+				case TABLESWITCH: {
+					TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+					mv.visitTableSwitchInsn(tableSwitch.min, tableSwitch.max, label(tableSwitch.dflt), labels(tableSwitch.labels));
+					return true;
+				}
+				case LOOKUPSWITCH: {
+					LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+					int[] keys = lookupSwitch.keys.stream().mapToInt(Integer::intValue).toArray();
+					mv.visitLookupSwitchInsn(label(lookupSwitch.dflt), keys, labels(lookupSwitch.labels));
+					return true;
+				}
+				case IRETURN:
+					return ret("Int", "I");
+				case LRETURN:
+					return ret("Long", "J");
+				case FRETURN:
+					return ret("Float", "F");
+				case DRETURN:
+					return ret("Double", "D");
+				case ARETURN:
+					return ret("Reference", VALUE_DESC);
+				case RETURN:
+					mv.visitInsn(RETURN);
+					return true;
+				case GETSTATIC:
+				case PUTSTATIC:
+				case GETFIELD:
+				case PUTFIELD:
+					field((FieldInsnNode) insn, (JavaField) resolved);
+					return true;
+				case INVOKEVIRTUAL:
+				case INVOKESPECIAL:
+				case INVOKESTATIC:
+				case INVOKEINTERFACE:
+					return call((MethodInsnNode) insn, (JavaMethod) resolved);
+				case NEW:
+					site(new TypeSite(((TypeInsnNode) insn).desc, (JavaClass) resolved));
+					mv.visitVarInsn(ALOAD, CTX_SLOT);
+					mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "allocateInstance", '(' + TYPE_SITE_DESC + CTX_DESC + ')' + VALUE_DESC, false);
+					return true;
+				case NEWARRAY:
+					push(((IntInsnNode) insn).operand);
+					mv.visitVarInsn(ALOAD, OPS_SLOT);
+					mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "allocatePrimitiveArray", "(II" + OPS_DESC + ')' + VALUE_DESC, false);
+					return true;
+				case ANEWARRAY:
+					site(new TypeSite(((TypeInsnNode) insn).desc, (JavaClass) resolved));
+					mv.visitVarInsn(ALOAD, CTX_SLOT);
+					mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "allocateArray", "(I" + TYPE_SITE_DESC + CTX_DESC + ')' + VALUE_DESC, false);
+					return true;
+				case ARRAYLENGTH:
+					mv.visitVarInsn(ALOAD, OPS_SLOT);
+					mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "arrayLength", '(' + VALUE_DESC + OPS_DESC + ")I", false);
+					return true;
+				case ATHROW:
+					mv.visitVarInsn(ALOAD, OPS_SLOT);
+					mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "throwException", '(' + VALUE_DESC + OPS_DESC + ")Ljava/lang/RuntimeException;", false);
+					mv.visitInsn(ATHROW);
+					return true;
+				case CHECKCAST:
+					site(new TypeSite(((TypeInsnNode) insn).desc, (JavaClass) resolved));
+					mv.visitVarInsn(ALOAD, CTX_SLOT);
+					mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "checkCast", '(' + VALUE_DESC + TYPE_SITE_DESC + CTX_DESC + ')' + VALUE_DESC, false);
+					return true;
+				case INSTANCEOF:
+					site(new TypeSite(((TypeInsnNode) insn).desc, (JavaClass) resolved));
+					mv.visitVarInsn(ALOAD, CTX_SLOT);
+					mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "instanceOf", '(' + VALUE_DESC + TYPE_SITE_DESC + CTX_DESC + ")I", false);
+					return true;
+				case JSR:
+				case RET:
+				case INVOKEDYNAMIC:
+				case MONITORENTER:
+				case MONITOREXIT:
+				case MULTIANEWARRAY:
+					return false;
+				default:
+					if (insn instanceof JumpInsnNode) {
+						// Integer and reference comparisons, GOTO
+						mv.visitJumpInsn(opcode, label(((JumpInsnNode) insn).label));
+						return true;
+					}
+					if (opcode >= ICONST_M1 && opcode <= DCONST_1 || opcode >= POP && opcode <= DCMPG) {
+						// Constants, stack manipulation, arithmetic,
+						// conversions and comparisons have the same semantics
+						mv.visitInsn(opcode);
+						return true;
+					}
+					return false;
+			}
+		}
+
+		private boolean constant(Object cst, ObjectValue resolved) {
+			if (resolved == null) {
+				if (cst instanceof Integer || cst instanceof Long || cst instanceof Float || cst instanceof Double) {
+					mv.visitLdcInsn(cst);
+					return true;
+				}
+				if (cst instanceof Short || cst instanceof Byte) {
+					push(((Number) cst).intValue());
+					return true;
+				}
+				if (cst instanceof Character) {
+					push((Character) cst);
+					return true;
+				}
+			}
+			site(new ConstantSite(cst, resolved));
+			mv.visitVarInsn(ALOAD, CTX_SLOT);
+			mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "constant", '(' + CONSTANT_SITE_DESC + CTX_DESC + ')' + VALUE_DESC, false);
+			return true;
+		}
+
+		private boolean arrayLoad(String suffix, String hostDesc) {
+			mv.visitVarInsn(ALOAD, OPS_SLOT);
+			mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "arrayLoad" + suffix, '(' + VALUE_DESC + 'I' + OPS_DESC + ')' + hostDesc, false);
+			return true;
+		}
+
+		private boolean arrayStore(String suffix, String hostDesc) {
+			mv.visitVarInsn(ALOAD, OPS_SLOT);
+			mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "arrayStore" + suffix, '(' + VALUE_DESC + 'I' + hostDesc + OPS_DESC + ")V", false);
+			return true;
+		}
+
+		private boolean ret(String suffix, String hostDesc) {
+			mv.visitVarInsn(ALOAD, CTX_SLOT);
+			mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "return" + suffix, '(' + hostDesc + CTX_DESC + ")V", false);
+			mv.visitInsn(RETURN);
+			return true;
+		}
+
+		private void field(FieldInsnNode insn, JavaField resolved) {
+			int opcode = insn.getOpcode();
+			Type type = Type.getType(insn.desc);
+			String suffix = suffix(type);
+			String hostDesc = hostDescriptor(type);
+			boolean isStatic = opcode == GETSTATIC || opcode == PUTSTATIC;
+			site(new FieldSite(insn.owner, insn.name, insn.desc, isStatic, resolved));
+			mv.visitVarInsn(ALOAD, CTX_SLOT);
+			String name;
+			String desc;
+			switch (opcode) {
+				case GETSTATIC:
+					name = "getStatic";
+					desc = '(' + FIELD_SITE_DESC + CTX_DESC + ')' + hostDesc;
+					break;
+				case PUTSTATIC:
+					name = "putStatic";
+					desc = '(' + hostDesc + FIELD_SITE_DESC + CTX_DESC + ")V";
+					break;
+				case GETFIELD:
+					name = "getField";
+					desc = '(' + VALUE_DESC + FIELD_SITE_DESC + CTX_DESC + ')' + hostDesc;
+					break;
+				default:
+					name = "putField";
+					desc = '(' + VALUE_DESC + hostDesc + FIELD_SITE_DESC + CTX_DESC + ")V";
+			}
+			mv.visitMethodInsn(INVOKESTATIC, SUPPORT, name + suffix, desc, false);
+		}
+
+		private boolean call(MethodInsnNode insn, JavaMethod resolved) {
+			String owner = insn.owner;
+			if ("java/lang/invoke/MethodHandle".equals(owner) || "java/lang/invoke/VarHandle".equals(owner)) {
+				// Call site descriptor may not match the method
+				return false;
+			}
+			MethodVisitor mv = this.mv;
+			int opcode = insn.getOpcode();
+			Type[] args = Type.getArgumentTypes(insn.desc);
+			Type returnType = Type.getReturnType(insn.desc);
+			boolean hasReceiver = opcode != INVOKESTATIC;
+			int receiverSlot = tempBase;
+			int methodSlot = tempBase + 1;
+			int localsSlot = tempBase + 2;
+			int[] offsets = new int[args.length];
+			int size = 0;
+			for (int i = 0; i < args.length; i++) {
+				offsets[i] = size;
+				size += args[i].getSize();
+			}
+			int argBase = tempBase + 3;
+			for (int i = args.length - 1; i >= 0; i--) {
+				mv.visitVarInsn(args[i].getOpcode(ISTORE), argBase + offsets[i]);
+			}
+			if (hasReceiver) {
+				mv.visitVarInsn(ASTORE, receiverSlot);
+			}
+			CallSite site = new CallSite(owner, insn.name, insn.desc, insn.itf, resolved);
+			if (opcode == INVOKEVIRTUAL || opcode == INVOKEINTERFACE) {
+				site.resolved = null;
+				mv.visitVarInsn(ALOAD, receiverSlot);
+				site(site);
+				mv.visitVarInsn(ALOAD, CTX_SLOT);
+				mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "resolveVirtual", '(' + VALUE_DESC + CALL_SITE_DESC + CTX_DESC + ')' + METHOD_DESC, false);
+			} else {
+				site(site);
+				mv.visitVarInsn(ALOAD, CTX_SLOT);
+				mv.visitMethodInsn(INVOKESTATIC, SUPPORT, opcode == INVOKESTATIC ? "resolveStatic" : "resolveSpecial", '(' + CALL_SITE_DESC + CTX_DESC + ')' + METHOD_DESC, false);
+			}
+			mv.visitVarInsn(ASTORE, methodSlot);
+			mv.visitVarInsn(ALOAD, methodSlot);
+			mv.visitVarInsn(ALOAD, CTX_SLOT);
+			mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "newLocals", '(' + METHOD_DESC + CTX_DESC + ')' + LOCALS_DESC, false);
+			mv.visitVarInsn(ASTORE, localsSlot);
+			int slot = 0;
+			if (hasReceiver) {
+				mv.visitVarInsn(ALOAD, localsSlot);
+				push(0);
+				mv.visitVarInsn(ALOAD, receiverSlot);
+				mv.visitMethodInsn(INVOKEINTERFACE, LOCALS, "setReference", "(I" + VALUE_DESC + ")V", true);
+				slot = 1;
+			}
+			for (int i = 0; i < args.length; i++) {
+				Type arg = args[i];
+				mv.visitVarInsn(ALOAD, localsSlot);
+				push(slot);
+				mv.visitVarInsn(arg.getOpcode(ILOAD), argBase + offsets[i]);
+				mv.visitMethodInsn(INVOKEINTERFACE, LOCALS, "set" + suffix(arg), "(I" + hostDescriptor(arg) + ")V", true);
+				slot += arg.getSize();
+			}
+			mv.visitVarInsn(ALOAD, OPS_SLOT);
+			mv.visitVarInsn(ALOAD, methodSlot);
+			mv.visitVarInsn(ALOAD, localsSlot);
+			String name = returnType.getSort() == Type.VOID ? "Void" : suffix(returnType);
+			String hostDesc = returnType.getSort() == Type.VOID ? "V" : hostDescriptor(returnType);
+			mv.visitMethodInsn(INVOKEVIRTUAL, OPS, "invoke" + name, '(' + METHOD_DESC + LOCALS_DESC + ')' + hostDesc, false);
+			return true;
+		}
+
+		private void site(Object site) {
+			MethodVisitor mv = this.mv;
+			int index = constants.size();
+			constants.add(site);
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitFieldInsn(GETFIELD, CODE, "constants", "[Ljava/lang/Object;");
+			push(index);
+			mv.visitInsn(AALOAD);
+			mv.visitTypeInsn(CHECKCAST, Type.getInternalName(site.getClass()));
+		}
+
+		private void push(int value) {
+			MethodVisitor mv = this.mv;
+			if (value >= -1 && value <= 5) {
+				mv.visitInsn(ICONST_0 + value);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				mv.visitIntInsn(BIPUSH, value);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				mv.visitIntInsn(SIPUSH, value);
+			} else {
+				mv.visitLdcInsn(value);
+			}
+		}
+
+		private Label label(LabelNode node) {
+			return labels.computeIfAbsent(node, __ -> new Label());
+		}
+
+		private Label[] labels(List<LabelNode> nodes) {
+			Label[] labels = new Label[nodes.size()];
+			for (int i = 0; i < labels.length; i++) {
+				labels[i] = label(nodes.get(i));
+			}
+			return labels;
+		}
+	}
+
+	private static String suffix(Type type) {
+		switch (type.getSort()) {
+			case Type.LONG:
+				return "Long";
+			case Type.FLOAT:
+				return "Float";
+			case Type.DOUBLE:
+				return "Double";
+			case Type.ARRAY:
+			case Type.OBJECT:
+				return "Reference";
+			default:
+				return "Int";
+		}
+	}
+
+	private static String hostDescriptor(Type type) {
+		switch (type.getSort()) {
+			case Type.LONG:
+				return "J";
+			case Type.FLOAT:
+				return "F";
+			case Type.DOUBLE:
+				return "D";
+			case Type.ARRAY:
+			case Type.OBJECT:
+				return VALUE_DESC;
+			default:
+				return "I";
+		}
+	}
+
+	private static final class CodeLoader extends ClassLoader {
+
+		CodeLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
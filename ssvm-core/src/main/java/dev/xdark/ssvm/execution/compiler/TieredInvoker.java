@@ -0,0 +1,64 @@
+package dev.xdark.ssvm.execution.compiler;
+
+import dev.xdark.ssvm.api.MethodInvoker;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+
+/**
+ * Invoker that interprets a method until it gets hot
+ * and then switches to the compiled code.
+ * <p>
+ * A method is compiled once its invocation count
+ * reaches the threshold, see {@link MethodCompiler}.
+ * Methods that cannot be compiled stay interpreted.
+ * Compiled code is not used while
+ * any instruction interceptor is registered.
+ *
+ * @author xDark
+ */
+public final class TieredInvoker implements MethodInvoker {
+	public static final int DEFAULT_THRESHOLD = 1000;
+	private final MethodInvoker interpreter;
+	private final MethodCompiler compiler;
+	private final int threshold;
+
+	/**
+	 * @param interpreter Invoker used for methods that are not compiled.
+	 * @param compiler    Method compiler.
+	 * @param threshold   Invocation count after which a method gets compiled.
+	 */
+	public TieredInvoker(MethodInvoker interpreter, MethodCompiler compiler, int threshold) {
+		this.interpreter = interpreter;
+		this.compiler = compiler;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * @param interpreter Invoker used for methods that are not compiled.
+	 */
+	public TieredInvoker(MethodInvoker interpreter) {
+		this(interpreter, new MethodCompiler(), DEFAULT_THRESHOLD);
+	}
+
+	@Override
+	public Result intercept(ExecutionContext<?> ctx) {
+		JavaMethod method = ctx.getMethod();
+		CompiledCode code = method.getCompiledCode();
+		if (code == null) {
+			if (method.getInvocationCount() < threshold) {
+				return interpreter.intercept(ctx);
+			}
+			code = compiler.compile(method);
+			if (code == null) {
+				code = CompiledCode.UNSUPPORTED;
+			}
+			method.setCompiledCode(code);
+		}
+		if (code == CompiledCode.UNSUPPORTED || !ctx.getVM().getInterface().getInstructionInterceptors().isEmpty()) {
+			return interpreter.intercept(ctx);
+		}
+		code.execute(ctx);
+		return Result.ABORT;
+	}
+}
@@ -4,6 +4,7 @@
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.InstructionProcessor;
 import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.value.ObjectValue;
 
 /**
  * Fast path for CHECKCAST.
@@ -11,7 +12,11 @@
 public class VMCastProcessor implements InstructionProcessor<VMTypeInsnNode> {
 	@Override
 	public Result execute(VMTypeInsnNode insn, ExecutionContext<?> ctx) {
-		ctx.getOperations().checkCast(ctx.getStack().peekReference(), insn.getJavaType());
+		ObjectValue value = ctx.getStack().peekReference();
+		if (!value.isNull() && !insn.isAssignableFrom(value.getJavaClass())) {
+			// Let VM throw an exception
+			ctx.getOperations().checkCast(value, insn.getJavaType());
+		}
 		return Result.CONTINUE;
 	}
 }
@@ -15,26 +15,41 @@
  *
  * @author xDark
  */
-abstract class AbstractVMCallProcessor implements InstructionProcessor<VMCallInsnNode> {
+public abstract class AbstractVMCallProcessor implements InstructionProcessor<VMCallInsnNode> {
 
 	@Override
 	public final Result execute(VMCallInsnNode insn, ExecutionContext<?> ctx) {
-		JavaMethod method = insn.getResolved();
-		if (method == null) {
-			// The one who override the method
-			// must replace resolved field, if needed
-			method = resolveMethod(insn, ctx);
-		}
-		ctx.getOperations().initialize(method.getOwner());
+		JavaMethod method = resolveTarget(insn, ctx);
 		VirtualMachine vm = ctx.getVM();
 		Stack callerStack = ctx.getStack();
 		ThreadStorage storage = vm.getThreadStorage();
 		int maxArgs = method.getMaxArgs();
 		Locals locals = storage.newLocals(method);
 		callerStack.sinkInto(locals, maxArgs);
+		// Arguments are in the callee frame now
+		vm.currentOSThread().getBacktrace().markGuestCall(method);
 		vm.getOperations().invoke(method, locals, callerStack);
 		return Result.CONTINUE;
 	}
 
+	/**
+	 * Resolves method to call and initializes its owner.
+	 * Arguments are left on the caller stack.
+	 *
+	 * @param insn Call instruction.
+	 * @param ctx  Caller context.
+	 * @return Method to call.
+	 */
+	public final JavaMethod resolveTarget(VMCallInsnNode insn, ExecutionContext<?> ctx) {
+		JavaMethod method = insn.getResolved();
+		if (method == null) {
+			// The one who override the method
+			// must replace resolved field, if needed
+			method = resolveMethod(insn, ctx);
+		}
+		ctx.getOperations().initialize(method.getOwner());
+		return method;
+	}
+
 	protected abstract JavaMethod resolveMethod(VMCallInsnNode insn, ExecutionContext<?> ctx);
 }
@@ -1,17 +1,25 @@
 package dev.xdark.ssvm.execution.rewrite.method;
 
 import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.asm.InlineCache;
 import dev.xdark.ssvm.asm.VMCallInsnNode;
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.Stack;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.operation.VMOperations;
 import dev.xdark.ssvm.value.ObjectValue;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.MethodInsnNode;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 /**
  * Fast-path for INVOKEINTERFACE.
+ * Resolved methods are kept in the inline cache of the call site,
+ * cache misses are dispatched through the interface method table.
  *
  * @author xDark
  */
@@ -29,6 +37,58 @@ protected JavaMethod resolveMethod(VMCallInsnNode insn, ExecutionContext<?> ctx)
 		int args = insn.getArgCount();
 		Stack stack = ctx.getStack();
 		ObjectValue instance = stack.getReferenceAt(stack.position() - args - 1);
-		return vm.getRuntimeResolver().resolveInterfaceMethod(instance, callInfo.name, callInfo.desc);
+		if (instance.isNull()) {
+			helper.throwException(vm.getSymbols().java_lang_NullPointerException());
+		}
+		JavaClass type = instance.getJavaClass();
+		InlineCache cache = insn.getInlineCache();
+		JavaMethod method = cache.lookup(type);
+		if (method == null) {
+			method = dispatch(insn, javaClass, type);
+			if (method == null) {
+				method = vm.getRuntimeResolver().resolveInterfaceMethod(type, callInfo.name, callInfo.desc);
+			}
+			cache.update(type, method);
+		}
+		return method;
+	}
+
+	private static JavaMethod dispatch(VMCallInsnNode insn, JavaClass javaClass, JavaClass type) {
+		if (!(type instanceof InstanceClass)) {
+			return null;
+		}
+		int index = insn.getTableIndex();
+		if (index == -2) {
+			index = linkTableIndex(insn, javaClass);
+		}
+		if (index < 0) {
+			return null;
+		}
+		JavaMethod method = ((InstanceClass) type).getInterfaceMethod(insn.getTableOwner(), index);
+		if (method == null || (method.getModifiers() & Opcodes.ACC_ABSTRACT) != 0) {
+			// Let the resolver throw an error
+			return null;
+		}
+		return method;
+	}
+
+	private static int linkTableIndex(VMCallInsnNode insn, JavaClass javaClass) {
+		MethodInsnNode callInfo = insn.getDelegate();
+		if (javaClass.isInterface()) {
+			// Method may be declared by one of the super interfaces
+			Deque<InstanceClass> queue = new ArrayDeque<>();
+			queue.add((InstanceClass) javaClass);
+			InstanceClass itf;
+			while ((itf = queue.poll()) != null) {
+				int index = itf.getInterfaceMethodIndex(callInfo.name, callInfo.desc);
+				if (index != -1) {
+					insn.setTableIndex(itf, index);
+					return index;
+				}
+				queue.addAll(itf.getInterfaces());
+			}
+		}
+		insn.setTableIndex(null, -1);
+		return -1;
 	}
 }
@@ -1,15 +1,21 @@
 package dev.xdark.ssvm.execution.rewrite.method;
 
 import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.asm.InlineCache;
 import dev.xdark.ssvm.asm.VMCallInsnNode;
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.Stack;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.value.ObjectValue;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.MethodInsnNode;
 
 /**
  * Fast-path for INVOKEVIRTUAL.
+ * Resolved methods are kept in the inline cache of the call site,
+ * cache misses are dispatched through the virtual method table.
  *
  * @author xDark
  */
@@ -21,7 +27,58 @@ protected JavaMethod resolveMethod(VMCallInsnNode insn, ExecutionContext<?> ctx)
 		VirtualMachine vm = ctx.getVM();
 		Stack stack = ctx.getStack();
 		ObjectValue instance = stack.getReferenceAt(stack.position() - args - 1);
-		return insn.isInterface() ? vm.getRuntimeResolver().resolveInterfaceMethod(instance, callInfo.name, callInfo.desc) :
-				vm.getRuntimeResolver().resolveVirtualMethod(instance, callInfo.name, callInfo.desc);
+		if (instance.isNull()) {
+			vm.getOperations().throwException(vm.getSymbols().java_lang_NullPointerException());
+		}
+		JavaClass type = instance.getJavaClass();
+		InlineCache cache = insn.getInlineCache();
+		JavaMethod method = cache.lookup(type);
+		if (method == null) {
+			method = dispatch(insn, type);
+			if (method == null) {
+				method = insn.isInterface() ? vm.getRuntimeResolver().resolveInterfaceMethod(type, callInfo.name, callInfo.desc) :
+						vm.getRuntimeResolver().resolveVirtualMethod(type, callInfo.name, callInfo.desc);
+			}
+			cache.update(type, method);
+		}
+		return method;
+	}
+
+	private static JavaMethod dispatch(VMCallInsnNode insn, JavaClass type) {
+		if (!(type instanceof InstanceClass)) {
+			return null;
+		}
+		int index = insn.getTableIndex();
+		if (index == -2) {
+			index = linkTableIndex(insn, (InstanceClass) type);
+		}
+		if (index < 0) {
+			return null;
+		}
+		JavaMethod method = ((InstanceClass) type).getVirtualMethod(index);
+		if (method == null || (method.getModifiers() & Opcodes.ACC_ABSTRACT) != 0) {
+			// Let the resolver find default method or throw an error
+			return null;
+		}
+		return method;
+	}
+
+	private static int linkTableIndex(VMCallInsnNode insn, InstanceClass type) {
+		MethodInsnNode callInfo = insn.getDelegate();
+		int index = -1;
+		InstanceClass owner = null;
+		if (!insn.isInterface()) {
+			// Receiver is a subclass of the owner, no need to load anything
+			String name = callInfo.owner;
+			for (InstanceClass jc = type; jc != null; jc = jc.getSuperClass()) {
+				if (name.equals(jc.getInternalName())) {
+					owner = jc;
+					index = jc.getVirtualMethodIndex(callInfo.name, callInfo.desc);
+					break;
+				}
+			}
+		}
+		insn.setTableIndex(owner, index);
+		return index;
 	}
 }
@@ -31,4 +31,10 @@ public interface VMEventCollection {
 	 * @return Method exit hook.
 	 */
 	MethodExit getMethodExit();
+
+	/**
+	 * @return {@code true} if any environment
+	 * has method enter or exit hook set.
+	 */
+	boolean hasMethodEvents();
 }
@@ -0,0 +1,433 @@
+package dev.xdark.ssvm.memory.allocation;
+
+import dev.xdark.ssvm.execution.PanicException;
+import dev.xdark.ssvm.threadlocal.ThreadLocalStorage;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Memory allocator that carves heap blocks
+ * out of large contiguous regions.
+ * <p>
+ * Each thread bumps a pointer in its own region,
+ * so allocation does not need any locking.
+ * Region of the thread is handed over to the next thread
+ * once the thread detaches or exits.
+ * Region of the address is resolved by index arithmetic,
+ * a region is released once all of its blocks are freed,
+ * and its slots are reused by the next regions.
+ * Direct memory is kept in a navigable map, as it is rarely used.
+ *
+ * @author xDark
+ */
+public class ArenaMemoryAllocator extends AbstractMemoryAllocator {
+	private static final long HEAP_BASE = 1L << 32L;
+	private static final long DIRECT_BASE = 1L << 62L;
+	private static final int ALIGNMENT = 8;
+	private static final int MAX_SPARE_REGIONS = 16;
+	private final ThreadLocal<Region> currentRegion = new ThreadLocal<>();
+	// Free slots below the region count
+	private final BitSet freeSlots = new BitSet();
+	// Regions of the threads that are gone
+	private final Deque<Region> spareRegions = new ArrayDeque<>();
+	private final NavigableMap<MemoryAddress, MemoryBlock> directBlocks = new TreeMap<>();
+	private final int regionShift;
+	private final int regionSize;
+	private volatile Region[] regions = new Region[16];
+	private int regionCount;
+	private long directPointer = DIRECT_BASE;
+
+	/**
+	 * @param regionShift Region size, as a power of two.
+	 */
+	public ArenaMemoryAllocator(int regionShift) {
+		if (regionShift < 12 || regionShift > 30) {
+			throw new IllegalArgumentException("Region shift must be in [12, 30] range");
+		}
+		this.regionShift = regionShift;
+		regionSize = 1 << regionShift;
+	}
+
+	public ArenaMemoryAllocator() {
+		this(20);
+	}
+
+	@Override
+	public MemoryBlock findHeapBlock(long address) {
+		long index = (address - HEAP_BASE) >> regionShift;
+		Region[] regions = this.regions;
+		if (index < 0L || index >= regions.length) {
+			return null;
+		}
+		Region region = regions[(int) index];
+		if (region == null) {
+			return null;
+		}
+		return region.find(address - region.address);
+	}
+
+	@Override
+	public MemoryBlock findDirectBlock(long address) {
+		synchronized (directBlocks) {
+			Map.Entry<MemoryAddress, MemoryBlock> entry = findDirect(address);
+			return entry == null ? null : entry.getValue();
+		}
+	}
+
+	@Override
+	public MemoryBlock allocateHeap(long bytes) {
+		if (!canAllocate(bytes)) {
+			return null;
+		}
+		int size = blockSize(bytes);
+		if (size > regionSize >>> 1) {
+			// Large blocks get a dedicated region
+			Region region = newRegion(size);
+			MemoryBlock block = region.allocate(size, (int) bytes);
+			retire(region);
+			return block;
+		}
+		ThreadLocal<Region> currentRegion = this.currentRegion;
+		Region region = currentRegion.get();
+		if (region == null || region.remaining() < size) {
+			if (region != null) {
+				retire(region);
+			}
+			region = takeRegion(size);
+			currentRegion.set(region);
+		}
+		return region.allocate(size, (int) bytes);
+	}
+
+	@Override
+	public MemoryBlock allocateDirect(long bytes) {
+		if (!canAllocate(bytes)) {
+			return null;
+		}
+		synchronized (directBlocks) {
+			long address = directPointer;
+			directPointer = address + blockSize(bytes);
+			MemoryBlock block = makeBlock(address, bytes, false);
+			directBlocks.put(MemoryAddress.of(address), block);
+			return block;
+		}
+	}
+
+	@Override
+	public MemoryBlock reallocateDirect(long address, long bytes) {
+		MemoryBlock block;
+		synchronized (directBlocks) {
+			block = directBlocks.remove(ThreadLocalStorage.get().memoryAddress(address));
+		}
+		if (block == null) {
+			throw new PanicException("Segfault");
+		}
+		if (bytes == 0L) {
+			return emptyDirectBlock();
+		}
+		MemoryBlock newBlock = allocateDirect(bytes);
+		if (newBlock == null) {
+			return null;
+		}
+		MemoryData data = block.getData();
+		data.write(0L, newBlock.getData(), 0L, Math.min(data.length(), bytes));
+		return newBlock;
+	}
+
+	@Override
+	public boolean freeHeap(long address) {
+		long index = (address - HEAP_BASE) >> regionShift;
+		Region[] regions = this.regions;
+		if (index < 0L || index >= regions.length) {
+			return false;
+		}
+		Region region = regions[(int) index];
+		if (region == null) {
+			return false;
+		}
+		boolean release;
+		synchronized (region) {
+			if (!region.free(address - region.address)) {
+				return false;
+			}
+			release = region.isGarbage();
+		}
+		if (release) {
+			release(region);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean freeDirect(long address) {
+		synchronized (directBlocks) {
+			Map.Entry<MemoryAddress, MemoryBlock> entry = findDirect(address);
+			if (entry != null) {
+				return directBlocks.remove(entry.getKey(), entry.getValue());
+			}
+			return false;
+		}
+	}
+
+	@Override
+	public void releaseCurrentThread() {
+		ThreadLocal<Region> currentRegion = this.currentRegion;
+		Region region = currentRegion.get();
+		if (region == null) {
+			return;
+		}
+		currentRegion.remove();
+		synchronized (this) {
+			Deque<Region> spareRegions = this.spareRegions;
+			if (spareRegions.size() < MAX_SPARE_REGIONS) {
+				spareRegions.push(region);
+				return;
+			}
+		}
+		retire(region);
+	}
+
+	@Override
+	public MemoryAllocatorStatistics dumpStatistics() {
+		long used = 0L;
+		long total = 0L;
+		synchronized (this) {
+			Region[] regions = this.regions;
+			for (int i = 0; i < regions.length; i++) {
+				Region region = regions[i];
+				if (region != null && region.index == i) {
+					synchronized (region) {
+						used += region.top - region.freed;
+					}
+					total += region.data.length;
+				}
+			}
+		}
+		return new Statistics(used, total);
+	}
+
+	@Override
+	public MemoryAllocatorStatistics liveStatistics() {
+		return dumpStatistics();
+	}
+
+	@Override
+	protected boolean canAllocate(long bytes) {
+		return bytes >= 0L && bytes < Integer.MAX_VALUE - ALIGNMENT;
+	}
+
+	@Override
+	protected MemoryBlock makeBlock(long address, long bytes, boolean heap) {
+		return new SimpleMemoryBlock(address, MemoryData.array(new byte[(int) bytes], 0, (int) bytes), heap);
+	}
+
+	private Region takeRegion(int size) {
+		Region region;
+		while (true) {
+			synchronized (this) {
+				region = spareRegions.poll();
+			}
+			if (region == null) {
+				return newRegion(regionSize);
+			}
+			if (region.remaining() >= size) {
+				return region;
+			}
+			retire(region);
+		}
+	}
+
+	private synchronized Region newRegion(int size) {
+		int slots = (int) ((size + (long) regionSize - 1L) >>> regionShift);
+		BitSet freeSlots = this.freeSlots;
+		int index = freeSlots.nextSetBit(0);
+		while (index != -1) {
+			int end = freeSlots.nextClearBit(index);
+			if (end - index >= slots) {
+				break;
+			}
+			index = freeSlots.nextSetBit(end);
+		}
+		if (index == -1) {
+			index = regionCount;
+			regionCount = index + slots;
+		} else {
+			freeSlots.clear(index, index + slots);
+		}
+		Region[] regions = this.regions;
+		int required = index + slots;
+		if (required > regions.length) {
+			regions = Arrays.copyOf(regions, Math.max(required, regions.length << 1));
+		}
+		Region region = new Region(index, slots, regionAddress(index), new byte[size]);
+		for (int i = 0; i < slots; i++) {
+			regions[index + i] = region;
+		}
+		this.regions = regions;
+		return region;
+	}
+
+	private void retire(Region region) {
+		boolean release;
+		synchronized (region) {
+			region.retired = true;
+			release = region.isGarbage();
+		}
+		if (release) {
+			release(region);
+		}
+	}
+
+	private synchronized void release(Region region) {
+		Region[] regions = this.regions;
+		int index = region.index;
+		int end = index + region.slots;
+		for (int i = index; i < end; i++) {
+			regions[i] = null;
+		}
+		BitSet freeSlots = this.freeSlots;
+		if (end == regionCount) {
+			// Free slots at the end are given back
+			int count = freeSlots.previousClearBit(index - 1) + 1;
+			freeSlots.clear(count, index);
+			regionCount = count;
+		} else {
+			freeSlots.set(index, end);
+		}
+	}
+
+	private long regionAddress(int index) {
+		return HEAP_BASE + ((long) index << regionShift);
+	}
+
+	private Map.Entry<MemoryAddress, MemoryBlock> findDirect(long address) {
+		Map.Entry<MemoryAddress, MemoryBlock> entry = directBlocks.floorEntry(ThreadLocalStorage.get().memoryAddress(address));
+		if (entry != null) {
+			MemoryBlock block = entry.getValue();
+			if (address - block.getAddress() < block.getData().length()) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private static int blockSize(long bytes) {
+		// Empty blocks still occupy a slot so that addresses stay unique
+		return (int) ((Math.max(bytes, 1L) + ALIGNMENT - 1) & -ALIGNMENT);
+	}
+
+	private static final class Region {
+		final int index;
+		final int slots;
+		final long address;
+		final byte[] data;
+		// Sorted by offset, as the pointer only moves forward
+		int[] offsets = new int[64];
+		MemoryBlock[] blocks = new MemoryBlock[64];
+		volatile int count;
+		int top;
+		long freed;
+		boolean retired;
+
+		Region(int index, int slots, long address, byte[] data) {
+			this.index = index;
+			this.slots = slots;
+			this.address = address;
+			this.data = data;
+		}
+
+		int remaining() {
+			return data.length - top;
+		}
+
+		MemoryBlock allocate(int size, int bytes) {
+			int offset = top;
+			top = offset + size;
+			MemoryBlock block = new SimpleMemoryBlock(address + offset, MemoryData.array(data, offset, bytes), true);
+			int count = this.count;
+			if (count == offsets.length) {
+				synchronized (this) {
+					offsets = Arrays.copyOf(offsets, count << 1);
+					blocks = Arrays.copyOf(blocks, count << 1);
+				}
+			}
+			offsets[count] = offset;
+			blocks[count] = block;
+			this.count = count + 1;
+			return block;
+		}
+
+		MemoryBlock find(long offset) {
+			int count = this.count;
+			int[] offsets = this.offsets;
+			int index = Arrays.binarySearch(offsets, 0, count, (int) offset);
+			if (index < 0) {
+				// Inside of the block
+				index = -index - 2;
+				if (index < 0) {
+					return null;
+				}
+			}
+			MemoryBlock block = blocks[index];
+			if (block == null || offset - offsets[index] >= block.getData().length()) {
+				return null;
+			}
+			return block;
+		}
+
+		boolean free(long offset) {
+			int index = Arrays.binarySearch(offsets, 0, count, (int) offset);
+			if (index < 0) {
+				return false;
+			}
+			MemoryBlock[] blocks = this.blocks;
+			MemoryBlock block = blocks[index];
+			if (block == null) {
+				return false;
+			}
+			blocks[index] = null;
+			freed += blockSize(block.getData().length());
+			return true;
+		}
+
+		boolean isGarbage() {
+			return retired && freed == top;
+		}
+	}
+
+	private static final class Statistics implements MemoryAllocatorStatistics {
+		private final long used;
+		private final long total;
+
+		Statistics(long used, long total) {
+			this.used = used;
+			this.total = total;
+		}
+
+		@Override
+		public long freeSpace() {
+			return total - used;
+		}
+
+		@Override
+		public long usedSpace() {
+			return used;
+		}
+
+		@Override
+		public long maxSpace() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public long totalSpace() {
+			return total;
+		}
+	}
+}
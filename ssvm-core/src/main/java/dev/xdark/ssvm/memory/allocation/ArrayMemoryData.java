@@ -0,0 +1,338 @@
+package dev.xdark.ssvm.memory.allocation;
+
+import dev.xdark.ssvm.execution.PanicException;
+import dev.xdark.ssvm.util.UnsafeUtil;
+import sun.misc.Unsafe;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Memory data backed by a region of a byte array.
+ * Data is accessed in the native byte order.
+ * <p>
+ * Unlike {@link BufferMemoryData}, no buffer is created,
+ * so a view costs a single object.
+ *
+ * @author xDark
+ */
+final class ArrayMemoryData implements MemoryData {
+
+	private static final Unsafe UNSAFE = UnsafeUtil.get();
+	private final byte[] data;
+	// Offset of the view, including the array base offset
+	private final long base;
+	private final int length;
+	private int writeVersion;
+
+	ArrayMemoryData(byte[] data, int offset, int length) {
+		if (offset < 0 || length < 0 || offset > data.length - length) {
+			throw new IllegalArgumentException("View is out of bounds");
+		}
+		this.data = data;
+		base = Unsafe.ARRAY_BYTE_BASE_OFFSET + (long) offset;
+		this.length = length;
+	}
+
+	@Override
+	public long readLong(long offset) {
+		return UNSAFE.getLong(data, address(offset, 8));
+	}
+
+	@Override
+	public int readInt(long offset) {
+		return UNSAFE.getInt(data, address(offset, 4));
+	}
+
+	@Override
+	public char readChar(long offset) {
+		return UNSAFE.getChar(data, address(offset, 2));
+	}
+
+	@Override
+	public short readShort(long offset) {
+		return UNSAFE.getShort(data, address(offset, 2));
+	}
+
+	@Override
+	public byte readByte(long offset) {
+		return UNSAFE.getByte(data, address(offset, 1));
+	}
+
+	@Override
+	public void writeLong(long offset, long value) {
+		writeVersion++;
+		UNSAFE.putLong(data, address(offset, 8), value);
+	}
+
+	@Override
+	public void writeInt(long offset, int value) {
+		writeVersion++;
+		UNSAFE.putInt(data, address(offset, 4), value);
+	}
+
+	@Override
+	public void writeChar(long offset, char value) {
+		writeVersion++;
+		UNSAFE.putChar(data, address(offset, 2), value);
+	}
+
+	@Override
+	public void writeShort(long offset, short value) {
+		writeVersion++;
+		UNSAFE.putShort(data, address(offset, 2), value);
+	}
+
+	@Override
+	public void writeByte(long offset, byte value) {
+		writeVersion++;
+		UNSAFE.putByte(data, address(offset, 1), value);
+	}
+
+	@Override
+	public long readLongVolatile(long offset) {
+		return UNSAFE.getLongVolatile(data, address(offset, 8));
+	}
+
+	@Override
+	public int readIntVolatile(long offset) {
+		return UNSAFE.getIntVolatile(data, address(offset, 4));
+	}
+
+	@Override
+	public char readCharVolatile(long offset) {
+		return UNSAFE.getCharVolatile(data, address(offset, 2));
+	}
+
+	@Override
+	public short readShortVolatile(long offset) {
+		return UNSAFE.getShortVolatile(data, address(offset, 2));
+	}
+
+	@Override
+	public byte readByteVolatile(long offset) {
+		return UNSAFE.getByteVolatile(data, address(offset, 1));
+	}
+
+	@Override
+	public void writeLongVolatile(long offset, long value) {
+		writeVersion++;
+		UNSAFE.putLongVolatile(data, address(offset, 8), value);
+	}
+
+	@Override
+	public void writeIntVolatile(long offset, int value) {
+		writeVersion++;
+		UNSAFE.putIntVolatile(data, address(offset, 4), value);
+	}
+
+	@Override
+	public void writeCharVolatile(long offset, char value) {
+		writeVersion++;
+		UNSAFE.putCharVolatile(data, address(offset, 2), value);
+	}
+
+	@Override
+	public void writeShortVolatile(long offset, short value) {
+		writeVersion++;
+		UNSAFE.putShortVolatile(data, address(offset, 2), value);
+	}
+
+	@Override
+	public void writeByteVolatile(long offset, byte value) {
+		writeVersion++;
+		UNSAFE.putByteVolatile(data, address(offset, 1), value);
+	}
+
+	@Override
+	public void writeLongRelease(long offset, long value) {
+		writeVersion++;
+		UNSAFE.putOrderedLong(data, address(offset, 8), value);
+	}
+
+	@Override
+	public void writeIntRelease(long offset, int value) {
+		writeVersion++;
+		UNSAFE.putOrderedInt(data, address(offset, 4), value);
+	}
+
+	@Override
+	public boolean compareAndSetLong(long offset, long expected, long value) {
+		writeVersion++;
+		return UNSAFE.compareAndSwapLong(data, address(offset, 8), expected, value);
+	}
+
+	@Override
+	public boolean compareAndSetInt(long offset, int expected, int value) {
+		writeVersion++;
+		return UNSAFE.compareAndSwapInt(data, address(offset, 4), expected, value);
+	}
+
+	@Override
+	public long getAndAddLong(long offset, long delta) {
+		writeVersion++;
+		return UNSAFE.getAndAddLong(data, address(offset, 8), delta);
+	}
+
+	@Override
+	public int getAndAddInt(long offset, int delta) {
+		writeVersion++;
+		return UNSAFE.getAndAddInt(data, address(offset, 4), delta);
+	}
+
+	@Override
+	public long getAndSetLong(long offset, long value) {
+		writeVersion++;
+		return UNSAFE.getAndSetLong(data, address(offset, 8), value);
+	}
+
+	@Override
+	public int getAndSetInt(long offset, int value) {
+		writeVersion++;
+		return UNSAFE.getAndSetInt(data, address(offset, 4), value);
+	}
+
+	@Override
+	public void set(long offset, long bytes, byte value) {
+		writeVersion++;
+		int start = index(offset, bytes);
+		Arrays.fill(data, start, start + (int) bytes, value);
+	}
+
+	@Override
+	public void write(long srcOffset, MemoryData dst, long dstOffset, long bytes) {
+		int start = index(srcOffset, bytes);
+		// Other implementations have a fast path for byte arrays
+		dst.write(dstOffset, data, start, (int) bytes);
+	}
+
+	@Override
+	public void write(long dstOffset, ByteBuffer buffer) {
+		writeVersion++;
+		int length = buffer.remaining();
+		buffer.get(data, index(dstOffset, length), length);
+	}
+
+	@Override
+	public void write(long dstOffset, byte[] array, int arrayOffset, int length) {
+		writeVersion++;
+		System.arraycopy(array, arrayOffset, data, index(dstOffset, length), length);
+	}
+
+	@Override
+	public void write(long dstOffset, long[] array, int arrayOffset, int length) {
+		writeVersion++;
+		UNSAFE.copyMemory(array, Unsafe.ARRAY_LONG_BASE_OFFSET + arrayOffset * 8L, data, address(dstOffset, length * 8L), length * 8L);
+	}
+
+	@Override
+	public void write(long dstOffset, double[] array, int arrayOffset, int length) {
+		writeVersion++;
+		UNSAFE.copyMemory(array, Unsafe.ARRAY_DOUBLE_BASE_OFFSET + arrayOffset * 8L, data, address(dstOffset, length * 8L), length * 8L);
+	}
+
+	@Override
+	public void write(long dstOffset, int[] array, int arrayOffset, int length) {
+		writeVersion++;
+		UNSAFE.copyMemory(array, Unsafe.ARRAY_INT_BASE_OFFSET + arrayOffset * 4L, data, address(dstOffset, length * 4L), length * 4L);
+	}
+
+	@Override
+	public void write(long dstOffset, float[] array, int arrayOffset, int length) {
+		writeVersion++;
+		UNSAFE.copyMemory(array, Unsafe.ARRAY_FLOAT_BASE_OFFSET + arrayOffset * 4L, data, address(dstOffset, length * 4L), length * 4L);
+	}
+
+	@Override
+	public void write(long dstOffset, char[] array, int arrayOffset, int length) {
+		writeVersion++;
+		UNSAFE.copyMemory(array, Unsafe.ARRAY_CHAR_BASE_OFFSET + arrayOffset * 2L, data, address(dstOffset, length * 2L), length * 2L);
+	}
+
+	@Override
+	public void write(long dstOffset, short[] array, int arrayOffset, int length) {
+		writeVersion++;
+		UNSAFE.copyMemory(array, Unsafe.ARRAY_SHORT_BASE_OFFSET + arrayOffset * 2L, data, address(dstOffset, length * 2L), length * 2L);
+	}
+
+	@Override
+	public void write(long dstOffset, boolean[] array, int arrayOffset, int length) {
+		writeVersion++;
+		UNSAFE.copyMemory(array, Unsafe.ARRAY_BOOLEAN_BASE_OFFSET + arrayOffset, data, address(dstOffset, length), length);
+	}
+
+	@Override
+	public void read(long srcOffset, byte[] array, int arrayOffset, int length) {
+		System.arraycopy(data, index(srcOffset, length), array, arrayOffset, length);
+	}
+
+	@Override
+	public void read(long srcOffset, long[] array, int arrayOffset, int length) {
+		UNSAFE.copyMemory(data, address(srcOffset, length * 8L), array, Unsafe.ARRAY_LONG_BASE_OFFSET + arrayOffset * 8L, length * 8L);
+	}
+
+	@Override
+	public void read(long srcOffset, double[] array, int arrayOffset, int length) {
+		UNSAFE.copyMemory(data, address(srcOffset, length * 8L), array, Unsafe.ARRAY_DOUBLE_BASE_OFFSET + arrayOffset * 8L, length * 8L);
+	}
+
+	@Override
+	public void read(long srcOffset, int[] array, int arrayOffset, int length) {
+		UNSAFE.copyMemory(data, address(srcOffset, length * 4L), array, Unsafe.ARRAY_INT_BASE_OFFSET + arrayOffset * 4L, length * 4L);
+	}
+
+	@Override
+	public void read(long srcOffset, float[] array, int arrayOffset, int length) {
+		UNSAFE.copyMemory(data, address(srcOffset, length * 4L), array, Unsafe.ARRAY_FLOAT_BASE_OFFSET + arrayOffset * 4L, length * 4L);
+	}
+
+	@Override
+	public void read(long srcOffset, char[] array, int arrayOffset, int length) {
+		UNSAFE.copyMemory(data, address(srcOffset, length * 2L), array, Unsafe.ARRAY_CHAR_BASE_OFFSET + arrayOffset * 2L, length * 2L);
+	}
+
+	@Override
+	public void read(long srcOffset, short[] array, int arrayOffset, int length) {
+		UNSAFE.copyMemory(data, address(srcOffset, length * 2L), array, Unsafe.ARRAY_SHORT_BASE_OFFSET + arrayOffset * 2L, length * 2L);
+	}
+
+	@Override
+	public void read(long srcOffset, boolean[] array, int arrayOffset, int length) {
+		UNSAFE.copyMemory(data, address(srcOffset, length), array, Unsafe.ARRAY_BOOLEAN_BASE_OFFSET + arrayOffset, length);
+	}
+
+	@Override
+	public void read(long srcOffset, MemoryData data, long dataOffset, int length) {
+		data.write(dataOffset, this.data, index(srcOffset, length), length);
+	}
+
+	@Override
+	public int writeVersion() {
+		return writeVersion;
+	}
+
+	@Override
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public MemoryData slice(long offset, long bytes) {
+		index(offset, bytes);
+		return new SliceMemoryData(this, offset, bytes);
+	}
+
+	private long address(long offset, long count) {
+		if (offset < 0L || count < 0L || offset > length - count) {
+			throw new PanicException("Segfault");
+		}
+		return base + offset;
+	}
+
+	private int index(long offset, long count) {
+		if (offset < 0L || count < 0L || offset > length - count) {
+			throw new PanicException("Segfault");
+		}
+		return (int) (base - Unsafe.ARRAY_BYTE_BASE_OFFSET + offset);
+	}
+}
@@ -22,6 +22,7 @@ final class BufferMemoryData implements MemoryData {
 	private static final int MEMSET_THRESHOLD = 256;
 	private final ByteBuffer buffer;
 	private VolatileBufferAccess volatileAccess;
+	private int writeVersion;
 
 	@Override
 	public long readLong(long offset) {
@@ -50,26 +51,31 @@ public byte readByte(long offset) {
 
 	@Override
 	public void writeLong(long offset, long value) {
+		writeVersion++;
 		buffer.putLong(validate(offset), value);
 	}
 
 	@Override
 	public void writeInt(long offset, int value) {
+		writeVersion++;
 		buffer.putInt(validate(offset), value);
 	}
 
 	@Override
 	public void writeChar(long offset, char value) {
+		writeVersion++;
 		buffer.putChar(validate(offset), value);
 	}
 
 	@Override
 	public void writeShort(long offset, short value) {
+		writeVersion++;
 		buffer.putShort(validate(offset), value);
 	}
 
 	@Override
 	public void writeByte(long offset, byte value) {
+		writeVersion++;
 		buffer.put(validate(offset), value);
 	}
 
@@ -100,31 +106,85 @@ public byte readByteVolatile(long offset) {
 
 	@Override
 	public void writeLongVolatile(long offset, long value) {
+		writeVersion++;
 		volatileAccess().putLong(checkIndex(offset, 8), value);
 	}
 
 	@Override
 	public void writeIntVolatile(long offset, int value) {
+		writeVersion++;
 		volatileAccess().putInt(checkIndex(offset, 4), value);
 	}
 
 	@Override
 	public void writeCharVolatile(long offset, char value) {
+		writeVersion++;
 		volatileAccess().putChar(checkIndex(offset, 2), value);
 	}
 
 	@Override
 	public void writeShortVolatile(long offset, short value) {
+		writeVersion++;
 		volatileAccess().putShort(checkIndex(offset, 2), value);
 	}
 
 	@Override
 	public void writeByteVolatile(long offset, byte value) {
+		writeVersion++;
 		volatileAccess().putByte(checkIndex(offset, 1), value);
 	}
 
+	@Override
+	public void writeLongRelease(long offset, long value) {
+		writeVersion++;
+		volatileAccess().putLongRelease(checkIndex(offset, 8), value);
+	}
+
+	@Override
+	public void writeIntRelease(long offset, int value) {
+		writeVersion++;
+		volatileAccess().putIntRelease(checkIndex(offset, 4), value);
+	}
+
+	@Override
+	public boolean compareAndSetLong(long offset, long expected, long value) {
+		writeVersion++;
+		return volatileAccess().compareAndSetLong(checkIndex(offset, 8), expected, value);
+	}
+
+	@Override
+	public boolean compareAndSetInt(long offset, int expected, int value) {
+		writeVersion++;
+		return volatileAccess().compareAndSetInt(checkIndex(offset, 4), expected, value);
+	}
+
+	@Override
+	public long getAndAddLong(long offset, long delta) {
+		writeVersion++;
+		return volatileAccess().getAndAddLong(checkIndex(offset, 8), delta);
+	}
+
+	@Override
+	public int getAndAddInt(long offset, int delta) {
+		writeVersion++;
+		return volatileAccess().getAndAddInt(checkIndex(offset, 4), delta);
+	}
+
+	@Override
+	public long getAndSetLong(long offset, long value) {
+		writeVersion++;
+		return volatileAccess().getAndSetLong(checkIndex(offset, 8), value);
+	}
+
+	@Override
+	public int getAndSetInt(long offset, int value) {
+		writeVersion++;
+		return volatileAccess().getAndSetInt(checkIndex(offset, 4), value);
+	}
+
 	@Override
 	public void set(long offset, long bytes, byte value) {
+		writeVersion++;
 		ByteBuffer buffer = this.buffer;
 		int $offset = validate(offset);
 		int $bytes = validate(bytes);
@@ -148,7 +208,9 @@ public void set(long offset, long bytes, byte value) {
 	@Override
 	public void write(long srcOffset, MemoryData dst, long dstOffset, long bytes) {
 		if (dst instanceof BufferMemoryData) {
-			ByteBuffer dstBuf = ((BufferMemoryData) dst).buffer;
+			BufferMemoryData target = (BufferMemoryData) dst;
+			target.writeVersion++;
+			ByteBuffer dstBuf = target.buffer;
 			int $srcOffset = validate(srcOffset);
 			copyOrder(((ByteBuffer) dstBuf.slice().position(validate(dstOffset)))).put((ByteBuffer) buffer.slice().position($srcOffset).limit($srcOffset + validate(bytes)));
 		} else {
@@ -156,6 +218,11 @@ public void write(long srcOffset, MemoryData dst, long dstOffset, long bytes) {
 			int $bytes = validate(bytes);
 			int $offset = validate(srcOffset);
 			ByteBuffer buffer = this.buffer;
+			if (buffer.hasArray()) {
+				checkIndex($offset, $bytes);
+				dst.write(start, buffer.array(), buffer.arrayOffset() + $offset, $bytes);
+				return;
+			}
 			while ($bytes-- != 0) {
 				dst.writeByte(start++, buffer.get($offset++));
 			}
@@ -164,16 +231,19 @@ public void write(long srcOffset, MemoryData dst, long dstOffset, long bytes) {
 
 	@Override
 	public void write(long dstOffset, ByteBuffer buffer) {
+		writeVersion++;
 		copyOrder(((ByteBuffer) this.buffer.slice().position(validate(dstOffset)))).put(buffer);
 	}
 
 	@Override
 	public void write(long dstOffset, byte[] array, int arrayOffset, int length) {
+		writeVersion++;
 		copyOrder(((ByteBuffer) buffer.slice().position(validate(dstOffset)))).put(array, arrayOffset, length);
 	}
 
 	@Override
 	public void write(long dstOffset, long[] array, int arrayOffset, int length) {
+		writeVersion++;
 		ByteBuffer buffer = this.buffer;
 		checkIndex(dstOffset, length * 8);
 		if (fastAccess(buffer)) {
@@ -190,6 +260,7 @@ public void write(long dstOffset, long[] array, int arrayOffset, int length) {
 
 	@Override
 	public void write(long dstOffset, double[] array, int arrayOffset, int length) {
+		writeVersion++;
 		ByteBuffer buffer = this.buffer;
 		checkIndex(dstOffset, length * 8);
 		if (fastAccess(buffer)) {
@@ -206,6 +277,7 @@ public void write(long dstOffset, double[] array, int arrayOffset, int length) {
 
 	@Override
 	public void write(long dstOffset, int[] array, int arrayOffset, int length) {
+		writeVersion++;
 		ByteBuffer buffer = this.buffer;
 		checkIndex(dstOffset, length * 4);
 		if (fastAccess(buffer)) {
@@ -222,6 +294,7 @@ public void write(long dstOffset, int[] array, int arrayOffset, int length) {
 
 	@Override
 	public void write(long dstOffset, float[] array, int arrayOffset, int length) {
+		writeVersion++;
 		ByteBuffer buffer = this.buffer;
 		checkIndex(dstOffset, length * 4);
 		if (fastAccess(buffer)) {
@@ -238,6 +311,7 @@ public void write(long dstOffset, float[] array, int arrayOffset, int length) {
 
 	@Override
 	public void write(long dstOffset, char[] array, int arrayOffset, int length) {
+		writeVersion++;
 		ByteBuffer buffer = this.buffer;
 		checkIndex(dstOffset, length * 2);
 		if (fastAccess(buffer)) {
@@ -254,6 +328,7 @@ public void write(long dstOffset, char[] array, int arrayOffset, int length) {
 
 	@Override
 	public void write(long dstOffset, short[] array, int arrayOffset, int length) {
+		writeVersion++;
 		ByteBuffer buffer = this.buffer;
 		checkIndex(dstOffset, length * 2);
 		if (fastAccess(buffer)) {
@@ -270,6 +345,7 @@ public void write(long dstOffset, short[] array, int arrayOffset, int length) {
 
 	@Override
 	public void write(long dstOffset, boolean[] array, int arrayOffset, int length) {
+		writeVersion++;
 		ByteBuffer buffer = this.buffer;
 		checkIndex(dstOffset, length);
 		if (fastAccess(buffer)) {
@@ -419,6 +495,7 @@ public void read(long srcOffset, MemoryData data, long dataOffset, int length) {
 		if (data instanceof BufferMemoryData) {
 			ByteBuffer target = ((BufferMemoryData) data).buffer;
 			if (fastAccess(target)) {
+				((BufferMemoryData) data).writeVersion++;
 				srcOffset += buffer.arrayOffset();
 				dataOffset += target.arrayOffset();
 				byte[] ourData = buffer.array();
@@ -438,6 +515,11 @@ public void read(long srcOffset, MemoryData data, long dataOffset, int length) {
 		}
 	}
 
+	@Override
+	public int writeVersion() {
+		return writeVersion;
+	}
+
 	@Override
 	public long length() {
 		return buffer.capacity();
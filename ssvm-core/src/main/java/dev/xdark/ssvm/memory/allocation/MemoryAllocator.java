@@ -119,4 +119,11 @@ public interface MemoryAllocator {
 	 * that this allocator does not support statistics.
 	 */
 	MemoryAllocatorStatistics liveStatistics();
+
+	/**
+	 * Releases memory that is reserved for the current thread.
+	 * Called when the thread detaches from the VM or exits.
+	 */
+	default void releaseCurrentThread() {
+	}
 }
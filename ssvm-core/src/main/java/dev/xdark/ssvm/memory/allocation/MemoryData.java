@@ -139,6 +139,154 @@ public interface MemoryData {
 	 */
 	void writeByteVolatile(long offset, byte value);
 
+	/**
+	 * Acquire version of {@link MemoryData#readLong(long)}.
+	 */
+	default long readLongAcquire(long offset) {
+		return readLongVolatile(offset);
+	}
+
+	/**
+	 * Acquire version of {@link MemoryData#readInt(long)}.
+	 */
+	default int readIntAcquire(long offset) {
+		return readIntVolatile(offset);
+	}
+
+	/**
+	 * Opaque version of {@link MemoryData#readLong(long)}.
+	 */
+	default long readLongOpaque(long offset) {
+		return readLongVolatile(offset);
+	}
+
+	/**
+	 * Opaque version of {@link MemoryData#readInt(long)}.
+	 */
+	default int readIntOpaque(long offset) {
+		return readIntVolatile(offset);
+	}
+
+	/**
+	 * Release version of {@link MemoryData#writeLong(long, long)}.
+	 */
+	void writeLongRelease(long offset, long value);
+
+	/**
+	 * Release version of {@link MemoryData#writeInt(long, int)}.
+	 */
+	void writeIntRelease(long offset, int value);
+
+	/**
+	 * Opaque version of {@link MemoryData#writeLong(long, long)}.
+	 */
+	default void writeLongOpaque(long offset, long value) {
+		writeLongVolatile(offset, value);
+	}
+
+	/**
+	 * Opaque version of {@link MemoryData#writeInt(long, int)}.
+	 */
+	default void writeIntOpaque(long offset, int value) {
+		writeIntVolatile(offset, value);
+	}
+
+	/**
+	 * Atomically sets long at the specific offset
+	 * if current value is equal to the expected value.
+	 *
+	 * @param offset   Data offset.
+	 * @param expected Expected value.
+	 * @param value    New value.
+	 * @return {@code true} if value was updated.
+	 */
+	boolean compareAndSetLong(long offset, long expected, long value);
+
+	/**
+	 * Atomically sets int at the specific offset
+	 * if current value is equal to the expected value.
+	 *
+	 * @param offset   Data offset.
+	 * @param expected Expected value.
+	 * @param value    New value.
+	 * @return {@code true} if value was updated.
+	 */
+	boolean compareAndSetInt(long offset, int expected, int value);
+
+	/**
+	 * Atomically sets long at the specific offset
+	 * if current value is equal to the expected value.
+	 *
+	 * @param offset   Data offset.
+	 * @param expected Expected value.
+	 * @param value    New value.
+	 * @return witness value, equal to the expected value
+	 * if value was updated.
+	 */
+	default long compareAndExchangeLong(long offset, long expected, long value) {
+		while (true) {
+			long witness = readLongVolatile(offset);
+			if (witness != expected || compareAndSetLong(offset, expected, value)) {
+				return witness;
+			}
+		}
+	}
+
+	/**
+	 * Atomically sets int at the specific offset
+	 * if current value is equal to the expected value.
+	 *
+	 * @param offset   Data offset.
+	 * @param expected Expected value.
+	 * @param value    New value.
+	 * @return witness value, equal to the expected value
+	 * if value was updated.
+	 */
+	default int compareAndExchangeInt(long offset, int expected, int value) {
+		while (true) {
+			int witness = readIntVolatile(offset);
+			if (witness != expected || compareAndSetInt(offset, expected, value)) {
+				return witness;
+			}
+		}
+	}
+
+	/**
+	 * Atomically adds to long at the specific offset.
+	 *
+	 * @param offset Data offset.
+	 * @param delta  Value to add.
+	 * @return previous value.
+	 */
+	long getAndAddLong(long offset, long delta);
+
+	/**
+	 * Atomically adds to int at the specific offset.
+	 *
+	 * @param offset Data offset.
+	 * @param delta  Value to add.
+	 * @return previous value.
+	 */
+	int getAndAddInt(long offset, int delta);
+
+	/**
+	 * Atomically exchanges long at the specific offset.
+	 *
+	 * @param offset Data offset.
+	 * @param value  New value.
+	 * @return previous value.
+	 */
+	long getAndSetLong(long offset, long value);
+
+	/**
+	 * Atomically exchanges int at the specific offset.
+	 *
+	 * @param offset Data offset.
+	 * @param value  New value.
+	 * @return previous value.
+	 */
+	int getAndSetInt(long offset, int value);
+
 	/**
 	 * Fills data region.
 	 *
@@ -336,6 +484,17 @@ public interface MemoryData {
 	 */
 	void read(long srcOffset, MemoryData data, long dataOffset, int length);
 
+	/**
+	 * Returns a counter that changes with every write to this data,
+	 * so that a reader can tell whether the data was mutated
+	 * without comparing the contents.
+	 * Writes made by other threads are only observed
+	 * after a happens-before edge, just like the writes themselves.
+	 *
+	 * @return write version.
+	 */
+	int writeVersion();
+
 	/**
 	 * @return size of this memory data.
 	 */
@@ -359,4 +518,17 @@ public interface MemoryData {
 	static MemoryData buffer(ByteBuffer buffer) {
 		return new BufferMemoryData(buffer);
 	}
+
+	/**
+	 * Creates memory data that views a region of the array.
+	 * Data is accessed in the native byte order.
+	 *
+	 * @param array  Array to use.
+	 * @param offset Region offset.
+	 * @param length Region length.
+	 * @return memory data instance.
+	 */
+	static MemoryData array(byte[] array, int offset, int length) {
+		return new ArrayMemoryData(array, offset, length);
+	}
 }
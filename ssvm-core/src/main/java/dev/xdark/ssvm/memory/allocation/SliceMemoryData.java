@@ -130,6 +130,86 @@ public void writeByteVolatile(long offset, byte value) {
 		backing.writeByteVolatile(offset(offset), value);
 	}
 
+	@Override
+	public long readLongAcquire(long offset) {
+		return backing.readLongAcquire(offset(offset));
+	}
+
+	@Override
+	public int readIntAcquire(long offset) {
+		return backing.readIntAcquire(offset(offset));
+	}
+
+	@Override
+	public long readLongOpaque(long offset) {
+		return backing.readLongOpaque(offset(offset));
+	}
+
+	@Override
+	public int readIntOpaque(long offset) {
+		return backing.readIntOpaque(offset(offset));
+	}
+
+	@Override
+	public void writeLongRelease(long offset, long value) {
+		backing.writeLongRelease(offset(offset), value);
+	}
+
+	@Override
+	public void writeIntRelease(long offset, int value) {
+		backing.writeIntRelease(offset(offset), value);
+	}
+
+	@Override
+	public void writeLongOpaque(long offset, long value) {
+		backing.writeLongOpaque(offset(offset), value);
+	}
+
+	@Override
+	public void writeIntOpaque(long offset, int value) {
+		backing.writeIntOpaque(offset(offset), value);
+	}
+
+	@Override
+	public boolean compareAndSetLong(long offset, long expected, long value) {
+		return backing.compareAndSetLong(offset(offset), expected, value);
+	}
+
+	@Override
+	public boolean compareAndSetInt(long offset, int expected, int value) {
+		return backing.compareAndSetInt(offset(offset), expected, value);
+	}
+
+	@Override
+	public long compareAndExchangeLong(long offset, long expected, long value) {
+		return backing.compareAndExchangeLong(offset(offset), expected, value);
+	}
+
+	@Override
+	public int compareAndExchangeInt(long offset, int expected, int value) {
+		return backing.compareAndExchangeInt(offset(offset), expected, value);
+	}
+
+	@Override
+	public long getAndAddLong(long offset, long delta) {
+		return backing.getAndAddLong(offset(offset), delta);
+	}
+
+	@Override
+	public int getAndAddInt(long offset, int delta) {
+		return backing.getAndAddInt(offset(offset), delta);
+	}
+
+	@Override
+	public long getAndSetLong(long offset, long value) {
+		return backing.getAndSetLong(offset(offset), value);
+	}
+
+	@Override
+	public int getAndSetInt(long offset, int value) {
+		return backing.getAndSetInt(offset(offset), value);
+	}
+
 	@Override
 	public void set(long offset, long bytes, byte value) {
 		backing.set(offset(offset), bytes, value);
@@ -230,6 +310,12 @@ public void read(long srcOffset, MemoryData data, long dataOffset, int length) {
 		backing.read(offset(srcOffset), data, dataOffset, length);
 	}
 
+	@Override
+	public int writeVersion() {
+		// Writes go through the backing data
+		return backing.writeVersion();
+	}
+
 	@Override
 	public long length() {
 		return length;
@@ -115,4 +115,11 @@ public MemoryAllocatorStatistics liveStatistics() {
 			return allocator.liveStatistics();
 		}
 	}
+
+	@Override
+	public void releaseCurrentThread() {
+		synchronized (mutex) {
+			allocator.releaseCurrentThread();
+		}
+	}
 }
@@ -0,0 +1,30 @@
+package dev.xdark.ssvm.memory.gc;
+
+import dev.xdark.ssvm.value.ObjectValue;
+
+/**
+ * Global reference to an object,
+ * similar to JNI global references.
+ *
+ * @author xDark
+ */
+public interface GCHandle {
+
+	/**
+	 * @return referenced object.
+	 */
+	ObjectValue get();
+
+	/**
+	 * Increments reference count.
+	 *
+	 * @return this handle.
+	 */
+	GCHandle retain();
+
+	/**
+	 * Decrements reference count.
+	 * Once it reaches zero, object may be collected.
+	 */
+	void release();
+}
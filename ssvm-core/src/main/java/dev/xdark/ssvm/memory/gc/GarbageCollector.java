@@ -0,0 +1,100 @@
+package dev.xdark.ssvm.memory.gc;
+
+import dev.xdark.ssvm.value.ObjectValue;
+
+/**
+ * Garbage collector.
+ * <p>
+ * Collections only happen at safepoints: either when
+ * requested explicitly with {@link GarbageCollector#invoke()},
+ * or when the heap grows past the ceiling
+ * and the execution engine polls {@link GarbageCollector#safepoint()}.
+ * Host code that keeps objects across VM calls
+ * must pin them with {@link GarbageCollector#makeHandle(ObjectValue)}.
+ * Host code called by the VM, i.e. instruction processors and
+ * method invokers, does not need to: collection is deferred
+ * while it calls back into the VM.
+ *
+ * @author xDark
+ */
+public interface GarbageCollector {
+
+	/**
+	 * Creates new global handle for the object,
+	 * or retains the existing one.
+	 * Object will not be collected until the handle is released.
+	 *
+	 * @param value Object to make handle for.
+	 * @return global handle.
+	 */
+	GCHandle makeHandle(ObjectValue value);
+
+	/**
+	 * @param value Object to get handle for.
+	 * @return global handle or {@code null},
+	 * if the object is not pinned.
+	 */
+	GCHandle getHandle(ObjectValue value);
+
+	/**
+	 * Performs the collection immediately.
+	 * The caller must make sure that no other
+	 * thread is executing VM code at the time.
+	 *
+	 * @return {@code true} if collection was performed.
+	 */
+	boolean invoke();
+
+	/**
+	 * Performs the collection, if one is pending
+	 * and current thread is at a safepoint.
+	 */
+	void safepoint();
+
+	/**
+	 * Notifies the collector about the allocation.
+	 *
+	 * @param bytes Amount of allocated bytes.
+	 */
+	void allocated(long bytes);
+
+	/**
+	 * Sets soft heap ceiling. Once the amount of used
+	 * heap memory exceeds the ceiling, a collection is scheduled
+	 * for the next safepoint.
+	 *
+	 * @param bytes Heap ceiling, {@link Long#MAX_VALUE}
+	 *              disables automatic collections.
+	 */
+	void setHeapCeiling(long bytes);
+
+	/**
+	 * @return soft heap ceiling.
+	 */
+	long getHeapCeiling();
+
+	/**
+	 * @return collector statistics.
+	 */
+	GarbageCollectorStatistics statistics();
+
+	/**
+	 * Takes references which referents were cleared by the collector.
+	 *
+	 * @return head of the list, linked through {@code Reference.discovered},
+	 * or null value, if there are no pending references.
+	 */
+	ObjectValue getAndClearReferencePendingList();
+
+	/**
+	 * @return {@code true} if there are references
+	 * which referents were cleared by the collector.
+	 */
+	boolean hasReferencePendingList();
+
+	/**
+	 * Parks current thread until the collector clears a reference.
+	 * The thread may wake up spuriously.
+	 */
+	void waitForReferencePendingList();
+}
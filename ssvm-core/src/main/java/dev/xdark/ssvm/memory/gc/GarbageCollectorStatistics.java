@@ -0,0 +1,39 @@
+package dev.xdark.ssvm.memory.gc;
+
+/**
+ * Statistics of the garbage collector.
+ *
+ * @author xDark
+ */
+public interface GarbageCollectorStatistics {
+
+	/**
+	 * @return the amount of performed collections.
+	 */
+	long collections();
+
+	/**
+	 * @return pause time of the last collection, in nanoseconds.
+	 */
+	long lastPauseTime();
+
+	/**
+	 * @return total pause time of all collections, in nanoseconds.
+	 */
+	long totalPauseTime();
+
+	/**
+	 * @return the amount of bytes reclaimed by the last collection.
+	 */
+	long lastReclaimedBytes();
+
+	/**
+	 * @return the amount of bytes reclaimed by all collections.
+	 */
+	long totalReclaimedBytes();
+
+	/**
+	 * @return the amount of heap memory in use.
+	 */
+	long usedSpace();
+}
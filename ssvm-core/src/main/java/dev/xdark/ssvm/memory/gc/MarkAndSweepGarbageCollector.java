@@ -0,0 +1,599 @@
+package dev.xdark.ssvm.memory.gc;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.classloading.ClassStorage;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.Stack;
+import dev.xdark.ssvm.execution.compiler.CompiledCode;
+import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
+import dev.xdark.ssvm.memory.allocation.MemoryData;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaField;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.member.area.ClassArea;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.mirror.type.JavaClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.synchronizer.ObjectSynchronizer;
+import dev.xdark.ssvm.thread.JavaThread;
+import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.thread.backtrace.Backtrace;
+import dev.xdark.ssvm.util.CloseableLock;
+import dev.xdark.ssvm.value.ArrayValue;
+import dev.xdark.ssvm.value.InstanceValue;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stop-the-world mark and sweep collector.
+ * <p>
+ * Roots are class mirrors with their static fields,
+ * class loaders, pooled strings, thread oops,
+ * thread groups and global handles.
+ * Thread frames are scanned conservatively, as stack
+ * and locals slots are untyped.
+ * <p>
+ * Referents of weak and phantom references are not traced.
+ * Referents that are not reachable otherwise are cleared
+ * after marking, and their references are put on the pending list
+ * for the reference handler thread.
+ * Soft references are cleared the same way, but only
+ * once the heap grows past the ceiling.
+ *
+ * @author xDark
+ */
+public class MarkAndSweepGarbageCollector implements GarbageCollector {
+	private static final long[] NO_OFFSETS = new long[0];
+	private static final int STRONG = 0;
+	private static final int SOFT = 1;
+	private static final int WEAK = 2;
+	private static final int PHANTOM = 3;
+	private final Map<ObjectValue, SimpleGCHandle> handles = new IdentityHashMap<>();
+	private final Map<InstanceClass, long[]> referenceOffsets = new IdentityHashMap<>();
+	private final Map<InstanceClass, Integer> referenceTypes = new IdentityHashMap<>();
+	private final Set<InstanceValue> referenceWaiters = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final AtomicLong usedSpace = new AtomicLong();
+	private final Statistics statistics = new Statistics();
+	private final VirtualMachine vm;
+	private volatile boolean pending;
+	private volatile long heapCeiling = Long.MAX_VALUE;
+	private volatile long threshold = Long.MAX_VALUE;
+	// Head of the pending list, linked through Reference.discovered
+	private ObjectValue pendingReferences;
+	private long referentOffset = -1L;
+	private long discoveredOffset;
+
+	/**
+	 * @param vm VM instance.
+	 */
+	public MarkAndSweepGarbageCollector(VirtualMachine vm) {
+		this.vm = vm;
+	}
+
+	@Override
+	public GCHandle makeHandle(ObjectValue value) {
+		Map<ObjectValue, SimpleGCHandle> handles = this.handles;
+		synchronized (handles) {
+			SimpleGCHandle handle = handles.get(value);
+			if (handle == null) {
+				handle = new SimpleGCHandle(value);
+				handles.put(value, handle);
+			} else {
+				handle.count++;
+			}
+			return handle;
+		}
+	}
+
+	@Override
+	public GCHandle getHandle(ObjectValue value) {
+		Map<ObjectValue, SimpleGCHandle> handles = this.handles;
+		synchronized (handles) {
+			return handles.get(value);
+		}
+	}
+
+	@Override
+	public synchronized boolean invoke() {
+		long start = System.nanoTime();
+		List<ObjectValue> discovered = new ArrayList<>();
+		Set<ObjectValue> marked = mark(discovered, usedSpace.get() >= heapCeiling);
+		processReferences(discovered, marked);
+		long reclaimed = sweep(marked);
+		long pause = System.nanoTime() - start;
+		long used = usedSpace.addAndGet(-reclaimed);
+		long ceiling = heapCeiling;
+		// Don't thrash if most of the heap is still alive
+		threshold = ceiling == Long.MAX_VALUE ? ceiling : Math.max(ceiling, used + (used >>> 1));
+		pending = false;
+		Statistics statistics = this.statistics;
+		statistics.collections++;
+		statistics.lastPauseTime = pause;
+		statistics.totalPauseTime += pause;
+		statistics.lastReclaimedBytes = reclaimed;
+		statistics.totalReclaimedBytes += reclaimed;
+		return true;
+	}
+
+	@Override
+	public void safepoint() {
+		if (pending && isAtSafepoint()) {
+			invoke();
+		}
+	}
+
+	@Override
+	public void allocated(long bytes) {
+		if (usedSpace.addAndGet(bytes) > threshold) {
+			pending = true;
+		}
+	}
+
+	@Override
+	public void setHeapCeiling(long bytes) {
+		heapCeiling = bytes;
+		threshold = bytes;
+		pending = usedSpace.get() > bytes;
+	}
+
+	@Override
+	public long getHeapCeiling() {
+		return heapCeiling;
+	}
+
+	@Override
+	public GarbageCollectorStatistics statistics() {
+		return statistics;
+	}
+
+	@Override
+	public ObjectValue getAndClearReferencePendingList() {
+		synchronized (referenceWaiters) {
+			ObjectValue head = pendingReferences;
+			pendingReferences = null;
+			return head == null ? vm.getMemoryManager().nullValue() : head;
+		}
+	}
+
+	@Override
+	public boolean hasReferencePendingList() {
+		synchronized (referenceWaiters) {
+			return pendingReferences != null;
+		}
+	}
+
+	@Override
+	public void waitForReferencePendingList() {
+		ThreadManager threadManager = vm.getThreadManager();
+		InstanceValue oop = threadManager.currentJavaThread().getOop();
+		Set<InstanceValue> referenceWaiters = this.referenceWaiters;
+		synchronized (referenceWaiters) {
+			if (pendingReferences != null) {
+				return;
+			}
+			referenceWaiters.add(oop);
+		}
+		try {
+			threadManager.park(false, 0L);
+		} finally {
+			synchronized (referenceWaiters) {
+				referenceWaiters.remove(oop);
+			}
+		}
+	}
+
+	/**
+	 * Reports all roots to the visitor.
+	 *
+	 * @param visitor Root visitor.
+	 */
+	protected void visitRoots(RootVisitor visitor) {
+		VirtualMachine vm = this.vm;
+		MemoryManager memoryManager = vm.getMemoryManager();
+		visitor.visit(memoryManager.nullValue());
+		synchronized (handles) {
+			for (ObjectValue value : handles.keySet()) {
+				visitor.visit(value);
+			}
+		}
+		ClassStorage classStorage = vm.getClassStorage();
+		try (CloseableLock lock = classStorage.lock()) {
+			for (JavaClass jc : classStorage.list()) {
+				ObjectValue oop = jc.getOop();
+				if (oop == null) {
+					continue;
+				}
+				visitor.visit(oop);
+				visitor.visit(jc.getClassLoader());
+				if (jc instanceof InstanceClass) {
+					// Static fields are stored in the mirror
+					for (long offset : staticReferenceOffsets((InstanceClass) jc)) {
+						visitor.visit(memoryManager.readRawReference(oop, offset));
+					}
+				}
+			}
+		}
+		for (ObjectValue classLoader : vm.getClassLoaders().getAll()) {
+			visitor.visit(classLoader);
+		}
+		for (ObjectValue value : vm.getStringPool().snapshot()) {
+			visitor.visit(value);
+		}
+		synchronized (referenceWaiters) {
+			visitor.visit(pendingReferences);
+		}
+		visitor.visit(vm.getSystemThreadGroup());
+		visitor.visit(vm.getMainThreadGroup());
+		for (JavaThread thread : vm.getThreadManager().snapshot()) {
+			visitor.visit(thread.getOop());
+			Backtrace backtrace = thread.getOsThread().getBacktrace();
+			for (ExecutionContext<?> ctx : backtrace) {
+				Locals locals = ctx.getLocals();
+				for (int k = 0, l = locals.maxSlots(); k < l; k++) {
+					visitor.visit(locals.loadLong(k));
+				}
+				Stack stack = ctx.getStack();
+				for (int k = 0, l = stack.position(); k < l; k++) {
+					visitor.visit(stack.getLongAt(k));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks whether current thread is at a safepoint,
+	 * i.e. there are no native or compiled frames that might hold
+	 * object references and other threads are not executing
+	 * VM code, or are suspended by the scheduler.
+	 * Only the outermost host call is allowed on the backtrace,
+	 * the host code that called it must pin the objects it keeps.
+	 * Every other host call, i.e. an instruction processor
+	 * or VM operation calling back into the VM, might keep objects
+	 * in host locals and defers the collection until it returns.
+	 *
+	 * @return {@code true} if collection may be performed.
+	 */
+	protected boolean isAtSafepoint() {
+		VirtualMachine vm = this.vm;
+		ThreadManager threadManager = vm.getThreadManager();
+		JavaThread current = threadManager.currentJavaThread();
+		VMInterface vmi = vm.getInterface();
+		for (JavaThread thread : threadManager.snapshot()) {
+			Backtrace backtrace = thread.getOsThread().getBacktrace();
+			if (thread != current) {
+				if (backtrace.depth() != 0 && !thread.isSuspended()) {
+					return false;
+				}
+				continue;
+			}
+			if (backtrace.hostCalls() > 1) {
+				return false;
+			}
+			for (ExecutionContext<?> ctx : backtrace) {
+				JavaMethod method = ctx.getMethod();
+				if ((method.getModifiers() & Opcodes.ACC_NATIVE) != 0 || vmi.getInvokerBinding(method).getInvoker() != null) {
+					return false;
+				}
+				CompiledCode code = method.getCompiledCode();
+				if (code != null && code != CompiledCode.UNSUPPORTED) {
+					// Compiled code keeps references in host locals
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private Set<ObjectValue> mark(List<ObjectValue> discovered, boolean clearSoftReferences) {
+		MemoryManager memoryManager = vm.getMemoryManager();
+		Set<ObjectValue> marked = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<ObjectValue> queue = new ArrayDeque<>();
+		RootVisitor visitor = new RootVisitor() {
+			@Override
+			public void visit(ObjectValue value) {
+				if (value != null && marked.add(value)) {
+					queue.push(value);
+				}
+			}
+
+			@Override
+			public void visit(long address) {
+				if (address != 0L) {
+					visit(memoryManager.getReference(address));
+				}
+			}
+		};
+		visitRoots(visitor);
+		ObjectValue value;
+		while ((value = queue.poll()) != null) {
+			if (value.isNull()) {
+				continue;
+			}
+			JavaClass jc = memoryManager.readClass(value);
+			if (value instanceof ArrayValue) {
+				if (jc.getComponentType().isPrimitive()) {
+					continue;
+				}
+				ArrayValue array = (ArrayValue) value;
+				long offset = memoryManager.arrayBaseOffset(array);
+				long scale = memoryManager.objectSize();
+				for (int i = 0, j = array.getLength(); i < j; i++) {
+					visitor.visit(memoryManager.readRawReference(value, offset + i * scale));
+				}
+			} else {
+				InstanceClass klass = (InstanceClass) jc;
+				long referent = -1L;
+				int type = referenceType(klass);
+				if (type == WEAK || type == PHANTOM || (type == SOFT && clearSoftReferences)) {
+					// Referent is only kept alive by other paths
+					referent = referentOffset;
+					discovered.add(value);
+				}
+				for (long offset : virtualReferenceOffsets(klass)) {
+					if (offset != referent) {
+						visitor.visit(memoryManager.readRawReference(value, offset));
+					}
+				}
+			}
+		}
+		return marked;
+	}
+
+	private void processReferences(List<ObjectValue> discovered, Set<ObjectValue> marked) {
+		if (discovered.isEmpty()) {
+			return;
+		}
+		VirtualMachine vm = this.vm;
+		MemoryManager memoryManager = vm.getMemoryManager();
+		ObjectValue nullValue = memoryManager.nullValue();
+		long referentOffset = this.referentOffset;
+		long discoveredOffset = this.discoveredOffset;
+		ObjectValue head = null;
+		ObjectValue tail = null;
+		for (ObjectValue reference : discovered) {
+			ObjectValue referent = memoryManager.readReference(reference, referentOffset);
+			if (referent.isNull() || marked.contains(referent)) {
+				continue;
+			}
+			memoryManager.writeValue(reference, referentOffset, nullValue);
+			if (head == null) {
+				tail = reference;
+			} else {
+				memoryManager.writeValue(reference, discoveredOffset, head);
+			}
+			head = reference;
+		}
+		if (head == null) {
+			return;
+		}
+		// Tail is linked with the references that are still pending
+		InstanceClass referenceClass = (InstanceClass) vm.findBootstrapClass("java/lang/ref/Reference");
+		if (vm.getJvmVersion() <= 8) {
+			// Reference handler takes the list from the static field
+			// and waits on the lock
+			VMOperations ops = vm.getOperations();
+			ObjectValue pending = ops.getReference(referenceClass, "pending", "Ljava/lang/ref/Reference;");
+			memoryManager.writeValue(tail, discoveredOffset, pending);
+			ops.putReference(referenceClass, "pending", "Ljava/lang/ref/Reference;", head);
+			ObjectValue lock = ops.getReference(referenceClass, "lock", "Ljava/lang/ref/Reference$Lock;");
+			// The handler re-checks the list before it waits,
+			// if the lock is held now it will see the references
+			if (memoryManager.tryMonitorEnter(lock)) {
+				try {
+					memoryManager.getMutex(lock).doNotifyAll();
+				} finally {
+					memoryManager.monitorExit(lock);
+				}
+			}
+			return;
+		}
+		List<InstanceValue> waiters;
+		synchronized (referenceWaiters) {
+			ObjectValue pending = pendingReferences;
+			memoryManager.writeValue(tail, discoveredOffset, pending == null ? nullValue : pending);
+			pendingReferences = head;
+			waiters = new ArrayList<>(referenceWaiters);
+		}
+		ThreadManager threadManager = vm.getThreadManager();
+		for (InstanceValue waiter : waiters) {
+			threadManager.unpark(waiter);
+		}
+	}
+
+	private int referenceType(InstanceClass jc) {
+		Map<InstanceClass, Integer> referenceTypes = this.referenceTypes;
+		Integer type = referenceTypes.get(jc);
+		if (type == null) {
+			type = STRONG;
+			for (InstanceClass klass = jc; klass != null; klass = klass.getSuperClass()) {
+				if (!klass.getClassLoader().isNull()) {
+					continue;
+				}
+				String name = klass.getInternalName();
+				if ("java/lang/ref/Reference".equals(name)) {
+					if (referentOffset == -1L) {
+						referentOffset = klass.getField("referent", "Ljava/lang/Object;").getOffset();
+						discoveredOffset = klass.getField("discovered", "Ljava/lang/ref/Reference;").getOffset();
+					}
+					break;
+				}
+				// FinalReference stays strong, there are no finalizers to run
+				if ("java/lang/ref/SoftReference".equals(name)) {
+					type = SOFT;
+				} else if ("java/lang/ref/WeakReference".equals(name)) {
+					type = WEAK;
+				} else if ("java/lang/ref/PhantomReference".equals(name)) {
+					type = PHANTOM;
+				}
+			}
+			referenceTypes.put(jc, type);
+		}
+		return type;
+	}
+
+	private long sweep(Set<ObjectValue> marked) {
+		VirtualMachine vm = this.vm;
+		MemoryAllocator allocator = vm.getMemoryAllocator();
+		ObjectSynchronizer synchronizer = vm.getObjectSynchronizer();
+		long reclaimed = 0L;
+		Iterator<ObjectValue> iterator = vm.getMemoryManager().listObjects().iterator();
+		while (iterator.hasNext()) {
+			ObjectValue value = iterator.next();
+			if (marked.contains(value)) {
+				continue;
+			}
+			iterator.remove();
+			MemoryData data = value.getData();
+			// See SimpleMemoryManager#LOCK_OFFSET
+			synchronizer.free(value, 4L);
+			reclaimed += data.length();
+			allocator.freeHeap(value.getMemory().getAddress());
+		}
+		return reclaimed;
+	}
+
+	private long[] virtualReferenceOffsets(InstanceClass jc) {
+		Map<InstanceClass, long[]> referenceOffsets = this.referenceOffsets;
+		long[] offsets = referenceOffsets.get(jc);
+		if (offsets == null) {
+			List<JavaField> fields = new ArrayList<>();
+			for (InstanceClass klass = jc; klass != null; klass = klass.getSuperClass()) {
+				collectReferenceFields(klass.virtualFieldArea(), fields);
+			}
+			offsets = toOffsets(fields);
+			referenceOffsets.put(jc, offsets);
+		}
+		return offsets;
+	}
+
+	private static long[] staticReferenceOffsets(InstanceClass jc) {
+		List<JavaField> fields = new ArrayList<>();
+		collectReferenceFields(jc.staticFieldArea(), fields);
+		return toOffsets(fields);
+	}
+
+	private static void collectReferenceFields(ClassArea<JavaField> area, List<JavaField> fields) {
+		if (area == null) {
+			return;
+		}
+		for (JavaField field : area.list()) {
+			char c = field.getDesc().charAt(0);
+			if (c == 'L' || c == '[') {
+				fields.add(field);
+			}
+		}
+	}
+
+	private static long[] toOffsets(List<JavaField> fields) {
+		int size = fields.size();
+		if (size == 0) {
+			return NO_OFFSETS;
+		}
+		long[] offsets = new long[size];
+		for (int i = 0; i < size; i++) {
+			offsets[i] = fields.get(i).getOffset();
+		}
+		return offsets;
+	}
+
+	/**
+	 * Root visitor.
+	 */
+	protected interface RootVisitor {
+
+		/**
+		 * @param value Root object.
+		 */
+		void visit(ObjectValue value);
+
+		/**
+		 * Visits an address that may point to an object.
+		 *
+		 * @param address Potential object address.
+		 */
+		void visit(long address);
+	}
+
+	private final class SimpleGCHandle implements GCHandle {
+		private final ObjectValue value;
+		int count = 1;
+
+		SimpleGCHandle(ObjectValue value) {
+			this.value = value;
+		}
+
+		@Override
+		public ObjectValue get() {
+			return value;
+		}
+
+		@Override
+		public GCHandle retain() {
+			synchronized (handles) {
+				count++;
+			}
+			return this;
+		}
+
+		@Override
+		public void release() {
+			Map<ObjectValue, SimpleGCHandle> handles = MarkAndSweepGarbageCollector.this.handles;
+			synchronized (handles) {
+				if (--count == 0) {
+					handles.remove(value);
+				}
+			}
+		}
+	}
+
+	private final class Statistics implements GarbageCollectorStatistics {
+		volatile long collections;
+		volatile long lastPauseTime;
+		volatile long totalPauseTime;
+		volatile long lastReclaimedBytes;
+		volatile long totalReclaimedBytes;
+
+		@Override
+		public long collections() {
+			return collections;
+		}
+
+		@Override
+		public long lastPauseTime() {
+			return lastPauseTime;
+		}
+
+		@Override
+		public long totalPauseTime() {
+			return totalPauseTime;
+		}
+
+		@Override
+		public long lastReclaimedBytes() {
+			return lastReclaimedBytes;
+		}
+
+		@Override
+		public long totalReclaimedBytes() {
+			return totalReclaimedBytes;
+		}
+
+		@Override
+		public long usedSpace() {
+			return usedSpace.get();
+		}
+	}
+}
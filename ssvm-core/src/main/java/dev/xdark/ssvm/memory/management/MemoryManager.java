@@ -1,5 +1,6 @@
 package dev.xdark.ssvm.memory.management;
 
+import dev.xdark.ssvm.memory.gc.GarbageCollector;
 import dev.xdark.ssvm.mirror.type.ArrayClass;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.mirror.type.JavaClass;
@@ -26,11 +27,45 @@ public interface MemoryManager extends ReferenceMap {
 	ObjectValue nullValue();
 
 	/**
+	 * Inflates object monitor.
+	 * Used for operations that need a full monitor,
+	 * such as {@code wait} and {@code notify}.
+	 *
 	 * @param reference Reference to get synchronizer for.
 	 * @return Object synchronizer.
 	 */
 	Mutex getMutex(ObjectValue reference);
 
+	/**
+	 * Locks object monitor.
+	 *
+	 * @param reference Reference to lock.
+	 */
+	void monitorEnter(ObjectValue reference);
+
+	/**
+	 * Locks object monitor, unless it is held by another thread.
+	 *
+	 * @param reference Reference to lock.
+	 * @return {@code true} if an object was locked.
+	 */
+	boolean tryMonitorEnter(ObjectValue reference);
+
+	/**
+	 * Unlocks object monitor.
+	 *
+	 * @param reference Reference to unlock.
+	 * @return {@code true} if an object was unlocked,
+	 * or {@code false} if thread does not hold the monitor.
+	 */
+	boolean monitorExit(ObjectValue reference);
+
+	/**
+	 * @param reference Reference to check.
+	 * @return {@code true} if current thread holds object monitor.
+	 */
+	boolean holdsLock(ObjectValue reference);
+
 	/**
 	 * Allocates new object.
 	 * Throws VM exception if allocation fails.
@@ -83,6 +118,27 @@ public interface MemoryManager extends ReferenceMap {
 	 */
 	ObjectValue readReference(ObjectValue object, long offset);
 
+	/**
+	 * Reads encoded reference from an object,
+	 * without resolving it.
+	 *
+	 * @param object Object to read reference from.
+	 * @param offset Field offset.
+	 * @return encoded reference.
+	 * @see #referenceOf(ObjectValue)
+	 */
+	long readRawReference(ObjectValue object, long offset);
+
+	/**
+	 * Encodes reference to the object, the way it is
+	 * stored in object fields and thread frames.
+	 * Encoded reference can be resolved back with {@link #getReference(long)}.
+	 *
+	 * @param value Object to get reference to.
+	 * @return encoded reference.
+	 */
+	long referenceOf(ObjectValue value);
+
 	/**
 	 * Reads object class form an object.
 	 *
@@ -206,4 +262,9 @@ public interface MemoryManager extends ReferenceMap {
 	 * @param value Object to write data into.
 	 */
 	void writeDefaults(ObjectValue value);
+
+	/**
+	 * @return garbage collector.
+	 */
+	GarbageCollector getGarbageCollector();
 }
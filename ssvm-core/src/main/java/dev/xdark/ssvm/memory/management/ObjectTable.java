@@ -0,0 +1,159 @@
+package dev.xdark.ssvm.memory.management;
+
+import dev.xdark.ssvm.value.ObjectValue;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Dense table of objects indexed by integer handles.
+ * Handles of removed objects are reused.
+ * Handle {@code 0} is reserved for {@code null}.
+ * <p>
+ * Lookups are lock-free, modifications are synchronized.
+ *
+ * @author xDark
+ */
+public final class ObjectTable extends AbstractCollection<ObjectValue> {
+	private volatile ObjectValue[] entries;
+	private int[] freeHandles = new int[16];
+	private int freeCount;
+	private int top;
+	private int size;
+
+	/**
+	 * @param nullValue Value to reserve handle {@code 0} for.
+	 */
+	public ObjectTable(ObjectValue nullValue) {
+		ObjectValue[] entries = new ObjectValue[1024];
+		entries[0] = nullValue;
+		this.entries = entries;
+		top = 1;
+	}
+
+	/**
+	 * @param handle Object handle.
+	 * @return Object or {@code null},
+	 * if there is no object with such handle.
+	 */
+	public ObjectValue get(long handle) {
+		ObjectValue[] entries = this.entries;
+		return handle >= 0L && handle < entries.length ? entries[(int) handle] : null;
+	}
+
+	/**
+	 * Allocates new handle for the object.
+	 *
+	 * @param value Object to allocate handle for.
+	 * @return New handle.
+	 */
+	public synchronized int allocate(ObjectValue value) {
+		int handle;
+		int freeCount = this.freeCount;
+		if (freeCount != 0) {
+			handle = freeHandles[--freeCount];
+			this.freeCount = freeCount;
+		} else {
+			handle = top++;
+			ObjectValue[] entries = this.entries;
+			if (handle == entries.length) {
+				if (handle == Integer.MAX_VALUE) {
+					throw new IllegalStateException("Object table is full");
+				}
+				entries = Arrays.copyOf(entries, (int) Math.min(Integer.MAX_VALUE, (long) handle << 1));
+				entries[handle] = value;
+				this.entries = entries;
+				size++;
+				return handle;
+			}
+		}
+		entries[handle] = value;
+		size++;
+		return handle;
+	}
+
+	/**
+	 * Frees the handle.
+	 *
+	 * @param handle Handle to free.
+	 */
+	public synchronized void free(int handle) {
+		if (handle <= 0 || entries[handle] == null) {
+			return;
+		}
+		entries[handle] = null;
+		int[] freeHandles = this.freeHandles;
+		int freeCount = this.freeCount;
+		if (freeCount == freeHandles.length) {
+			freeHandles = Arrays.copyOf(freeHandles, freeCount << 1);
+			this.freeHandles = freeHandles;
+		}
+		freeHandles[freeCount] = handle;
+		this.freeCount = freeCount + 1;
+		size--;
+	}
+
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Iterates over all live objects,
+	 * except for {@code null}.
+	 * Removal frees the handle of the object.
+	 * The iterator is weakly consistent.
+	 */
+	@Override
+	public Iterator<ObjectValue> iterator() {
+		return new Iterator<ObjectValue>() {
+			ObjectValue[] entries = ObjectTable.this.entries;
+			int index = 1;
+			int last = -1;
+
+			{
+				advance();
+			}
+
+			@Override
+			public boolean hasNext() {
+				return index < entries.length;
+			}
+
+			@Override
+			public ObjectValue next() {
+				int index = this.index;
+				ObjectValue[] entries = this.entries;
+				if (index >= entries.length) {
+					throw new NoSuchElementException();
+				}
+				ObjectValue value = entries[index];
+				last = index;
+				this.index = index + 1;
+				advance();
+				return value;
+			}
+
+			@Override
+			public void remove() {
+				int last = this.last;
+				if (last == -1) {
+					throw new IllegalStateException();
+				}
+				this.last = -1;
+				free(last);
+			}
+
+			void advance() {
+				ObjectValue[] entries = this.entries;
+				int index = this.index;
+				while (index < entries.length && entries[index] == null) {
+					index++;
+				}
+				this.index = index;
+			}
+		};
+	}
+}
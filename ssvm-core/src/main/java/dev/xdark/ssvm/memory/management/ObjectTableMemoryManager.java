@@ -0,0 +1,81 @@
+package dev.xdark.ssvm.memory.management;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.memory.allocation.MemoryData;
+import dev.xdark.ssvm.value.ObjectValue;
+
+import java.util.Collection;
+
+/**
+ * Memory manager that stores references as
+ * 32-bit handles into the {@link ObjectTable}.
+ * <p>
+ * Reference fields and array elements take 4 bytes instead of 8,
+ * and resolving a reference is an array access.
+ * Handle of the object is kept in its header.
+ *
+ * @author xDark
+ */
+public class ObjectTableMemoryManager extends SimpleMemoryManager {
+	// Right after the class id and the lock
+	private static final long HANDLE_OFFSET = 8L;
+	private final ObjectTable table;
+
+	/**
+	 * @param vm VM instance.
+	 */
+	public ObjectTableMemoryManager(VirtualMachine vm) {
+		super(vm, 4);
+		table = new ObjectTable(nullValue());
+	}
+
+	@Override
+	public ObjectValue getReference(long address) {
+		return table.get(address);
+	}
+
+	@Override
+	public ObjectValue readReference(ObjectValue object, long offset) {
+		return table.get(object.getMemory().getData().readInt(offset));
+	}
+
+	@Override
+	public long readRawReference(ObjectValue object, long offset) {
+		return object.getMemory().getData().readInt(offset);
+	}
+
+	@Override
+	public long referenceOf(ObjectValue value) {
+		return handle(value);
+	}
+
+	@Override
+	public void writeValue(ObjectValue object, long offset, ObjectValue value) {
+		object.getMemory().getData().writeInt(offset, handle(value));
+	}
+
+	@Override
+	public ObjectValue getAndWriteValue(ObjectValue object, long offset, ObjectValue value) {
+		MemoryData data = object.getMemory().getData();
+		return table.get(data.getAndSetInt(offset, handle(value)));
+	}
+
+	@Override
+	public int objectSize() {
+		return 4;
+	}
+
+	@Override
+	public Collection<ObjectValue> listObjects() {
+		return table;
+	}
+
+	@Override
+	protected void register(ObjectValue value) {
+		value.getData().writeInt(HANDLE_OFFSET, table.allocate(value));
+	}
+
+	private static int handle(ObjectValue value) {
+		return value.isNull() ? 0 : value.getData().readInt(HANDLE_OFFSET);
+	}
+}
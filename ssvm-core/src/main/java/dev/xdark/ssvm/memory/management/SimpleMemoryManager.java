@@ -7,11 +7,12 @@
 import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
 import dev.xdark.ssvm.memory.allocation.MemoryBlock;
 import dev.xdark.ssvm.memory.allocation.MemoryData;
+import dev.xdark.ssvm.memory.gc.GarbageCollector;
+import dev.xdark.ssvm.memory.gc.MarkAndSweepGarbageCollector;
 import dev.xdark.ssvm.mirror.type.ArrayClass;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.synchronizer.Mutex;
-import dev.xdark.ssvm.synchronizer.ObjectSynchronizer;
 import dev.xdark.ssvm.threadlocal.ThreadLocalStorage;
 import dev.xdark.ssvm.util.Assertions;
 import dev.xdark.ssvm.value.ArrayValue;
@@ -24,8 +25,8 @@
 import dev.xdark.ssvm.value.SimpleJavaValue;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Simple and dumb implementation of a memory manager.
@@ -33,15 +34,26 @@
  * @author xDark
  */
 public class SimpleMemoryManager implements MemoryManager {
+	private static final long LOCK_OFFSET = 4L;
 
-	private final Map<MemoryAddress, ObjectValue> objects = new HashMap<>();
+	private final Map<MemoryAddress, ObjectValue> objects = new ConcurrentHashMap<>();
 	private final VirtualMachine vm;
 	private final NullValue nullValue;
+	private final GarbageCollector garbageCollector;
 	private final int objectHeaderSize;
 	private final int arrayHeaderSize;
 	private final int arrayLengthOffset;
 
 	public SimpleMemoryManager(VirtualMachine vm) {
+		this(vm, 0);
+	}
+
+	/**
+	 * @param vm          VM instance.
+	 * @param extraHeader Amount of bytes to reserve in the object header
+	 *                    for the use of subclasses, right after the lock.
+	 */
+	protected SimpleMemoryManager(VirtualMachine vm, int extraHeader) {
 		this.vm = vm;
 		MemoryAllocator allocator = vm.getMemoryAllocator();
 		MemoryBlock emptyHeapBlock = allocator.emptyHeapBlock();
@@ -49,10 +61,11 @@ public SimpleMemoryManager(VirtualMachine vm) {
 		objects.put(MemoryAddress.of(emptyHeapBlock.getAddress()), value);
 		nullValue = value;
 		// TODO rework object headers.
-		int addressSize = 4 + 4; // 4 bytes for lock, 4 bytes for class id
+		int addressSize = 4 + 4 + extraHeader; // 4 bytes for lock, 4 bytes for class id
 		objectHeaderSize = addressSize;
 		arrayHeaderSize = addressSize + 4;
 		arrayLengthOffset = addressSize;
+		garbageCollector = createGarbageCollector();
 	}
 
 	@Override
@@ -63,17 +76,31 @@ public ObjectValue nullValue() {
 	@Override
 	public Mutex getMutex(ObjectValue reference) {
 		Assertions.check(!reference.isNull(), "null reference");
-		MemoryData data = reference.getMemory().getData();
-		ObjectSynchronizer synchronizer = vm.getObjectSynchronizer();
-		Mutex mutex;
-		int id = data.readInt(4L);
-		if (id == -1) {
-			mutex = synchronizer.acquire();
-			data.writeInt(4L, mutex.id());
-		} else {
-			mutex = synchronizer.get(id);
-		}
-		return mutex;
+		return vm.getObjectSynchronizer().inflate(reference, LOCK_OFFSET);
+	}
+
+	@Override
+	public void monitorEnter(ObjectValue reference) {
+		Assertions.check(!reference.isNull(), "null reference");
+		vm.getObjectSynchronizer().monitorEnter(reference, LOCK_OFFSET);
+	}
+
+	@Override
+	public boolean tryMonitorEnter(ObjectValue reference) {
+		Assertions.check(!reference.isNull(), "null reference");
+		return vm.getObjectSynchronizer().tryMonitorEnter(reference, LOCK_OFFSET);
+	}
+
+	@Override
+	public boolean monitorExit(ObjectValue reference) {
+		Assertions.check(!reference.isNull(), "null reference");
+		return vm.getObjectSynchronizer().monitorExit(reference, LOCK_OFFSET);
+	}
+
+	@Override
+	public boolean holdsLock(ObjectValue reference) {
+		Assertions.check(!reference.isNull(), "null reference");
+		return vm.getObjectSynchronizer().isHeldByCurrentThread(reference, LOCK_OFFSET);
 	}
 
 	@Override
@@ -89,7 +116,7 @@ public InstanceValue newInstance(InstanceClass javaClass) {
 		}
 		setClass(memory, javaClass);
 		SimpleInstanceValue value = new SimpleInstanceValue(this, memory);
-		objects.put(MemoryAddress.of(memory.getAddress()), value);
+		register(value);
 		return value;
 	}
 
@@ -98,7 +125,7 @@ public <V> JavaValue<V> newJavaInstance(InstanceClass javaClass, V value) {
 		MemoryBlock memory = allocateInstanceMemory(javaClass);
 		setClass(memory, javaClass);
 		SimpleJavaValue<V> wrapper = new SimpleJavaValue<>(this, memory, value);
-		objects.put(MemoryAddress.of(memory.getAddress()), wrapper);
+		register(wrapper);
 		return wrapper;
 	}
 
@@ -108,7 +135,7 @@ public void newJavaLangClass(InstanceClass javaClass) {
 		InstanceValue wrapper = new SimpleInstanceValue(this, memory);
 		javaClass.setOop(wrapper);
 		setClass(memory, javaClass);
-		objects.put(MemoryAddress.of(memory.getAddress()), wrapper);
+		register(wrapper);
 	}
 
 	@Override
@@ -117,7 +144,7 @@ public ArrayValue newArray(ArrayClass javaClass, int length) {
 		setClass(memory, javaClass);
 		SimpleArrayValue value = new SimpleArrayValue(this, memory);
 		memory.getData().writeInt(arrayLengthOffset, length);
-		objects.put(MemoryAddress.of(memory.getAddress()), value);
+		register(value);
 		return value;
 	}
 
@@ -127,6 +154,16 @@ public ObjectValue readReference(ObjectValue object, long offset) {
 		return getReference(address);
 	}
 
+	@Override
+	public long readRawReference(ObjectValue object, long offset) {
+		return object.getMemory().getData().readLong(offset);
+	}
+
+	@Override
+	public long referenceOf(ObjectValue value) {
+		return value.getMemory().getAddress();
+	}
+
 	@Override
 	public JavaClass readClass(ObjectValue object) {
 		if (object.isNull()) {
@@ -159,7 +196,7 @@ public InstanceValue newClassOop(JavaClass javaClass) {
 		MemoryBlock memory = allocateClassMemory(javaLangClass, javaClass);
 		setClass(memory, javaLangClass);
 		InstanceValue wrapper = new SimpleInstanceValue(this, memory);
-		objects.put(MemoryAddress.of(memory.getAddress()), wrapper);
+		register(wrapper);
 		return wrapper;
 	}
 
@@ -225,6 +262,28 @@ public void writeDefaults(ObjectValue value) {
 		data.set(arrayLengthOffset, data.length() - arrayLengthOffset, (byte) 0);
 	}
 
+	@Override
+	public GarbageCollector getGarbageCollector() {
+		return garbageCollector;
+	}
+
+	/**
+	 * Makes newly allocated object reachable by its reference.
+	 * Called once the object header is set up.
+	 *
+	 * @param value Allocated object.
+	 */
+	protected void register(ObjectValue value) {
+		objects.put(MemoryAddress.of(value.getMemory().getAddress()), value);
+	}
+
+	/**
+	 * @return new garbage collector.
+	 */
+	protected GarbageCollector createGarbageCollector() {
+		return new MarkAndSweepGarbageCollector(vm);
+	}
+
 	private MemoryBlock allocateInstanceMemory(InstanceClass javaClass) {
 		long objectSize = objectHeaderSize + javaClass.getOccupiedInstanceSpace();
 		return touch(vm.getMemoryAllocator().allocateHeap(objectSize));
@@ -244,7 +303,10 @@ private MemoryBlock touch(MemoryBlock block) {
 		if (block == null) {
 			return null; // out of memory
 		}
-		block.getData().writeInt(4L, -1);
+		MemoryData data = block.getData();
+		// Not locked, see ObjectSynchronizer
+		data.writeInt(LOCK_OFFSET, -1);
+		garbageCollector.allocated(data.length());
 		return block;
 	}
 
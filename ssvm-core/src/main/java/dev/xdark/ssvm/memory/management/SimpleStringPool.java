@@ -1,15 +1,12 @@
 package dev.xdark.ssvm.memory.management;
 
 import dev.xdark.ssvm.VirtualMachine;
-import dev.xdark.ssvm.operation.VMOperations;
 import dev.xdark.ssvm.value.InstanceValue;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Basic string pool implementation.
@@ -18,25 +15,27 @@
  */
 public class SimpleStringPool implements StringPool {
 
-	private final Map<String, InstanceValue> pool = new HashMap<>();
-	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<String, InstanceValue> pool = new ConcurrentHashMap<>();
 	private final VirtualMachine vm;
-	private final Function<? super String, ? extends InstanceValue> pooler;
 
 	public SimpleStringPool(VirtualMachine vm) {
 		this.vm = vm;
-		pooler = s -> vm.getOperations().newUtf8(s);
 	}
 
 	@Override
 	public InstanceValue intern(String value) {
-		Lock lock = this.lock.writeLock();
-		lock.lock();
-		try {
-			return pool.computeIfAbsent(value, pooler);
-		} finally {
-			lock.unlock();
+		Map<String, InstanceValue> pool = this.pool;
+		InstanceValue pooled = pool.get(value);
+		if (pooled == null) {
+			// String is allocated outside of the map,
+			// the thread that loses the race drops its copy
+			pooled = vm.getOperations().newUtf8(value);
+			InstanceValue existing = pool.putIfAbsent(value, pooled);
+			if (existing != null) {
+				pooled = existing;
+			}
 		}
+		return pooled;
 	}
 
 	@Override
@@ -46,12 +45,11 @@ public InstanceValue intern(InstanceValue value) {
 
 	@Override
 	public InstanceValue getIfPresent(String str) {
-		Lock lock = this.lock.readLock();
-		lock.lock();
-		try {
-			return pool.get(str);
-		} finally {
-			lock.unlock();
-		}
+		return pool.get(str);
+	}
+
+	@Override
+	public List<InstanceValue> snapshot() {
+		return new ArrayList<>(pool.values());
 	}
 }
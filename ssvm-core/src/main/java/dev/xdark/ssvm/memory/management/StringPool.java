@@ -3,6 +3,8 @@
 import dev.xdark.ssvm.value.InstanceValue;
 import dev.xdark.ssvm.value.ObjectValue;
 
+import java.util.List;
+
 /**
  * String pool. Only used for {@link String#intern()}.
  *
@@ -34,4 +36,9 @@ public interface StringPool {
 	 * if not found.
 	 */
 	InstanceValue getIfPresent(String str);
+
+	/**
+	 * @return a snapshot of all pooled strings.
+	 */
+	List<InstanceValue> snapshot();
 }
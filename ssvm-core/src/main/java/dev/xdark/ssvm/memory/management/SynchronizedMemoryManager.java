@@ -1,5 +1,6 @@
 package dev.xdark.ssvm.memory.management;
 
+import dev.xdark.ssvm.memory.gc.GarbageCollector;
 import dev.xdark.ssvm.mirror.type.ArrayClass;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.mirror.type.JavaClass;
@@ -49,6 +50,27 @@ public Mutex getMutex(ObjectValue reference) {
 		}
 	}
 
+	@Override
+	public void monitorEnter(ObjectValue reference) {
+		// May block, must not hold the allocation lock
+		memoryManager.monitorEnter(reference);
+	}
+
+	@Override
+	public boolean tryMonitorEnter(ObjectValue reference) {
+		return memoryManager.tryMonitorEnter(reference);
+	}
+
+	@Override
+	public boolean monitorExit(ObjectValue reference) {
+		return memoryManager.monitorExit(reference);
+	}
+
+	@Override
+	public boolean holdsLock(ObjectValue reference) {
+		return memoryManager.holdsLock(reference);
+	}
+
 	@Override
 	public ObjectValue getReference(long address) {
 		synchronized (mutex) {
@@ -91,6 +113,16 @@ public ObjectValue readReference(ObjectValue object, long offset) {
 		}
 	}
 
+	@Override
+	public long readRawReference(ObjectValue object, long offset) {
+		return memoryManager.readRawReference(object, offset);
+	}
+
+	@Override
+	public long referenceOf(ObjectValue value) {
+		return memoryManager.referenceOf(value);
+	}
+
 	@Override
 	public JavaClass readClass(ObjectValue object) {
 		return memoryManager.readClass(object);
@@ -171,4 +203,9 @@ public Collection<ObjectValue> listObjects() {
 	public void writeDefaults(ObjectValue value) {
 		memoryManager.writeDefaults(value);
 	}
+
+	@Override
+	public GarbageCollector getGarbageCollector() {
+		return memoryManager.getGarbageCollector();
+	}
 }
@@ -22,7 +22,7 @@ public interface MirrorFactory {
 
 	/**
 	 * @param classLoader Class loader.
-	 * @param classReader Class source.
+	 * @param classReader Class source, {@code null} if the class should not keep it.
 	 * @param node        Class node.
 	 * @return New class.
 	 */
@@ -66,6 +66,10 @@ public JavaMethod newMethod(InstanceClass owner, MethodNode node, int slot) {
 
 	@Override
 	public JavaMethod newPolymorphicMethod(JavaMethod method, String desc) {
+		if (method instanceof SimpleJavaMethod) {
+			// Variant must stay equal to the original method, which is identified by its parsed node
+			return new SimpleJavaMethod((SimpleJavaMethod) method, desc);
+		}
 		return new SimpleJavaMethod(method.getOwner(), method.getNode(), desc, method.getSlot());
 	}
 }
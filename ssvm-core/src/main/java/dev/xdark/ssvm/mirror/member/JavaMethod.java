@@ -1,5 +1,9 @@
 package dev.xdark.ssvm.mirror.member;
 
+import dev.xdark.ssvm.api.InvokerBinding;
+import dev.xdark.ssvm.execution.ThreadedCode;
+import dev.xdark.ssvm.execution.compiler.CompiledCode;
+import dev.xdark.ssvm.execution.ExceptionTable;
 import dev.xdark.ssvm.execution.VMTryCatchBlock;
 import dev.xdark.ssvm.mirror.type.JavaClass;
 import org.objectweb.asm.Type;
@@ -36,6 +40,8 @@ default String getSignature() {
 
 	/**
 	 * Returns ASM method info.
+	 * If the code of the method was not parsed yet,
+	 * it is parsed by this call.
 	 *
 	 * @return ASM method info.
 	 */
@@ -124,4 +130,54 @@ default String getSignature() {
 	 * @return a list of try/catch blocks.
 	 */
 	List<VMTryCatchBlock> getTryCatchBlocks();
+
+	/**
+	 * @return exception table, built from try/catch blocks.
+	 */
+	ExceptionTable getExceptionTable();
+
+	/**
+	 * @return pre-decoded method body or {@code null},
+	 * if the method was not decoded yet.
+	 */
+	ThreadedCode getThreadedCode();
+
+	/**
+	 * @param threadedCode Pre-decoded method body.
+	 */
+	void setThreadedCode(ThreadedCode threadedCode);
+
+	/**
+	 * @return compiled method body,
+	 * {@link CompiledCode#UNSUPPORTED} if the method cannot be compiled,
+	 * or {@code null} if the method was not compiled yet.
+	 */
+	CompiledCode getCompiledCode();
+
+	/**
+	 * @param compiledCode Compiled method body.
+	 */
+	void setCompiledCode(CompiledCode compiledCode);
+
+	/**
+	 * Replaces the method node after the owner was redefined.
+	 * Compiled and pre-decoded code, as well as everything
+	 * derived from the code, is dropped.
+	 * Frames that are already running keep executing the old code.
+	 *
+	 * @param node New method node, must have
+	 *             the same name and descriptor.
+	 */
+	void redefine(MethodNode node);
+
+	/**
+	 * @return invoker binding cached by the VM interface,
+	 * or {@code null}, if the binding was not resolved yet.
+	 */
+	InvokerBinding getInvokerBinding();
+
+	/**
+	 * @param invokerBinding Invoker binding.
+	 */
+	void setInvokerBinding(InvokerBinding invokerBinding);
 }
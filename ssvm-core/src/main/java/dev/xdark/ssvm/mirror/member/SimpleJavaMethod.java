@@ -2,8 +2,13 @@
 
 import dev.xdark.jlinker.MemberInfo;
 import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.api.InvokerBinding;
+import dev.xdark.ssvm.asm.LazyMethodNode;
 import dev.xdark.ssvm.asm.Modifier;
+import dev.xdark.ssvm.execution.ExceptionTable;
+import dev.xdark.ssvm.execution.ThreadedCode;
 import dev.xdark.ssvm.execution.VMTryCatchBlock;
+import dev.xdark.ssvm.execution.compiler.CompiledCode;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.operation.VMOperations;
@@ -30,7 +35,9 @@ public final class SimpleJavaMethod implements JavaMethod {
 	private final TypeSafeMap metadata = new TypeSafeMap();
 	private final BitSet extraModifiers = new BitSet();
 	private final InstanceClass owner;
-	private final MethodNode node;
+	// Node this method was created with, identifies the method within its owner
+	private final MethodNode origin;
+	private volatile MethodNode node;
 	private final String desc;
 	private final int slot;
 	private Type type;
@@ -45,6 +52,10 @@ public final class SimpleJavaMethod implements JavaMethod {
 	private Boolean hidden;
 	private Boolean isConstructor;
 	private List<VMTryCatchBlock> tryCatchBlocks;
+	private ExceptionTable exceptionTable;
+	private ThreadedCode threadedCode;
+	private volatile CompiledCode compiledCode;
+	private volatile InvokerBinding invokerBinding;
 	private MemberIdentifier identifier;
 	private MemberInfo<JavaMethod> linkerInfo; // Delayed allocation until linker is capable of linking polymorphic methods.
 
@@ -56,11 +67,27 @@ public final class SimpleJavaMethod implements JavaMethod {
 	 */
 	public SimpleJavaMethod(InstanceClass owner, MethodNode node, String desc, int slot) {
 		this.owner = owner;
+		origin = node;
 		this.node = node;
 		this.desc = desc;
 		this.slot = slot;
 	}
 
+	/**
+	 * Creates method with the descriptor override,
+	 * that is equal to the original method.
+	 *
+	 * @param method Original method.
+	 * @param desc   Method descriptor override.
+	 */
+	public SimpleJavaMethod(SimpleJavaMethod method, String desc) {
+		owner = method.owner;
+		origin = method.origin;
+		node = method.getNode();
+		this.desc = desc;
+		slot = method.slot;
+	}
+
 	@Override
 	public InstanceClass getOwner() {
 		return owner;
@@ -68,14 +95,40 @@ public InstanceClass getOwner() {
 
 	@Override
 	public MethodNode getNode() {
+		MethodNode node = this.node;
+		if (node instanceof LazyMethodNode) {
+			// Lazy node may be shared with the methods of the forks,
+			// the code is rewritten in place, so the method needs its own copy
+			synchronized (this) {
+				node = this.node;
+				if (node instanceof LazyMethodNode) {
+					this.node = node = ((LazyMethodNode) node).copy();
+				}
+			}
+		}
 		return node;
 	}
 
+	@Override
+	public String getName() {
+		return node.name;
+	}
+
 	@Override
 	public String getDesc() {
 		return desc;
 	}
 
+	@Override
+	public int getModifiers() {
+		return node.access;
+	}
+
+	@Override
+	public String getSignature() {
+		return node.signature;
+	}
+
 	@Override
 	public Type getType() {
 		Type type = this.type;
@@ -144,11 +197,10 @@ public int getMaxArgs() {
 
 	@Override
 	public int getMaxStack() {
-		MethodNode node = this.node;
 		if (Modifier.isCompiledMethod(node.access)) {
 			return 0; // No stack for compiled methods
 		}
-		return node.maxStack;
+		return getNode().maxStack;
 	}
 
 	@Override
@@ -225,6 +277,59 @@ public List<VMTryCatchBlock> getTryCatchBlocks() {
 		return tryCatchBlocks;
 	}
 
+	@Override
+	public ExceptionTable getExceptionTable() {
+		ExceptionTable exceptionTable = this.exceptionTable;
+		if (exceptionTable == null) {
+			return this.exceptionTable = ExceptionTable.create(getTryCatchBlocks());
+		}
+		return exceptionTable;
+	}
+
+	@Override
+	public ThreadedCode getThreadedCode() {
+		return threadedCode;
+	}
+
+	@Override
+	public void setThreadedCode(ThreadedCode threadedCode) {
+		this.threadedCode = threadedCode;
+	}
+
+	@Override
+	public CompiledCode getCompiledCode() {
+		return compiledCode;
+	}
+
+	@Override
+	public void setCompiledCode(CompiledCode compiledCode) {
+		this.compiledCode = compiledCode;
+	}
+
+	@Override
+	public synchronized void redefine(MethodNode node) {
+		this.node = node;
+		polymorphic = null;
+		callerSensitive = null;
+		hidden = null;
+		exceptionTypes = null;
+		maxLocals = -1;
+		tryCatchBlocks = null;
+		exceptionTable = null;
+		threadedCode = null;
+		compiledCode = null;
+	}
+
+	@Override
+	public InvokerBinding getInvokerBinding() {
+		return invokerBinding;
+	}
+
+	@Override
+	public void setInvokerBinding(InvokerBinding invokerBinding) {
+		this.invokerBinding = invokerBinding;
+	}
+
 	@Override
 	public TypeSafeMap getMetadata() {
 		return metadata;
@@ -268,14 +373,15 @@ public boolean equals(Object o) {
 			return false;
 		}
 
-		JavaMethod that = (JavaMethod) o;
+		SimpleJavaMethod that = (SimpleJavaMethod) o;
 
-		return node.equals(that.getNode());
+		// Origin is shared between the VMs
+		return owner == that.owner && origin.equals(that.origin);
 	}
 
 	@Override
 	public int hashCode() {
-		return node.hashCode();
+		return origin.hashCode();
 	}
 
 	@Override
@@ -286,7 +392,7 @@ public String toString() {
 
 	private List<VMTryCatchBlock> resolveTryCatchBlocks() {
 		List<VMTryCatchBlock> tryCatchBlocks;
-		List<TryCatchBlockNode> blocks = node.tryCatchBlocks;
+		List<TryCatchBlockNode> blocks = getNode().tryCatchBlocks;
 		if (blocks == null) {
 			tryCatchBlocks = Collections.emptyList();
 		} else {
@@ -320,7 +426,7 @@ private void resolveArgumentTypes() {
 	private void resolveExceptionTypes() {
 		InstanceClass owner = this.owner;
 		VirtualMachine vm = owner.getVM();
-		List<String> exceptions = getNode().exceptions;
+		List<String> exceptions = node.exceptions;
 		if (exceptions == null || exceptions.isEmpty()) {
 			exceptionTypes = new JavaClass[0];
 		} else {
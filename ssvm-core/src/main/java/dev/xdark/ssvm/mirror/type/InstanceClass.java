@@ -41,10 +41,22 @@ public interface InstanceClass extends JavaClass {
 	 */
 	ClassNode getNode();
 
+	/**
+	 * Returns ASM node the class was defined,
+	 * or last redefined with.
+	 * The node is never modified by the VM
+	 * and may be shared with forks of the VM.
+	 *
+	 * @return parsed asm node.
+	 */
+	ClassNode getParsedNode();
+
 	/**
 	 * Returns class source.
 	 *
-	 * @return class source.
+	 * @return class source, or {@code null}
+	 * if the class was defined without keeping it.
+	 * @see dev.xdark.ssvm.classloading.ParsedClassData#shouldRetainReader()
 	 */
 	ClassReader getClassReader();
 
@@ -100,6 +112,48 @@ public interface InstanceClass extends JavaClass {
 	 */
 	ClassArea<JavaMethod> methodArea();
 
+	/**
+	 * Searches for a method in the virtual method table.
+	 *
+	 * @param name Name of the method.
+	 * @param desc Descriptor of the method.
+	 * @return index of the method in the table or {@code -1},
+	 * if the method cannot be dispatched through the table.
+	 */
+	int getVirtualMethodIndex(String name, String desc);
+
+	/**
+	 * @param index Index in the virtual method table.
+	 * @return method selected for this class or {@code null},
+	 * if the index is out of bounds.
+	 */
+	JavaMethod getVirtualMethod(int index);
+
+	/**
+	 * Searches for a method in the interface method table.
+	 * Only methods declared by the interface itself are searched.
+	 *
+	 * @param name Name of the method.
+	 * @param desc Descriptor of the method.
+	 * @return index of the method in the table or {@code -1},
+	 * if this class is not an interface or does not declare such method.
+	 */
+	int getInterfaceMethodIndex(String name, String desc);
+
+	/**
+	 * Selects the method the same way the JVM does,
+	 * the maximally-specific default method is used
+	 * if no class declares the method.
+	 *
+	 * @param itf   Interface that declares the method.
+	 * @param index Index in the interface method table.
+	 * @return method selected for this class or {@code null},
+	 * if this class has no table for the interface.
+	 * @throws dev.xdark.ssvm.execution.VMException If more than one
+	 *                                              default method can be selected.
+	 */
+	JavaMethod getInterfaceMethod(InstanceClass itf, int index);
+
 	/**
 	 * @return Area of virtual fields.
 	 */
@@ -124,6 +178,8 @@ public interface InstanceClass extends JavaClass {
 
 	/**
 	 * Attempts to redefine this class.
+	 * Methods are pointed to the new code,
+	 * compiled and pre-decoded method bodies are discarded.
 	 *
 	 * @param reader Class source.
 	 * @param node   New class node.
@@ -4,6 +4,7 @@
 import dev.xdark.jlinker.MemberInfo;
 import dev.xdark.ssvm.VirtualMachine;
 import dev.xdark.ssvm.asm.Modifier;
+import dev.xdark.ssvm.classloading.ParsedClassData;
 import dev.xdark.ssvm.mirror.member.JavaField;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.mirror.member.MemberIdentifier;
@@ -11,6 +12,7 @@
 import dev.xdark.ssvm.symbol.Symbols;
 import dev.xdark.ssvm.threadlocal.ThreadLocalStorage;
 import dev.xdark.ssvm.util.Assertions;
+import dev.xdark.ssvm.util.ClassUtil;
 import dev.xdark.ssvm.value.InstanceValue;
 import dev.xdark.ssvm.value.ObjectValue;
 import me.coley.cafedude.InvalidClassException;
@@ -21,12 +23,19 @@
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
 
 import java.lang.ref.SoftReference;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -39,7 +48,7 @@ public class SimpleInstanceClass implements InstanceClass {
 	private static final String POLYMORPHIC_DESC = "([Ljava/lang/Object;)Ljava/lang/Object;";
 	private static final Predicate<JavaField> NON_HIDDEN_FIELD = nonHidden(JavaField::getModifiers);
 	private static final Predicate<JavaMethod> NON_HIDDEN_METHOD = nonHidden(JavaMethod::getModifiers);
-
+	private static final JavaMethod[] NO_METHODS = {};
 
 	private final VirtualMachine vm;
 
@@ -49,8 +58,12 @@ public class SimpleInstanceClass implements InstanceClass {
 	private ClassInfo<JavaClass> linkerInfo;
 
 	private ClassReader classReader;
-	private ClassNode node;
-	private ClassFile rawClassFile;
+	// Node the class was defined with, may be shared with forks
+	private ClassNode parsedNode;
+	// Copy of the parsed node, made on first request
+	private volatile ClassNode node;
+	// Only needed by some natives, may be parsed again
+	private SoftReference<ClassFile> rawClassFile;
 
 	private InstanceValue oop;
 	private int id = -1;
@@ -64,6 +77,17 @@ public class SimpleInstanceClass implements InstanceClass {
 	private long occupiedInstanceSpace;
 	private long occupiedStaticSpace;
 
+	// Dispatch tables
+	private JavaMethod[] virtualTable = NO_METHODS;
+	private JavaMethod[] interfaceMethods = NO_METHODS;
+	private InstanceClass[] interfaceTableOwners = new InstanceClass[0];
+	private JavaMethod[][] interfaceTable = new JavaMethod[0][];
+
+	// Subtype checks
+	private InstanceClass[] primarySupers;
+	private InstanceClass[] secondarySupers;
+	private InstanceClass secondarySuperCache;
+
 	private String normalName;
 	private String descriptor;
 
@@ -83,13 +107,14 @@ public class SimpleInstanceClass implements InstanceClass {
 	 *
 	 * @param vm          VM in which this class is being created.
 	 * @param classLoader Loader of the class.
-	 * @param classReader Source of the class.
+	 * @param classReader Source of the class, may be {@code null}.
 	 * @param node        ASM class data.
 	 */
 	public SimpleInstanceClass(VirtualMachine vm, ObjectValue classLoader, ClassReader classReader, ClassNode node) {
 		this.vm = vm;
 		this.classLoader = classLoader;
 		this.classReader = classReader;
+		parsedNode = node;
 		this.node = node;
 	}
 
@@ -156,6 +181,12 @@ public boolean isAssignableFrom(JavaClass S) {
 		if (T == symbols.java_lang_Object()) {
 			return true;
 		}
+		if (S instanceof SimpleInstanceClass) {
+			Boolean result = fastSubtypeCheck((SimpleInstanceClass) S);
+			if (result != null) {
+				return result;
+			}
+		}
 		if (isInterface()) {
 			Deque<JavaClass> classes = new ArrayDeque<>();
 			classes.push(S);
@@ -277,11 +308,78 @@ public JavaMethod getMethod(String name, String desc) {
 		return method;
 	}
 
+	@Override
+	public int getVirtualMethodIndex(String name, String desc) {
+		JavaMethod[] virtualTable = this.virtualTable;
+		for (int i = virtualTable.length - 1; i >= 0; i--) {
+			JavaMethod method = virtualTable[i];
+			if (name.equals(method.getName()) && desc.equals(method.getDesc())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public JavaMethod getVirtualMethod(int index) {
+		JavaMethod[] virtualTable = this.virtualTable;
+		if (index < 0 || index >= virtualTable.length) {
+			return null;
+		}
+		return virtualTable[index];
+	}
+
+	@Override
+	public int getInterfaceMethodIndex(String name, String desc) {
+		JavaMethod[] interfaceMethods = this.interfaceMethods;
+		for (int i = 0; i < interfaceMethods.length; i++) {
+			JavaMethod method = interfaceMethods[i];
+			if (name.equals(method.getName()) && desc.equals(method.getDesc())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public JavaMethod getInterfaceMethod(InstanceClass itf, int index) {
+		InstanceClass[] owners = interfaceTableOwners;
+		for (int i = 0; i < owners.length; i++) {
+			if (owners[i] == itf) {
+				JavaMethod[] methods = interfaceTable[i];
+				if (index < 0 || index >= methods.length) {
+					return null;
+				}
+				JavaMethod method = methods[index];
+				if (method == null) {
+					throwConflictingDefaults(itf, index);
+				}
+				return method;
+			}
+		}
+		return null;
+	}
+
 	@Override
 	public ClassNode getNode() {
+		ClassNode node = this.node;
+		if (node == parsedNode) {
+			// Members are added and modifiers are changed in place
+			synchronized (this) {
+				node = this.node;
+				if (node == parsedNode) {
+					this.node = node = ClassUtil.copyNode(node);
+				}
+			}
+		}
 		return node;
 	}
 
+	@Override
+	public ClassNode getParsedNode() {
+		return parsedNode;
+	}
+
 	@Override
 	public ClassReader getClassReader() {
 		return classReader;
@@ -376,11 +474,14 @@ public List<JavaField> getDeclaredFields(boolean publicOnly) {
 
 	@Override
 	public ClassFile getRawClassFile() {
-		ClassFile rawClassFile = this.rawClassFile;
-		if (rawClassFile == null) {
+		SoftReference<ClassFile> ref = this.rawClassFile;
+		ClassFile rawClassFile;
+		if (ref == null || (rawClassFile = ref.get()) == null) {
 			try {
 				ClassFileReader classFileReader = ThreadLocalStorage.get().getClassFileReader();
-				return this.rawClassFile = classFileReader.read(classReader.b);
+				rawClassFile = classFileReader.read(readClassFile());
+				this.rawClassFile = new SoftReference<>(rawClassFile);
+				return rawClassFile;
 			} catch (InvalidClassException ex) {
 				// Should not happen.
 				// unless??
@@ -390,6 +491,21 @@ public ClassFile getRawClassFile() {
 		return rawClassFile;
 	}
 
+	private byte[] readClassFile() {
+		ClassReader classReader = this.classReader;
+		if (classReader != null) {
+			return classReader.b;
+		}
+		// Boot classes can be found again
+		if (classLoader.isNull()) {
+			ParsedClassData data = vm.getBootClassFinder().findBootClass(getInternalName());
+			if (data != null) {
+				return data.getClassReader().b;
+			}
+		}
+		throw new IllegalStateException("Class file is not retained: " + getName());
+	}
+
 	@Override
 	public boolean shouldBeInitialized() {
 		InitializationState state = this.state;
@@ -405,8 +521,17 @@ public synchronized void redefine(ClassReader reader, ClassNode node) {
 		verifyMembers(current.methods, node.methods, it -> it.name, it -> it.desc, it -> it.access);
 		verifyMembers(current.fields, node.fields, it -> it.name, it -> it.desc, it -> it.access);
 		classReader = reader;
+		parsedNode = node;
 		this.node = node;
 		rawClassFile = null;
+		ClassArea<JavaMethod> methodArea = this.methodArea;
+		if (methodArea != null) {
+			// Methods keep their slots, which are indices
+			// into the list of methods, see verifyMembers.
+			// This also deoptimizes them, so that nothing runs stale code
+			List<MethodNode> methods = node.methods;
+			methodArea.stream().forEach(method -> method.redefine(methods.get(method.getSlot())));
+		}
 	}
 
 	@Override
@@ -457,11 +582,14 @@ public ClassLinkage linkage() {
 			@Override
 			public void setSuperClass(InstanceClass superClass) {
 				SimpleInstanceClass.this.superClass = superClass;
+				makePrimarySupers();
 			}
 
 			@Override
 			public void setInterfaces(List<InstanceClass> interfaces) {
 				SimpleInstanceClass.this.interfaces = interfaces.isEmpty() ? interfaces : Collections.unmodifiableList(interfaces);
+				makeSecondarySupers();
+				makeInterfaceTable();
 			}
 
 			@Override
@@ -477,6 +605,7 @@ public void setStaticFieldArea(ClassArea<JavaField> fieldArea) {
 			@Override
 			public void setMethodArea(ClassArea<JavaMethod> methodArea) {
 				SimpleInstanceClass.this.methodArea = methodArea;
+				makeVirtualTable();
 			}
 
 			@Override
@@ -504,6 +633,238 @@ private boolean checkAllocationStatus() {
 		return false;
 	}
 
+	private Boolean fastSubtypeCheck(SimpleInstanceClass S) {
+		if (isInterface()) {
+			InstanceClass[] secondarySupers = S.secondarySupers;
+			if (secondarySupers == null) {
+				// Not linked yet
+				return null;
+			}
+			if (S.secondarySuperCache == this) {
+				return true;
+			}
+			for (InstanceClass secondarySuper : secondarySupers) {
+				if (secondarySuper == this) {
+					S.secondarySuperCache = this;
+					return true;
+				}
+			}
+			return false;
+		}
+		InstanceClass[] primarySupers = this.primarySupers;
+		InstanceClass[] candidates = S.primarySupers;
+		if (primarySupers == null || candidates == null) {
+			return null;
+		}
+		int depth = primarySupers.length - 1;
+		return depth < candidates.length && candidates[depth] == this;
+	}
+
+	private void makePrimarySupers() {
+		InstanceClass superClass = this.superClass;
+		InstanceClass[] primarySupers;
+		if (superClass == null) {
+			primarySupers = new InstanceClass[]{this};
+		} else {
+			InstanceClass[] parent = superClass instanceof SimpleInstanceClass ? ((SimpleInstanceClass) superClass).primarySupers : null;
+			if (parent == null) {
+				return;
+			}
+			primarySupers = Arrays.copyOf(parent, parent.length + 1);
+			primarySupers[parent.length] = this;
+		}
+		this.primarySupers = primarySupers;
+	}
+
+	private void makeSecondarySupers() {
+		Set<InstanceClass> secondarySupers = Collections.newSetFromMap(new IdentityHashMap<>());
+		InstanceClass superClass = this.superClass;
+		if (superClass instanceof SimpleInstanceClass) {
+			InstanceClass[] parent = ((SimpleInstanceClass) superClass).secondarySupers;
+			if (parent == null) {
+				return;
+			}
+			Collections.addAll(secondarySupers, parent);
+		}
+		for (InstanceClass itf : interfaces) {
+			if (!(itf instanceof SimpleInstanceClass)) {
+				return;
+			}
+			InstanceClass[] parent = ((SimpleInstanceClass) itf).secondarySupers;
+			if (parent == null) {
+				return;
+			}
+			secondarySupers.add(itf);
+			Collections.addAll(secondarySupers, parent);
+		}
+		this.secondarySupers = secondarySupers.toArray(new InstanceClass[0]);
+	}
+
+	private void makeVirtualTable() {
+		List<JavaMethod> table = new ArrayList<>();
+		InstanceClass superClass = this.superClass;
+		if (superClass != null) {
+			JavaMethod method;
+			for (int i = 0; (method = superClass.getVirtualMethod(i)) != null; i++) {
+				table.add(method);
+			}
+		}
+		if (isInterface()) {
+			// Interfaces only inherit methods of java/lang/Object,
+			// their own methods go to the interface table
+			interfaceMethods = methodArea.stream()
+				.filter(SimpleInstanceClass::isDispatchable)
+				.toArray(JavaMethod[]::new);
+		} else {
+			// Package private methods may occupy several slots with the same identifier
+			Map<MemberIdentifier, List<Integer>> indices = new HashMap<>();
+			for (int i = 0, j = table.size(); i < j; i++) {
+				indices.computeIfAbsent(table.get(i).getIdentifier(), __ -> new ArrayList<>(1)).add(i);
+			}
+			methodArea.stream()
+				.filter(SimpleInstanceClass::isDispatchable)
+				.forEach(method -> {
+					List<Integer> slots = indices.get(method.getIdentifier());
+					boolean overrides = false;
+					if (slots != null) {
+						for (int index : slots) {
+							// JVMS 5.4.5
+							if (canOverride(table.get(index))) {
+								table.set(index, method);
+								overrides = true;
+							}
+						}
+					}
+					if (!overrides) {
+						table.add(method);
+					}
+				});
+		}
+		virtualTable = table.toArray(NO_METHODS);
+	}
+
+	private boolean canOverride(JavaMethod method) {
+		if ((method.getModifiers() & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED)) != 0) {
+			return true;
+		}
+		// Package private method is only accessible from the same runtime package
+		InstanceClass owner = method.getOwner();
+		if (owner.getClassLoader() != classLoader) {
+			return false;
+		}
+		String name = node.name;
+		String otherName = owner.getInternalName();
+		int index = name.lastIndexOf('/');
+		return index == otherName.lastIndexOf('/') && name.regionMatches(0, otherName, 0, index + 1);
+	}
+
+	private void makeInterfaceTable() {
+		if ((node.access & (Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT)) != 0) {
+			// Never a receiver type
+			return;
+		}
+		// Visit interfaces in the same order as the runtime resolver does
+		List<InstanceClass> all = new ArrayList<>();
+		Set<InstanceClass> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<InstanceClass> queue = new ArrayDeque<>();
+		for (InstanceClass jc = this; jc != null; jc = jc.getSuperClass()) {
+			queue.addAll(jc.getInterfaces());
+		}
+		InstanceClass itf;
+		while ((itf = queue.poll()) != null) {
+			if (visited.add(itf)) {
+				all.add(itf);
+				queue.addAll(itf.getInterfaces());
+			}
+		}
+		if (all.isEmpty()) {
+			return;
+		}
+		JavaMethod[] virtualTable = this.virtualTable;
+		Map<MemberIdentifier, JavaMethod> virtualMethods = new HashMap<>(virtualTable.length);
+		for (JavaMethod method : virtualTable) {
+			virtualMethods.put(method.getIdentifier(), method);
+		}
+		int count = all.size();
+		InstanceClass[] owners = new InstanceClass[count];
+		JavaMethod[][] table = new JavaMethod[count][];
+		for (int i = 0; i < count; i++) {
+			itf = all.get(i);
+			owners[i] = itf;
+			// Same order as the interface methods, see makeVirtualTable
+			table[i] = itf.methodArea().stream()
+				.filter(SimpleInstanceClass::isDispatchable)
+				.map(method -> selectInterfaceMethod(method, virtualMethods, all))
+				.toArray(JavaMethod[]::new);
+		}
+		interfaceTableOwners = owners;
+		interfaceTable = table;
+	}
+
+	private static JavaMethod selectInterfaceMethod(JavaMethod method, Map<MemberIdentifier, JavaMethod> virtualMethods, List<InstanceClass> interfaces) {
+		MemberIdentifier identifier = method.getIdentifier();
+		JavaMethod selected = virtualMethods.get(identifier);
+		if (selected != null) {
+			// Declared by a class, abstract one is reported by the caller
+			return selected;
+		}
+		// Maximally-specific superinterface methods, JVMS 5.4.3.3
+		List<JavaMethod> candidates = new ArrayList<>(2);
+		for (int i = 0, j = interfaces.size(); i < j; i++) {
+			JavaMethod candidate = interfaces.get(i).methodArea().get(identifier);
+			if (candidate != null && isDispatchable(candidate)) {
+				candidates.add(candidate);
+			}
+		}
+		candidates.removeIf(candidate -> {
+			InstanceClass owner = candidate.getOwner();
+			for (JavaMethod other : candidates) {
+				InstanceClass otherOwner = other.getOwner();
+				if (owner != otherOwner && owner.isAssignableFrom(otherOwner)) {
+					return true;
+				}
+			}
+			return false;
+		});
+		JavaMethod result = null;
+		for (JavaMethod candidate : candidates) {
+			if (!isAbstract(candidate)) {
+				if (result != null) {
+					// More than one default method, JVMS 5.4.6
+					return null;
+				}
+				result = candidate;
+			}
+		}
+		if (result == null) {
+			// Abstract, the caller will report an error
+			return candidates.get(0);
+		}
+		return result;
+	}
+
+	private void throwConflictingDefaults(InstanceClass itf, int index) {
+		// Same order as the interface methods, see makeVirtualTable
+		JavaMethod method = itf.methodArea().stream()
+			.filter(SimpleInstanceClass::isDispatchable)
+			.skip(index)
+			.findFirst()
+			.orElseThrow(IllegalStateException::new);
+		vm.getOperations().throwException(vm.getSymbols().java_lang_IncompatibleClassChangeError(), "Conflicting default methods: " + getInternalName() + '.' + method.getName() + method.getDesc());
+	}
+
+	private static boolean isDispatchable(JavaMethod method) {
+		if ((method.getModifiers() & (Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) != 0) {
+			return false;
+		}
+		String name = method.getName();
+		return !"<init>".equals(name) && !"<clinit>".equals(name);
+	}
+
+	private static boolean isAbstract(JavaMethod method) {
+		return (method.getModifiers() & Opcodes.ACC_ABSTRACT) != 0;
+	}
+
 	private List<JavaMethod> getDeclaredMethods0(boolean publicOnly, boolean constructors) {
 		return methodArea.stream()
 			.filter(x -> {
@@ -33,35 +33,36 @@ public void init(VirtualMachine vm) {
 				throw new IllegalStateException("Unable to locate NativeConstructorAccessorImpl class");
 			}
 		}
+		ReflectionAccessor.Layout layout = new ReflectionAccessor.Layout();
 		vmi.setInvoker(accessor, "newInstance0", "(Ljava/lang/reflect/Constructor;[Ljava/lang/Object;)Ljava/lang/Object;", ctx -> {
 			Locals locals = ctx.getLocals();
 			InstanceValue c = locals.loadReference(0);
 			VMOperations ops = vm.getOperations();
-			int slot = ops.getInt(c, "slot");
-			JavaClass declaringClass = vm.getClassStorage().lookup(ops.checkNotNull(ops.getReference(c, "clazz", "Ljava/lang/Class;")));
+			JavaClass declaringClass = layout.getDeclaringClass(vm, c);
 			if (!(declaringClass instanceof InstanceClass)) {
 				ops.throwException(vm.getSymbols().java_lang_InstantiationError());
 				return Result.ABORT;
 			}
-			JavaMethod mn = ((InstanceClass) declaringClass).getMethodBySlot(slot);
-			if (mn == null || !"<init>".equals(mn.getName())) {
+			JavaMethod mn = ((InstanceClass) declaringClass).getMethodBySlot(layout.getSlot(c));
+			if (mn == null || !mn.isConstructor()) {
 				ops.throwException(vm.getSymbols().java_lang_IllegalArgumentException());
 				return Result.ABORT;
 			}
+			ReflectionAccessor reflectionAccessor = ReflectionAccessor.of(mn);
 			ObjectValue values = locals.loadReference(1);
-			JavaClass[] types = mn.getArgumentTypes();
+			int argumentCount = reflectionAccessor.getArgumentCount();
 			ArrayValue passedArgs = null;
 			if (!values.isNull()) {
 				passedArgs = (ArrayValue) values;
-				ops.checkEquals(passedArgs.getLength(), types.length);
+				ops.checkEquals(passedArgs.getLength(), argumentCount);
 			} else {
-				ops.checkEquals(types.length, 0);
+				ops.checkEquals(argumentCount, 0);
 			}
 			InstanceValue instance = vm.getMemoryManager().newInstance((InstanceClass) declaringClass);
 			Locals args = vm.getThreadStorage().newLocals(mn);
 			args.setReference(0, instance);
 			if (passedArgs != null) {
-				Util.copyReflectionArguments(vm, types, passedArgs, args, 1);
+				reflectionAccessor.copyArguments(ops, passedArgs, args, 1);
 			}
 			ops.invokeVoid(mn, args);
 			ctx.setResult(instance);
@@ -39,38 +39,40 @@ public void init(VirtualMachine vm) {
 			return Result.ABORT;
 		});
 		vmi.setInvoker(object, "notify", "()V", ctx -> {
-			Mutex mutex = vm.getMemoryManager().getMutex(ctx.getLocals().loadReference(0));
-			if (!mutex.isHeldByCurrentThread()) {
+			MemoryManager memoryManager = vm.getMemoryManager();
+			ObjectValue value = ctx.getLocals().loadReference(0);
+			if (!memoryManager.holdsLock(value)) {
 				vm.getOperations().throwException(symbols.java_lang_IllegalMonitorStateException());
 				return Result.ABORT;
 			}
-			mutex.doNotify();
+			memoryManager.getMutex(value).doNotify();
 			return Result.ABORT;
 		});
 		vmi.setInvoker(object, "notifyAll", "()V", ctx -> {
-			Mutex mutex = vm.getMemoryManager().getMutex(ctx.getLocals().loadReference(0));
-			if (!mutex.isHeldByCurrentThread()) {
+			MemoryManager memoryManager = vm.getMemoryManager();
+			ObjectValue value = ctx.getLocals().loadReference(0);
+			if (!memoryManager.holdsLock(value)) {
 				vm.getOperations().throwException(symbols.java_lang_IllegalMonitorStateException());
 				return Result.ABORT;
 			}
-			mutex.doNotifyAll();
+			memoryManager.getMutex(value).doNotifyAll();
 			return Result.ABORT;
 		});
 		vmi.setInvoker(object, "wait", "(J)V", ctx -> {
 			Locals locals = ctx.getLocals();
-			Mutex mutex = vm.getMemoryManager().getMutex(ctx.getLocals().loadReference(0));
-			if (!mutex.isHeldByCurrentThread()) {
+			MemoryManager memoryManager = vm.getMemoryManager();
+			ObjectValue value = locals.loadReference(0);
+			if (!memoryManager.holdsLock(value)) {
 				vm.getOperations().throwException(symbols.java_lang_IllegalMonitorStateException());
+				return Result.ABORT;
 			}
-			try {
-				long time = locals.loadLong(1);
-				if (time == 0L) {
-					time = Long.MAX_VALUE;
-				}
-				mutex.doWait(time);
-			} catch (InterruptedException ex) {
-				vm.getOperations().throwException(symbols.java_lang_InterruptedException());
+			// Waiting requires a full monitor
+			Mutex mutex = memoryManager.getMutex(value);
+			long time = locals.loadLong(1);
+			if (time == 0L) {
+				time = Long.MAX_VALUE;
 			}
+			vm.getThreadManager().monitorWait(mutex, time);
 			return Result.ABORT;
 		});
 		vmi.setInvoker(object, "hashCode", "()I", ctx -> {
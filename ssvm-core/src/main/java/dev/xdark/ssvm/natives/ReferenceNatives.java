@@ -1,10 +1,10 @@
 package dev.xdark.ssvm.natives;
 
 import dev.xdark.ssvm.VirtualMachine;
-import dev.xdark.ssvm.api.MethodInvoker;
 import dev.xdark.ssvm.api.VMInterface;
 import dev.xdark.ssvm.execution.Locals;
 import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.memory.gc.GarbageCollector;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.value.ObjectValue;
 import lombok.experimental.UtilityClass;
@@ -33,17 +33,18 @@ public void init(VirtualMachine vm) {
 			ctx.setResult(check == locals.loadReference(1) ? 1 : 0);
 			return Result.ABORT;
 		});
+		GarbageCollector gc = vm.getMemoryManager().getGarbageCollector();
 		vmi.setInvoker(jc, "getAndClearReferencePendingList", "()Ljava/lang/ref/Reference;", ctx -> {
-			// There is only one usage of this method I as of JDK 17, and it does a null check.
-			// So we can cut corners and skip actually implementing this.
-			ctx.setResult(ctx.getMemoryManager().nullValue());
+			ctx.setResult(gc.getAndClearReferencePendingList());
 			return Result.ABORT;
 		});
 		vmi.setInvoker(jc, "hasReferencePendingList", "()Z", ctx -> {
-			// See above
-			ctx.setResult(0);
+			ctx.setResult(gc.hasReferencePendingList() ? 1 : 0);
+			return Result.ABORT;
+		});
+		vmi.setInvoker(jc, "waitForReferencePendingList", "()V", ctx -> {
+			gc.waitForReferencePendingList();
 			return Result.ABORT;
 		});
-		vmi.setInvoker(jc, "waitForReferencePendingList", "()V", MethodInvoker.noop());
 	}
 }
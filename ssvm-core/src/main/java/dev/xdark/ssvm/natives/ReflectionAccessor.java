@@ -0,0 +1,247 @@
+package dev.xdark.ssvm.natives;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.asm.InlineCache;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.mirror.member.JavaField;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.mirror.type.JavaClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.util.TypeSafeMap;
+import dev.xdark.ssvm.value.ArrayValue;
+import dev.xdark.ssvm.value.InstanceValue;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.objectweb.asm.Type;
+
+import java.util.Map;
+
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+
+/**
+ * Cached state of reflective calls to the method.
+ * <p>
+ * Created once per method and stored in its metadata.
+ * Sorts of the arguments and of the return value
+ * are computed upfront, and virtual targets are
+ * dispatched through an {@link InlineCache}.
+ *
+ * @author xDark
+ */
+final class ReflectionAccessor {
+	private final JavaMethod method;
+	private final int[] argumentSorts;
+	private final int returnSort;
+	private final boolean isStatic;
+	private final InlineCache cache;
+
+	private ReflectionAccessor(JavaMethod method) {
+		this.method = method;
+		Type type = method.getType();
+		Type[] args = type.getArgumentTypes();
+		int[] argumentSorts = new int[args.length];
+		for (int i = 0; i < args.length; i++) {
+			argumentSorts[i] = args[i].getSort();
+		}
+		this.argumentSorts = argumentSorts;
+		returnSort = type.getReturnType().getSort();
+		int modifiers = method.getModifiers();
+		isStatic = (modifiers & ACC_STATIC) != 0;
+		// Only overridable methods need dispatch
+		boolean exact = isStatic
+			|| (modifiers & (ACC_PRIVATE | ACC_FINAL)) != 0
+			|| (method.getOwner().getModifiers() & ACC_FINAL) != 0
+			|| method.isConstructor();
+		cache = exact ? null : new InlineCache();
+	}
+
+	/**
+	 * @param method Method to get accessor for.
+	 * @return accessor of the method.
+	 */
+	static ReflectionAccessor of(JavaMethod method) {
+		TypeSafeMap metadata = method.getMetadata();
+		// Metadata is not thread-safe
+		synchronized (metadata) {
+			Map<Class<?>, ReflectionAccessor> map = metadata.subMap(ReflectionAccessor.class);
+			ReflectionAccessor accessor = map.get(ReflectionAccessor.class);
+			if (accessor == null) {
+				accessor = new ReflectionAccessor(method);
+				map.put(ReflectionAccessor.class, accessor);
+			}
+			return accessor;
+		}
+	}
+
+	/**
+	 * @return reflected method.
+	 */
+	JavaMethod getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return {@code true} if the method is static.
+	 */
+	boolean isStatic() {
+		return isStatic;
+	}
+
+	/**
+	 * @return amount of the arguments of the method.
+	 */
+	int getArgumentCount() {
+		return argumentSorts.length;
+	}
+
+	/**
+	 * Checks the receiver and selects the method to invoke.
+	 *
+	 * @param vm       VM instance.
+	 * @param instance Non-null receiver.
+	 * @return method to invoke for the receiver.
+	 * @throws dev.xdark.ssvm.execution.VMException If the receiver
+	 *                                              is not an instance of the declaring class.
+	 */
+	JavaMethod resolve(VirtualMachine vm, ObjectValue instance) {
+		JavaClass type = instance.getJavaClass();
+		InlineCache cache = this.cache;
+		if (cache == null) {
+			checkReceiver(vm, type);
+			return method;
+		}
+		// Cached types were checked already
+		JavaMethod target = cache.lookup(type);
+		if (target == null) {
+			checkReceiver(vm, type);
+			JavaMethod method = this.method;
+			target = vm.getRuntimeResolver().resolveVirtualMethod(type, method.getName(), method.getDesc());
+			cache.update(type, target);
+		}
+		return target;
+	}
+
+	private void checkReceiver(VirtualMachine vm, JavaClass type) {
+		if (!method.getOwner().isAssignableFrom(type)) {
+			vm.getOperations().throwException(vm.getSymbols().java_lang_IllegalArgumentException(), "object is not an instance of declaring class");
+		}
+	}
+
+	/**
+	 * Unboxes arguments into locals.
+	 *
+	 * @param ops    VM operations.
+	 * @param array  Array of the arguments.
+	 * @param locals Locals to copy arguments to.
+	 * @param offset Index of the first argument in locals.
+	 */
+	void copyArguments(VMOperations ops, ArrayValue array, Locals locals, int offset) {
+		int[] argumentSorts = this.argumentSorts;
+		for (int i = 0; i < argumentSorts.length; i++) {
+			ObjectValue value = array.getReference(i);
+			switch (argumentSorts[i]) {
+				case Type.BOOLEAN:
+					locals.setInt(offset++, ops.unboxBoolean(value) ? 1 : 0);
+					break;
+				case Type.CHAR:
+					locals.setInt(offset++, ops.unboxChar(value));
+					break;
+				case Type.BYTE:
+				case Type.SHORT:
+				case Type.INT:
+					locals.setInt(offset++, ops.unboxInt(value));
+					break;
+				case Type.FLOAT:
+					locals.setFloat(offset++, ops.unboxFloat(value));
+					break;
+				case Type.LONG:
+					locals.setLong(offset, ops.unboxLong(value));
+					offset += 2;
+					break;
+				case Type.DOUBLE:
+					locals.setDouble(offset, ops.unboxDouble(value));
+					offset += 2;
+					break;
+				default:
+					locals.setReference(offset++, value);
+			}
+		}
+	}
+
+	/**
+	 * Invokes the method and boxes its result.
+	 *
+	 * @param vm     VM instance.
+	 * @param target Method to invoke.
+	 * @param locals Method locals.
+	 * @return boxed result or {@code null} value,
+	 * if the method is void.
+	 */
+	ObjectValue invoke(VirtualMachine vm, JavaMethod target, Locals locals) {
+		VMOperations ops = vm.getOperations();
+		switch (returnSort) {
+			case Type.VOID:
+				ops.invokeVoid(target, locals);
+				return vm.getMemoryManager().nullValue();
+			case Type.LONG:
+				return ops.boxLong(ops.invokeLong(target, locals));
+			case Type.DOUBLE:
+				return ops.boxDouble(ops.invokeDouble(target, locals));
+			case Type.INT:
+				return ops.boxInt(ops.invokeInt(target, locals));
+			case Type.FLOAT:
+				return ops.boxFloat(ops.invokeFloat(target, locals));
+			case Type.CHAR:
+				return ops.boxChar(ops.invokeChar(target, locals));
+			case Type.SHORT:
+				return ops.boxShort(ops.invokeShort(target, locals));
+			case Type.BYTE:
+				return ops.boxByte(ops.invokeByte(target, locals));
+			case Type.BOOLEAN:
+				return ops.boxBoolean(ops.invokeBoolean(target, locals));
+			default:
+				return ops.invokeReference(target, locals);
+		}
+	}
+
+	/**
+	 * Reads {@code slot} and {@code clazz} of
+	 * {@code Method} or {@code Constructor} by offset.
+	 * Fields are resolved on first use.
+	 */
+	static final class Layout {
+		private JavaField clazz;
+		private volatile JavaField slot;
+
+		/**
+		 * @param vm    VM instance.
+		 * @param value Reflected method or constructor.
+		 * @return declaring class of the member.
+		 */
+		JavaClass getDeclaringClass(VirtualMachine vm, InstanceValue value) {
+			resolve(value);
+			ObjectValue oop = vm.getMemoryManager().readReference(value, clazz.getOffset());
+			return vm.getClassStorage().lookup(vm.getOperations().checkNotNull(oop));
+		}
+
+		/**
+		 * @param value Reflected method or constructor.
+		 * @return slot of the member.
+		 */
+		int getSlot(InstanceValue value) {
+			resolve(value);
+			return value.getData().readInt(slot.getOffset());
+		}
+
+		private void resolve(InstanceValue value) {
+			if (slot == null) {
+				InstanceClass type = value.getJavaClass();
+				clazz = type.getField("clazz", "Ljava/lang/Class;");
+				// Publishes both fields
+				slot = type.getField("slot", "I");
+			}
+		}
+	}
+}
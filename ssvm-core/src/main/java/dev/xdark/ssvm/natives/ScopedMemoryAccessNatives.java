@@ -8,6 +8,10 @@
 
 /**
  * Initializes jdk/internal/misc/ScopedMemoryAccess.
+ * <p>
+ * Memory accessors are not intrinsified here: they check
+ * the scope and then delegate to the atomic Unsafe intrinsics
+ * set up by {@link UnsafeNatives}.
  *
  * @author xDark
  */
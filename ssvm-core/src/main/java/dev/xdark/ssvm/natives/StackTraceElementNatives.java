@@ -2,10 +2,13 @@
 
 import dev.xdark.ssvm.VirtualMachine;
 import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.classloading.ClassStorage;
 import dev.xdark.ssvm.execution.Locals;
 import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.thread.backtrace.StackTraceRecord;
 import dev.xdark.ssvm.value.ArrayValue;
 import dev.xdark.ssvm.value.InstanceValue;
 import lombok.experimental.UtilityClass;
@@ -29,11 +32,12 @@ public void init(VirtualMachine vm) {
 			Locals locals = ctx.getLocals();
 			ArrayValue arr = ops.checkNotNull(locals.loadReference(0));
 			InstanceValue ex = ops.checkNotNull(locals.loadReference(1));
-			ArrayValue initialized = ops.checkNotNull(ops.getReference(ex, "backtrace", "Ljava/lang/Object;"));
-
+			ArrayValue backtrace = ops.checkNotNull(ops.getReference(ex, "backtrace", "Ljava/lang/Object;"));
+			ClassStorage classStorage = vm.getClassStorage();
 			int x = 0;
-			for (int i = initialized.getLength(); i != 0; ) {
-				arr.setReference(x++, initialized.getReference(--i));
+			for (int i = StackTraceRecord.depth(backtrace); i != 0; ) {
+				JavaMethod method = StackTraceRecord.getMethod(classStorage, backtrace, --i);
+				arr.setReference(x++, ops.newStackTraceElement(method, StackTraceRecord.getLineNumber(backtrace, i)));
 			}
 			return Result.ABORT;
 		});
@@ -8,9 +8,9 @@
 import dev.xdark.ssvm.jvmti.ThreadState;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.symbol.Symbols;
-import dev.xdark.ssvm.synchronizer.Mutex;
 import dev.xdark.ssvm.thread.JavaThread;
 import dev.xdark.ssvm.value.ArrayValue;
+import dev.xdark.ssvm.value.ObjectValue;
 import lombok.experimental.UtilityClass;
 
 import java.util.List;
@@ -60,8 +60,8 @@ public void init(VirtualMachine vm) {
 			return Result.ABORT;
 		});
 		vmi.setInvoker(thread, "holdsLock", "(Ljava/lang/Object;)Z", ctx -> {
-			Mutex mutex = vm.getMemoryManager().getMutex(vm.getOperations().checkNotNull(ctx.getLocals().loadReference(0)));
-			ctx.setResult(mutex.isHeldByCurrentThread() ? 1 : 0);
+			ObjectValue value = vm.getOperations().checkNotNull(ctx.getLocals().loadReference(0));
+			ctx.setResult(vm.getMemoryManager().holdsLock(value) ? 1 : 0);
 			return Result.ABORT;
 		});
 		vmi.setInvoker(thread, "getThreads", "()[Ljava/lang/Thread;", ctx -> {
@@ -74,6 +74,16 @@ public void init(VirtualMachine vm) {
 			ctx.setResult(array);
 			return Result.ABORT;
 		});
+		vmi.setInvoker(thread, "yield", "()V", ctx -> {
+			vm.getThreadManager().yield();
+			return Result.ABORT;
+		});
+		vmi.setInvoker(thread, "clearInterruptEvent", "()V", ctx -> {
+			// Interrupt status was cleared in Thread object,
+			// clear it for the thread manager too
+			vm.getThreadManager().isInterrupted(vm.currentJavaThread().getOop(), true);
+			return Result.ABORT;
+		});
 		vmi.setInvoker(thread, "sleep", "(J)V", ctx -> {
 			long time = ctx.getLocals().loadLong(0);
 			if (time < 0L) {
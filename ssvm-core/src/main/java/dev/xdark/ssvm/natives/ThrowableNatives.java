@@ -2,23 +2,20 @@
 
 import dev.xdark.ssvm.VirtualMachine;
 import dev.xdark.ssvm.api.VMInterface;
-import dev.xdark.ssvm.asm.Modifier;
-import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.Locals;
 import dev.xdark.ssvm.execution.Result;
 import dev.xdark.ssvm.mirror.member.JavaField;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.operation.VMOperations;
 import dev.xdark.ssvm.symbol.Symbols;
 import dev.xdark.ssvm.thread.backtrace.Backtrace;
+import dev.xdark.ssvm.thread.backtrace.StackTraceRecord;
 import dev.xdark.ssvm.value.ArrayValue;
 import dev.xdark.ssvm.value.InstanceValue;
 import dev.xdark.ssvm.value.ObjectValue;
 import lombok.experimental.UtilityClass;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Initializes java/lang/Throwable.
  *
@@ -38,21 +35,14 @@ public void init(VirtualMachine vm) {
 			InstanceValue exception = ctx.getLocals().loadReference(0);
 			VMOperations ops = vm.getOperations();
 			Backtrace vmBacktrace = vm.currentOSThread().getBacktrace();
-			// HotSpot allocates internal oop containing all the data,
-			// see BacktraceBuilder. We don't need that, allocate StackTraceElement[]
-			// immediately.
-			List<InstanceValue> bt = new ArrayList<>(vmBacktrace.depth());
-			for (ExecutionContext<?> frame : vmBacktrace) {
-				if (Modifier.isHiddenFrame(frame.getMethod().getModifiers())) {
-					continue;
-				}
-				bt.add(ops.newStackTraceElement(frame));
-			}
-			ArrayValue stacktrace = ops.toVMReferences(bt.toArray(new ObjectValue[0]));
-			vm.getOperations().putReference(exception, "backtrace", "Ljava/lang/Object;", stacktrace);
+			// Like BacktraceBuilder in HotSpot, only record the frames,
+			// StackTraceElement[] is created once requested
+			int[] record = StackTraceRecord.capture(vmBacktrace);
+			ArrayValue backtrace = ops.toVMInts(record);
+			ops.putReference(exception, "backtrace", "Ljava/lang/Object;", backtrace);
 			JavaField depth = symbols.java_lang_Throwable().getField("depth", "I");
 			if (depth != null) {
-				exception.getData().writeInt(depth.getOffset(), bt.size());
+				exception.getData().writeInt(depth.getOffset(), StackTraceRecord.depth(backtrace));
 			}
 			ctx.setResult(exception);
 			return Result.ABORT;
@@ -60,7 +50,7 @@ public void init(VirtualMachine vm) {
 		vmi.setInvoker(throwable, "getStackTraceDepth", "()I", ctx -> {
 			VMOperations ops = vm.getOperations();
 			ArrayValue bt = ops.checkNotNull(ops.getReference((ObjectValue) ctx.getLocals().loadReference(0), "backtrace", "Ljava/lang/Object;"));
-			ctx.setResult(bt.getLength());
+			ctx.setResult(StackTraceRecord.depth(bt));
 			return Result.ABORT;
 		});
 		vmi.setInvoker(throwable, "getStackTraceElement", "(I)Ljava/lang/StackTraceElement;", ctx -> {
@@ -69,10 +59,11 @@ public void init(VirtualMachine vm) {
 			VMOperations ops = vm.getOperations();
 			ArrayValue bt = ops.checkNotNull(ops.getReference(_this, "backtrace", "Ljava/lang/Object;"));
 			int idx = locals.loadInt(1);
-			int len = bt.getLength();
+			int len = StackTraceRecord.depth(bt);
 			ops.arrayRangeCheck(idx, len);
-			ObjectValue element = bt.getReference(len - idx - 1);
-			ctx.setResult(element);
+			int frame = len - idx - 1;
+			JavaMethod method = StackTraceRecord.getMethod(vm.getClassStorage(), bt, frame);
+			ctx.setResult(ops.newStackTraceElement(method, StackTraceRecord.getLineNumber(bt, frame)));
 			return Result.ABORT;
 		});
 	}
@@ -71,6 +71,9 @@ public void init(VirtualMachine vm) {
 	 */
 	private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper uhelper) {
 		VMInterface vmi = vm.getInterface();
+		// References are either 64-bit addresses or 32-bit handles,
+		// see MemoryManager#referenceOf
+		boolean narrow = vm.getMemoryManager().objectSize() == 4;
 		vmi.setInvoker(unsafe, uhelper.allocateMemory(), "(J)J", ctx -> {
 			MemoryBlock block = vm.getMemoryAllocator().allocateDirect(ctx.getLocals().loadLong(1));
 			if (block == null) {
@@ -165,21 +168,23 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 		vmi.setInvoker(unsafe, "loadFence", "()V", MethodInvoker.noop());
 		vmi.setInvoker(unsafe, "storeFence", "()V", MethodInvoker.noop());
 		vmi.setInvoker(unsafe, "fullFence", "()V", MethodInvoker.noop());
-		vmi.setInvoker(unsafe, uhelper.compareAndSetInt(), "(Ljava/lang/Object;JII)Z", ctx -> {
+		vmi.setInvoker(unsafe, "park", "(ZJ)V", ctx -> {
 			Locals locals = ctx.getLocals();
-			ObjectValue obj = locals.loadReference(1);
-			if (obj.isNull()) {
-				throw new PanicException("Segfault");
+			vm.getThreadManager().park(locals.loadInt(1) != 0, locals.loadLong(2));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "unpark", "(Ljava/lang/Object;)V", ctx -> {
+			ObjectValue thread = ctx.getLocals().loadReference(1);
+			if (!thread.isNull()) {
+				vm.getThreadManager().unpark((InstanceValue) thread);
 			}
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, uhelper.compareAndSetInt(), "(Ljava/lang/Object;JII)Z", ctx -> {
+			Locals locals = ctx.getLocals();
 			long offset = locals.loadLong(2);
-			int expected = locals.loadInt(4);
-			int x = locals.loadInt(5);
-			MemoryData data = obj.getData();
-			boolean result = data.readInt(offset) == expected;
-			if (result) {
-				data.writeInt(offset, x);
-			}
-			ctx.setResult(result ? 1 : 0);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.compareAndSetInt(0L, locals.loadInt(4), locals.loadInt(5)) ? 1 : 0);
 			return Result.ABORT;
 		});
 		MethodInvoker getObjectVolatile = ctx -> {
@@ -187,7 +192,7 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 			long offset = locals.loadLong(2);
 			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
 			MemoryManager memoryManager = vm.getMemoryManager();
-			ctx.setResult(nonNull(memoryManager.getReference(data.readLongVolatile(0L))));
+			ctx.setResult(nonNull(memoryManager.getReference(narrow ? data.readIntVolatile(0L) : data.readLongVolatile(0L))));
 			return Result.ABORT;
 		};
 		for (String str : new String[]{"getReferenceVolatile", "getObjectVolatile"}) {
@@ -197,19 +202,12 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 		}
 		MethodInvoker compareAndSetReference = ctx -> {
 			Locals locals = ctx.getLocals();
-			ObjectValue obj = locals.loadReference(1);
-			if (obj.isNull()) {
-				throw new PanicException("Segfault");
-			}
 			long offset = locals.loadLong(2);
-			ObjectValue expected = locals.loadReference(4);
-			ObjectValue x = locals.loadReference(5);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
 			MemoryManager memoryManager = vm.getMemoryManager();
-			ObjectValue oldValue = memoryManager.readReference(obj, offset);
-			boolean result = oldValue == expected;
-			if (result) {
-				memoryManager.writeValue(obj, offset, x);
-			}
+			long expected = memoryManager.referenceOf(locals.loadReference(4));
+			long x = memoryManager.referenceOf(locals.loadReference(5));
+			boolean result = narrow ? data.compareAndSetInt(0L, (int) expected, (int) x) : data.compareAndSetLong(0L, expected, x);
 			ctx.setResult(result ? 1 : 0);
 			return Result.ABORT;
 		};
@@ -220,26 +218,187 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 		}
 		vmi.setInvoker(unsafe, uhelper.compareAndSetLong(), "(Ljava/lang/Object;JJJ)Z", ctx -> {
 			Locals locals = ctx.getLocals();
-			ObjectValue value = locals.loadReference(1);
-			if (value.isNull()) {
-				throw new PanicException("Segfault");
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.compareAndSetLong(0L, locals.loadLong(4), locals.loadLong(6)) ? 1 : 0);
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "compareAndExchangeInt", "(Ljava/lang/Object;JII)I", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.compareAndExchangeInt(0L, locals.loadInt(4), locals.loadInt(5)));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "compareAndExchangeLong", "(Ljava/lang/Object;JJJ)J", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.compareAndExchangeLong(0L, locals.loadLong(4), locals.loadLong(6)));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "compareAndExchangeReference", "(Ljava/lang/Object;JLjava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			MemoryManager memoryManager = vm.getMemoryManager();
+			long expected = memoryManager.referenceOf(locals.loadReference(4));
+			long x = memoryManager.referenceOf(locals.loadReference(5));
+			long witness = narrow ? data.compareAndExchangeInt(0L, (int) expected, (int) x) : data.compareAndExchangeLong(0L, expected, x);
+			ctx.setResult(nonNull(memoryManager.getReference(witness)));
+			return Result.ABORT;
+		});
+		// Java wrappers over CAS loops in Unsafe, intrinsified
+		vmi.setInvoker(unsafe, "getAndAddInt", "(Ljava/lang/Object;JI)I", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.getAndAddInt(0L, locals.loadInt(4)));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "getAndAddLong", "(Ljava/lang/Object;JJ)J", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.getAndAddLong(0L, locals.loadLong(4)));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "getAndSetInt", "(Ljava/lang/Object;JI)I", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.getAndSetInt(0L, locals.loadInt(4)));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "getAndSetLong", "(Ljava/lang/Object;JJ)J", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.getAndSetLong(0L, locals.loadLong(4)));
+			return Result.ABORT;
+		});
+		MethodInvoker getAndSetReference = ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			MemoryManager memoryManager = vm.getMemoryManager();
+			long x = memoryManager.referenceOf(locals.loadReference(4));
+			long address = narrow ? data.getAndSetInt(0L, (int) x) : data.getAndSetLong(0L, x);
+			ctx.setResult(nonNull(memoryManager.getReference(address)));
+			return Result.ABORT;
+		};
+		for (String str : new String[]{"getAndSetReference", "getAndSetObject"}) {
+			if (vmi.setInvoker(unsafe, str, "(Ljava/lang/Object;JLjava/lang/Object;)Ljava/lang/Object;", getAndSetReference)) {
+				break;
 			}
+		}
+		vmi.setInvoker(unsafe, "getIntAcquire", "(Ljava/lang/Object;J)I", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.readIntAcquire(0L));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "getIntOpaque", "(Ljava/lang/Object;J)I", ctx -> {
+			Locals locals = ctx.getLocals();
 			long offset = locals.loadLong(2);
-			long expected = locals.loadLong(4);
-			long x = locals.loadLong(6);
-			MemoryData data = value.getData();
-			boolean result = data.readLong(offset) == expected;
-			if (result) {
-				data.writeLong(offset, x);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.readIntOpaque(0L));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "getLongAcquire", "(Ljava/lang/Object;J)J", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.readLongAcquire(0L));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "getLongOpaque", "(Ljava/lang/Object;J)J", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(data.readLongOpaque(0L));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "getReferenceAcquire", "(Ljava/lang/Object;J)Ljava/lang/Object;", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(nonNull(vm.getMemoryManager().getReference(narrow ? data.readIntAcquire(0L) : data.readLongAcquire(0L))));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "getReferenceOpaque", "(Ljava/lang/Object;J)Ljava/lang/Object;", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			ctx.setResult(nonNull(vm.getMemoryManager().getReference(narrow ? data.readIntOpaque(0L) : data.readLongOpaque(0L))));
+			return Result.ABORT;
+		});
+		MethodInvoker putIntRelease = ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			data.writeIntRelease(0L, locals.loadInt(4));
+			return Result.ABORT;
+		};
+		for (String str : new String[]{"putIntRelease", "putOrderedInt"}) {
+			if (vmi.setInvoker(unsafe, str, "(Ljava/lang/Object;JI)V", putIntRelease)) {
+				break;
 			}
-			ctx.setResult(result ? 1 : 0);
+		}
+		MethodInvoker putLongRelease = ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			data.writeLongRelease(0L, locals.loadLong(4));
+			return Result.ABORT;
+		};
+		for (String str : new String[]{"putLongRelease", "putOrderedLong"}) {
+			if (vmi.setInvoker(unsafe, str, "(Ljava/lang/Object;JJ)V", putLongRelease)) {
+				break;
+			}
+		}
+		MethodInvoker putReferenceRelease = ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			long x = vm.getMemoryManager().referenceOf(locals.loadReference(4));
+			if (narrow) {
+				data.writeIntRelease(0L, (int) x);
+			} else {
+				data.writeLongRelease(0L, x);
+			}
+			return Result.ABORT;
+		};
+		for (String str : new String[]{"putReferenceRelease", "putOrderedObject"}) {
+			if (vmi.setInvoker(unsafe, str, "(Ljava/lang/Object;JLjava/lang/Object;)V", putReferenceRelease)) {
+				break;
+			}
+		}
+		vmi.setInvoker(unsafe, "putIntOpaque", "(Ljava/lang/Object;JI)V", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			data.writeIntOpaque(0L, locals.loadInt(4));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "putLongOpaque", "(Ljava/lang/Object;JJ)V", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			data.writeLongOpaque(0L, locals.loadLong(4));
 			return Result.ABORT;
 		});
 		MethodInvoker putObjectVolatile = ctx -> {
 			Locals locals = ctx.getLocals();
 			long offset = locals.loadLong(2);
 			MemoryData buffer = getDataNonNull(locals.loadReference(1), offset);
-			buffer.writeLongVolatile(0L, locals.loadReference(4).getMemory().getAddress());
+			long x = vm.getMemoryManager().referenceOf(locals.loadReference(4));
+			if (narrow) {
+				buffer.writeIntVolatile(0L, (int) x);
+			} else {
+				buffer.writeLongVolatile(0L, x);
+			}
 			return Result.ABORT;
 		};
 		for (String str : new String[]{"putReferenceVolatile", "putObjectVolatile"}) {
@@ -261,7 +420,7 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 			MemoryManager memoryManager = vm.getMemoryManager();
 			long offset = locals.loadLong(2);
 			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
-			ctx.setResult(nonNull(memoryManager.getReference(data.readLong(0L))));
+			ctx.setResult(nonNull(memoryManager.getReference(narrow ? data.readInt(0L) : data.readLong(0L))));
 			return Result.ABORT;
 		};
 		for (String str : new String[]{"getReference", "getObject"}) {
@@ -365,9 +524,9 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 						tmp.add(null);
 					}
 				}
-				Map<String, List<LdcInsnNode>> strings = ((Stream<LdcInsnNode>) (Stream) generated.getNode().methods
+				Map<String, List<LdcInsnNode>> strings = ((Stream<LdcInsnNode>) (Stream) generated.methodArea()
 					.stream()
-					.map(x -> x.instructions)
+					.map(x -> x.getNode().instructions)
 					.flatMap(x -> StreamSupport.stream(x.spliterator(), false))
 					.filter(x -> x instanceof LdcInsnNode))
 					.filter(x -> x.cst instanceof String)
@@ -378,6 +537,7 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 						String utf = ((CpUtf8) cp.get(((CpString) tmp.get(i)).getIndex())).getText();
 						List<LdcInsnNode> ldcs = strings.get(utf);
 						if (ldcs != null) {
+							vm.getMemoryManager().getGarbageCollector().makeHandle(v);
 							for (LdcInsnNode ldc : ldcs) {
 								ldc.cst = v;
 							}
@@ -400,7 +560,12 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 			Locals locals = ctx.getLocals();
 			long offset = locals.loadLong(2);
 			MemoryData data = getDataNonNull(locals.loadReference(1), offset);
-			data.writeLong(0L, locals.loadReference(4).getMemory().getAddress());
+			long x = vm.getMemoryManager().referenceOf(locals.loadReference(4));
+			if (narrow) {
+				data.writeInt(0L, (int) x);
+			} else {
+				data.writeLong(0L, x);
+			}
 			return Result.ABORT;
 		};
 		for (String str : new String[]{"putReference", "putObject"}) {
@@ -549,6 +714,13 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 			buffer.writeInt(0L, locals.loadInt(4));
 			return Result.ABORT;
 		});
+		vmi.setInvoker(unsafe, "putIntVolatile", "(Ljava/lang/Object;JI)V", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			data.writeIntVolatile(0L, locals.loadInt(4));
+			return Result.ABORT;
+		});
 		vmi.setInvoker(unsafe, "getFloat", "(J)F", ctx -> {
 			Locals locals = ctx.getLocals();
 			long address = locals.loadLong(1);
@@ -653,6 +825,13 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 			data.writeLong(0L, locals.loadLong(4));
 			return Result.ABORT;
 		});
+		vmi.setInvoker(unsafe, "putLongVolatile", "(Ljava/lang/Object;JJ)V", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData data = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			data.writeLongVolatile(0L, locals.loadLong(4));
+			return Result.ABORT;
+		});
 		vmi.setInvoker(unsafe, uhelper.copyMemory(), "(Ljava/lang/Object;JLjava/lang/Object;JJ)V", ctx -> {
 			Locals locals = ctx.getLocals();
 			MemoryAllocator memoryAllocator = vm.getMemoryAllocator();
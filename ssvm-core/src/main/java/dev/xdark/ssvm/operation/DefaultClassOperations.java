@@ -259,7 +259,7 @@ public JavaClass findBootstrapClassOrNull(String internalName, boolean initializ
 	@Override
 	public @NotNull InstanceClass defineClass(ObjectValue classLoader, ParsedClassData data, ObjectValue protectionDomain, String source, int options) {
 		ClassReader reader = data.getClassReader();
-		InstanceClass jc = mirrorFactory.newInstanceClass(classLoader, reader, data.getNode());
+		InstanceClass jc = mirrorFactory.newInstanceClass(classLoader, data.shouldRetainReader() ? reader : null, data.getNode());
 		InitializationState state = jc.state();
 		state.lock();
 		try {
@@ -1,5 +1,6 @@
 package dev.xdark.ssvm.operation;
 
+import dev.xdark.ssvm.classloading.ClassStorage;
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.Locals;
 import dev.xdark.ssvm.execution.VMException;
@@ -9,6 +10,7 @@
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.symbol.Symbols;
 import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.thread.backtrace.StackTraceRecord;
 import dev.xdark.ssvm.value.ArrayValue;
 import dev.xdark.ssvm.value.InstanceValue;
 import dev.xdark.ssvm.value.ObjectValue;
@@ -27,16 +29,21 @@
 public final class DefaultExceptionOperations implements ExceptionOperations {
 	private final MemoryManager memoryManager;
 	private final ThreadManager threadManager;
+	private final ClassStorage classStorage;
 	private final Symbols symbols;
 	private final VMOperations ops;
 
 	@Override
 	public InstanceValue newStackTraceElement(ExecutionContext<?> frame) {
+		return newStackTraceElement(frame.getMethod(), frame.getLineNumber());
+	}
+
+	@Override
+	public InstanceValue newStackTraceElement(JavaMethod method, int lineNumber) {
 		VMOperations ops = this.ops;
 		InstanceClass jc = symbols.java_lang_StackTraceElement();
 		ops.initialize(jc);
 		InstanceValue value = memoryManager.newInstance(jc);
-		JavaMethod method = frame.getMethod();
 		InstanceClass owner = method.getOwner();
 		ops.putReference(value, "declaringClass", "Ljava/lang/String;", ops.newUtf8(owner.getName()));
 		ops.putReference(value, "methodName", "Ljava/lang/String;", ops.newUtf8(method.getName()));
@@ -44,7 +51,7 @@ public InstanceValue newStackTraceElement(ExecutionContext<?> frame) {
 		if (sourceFile != null) {
 			ops.putReference(value, "fileName", "Ljava/lang/String;", ops.newUtf8(sourceFile));
 		}
-		ops.putInt(value, "lineNumber", frame.getLineNumber());
+		ops.putInt(value, "lineNumber", lineNumber);
 		// TODO FieldOperations must also accept JavaField directly
 		JavaField field = jc.getField("declaringClassObject", "Ljava/lang/Class;");
 		if (field != null) {
@@ -86,15 +93,12 @@ public Exception toJavaException(InstanceValue oop) {
 		Exception exception = new Exception(msg);
 		ObjectValue backtrace = ops.getReference(oop, "backtrace", "Ljava/lang/Object;");
 		if (!backtrace.isNull()) {
-			ArrayValue arrayValue = (ArrayValue) backtrace;
-			StackTraceElement[] stackTrace = IntStream.range(0, arrayValue.getLength())
+			ArrayValue record = (ArrayValue) backtrace;
+			StackTraceElement[] stackTrace = IntStream.range(0, StackTraceRecord.depth(record))
 				.mapToObj(i -> {
-					InstanceValue value = (InstanceValue) arrayValue.getReference(i);
-					String declaringClass = ops.readUtf8(ops.getReference(value, "declaringClass", "Ljava/lang/String;"));
-					String methodName = ops.readUtf8(ops.getReference(value, "methodName", "Ljava/lang/String;"));
-					String fileName = ops.readUtf8(ops.getReference(value, "fileName", "Ljava/lang/String;"));
-					int line = ops.getInt(value, "lineNumber");
-					return new StackTraceElement(declaringClass, methodName, fileName, line);
+					JavaMethod method = StackTraceRecord.getMethod(classStorage, record, i);
+					InstanceClass owner = method.getOwner();
+					return new StackTraceElement(owner.getName(), method.getName(), owner.getNode().sourceFile, StackTraceRecord.getLineNumber(record, i));
 				})
 				.toArray(StackTraceElement[]::new);
 			Collections.reverse(Arrays.asList(stackTrace));
@@ -15,8 +15,6 @@
 import dev.xdark.ssvm.value.ObjectValue;
 import lombok.RequiredArgsConstructor;
 
-import java.nio.charset.StandardCharsets;
-
 /**
  * Default implementation.
  *
@@ -26,6 +24,7 @@
 public final class DefaultStringOperations implements StringOperations {
 
 	private static final int STRING_COPY_THRESHOLD = 256;
+	private final HostStringCache cache = new HostStringCache();
 	private final MemoryManager memoryManager;
 	private final ThreadManager threadManager;
 	private final Symbols symbols;
@@ -36,16 +35,28 @@ public final class DefaultStringOperations implements StringOperations {
 	@Override
 	public InstanceValue newUtf8(String value) {
 		InstanceValue strInstance;
+		ArrayValue array;
+		boolean latin1;
 		if (jvmVersion >= 9) {
-			// Need to also assign the 'coder' value to strings that are not LATIN1
-			ArrayValue array = toBytes(value);
+			byte[] bytes = UnsafeUtil.getLatin1Bytes(value);
+			latin1 = bytes != null;
+			if (latin1) {
+				array = ops.toVMBytes(bytes);
+			} else {
+				array = toUtf16Bytes(value);
+			}
 			strInstance = newUtf8FromBytes(array);
-			if (array.getLength() > value.length()) {
+			if (!latin1) {
+				// Need to also assign the 'coder' value to strings that are not LATIN1
 				ops.putByte(strInstance, "coder", (byte) 1);
 			}
 		} else {
-			strInstance = newUtf8FromChars(toChars(value));
+			latin1 = false;
+			array = toChars(value);
+			strInstance = newUtf8FromChars(array);
 		}
+		// Natives often read back strings they have just created
+		cache.put(strInstance, array, latin1, array.getMemory().getData().writeVersion(), value);
 		return strInstance;
 	}
 
@@ -100,14 +111,36 @@ public String readUtf8(ObjectValue value) {
 		}
 		JavaField charValue = jc.getField("value", "[C");
 		ArrayValue array;
+		int length;
+		boolean latin1;
 		if (charValue != null) {
 			array = (ArrayValue) memoryManager.readReference(value, charValue.getOffset());
+			length = array.getLength();
+			latin1 = false;
 		} else {
 			JavaField byteValue = jc.getField("value", "[B");
-			ArrayValue arrayRef = (ArrayValue) memoryManager.readReference(value, byteValue.getOffset());
-			return new String(ops.toJavaBytes(arrayRef), StandardCharsets.UTF_8);
+			array = (ArrayValue) memoryManager.readReference(value, byteValue.getOffset());
+			latin1 = ops.getByte(value, "coder") == 0;
+			length = latin1 ? array.getLength() : array.getLength() >> 1;
+		}
+		MemoryData data = array.getMemory().getData();
+		int version = data.writeVersion();
+		HostStringCache cache = this.cache;
+		String str = cache.get(value, array, latin1, version);
+		if (str == null) {
+			long baseOffset = memoryManager.arrayBaseOffset(array);
+			if (latin1) {
+				byte[] bytes = new byte[length];
+				data.read(baseOffset, bytes, 0, length);
+				str = UnsafeUtil.newLatin1String(bytes);
+			} else {
+				char[] chars = new char[length];
+				data.read(baseOffset, chars, 0, length);
+				str = UnsafeUtil.newString(chars);
+			}
+			cache.put(value, array, latin1, version, str);
 		}
-		return UnsafeUtil.newString(ops.toJavaChars(array));
+		return str;
 	}
 
 	@Override
@@ -126,6 +159,17 @@ public ArrayValue toChars(String value) {
 		return wrapper;
 	}
 
+	private ArrayValue toUtf16Bytes(String value) {
+		// UTF-16 strings are stored in the byte order of the VM,
+		// which is the order of the memory
+		int length = value.length();
+		ArrayValue wrapper = ops.allocateByteArray(length * 2);
+		MemoryData memory = wrapper.getMemory().getData();
+		char[] chars = UnsafeUtil.getChars(value);
+		memory.write(memoryManager.arrayBaseOffset(wrapper), chars, 0, length);
+		return wrapper;
+	}
+
 	@Override
 	public ArrayValue toBytes(String value) {
 		byte[] bytes = UnsafeUtil.getBytes(value);
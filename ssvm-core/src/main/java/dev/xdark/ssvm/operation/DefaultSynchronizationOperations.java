@@ -2,7 +2,6 @@
 
 import dev.xdark.ssvm.memory.management.MemoryManager;
 import dev.xdark.ssvm.symbol.Symbols;
-import dev.xdark.ssvm.synchronizer.Mutex;
 import dev.xdark.ssvm.value.ObjectValue;
 import lombok.RequiredArgsConstructor;
 
@@ -20,16 +19,12 @@ public final class DefaultSynchronizationOperations implements SynchronizationOp
 
 	@Override
 	public void monitorEnter(ObjectValue value) {
-		ops.checkNotNull(value);
-		Mutex mutex = memoryManager.getMutex(value);
-		mutex.lock();
+		memoryManager.monitorEnter(ops.checkNotNull(value));
 	}
 
 	@Override
 	public void monitorExit(ObjectValue value) {
-		ops.checkNotNull(value);
-		Mutex mutex = memoryManager.getMutex(value);
-		if (!mutex.tryUnlock()) {
+		if (!memoryManager.monitorExit(ops.checkNotNull(value))) {
 			ops.throwException(symbols.java_lang_IllegalMonitorStateException());
 		}
 	}
@@ -1,6 +1,7 @@
 package dev.xdark.ssvm.operation;
 
 import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.value.InstanceValue;
 import dev.xdark.ssvm.value.ObjectValue;
@@ -18,6 +19,13 @@ public interface ExceptionOperations {
 	 */
 	InstanceValue newStackTraceElement(ExecutionContext<?> frame);
 
+	/**
+	 * @param method     Frame method.
+	 * @param lineNumber Frame line number.
+	 * @return VM oop of {@link StackTraceElement}.
+	 */
+	InstanceValue newStackTraceElement(JavaMethod method, int lineNumber);
+
 	/**
 	 * Throws exception.
 	 *
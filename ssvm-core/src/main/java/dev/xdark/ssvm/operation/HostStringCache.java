@@ -0,0 +1,74 @@
+package dev.xdark.ssvm.operation;
+
+import dev.xdark.ssvm.value.ArrayValue;
+import dev.xdark.ssvm.value.ObjectValue;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Direct-mapped cache of host strings,
+ * keyed by identity of guest strings.
+ * <p>
+ * Guest strings are referenced weakly.
+ * Each entry remembers the backing array it was created for
+ * and the write version of the array memory, if the string is pointed
+ * to another array, or the array was written to, the entry is stale.
+ * Contents of the array are never compared.
+ *
+ * @author xDark
+ */
+final class HostStringCache {
+	private static final int SIZE = 4096;
+	private final Entry[] entries = new Entry[SIZE];
+
+	/**
+	 * @param string  Guest string.
+	 * @param array   Backing array of the string.
+	 * @param latin1  Whether the array contains Latin-1 bytes,
+	 *                or UTF-16 characters otherwise.
+	 * @param version Current write version of the array memory.
+	 * @return cached host string or {@code null},
+	 * if there is no valid entry.
+	 * @see dev.xdark.ssvm.memory.allocation.MemoryData#writeVersion()
+	 */
+	String get(ObjectValue string, ArrayValue array, boolean latin1, int version) {
+		Entry entry = entries[index(string)];
+		if (entry == null || entry.get() != string || entry.array != array || entry.version != version || entry.latin1 != latin1) {
+			return null;
+		}
+		return entry.value;
+	}
+
+	/**
+	 * @param string  Guest string.
+	 * @param array   Backing array of the string.
+	 * @param latin1  Whether the array contains Latin-1 bytes.
+	 * @param version Write version of the array memory,
+	 *                taken before the contents were read.
+	 * @param value   Host string.
+	 */
+	void put(ObjectValue string, ArrayValue array, boolean latin1, int version, String value) {
+		// Entries are immutable, racy publication is fine
+		entries[index(string)] = new Entry(string, array, latin1, version, value);
+	}
+
+	private static int index(ObjectValue string) {
+		int h = System.identityHashCode(string);
+		return (h ^ (h >>> 16)) & (SIZE - 1);
+	}
+
+	private static final class Entry extends WeakReference<ObjectValue> {
+		final ArrayValue array;
+		final boolean latin1;
+		final int version;
+		final String value;
+
+		Entry(ObjectValue string, ArrayValue array, boolean latin1, int version, String value) {
+			super(string);
+			this.array = array;
+			this.latin1 = latin1;
+			this.version = version;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package dev.xdark.ssvm.profiler;
+
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Call tree aggregated from sampled backtraces.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author xDark
+ */
+public final class CallTree {
+	// Same as in the jfr tool
+	private static final String HOT_METHODS_TITLE = "Java Methods that Executes the Most";
+	private final Node root = new Node(null, -1);
+	private long samples;
+
+	/**
+	 * Adds one sample to the tree.
+	 *
+	 * @param methods Frame methods, top frame first.
+	 * @param lines   Frame line numbers, top frame first.
+	 * @param count   Amount of frames in the sample.
+	 */
+	public void add(JavaMethod[] methods, int[] lines, int count) {
+		if (count == 0) {
+			return;
+		}
+		samples++;
+		Node node = root;
+		node.total++;
+		for (int i = count - 1; i >= 0; i--) {
+			node = node.child(methods[i], lines[i]);
+			node.total++;
+		}
+		node.self++;
+	}
+
+	/**
+	 * @return Amount of samples in the tree.
+	 */
+	public long getSamples() {
+		return samples;
+	}
+
+	/**
+	 * @return Root node of the tree.
+	 * Root node has no method.
+	 */
+	public Node getRoot() {
+		return root;
+	}
+
+	/**
+	 * Removes all samples.
+	 */
+	public void clear() {
+		root.children.clear();
+		root.total = 0L;
+		root.self = 0L;
+		samples = 0L;
+	}
+
+	/**
+	 * Writes the tree in collapsed stack format,
+	 * one line per unique stack, root frame first,
+	 * which can be fed to flame graph tools.
+	 *
+	 * @param out Output to write to.
+	 * @throws IOException If any I/O error occurs.
+	 */
+	public void writeCollapsed(Appendable out) throws IOException {
+		StringBuilder prefix = new StringBuilder();
+		for (Node child : root.children.values()) {
+			writeCollapsed(out, child, prefix);
+		}
+	}
+
+	/**
+	 * Writes methods with most samples on top of the stack,
+	 * laid out as the {@code hot-methods} view of the {@code jfr} tool:
+	 * method with its parameter types, sample count and share of all samples.
+	 *
+	 * @param out   Output to write to.
+	 * @param limit Max amount of methods to write.
+	 * @throws IOException If any I/O error occurs.
+	 */
+	public void writeHotMethods(Appendable out, int limit) throws IOException {
+		Map<JavaMethod, long[]> methods = new IdentityHashMap<>();
+		collectMethods(root, methods);
+		List<Map.Entry<JavaMethod, long[]>> entries = new ArrayList<>(methods.entrySet());
+		entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+		int count = Math.min(limit, entries.size());
+		String[] names = new String[count];
+		int width = "Method".length();
+		for (int i = 0; i < count; i++) {
+			String name = jfrMethodName(entries.get(i).getKey());
+			names[i] = name;
+			width = Math.max(width, name.length());
+		}
+		long samples = Math.max(this.samples, 1L);
+		// Title is centered over the table
+		out.append(repeat(' ', Math.max(0, (width + 16 - HOT_METHODS_TITLE.length()) / 2))).append(HOT_METHODS_TITLE).append("\n\n");
+		String row = "%-" + width + "s %7s %7s\n";
+		out.append(String.format(Locale.ROOT, row, "Method", "Samples", "Percent"));
+		out.append(repeat('-', width)).append(' ').append(repeat('-', 7)).append(' ').append(repeat('-', 7)).append('\n');
+		for (int i = 0; i < count; i++) {
+			long self = entries.get(i).getValue()[0];
+			out.append(String.format(Locale.ROOT, row, names[i], Long.toString(self), String.format(Locale.ROOT, "%.2f%%", self * 100.0D / samples)));
+		}
+	}
+
+	private static void writeCollapsed(Appendable out, Node node, StringBuilder prefix) throws IOException {
+		int length = prefix.length();
+		if (length != 0) {
+			prefix.append(';');
+		}
+		prefix.append(node.frameName());
+		if (node.self != 0L) {
+			out.append(prefix).append(' ').append(Long.toString(node.self)).append('\n');
+		}
+		for (Node child : node.children.values()) {
+			writeCollapsed(out, child, prefix);
+		}
+		prefix.setLength(length);
+	}
+
+	private static void collectMethods(Node node, Map<JavaMethod, long[]> methods) {
+		for (Node child : node.children.values()) {
+			if (child.self != 0L) {
+				methods.computeIfAbsent(child.method, __ -> new long[1])[0] += child.self;
+			}
+			collectMethods(child, methods);
+		}
+	}
+
+	private static String jfrMethodName(JavaMethod method) {
+		StringBuilder builder = new StringBuilder(method.getOwner().getName())
+			.append('.')
+			.append(method.getName())
+			.append('(');
+		Type[] args = method.getType().getArgumentTypes();
+		for (int i = 0; i < args.length; i++) {
+			if (i != 0) {
+				builder.append(", ");
+			}
+			// Parameters are written without the package
+			String name = args[i].getClassName();
+			builder.append(name, name.lastIndexOf('.') + 1, name.length());
+		}
+		return builder.append(')').toString();
+	}
+
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+
+	static String methodName(JavaMethod method) {
+		return method.getOwner().getInternalName() + '.' + method.getName();
+	}
+
+	/**
+	 * Call tree node.
+	 */
+	public static final class Node {
+		private final Map<FrameKey, Node> children = new HashMap<>();
+		private final JavaMethod method;
+		private final int line;
+		private long self;
+		private long total;
+
+		Node(JavaMethod method, int line) {
+			this.method = method;
+			this.line = line;
+		}
+
+		/**
+		 * @return Method of the frame.
+		 */
+		public JavaMethod getMethod() {
+			return method;
+		}
+
+		/**
+		 * @return Line number of the frame, or negative value,
+		 * if unknown.
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * @return Amount of samples in which this frame
+		 * was on top of the stack.
+		 */
+		public long getSelf() {
+			return self;
+		}
+
+		/**
+		 * @return Amount of samples in which this frame
+		 * was on the stack.
+		 */
+		public long getTotal() {
+			return total;
+		}
+
+		/**
+		 * @return Callees of this frame.
+		 */
+		public Collection<Node> getChildren() {
+			return Collections.unmodifiableCollection(children.values());
+		}
+
+		Node child(JavaMethod method, int line) {
+			FrameKey key = new FrameKey(method, line);
+			Node node = children.get(key);
+			if (node == null) {
+				node = new Node(method, line);
+				children.put(key, node);
+			}
+			return node;
+		}
+
+		String frameName() {
+			String name = methodName(method);
+			return line < 0 ? name : name + ':' + line;
+		}
+	}
+
+	private static final class FrameKey {
+		private final JavaMethod method;
+		private final int line;
+
+		FrameKey(JavaMethod method, int line) {
+			this.method = method;
+			this.line = line;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof FrameKey)) {
+				return false;
+			}
+			FrameKey that = (FrameKey) o;
+			return line == that.line && method == that.method;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(method), line);
+		}
+	}
+}
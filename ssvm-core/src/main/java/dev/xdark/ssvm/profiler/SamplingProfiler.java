@@ -0,0 +1,204 @@
+package dev.xdark.ssvm.profiler;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.jvmti.ThreadState;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.thread.JavaThread;
+import dev.xdark.ssvm.thread.OSThread;
+import dev.xdark.ssvm.thread.backtrace.Backtrace;
+import dev.xdark.ssvm.util.SafeCloseable;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sampling profiler for guest code.
+ * <p>
+ * Profiler thread periodically copies backtraces
+ * of all guest threads, without stopping them,
+ * and aggregates the samples into a {@link CallTree}.
+ * Threads that wait or are blocked on a monitor are skipped.
+ * Since backtraces are read racily, a sample may be slightly off
+ * if the thread pushes or pops frames at the same time.
+ *
+ * @author xDark
+ */
+public final class SamplingProfiler implements SafeCloseable {
+	private static final int BLOCKED = ThreadState.JVMTI_THREAD_STATE_WAITING.mask() | ThreadState.JVMTI_THREAD_STATE_BLOCKED_ON_MONITOR_ENTER.mask();
+	private final VirtualMachine vm;
+	private final long intervalNanos;
+	private final CallTree tree = new CallTree();
+	private final JavaMethod[] methods;
+	private final int[] lines;
+	private volatile Thread thread;
+
+	/**
+	 * @param vm       VM instance.
+	 * @param interval Interval between samples.
+	 * @param unit     Interval unit.
+	 * @param maxDepth Max amount of frames to record per sample,
+	 *                 deeper stacks are truncated from the bottom.
+	 */
+	public SamplingProfiler(VirtualMachine vm, long interval, TimeUnit unit, int maxDepth) {
+		if (interval <= 0L) {
+			throw new IllegalArgumentException("Interval must be positive");
+		}
+		this.vm = vm;
+		intervalNanos = unit.toNanos(interval);
+		methods = new JavaMethod[maxDepth];
+		lines = new int[maxDepth];
+	}
+
+	/**
+	 * @param vm       VM instance.
+	 * @param interval Interval between samples.
+	 * @param unit     Interval unit.
+	 */
+	public SamplingProfiler(VirtualMachine vm, long interval, TimeUnit unit) {
+		this(vm, interval, unit, 256);
+	}
+
+	/**
+	 * Starts profiler thread.
+	 *
+	 * @throws IllegalStateException If profiler is already running.
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			throw new IllegalStateException("Profiler is already running");
+		}
+		Thread thread = new Thread(this::run, "SSVM Sampling Profiler");
+		thread.setDaemon(true);
+		this.thread = thread;
+		thread.start();
+	}
+
+	/**
+	 * Stops profiler thread and waits for it to finish.
+	 * Collected samples are kept.
+	 */
+	public void stop() {
+		Thread thread;
+		synchronized (this) {
+			thread = this.thread;
+			if (thread == null) {
+				return;
+			}
+			this.thread = null;
+		}
+		LockSupport.unpark(thread);
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return {@code true} if profiler thread is running.
+	 */
+	public boolean isRunning() {
+		return thread != null;
+	}
+
+	/**
+	 * Samples all guest threads once.
+	 * May be called from any thread, including guest ones.
+	 */
+	public void sample() {
+		JavaMethod[] methods = this.methods;
+		int[] lines = this.lines;
+		CallTree tree = this.tree;
+		for (JavaThread th : vm.getThreadManager().snapshot()) {
+			OSThread osThread = th.getOsThread();
+			if (osThread == null) {
+				continue;
+			}
+			ThreadState state = osThread.getThreadState();
+			if (state != null && (state.mask() & BLOCKED) != 0) {
+				continue;
+			}
+			Backtrace backtrace = osThread.getBacktrace();
+			if (backtrace == null) {
+				continue;
+			}
+			synchronized (tree) {
+				int count = backtrace.sample(methods, lines);
+				tree.add(methods, lines, count);
+			}
+		}
+	}
+
+	/**
+	 * @return Amount of collected samples.
+	 */
+	public long getSamples() {
+		synchronized (tree) {
+			return tree.getSamples();
+		}
+	}
+
+	/**
+	 * Removes all collected samples.
+	 */
+	public void reset() {
+		synchronized (tree) {
+			tree.clear();
+		}
+	}
+
+	/**
+	 * @param out Output to write to.
+	 * @throws IOException If any I/O error occurs.
+	 * @see CallTree#writeCollapsed(Appendable)
+	 */
+	public void writeCollapsed(Appendable out) throws IOException {
+		synchronized (tree) {
+			tree.writeCollapsed(out);
+		}
+	}
+
+	/**
+	 * @param out   Output to write to.
+	 * @param limit Max amount of methods to write.
+	 * @throws IOException If any I/O error occurs.
+	 * @see CallTree#writeHotMethods(Appendable, int)
+	 */
+	public void writeHotMethods(Appendable out, int limit) throws IOException {
+		synchronized (tree) {
+			tree.writeHotMethods(out, limit);
+		}
+	}
+
+	@Override
+	public void close() {
+		stop();
+	}
+
+	private void run() {
+		Thread current = Thread.currentThread();
+		long intervalNanos = this.intervalNanos;
+		long deadline = System.nanoTime() + intervalNanos;
+		while (thread == current) {
+			long delay = deadline - System.nanoTime();
+			if (delay > 0L) {
+				LockSupport.parkNanos(this, delay);
+				continue;
+			}
+			sample();
+			deadline += intervalNanos;
+			long now = System.nanoTime();
+			if (deadline < now) {
+				// Sampling fell behind, don't try to catch up
+				deadline = now + intervalNanos;
+			}
+		}
+	}
+}
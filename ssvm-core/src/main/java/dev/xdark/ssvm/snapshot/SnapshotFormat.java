@@ -0,0 +1,29 @@
+package dev.xdark.ssvm.snapshot;
+
+/**
+ * Constants of the VM image format.
+ * <p>
+ * Image layout:
+ * <ul>
+ *     <li>header: magic, version, JVM version, address size, null address;</li>
+ *     <li>classes, ordered by their id;</li>
+ *     <li>class loaders;</li>
+ *     <li>heap objects, excluding class mirrors;</li>
+ *     <li>pooled strings;</li>
+ *     <li>system and main thread groups, the thread that wrote the image, other live threads.</li>
+ * </ul>
+ *
+ * @author xDark
+ */
+final class SnapshotFormat {
+	static final int MAGIC = 0x5353564D; // SSVM
+	static final int VERSION = 1;
+	static final byte PRIMITIVE_CLASS = 0;
+	static final byte INSTANCE_CLASS = 1;
+	static final byte ARRAY_CLASS = 2;
+	static final byte INSTANCE = 0;
+	static final byte ARRAY = 1;
+
+	private SnapshotFormat() {
+	}
+}
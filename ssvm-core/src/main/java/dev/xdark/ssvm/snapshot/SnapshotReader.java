@@ -0,0 +1,574 @@
+package dev.xdark.ssvm.snapshot;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.classloading.ClassLoaderData;
+import dev.xdark.ssvm.classloading.ParsedClassData;
+import dev.xdark.ssvm.inject.InjectedClassLayout;
+import dev.xdark.ssvm.memory.allocation.MemoryData;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaField;
+import dev.xdark.ssvm.mirror.member.area.ClassArea;
+import dev.xdark.ssvm.mirror.type.ArrayClass;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.mirror.type.JavaClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.symbol.Symbols;
+import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.thread.backtrace.StackTraceRecord;
+import dev.xdark.ssvm.util.CloseableLock;
+import dev.xdark.ssvm.value.ArrayValue;
+import dev.xdark.ssvm.value.InstanceValue;
+import dev.xdark.ssvm.value.ObjectValue;
+import dev.xdark.ssvm.value.SimpleObjectValue;
+import org.objectweb.asm.Type;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static dev.xdark.ssvm.snapshot.SnapshotFormat.*;
+
+/**
+ * Restores VM image written by {@link SnapshotWriter}.
+ * <p>
+ * Classes are re-defined in the order they were defined originally,
+ * heap objects are re-allocated and their references are relocated.
+ * Restored classes keep their initialization state,
+ * so static initializers are not executed again.
+ * Pooled strings are mapped onto the string pool of the VM.
+ * The thread that restores the image takes place of the thread
+ * that wrote it, other threads that were alive are started again.
+ *
+ * @author xDark
+ */
+public final class SnapshotReader {
+	private final Map<Long, ObjectValue> objects = new HashMap<>();
+	private final Map<InstanceClass, long[]> referenceOffsets = new IdentityHashMap<>();
+	private final List<Fixup> fixups = new ArrayList<>();
+	private final VirtualMachine vm;
+	private final MemoryManager memoryManager;
+	private final ClassSource classSource;
+	private InstanceValue systemThreadGroup;
+	private InstanceValue mainThreadGroup;
+
+	/**
+	 * @param vm          VM instance.
+	 * @param classSource Source to take already parsed classes from,
+	 *                    before parsing them from the image.
+	 *                    May be {@code null}.
+	 */
+	public SnapshotReader(VirtualMachine vm, ClassSource classSource) {
+		this.vm = vm;
+		this.classSource = classSource;
+		memoryManager = vm.getMemoryManager();
+	}
+
+	/**
+	 * @param vm VM instance.
+	 */
+	public SnapshotReader(VirtualMachine vm) {
+		this(vm, null);
+	}
+
+	/**
+	 * Restores VM image.
+	 * VM must be initialized and caller thread must be attached to it.
+	 *
+	 * @param in Stream to read image from.
+	 * @throws IOException           If any I/O error occurs.
+	 * @throws IllegalStateException If the image is not compatible with the VM.
+	 */
+	public void read(InputStream in) throws IOException {
+		VirtualMachine vm = this.vm;
+		vm.assertInitialized();
+		DataInputStream din = new DataInputStream(new BufferedInputStream(in));
+		if (din.readInt() != MAGIC) {
+			throw new IllegalStateException("Not a VM image");
+		}
+		int version = din.readInt();
+		if (version != VERSION) {
+			throw new IllegalStateException("Unsupported image version: " + version);
+		}
+		int jvmVersion = din.readInt();
+		if (jvmVersion != vm.getJvmVersion()) {
+			throw new IllegalStateException("Image was written by VM running Java " + jvmVersion);
+		}
+		MemoryManager memoryManager = this.memoryManager;
+		if (din.readInt() != memoryManager.objectSize()) {
+			throw new IllegalStateException("Reference size mismatch");
+		}
+		objects.put(din.readLong(), memoryManager.nullValue());
+
+		int classCount = din.readInt();
+		List<ClassRecord> classes = new ArrayList<>(classCount);
+		Map<Integer, ClassRecord> classesById = new HashMap<>(classCount);
+		for (int i = 0; i < classCount; i++) {
+			ClassRecord record = readClass(din);
+			classes.add(record);
+			classesById.put(record.id, record);
+		}
+		long[] classLoaders = new long[din.readInt()];
+		for (int i = 0; i < classLoaders.length; i++) {
+			classLoaders[i] = din.readLong();
+		}
+		int objectCount = din.readInt();
+		List<ObjectRecord> heap = new ArrayList<>(objectCount);
+		Map<Long, ObjectRecord> heapByAddress = new HashMap<>(objectCount);
+		for (int i = 0; i < objectCount; i++) {
+			ObjectRecord record = new ObjectRecord();
+			record.address = din.readLong();
+			record.classId = din.readInt();
+			if (din.readByte() == ARRAY) {
+				record.length = din.readInt();
+			} else {
+				record.length = -1;
+			}
+			record.hashCode = din.readInt();
+			record.data = readData(din);
+			heap.add(record);
+			heapByAddress.put(record.address, record);
+		}
+		int stringCount = din.readInt();
+		for (int i = 0; i < stringCount; i++) {
+			ObjectRecord record = heapByAddress.get(din.readLong());
+			char[] chars = new char[din.readInt()];
+			for (int j = 0; j < chars.length; j++) {
+				chars[j] = din.readChar();
+			}
+			if (record != null) {
+				record.pooled = new String(chars);
+			}
+		}
+		long systemThreadGroup = din.readLong();
+		long mainThreadGroup = din.readLong();
+		long currentThread = din.readLong();
+		long[] threads = new long[din.readInt()];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = din.readLong();
+		}
+
+		ThreadManager threadManager = vm.getThreadManager();
+		Symbols symbols = vm.getSymbols();
+		JavaField eetop = symbols.java_lang_Thread().getField("eetop", "J");
+		InstanceValue currentThreadOop = threadManager.currentJavaThread().getOop();
+		List<ObjectRecord> restoredLoaders = new ArrayList<>(classLoaders.length);
+		for (long address : classLoaders) {
+			ObjectRecord record = heapByAddress.get(address);
+			if (record != null) {
+				restoredLoaders.add(record);
+			}
+		}
+		// Classes defined by other loaders may only be restored
+		// once their loaders are, hence multiple rounds
+		List<ClassRecord> pendingClasses = classes;
+		List<ObjectRecord> pendingObjects = heap;
+		List<ObjectValue> throwables = new ArrayList<>();
+		InstanceClass throwable = symbols.java_lang_Throwable();
+		while (!pendingClasses.isEmpty()) {
+			List<ClassRecord> definedClasses = new ArrayList<>();
+			for (Iterator<ClassRecord> iterator = pendingClasses.iterator(); iterator.hasNext(); ) {
+				ClassRecord record = iterator.next();
+				if (defineClass(record, classesById, heapByAddress)) {
+					iterator.remove();
+					definedClasses.add(record);
+				}
+			}
+			if (definedClasses.isEmpty()) {
+				throw new IllegalStateException("Unable to restore class " + pendingClasses.get(0).name);
+			}
+			List<ObjectRecord> allocated = new ArrayList<>();
+			for (Iterator<ObjectRecord> iterator = pendingObjects.iterator(); iterator.hasNext(); ) {
+				ObjectRecord record = iterator.next();
+				ClassRecord type = classesById.get(record.classId);
+				if (type == null) {
+					throw new IllegalStateException("Unknown class id " + record.classId);
+				}
+				if (type.klass == null) {
+					continue;
+				}
+				iterator.remove();
+				ObjectValue value;
+				if (record.pooled != null) {
+					value = vm.getStringPool().intern(record.pooled);
+					record.restored = true;
+				} else if (record.address == currentThread) {
+					value = currentThreadOop;
+				} else if (record.length >= 0) {
+					value = memoryManager.newArray((ArrayClass) type.klass, record.length);
+				} else {
+					value = memoryManager.newInstance((InstanceClass) type.klass);
+				}
+				if (value == null) {
+					throw new IllegalStateException("Out of memory");
+				}
+				record.value = value;
+				if (throwable.isAssignableFrom(type.klass)) {
+					throwables.add(value);
+				}
+				setHashCode(value, record.hashCode);
+				objects.put(record.address, value);
+				allocated.add(record);
+			}
+			for (ClassRecord record : definedClasses) {
+				restoreMirror(record);
+			}
+			for (ObjectRecord record : allocated) {
+				if (record.restored) {
+					continue;
+				}
+				ObjectValue value = record.value;
+				long threadId = eetop != null && value == currentThreadOop ? value.getData().readLong(eetop.getOffset()) : 0L;
+				restoreObject(record);
+				if (eetop != null && symbols.java_lang_Thread().isAssignableFrom(value.getJavaClass())) {
+					// Only the current thread is backed by the thread manager
+					value.getData().writeLong(eetop.getOffset(), threadId);
+				}
+			}
+			for (Iterator<Fixup> iterator = fixups.iterator(); iterator.hasNext(); ) {
+				Fixup fixup = iterator.next();
+				ObjectValue target = objects.get(fixup.address);
+				if (target != null) {
+					memoryManager.writeValue(fixup.value, fixup.offset, target);
+					iterator.remove();
+				}
+			}
+			for (Iterator<ObjectRecord> iterator = restoredLoaders.iterator(); iterator.hasNext(); ) {
+				ObjectRecord record = iterator.next();
+				if (record.restored) {
+					vm.getClassLoaders().createClassLoaderData(record.value);
+					iterator.remove();
+				}
+			}
+		}
+		if (!pendingObjects.isEmpty()) {
+			throw new IllegalStateException("Unable to restore " + pendingObjects.size() + " objects");
+		}
+		// References that were left are dangling ones, they stay null
+		fixups.clear();
+		remapStackTraces(throwables, classesById);
+
+		VMOperations ops = vm.getOperations();
+		InstanceClass fd = symbols.java_io_FileDescriptor();
+		String[] streams = {"in", "out", "err"};
+		for (int i = 0; i < streams.length; i++) {
+			ObjectValue stream = ops.getReference(fd, streams[i], "Ljava/io/FileDescriptor;");
+			if (!stream.isNull()) {
+				ops.putLong(stream, fd, "handle", vm.getFileManager().newFD(i));
+			}
+		}
+		this.systemThreadGroup = (InstanceValue) objects.get(systemThreadGroup);
+		this.mainThreadGroup = (InstanceValue) objects.get(mainThreadGroup);
+		for (long address : threads) {
+			ObjectValue thread = objects.get(address);
+			if (thread != null && !thread.isNull()) {
+				threadManager.startThread((InstanceValue) thread);
+			}
+		}
+	}
+
+	/**
+	 * @return restored system thread group.
+	 */
+	public InstanceValue getSystemThreadGroup() {
+		return systemThreadGroup;
+	}
+
+	/**
+	 * @return restored main thread group.
+	 */
+	public InstanceValue getMainThreadGroup() {
+		return mainThreadGroup;
+	}
+
+	private boolean defineClass(ClassRecord record, Map<Integer, ClassRecord> classesById, Map<Long, ObjectRecord> heap) {
+		VirtualMachine vm = this.vm;
+		VMOperations ops = vm.getOperations();
+		JavaClass klass;
+		switch (record.kind) {
+			case PRIMITIVE_CLASS:
+				klass = ops.findClass(memoryManager.nullValue(), Type.getType(record.name), false);
+				break;
+			case ARRAY_CLASS: {
+				JavaClass component = classesById.get(record.component).klass;
+				if (component == null) {
+					return false;
+				}
+				klass = component.newArrayClass();
+				break;
+			}
+			default: {
+				ObjectValue classLoader = objects.get(record.classLoader);
+				ClassSource classSource = this.classSource;
+				ParsedClassData parsed = classSource == null ? null : classSource.findClass(record.id, record.name);
+				if (record.bytes == null) {
+					klass = findBootClass(record.name, parsed);
+				} else {
+					ObjectRecord loader = heap.get(record.classLoader);
+					if (loader == null || !loader.restored) {
+						return false;
+					}
+					ClassLoaderData data = vm.getClassLoaders().getClassLoaderData(classLoader);
+					try (CloseableLock lock = data.lock()) {
+						klass = data.getClass(record.name);
+					}
+					if (klass == null) {
+						if (parsed != null) {
+							klass = ops.defineClass(classLoader, parsed, memoryManager.nullValue(), "JVM_DefineClass");
+						} else {
+							byte[] b = record.bytes;
+							klass = ops.defineClass(classLoader, record.name, b, 0, b.length, memoryManager.nullValue(), "JVM_DefineClass");
+						}
+					}
+				}
+			}
+		}
+		if (klass.getOop().getData().length() != record.data.length) {
+			throw new IllegalStateException("Class layout mismatch: " + klass.getName());
+		}
+		record.klass = klass;
+		objects.put(record.address, klass.getOop());
+		return true;
+	}
+
+	private void remapStackTraces(List<ObjectValue> throwables, Map<Integer, ClassRecord> classesById) {
+		// Stack traces refer to classes by id,
+		// ids of this VM may be different
+		long offset = vm.getSymbols().java_lang_Throwable().getField("backtrace", "Ljava/lang/Object;").getOffset();
+		JavaClass intType = vm.getPrimitives().intPrimitive();
+		MemoryManager memoryManager = this.memoryManager;
+		for (ObjectValue value : throwables) {
+			ObjectValue backtrace = memoryManager.readReference(value, offset);
+			if (!(backtrace instanceof ArrayValue) || backtrace.getJavaClass().getComponentType() != intType) {
+				continue;
+			}
+			StackTraceRecord.remapClasses((ArrayValue) backtrace, id -> {
+				ClassRecord record = classesById.get(id);
+				if (record == null || record.klass == null) {
+					throw new IllegalStateException("Unknown class id " + id);
+				}
+				return record.klass.getId();
+			});
+		}
+	}
+
+	private JavaClass findBootClass(String name, ParsedClassData parsed) {
+		VirtualMachine vm = this.vm;
+		if (parsed != null) {
+			ObjectValue nullValue = memoryManager.nullValue();
+			ClassLoaderData data = vm.getClassLoaders().getClassLoaderData(nullValue);
+			try (CloseableLock lock = data.lock()) {
+				JavaClass klass = data.getClass(name);
+				if (klass != null) {
+					return klass;
+				}
+			}
+			return vm.getOperations().defineClass(nullValue, parsed, nullValue, "JVM_DefineClass");
+		}
+		JavaClass klass = vm.findBootstrapClass(name);
+		if (klass == null) {
+			throw new IllegalStateException("Bootstrap class not found: " + name);
+		}
+		return klass;
+	}
+
+	private void restoreMirror(ClassRecord record) {
+		JavaClass klass = record.klass;
+		InstanceValue oop = klass.getOop();
+		copyData(oop, record.data);
+		InstanceClass jlc = vm.getSymbols().java_lang_Class();
+		patchReferences(oop, referenceOffsets(jlc));
+		MemoryData data = oop.getData();
+		if (klass instanceof InstanceClass) {
+			InstanceClass instanceClass = (InstanceClass) klass;
+			patchReferences(oop, staticReferenceOffsets(instanceClass));
+			instanceClass.state().set(InstanceClass.State.values()[record.state]);
+		}
+		data.writeInt(jlc.getField(InjectedClassLayout.java_lang_Class_id.name(), "I").getOffset(), klass.getId());
+		data.writeInt(jlc.getField(InjectedClassLayout.java_lang_Class_anonymousClassLoader.name(), "I").getOffset(), 0);
+		setHashCode(oop, record.hashCode);
+	}
+
+	private void restoreObject(ObjectRecord record) {
+		ObjectValue value = record.value;
+		copyData(value, record.data);
+		record.restored = true;
+		JavaClass type = value.getJavaClass();
+		if (value instanceof ArrayValue) {
+			if (type.getComponentType().isPrimitive()) {
+				return;
+			}
+			MemoryManager memoryManager = this.memoryManager;
+			long offset = memoryManager.arrayBaseOffset((ArrayValue) value);
+			long scale = memoryManager.objectSize();
+			for (int i = 0; i < record.length; i++) {
+				patchReference(value, offset + i * scale);
+			}
+		} else {
+			patchReferences(value, referenceOffsets((InstanceClass) type));
+		}
+	}
+
+	private void copyData(ObjectValue value, byte[] bytes) {
+		// Header is kept, the class id and the lock
+		// slot belong to this VM
+		int base = memoryManager.valueBaseOffset(value);
+		value.getData().write(base, bytes, base, bytes.length - base);
+	}
+
+	private void patchReferences(ObjectValue value, long[] offsets) {
+		for (long offset : offsets) {
+			patchReference(value, offset);
+		}
+	}
+
+	private void patchReference(ObjectValue value, long offset) {
+		MemoryManager memoryManager = this.memoryManager;
+		long address = memoryManager.readRawReference(value, offset);
+		ObjectValue target = objects.get(address);
+		if (target == null) {
+			target = memoryManager.nullValue();
+			fixups.add(new Fixup(value, offset, address));
+		}
+		memoryManager.writeValue(value, offset, target);
+	}
+
+	private long[] referenceOffsets(InstanceClass jc) {
+		long[] offsets = referenceOffsets.get(jc);
+		if (offsets == null) {
+			List<JavaField> fields = new ArrayList<>();
+			for (InstanceClass klass = jc; klass != null; klass = klass.getSuperClass()) {
+				collectReferenceFields(klass.virtualFieldArea(), fields);
+			}
+			offsets = toOffsets(fields);
+			referenceOffsets.put(jc, offsets);
+		}
+		return offsets;
+	}
+
+	private static long[] staticReferenceOffsets(InstanceClass jc) {
+		List<JavaField> fields = new ArrayList<>();
+		collectReferenceFields(jc.staticFieldArea(), fields);
+		return toOffsets(fields);
+	}
+
+	private static void collectReferenceFields(ClassArea<JavaField> area, List<JavaField> fields) {
+		if (area == null) {
+			return;
+		}
+		for (JavaField field : area.list()) {
+			char c = field.getDesc().charAt(0);
+			if (c == 'L' || c == '[') {
+				fields.add(field);
+			}
+		}
+	}
+
+	private static long[] toOffsets(List<JavaField> fields) {
+		long[] offsets = new long[fields.size()];
+		for (int i = 0; i < offsets.length; i++) {
+			offsets[i] = fields.get(i).getOffset();
+		}
+		return offsets;
+	}
+
+	private static void setHashCode(ObjectValue value, int hashCode) {
+		if (value instanceof SimpleObjectValue) {
+			((SimpleObjectValue) value).setIdentityHashCode(hashCode);
+		}
+	}
+
+	private static ClassRecord readClass(DataInputStream din) throws IOException {
+		ClassRecord record = new ClassRecord();
+		record.id = din.readInt();
+		byte kind = din.readByte();
+		record.kind = kind;
+		switch (kind) {
+			case PRIMITIVE_CLASS:
+				record.name = din.readUTF();
+				break;
+			case INSTANCE_CLASS:
+				record.name = din.readUTF();
+				record.classLoader = din.readLong();
+				if (din.readBoolean()) {
+					record.bytes = readData(din);
+				}
+				record.state = din.readByte();
+				break;
+			case ARRAY_CLASS:
+				record.component = din.readInt();
+				break;
+			default:
+				throw new IllegalStateException("Unknown class kind " + kind);
+		}
+		record.address = din.readLong();
+		record.hashCode = din.readInt();
+		record.data = readData(din);
+		return record;
+	}
+
+	private static byte[] readData(DataInputStream din) throws IOException {
+		byte[] data = new byte[din.readInt()];
+		din.readFully(data);
+		return data;
+	}
+
+	/**
+	 * Source of classes that were already parsed,
+	 * i.e. by the VM that wrote the image.
+	 */
+	@FunctionalInterface
+	public interface ClassSource {
+
+		/**
+		 * @param id   Id of the class in the VM that wrote the image.
+		 * @param name Internal name of the class.
+		 * @return parsed class or {@code null},
+		 * if the class must be found by the VM or read from the image.
+		 */
+		ParsedClassData findClass(int id, String name);
+	}
+
+	private static final class ClassRecord {
+		int id;
+		byte kind;
+		String name;
+		long classLoader;
+		byte[] bytes;
+		int state;
+		int component;
+		long address;
+		int hashCode;
+		byte[] data;
+		JavaClass klass;
+	}
+
+	private static final class ObjectRecord {
+		long address;
+		int classId;
+		int length;
+		int hashCode;
+		byte[] data;
+		String pooled;
+		ObjectValue value;
+		boolean restored;
+	}
+
+	private static final class Fixup {
+		final ObjectValue value;
+		final long offset;
+		final long address;
+
+		Fixup(ObjectValue value, long offset, long address) {
+			this.value = value;
+			this.offset = offset;
+			this.address = address;
+		}
+	}
+}
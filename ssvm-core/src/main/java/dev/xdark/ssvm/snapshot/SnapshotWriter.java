@@ -0,0 +1,241 @@
+package dev.xdark.ssvm.snapshot;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.classloading.ClassStorage;
+import dev.xdark.ssvm.filesystem.FileManager;
+import dev.xdark.ssvm.inject.InjectedClassLayout;
+import dev.xdark.ssvm.memory.allocation.MemoryData;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaField;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.mirror.type.JavaClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.thread.JavaThread;
+import dev.xdark.ssvm.util.CloseableLock;
+import dev.xdark.ssvm.value.ArrayValue;
+import dev.xdark.ssvm.value.InstanceValue;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.objectweb.asm.ClassReader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static dev.xdark.ssvm.snapshot.SnapshotFormat.*;
+
+/**
+ * Writes an image of a booted VM,
+ * which can be restored with {@link SnapshotReader}.
+ * <p>
+ * The image must be written from the thread attached to the VM,
+ * while no other thread executes VM code.
+ * Hidden and anonymous classes are not supported,
+ * neither are non-boot classes that do not keep their class file.
+ * Host handles are not part of the image either:
+ * standard streams are re-opened on restore, and the image
+ * cannot be written while the guest holds any other open
+ * file descriptor or zip file.
+ *
+ * @author xDark
+ */
+public final class SnapshotWriter {
+	private final VirtualMachine vm;
+
+	/**
+	 * @param vm VM instance.
+	 */
+	public SnapshotWriter(VirtualMachine vm) {
+		this.vm = vm;
+	}
+
+	/**
+	 * Writes VM image.
+	 *
+	 * @param out Stream to write image to.
+	 * @throws IOException           If any I/O error occurs.
+	 * @throws IllegalStateException If VM is not booted, contains
+	 *                               classes that cannot be written,
+	 *                               or holds open host handles.
+	 */
+	public void write(OutputStream out) throws IOException {
+		VirtualMachine vm = this.vm;
+		vm.assertBooted();
+		checkHostHandles();
+		MemoryManager memoryManager = vm.getMemoryManager();
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+		dos.writeInt(MAGIC);
+		dos.writeInt(VERSION);
+		dos.writeInt(vm.getJvmVersion());
+		dos.writeInt(memoryManager.objectSize());
+		dos.writeLong(address(memoryManager.nullValue()));
+
+		Set<ObjectValue> mirrors = Collections.newSetFromMap(new IdentityHashMap<>());
+		writeClasses(dos, mirrors);
+
+		Collection<InstanceValue> classLoaders = vm.getClassLoaders().getAll();
+		dos.writeInt(classLoaders.size());
+		for (InstanceValue classLoader : classLoaders) {
+			dos.writeLong(address(classLoader));
+		}
+
+		List<ObjectValue> objects = new ArrayList<>();
+		for (ObjectValue value : memoryManager.listObjects()) {
+			if (!value.isNull() && !mirrors.contains(value)) {
+				objects.add(value);
+			}
+		}
+		dos.writeInt(objects.size());
+		for (ObjectValue value : objects) {
+			dos.writeLong(address(value));
+			dos.writeInt(value.getData().readInt(0L));
+			if (value instanceof ArrayValue) {
+				dos.writeByte(ARRAY);
+				dos.writeInt(((ArrayValue) value).getLength());
+			} else {
+				dos.writeByte(INSTANCE);
+			}
+			dos.writeInt(value.hashCode());
+			writeData(dos, value);
+		}
+
+		VMOperations ops = vm.getOperations();
+		List<InstanceValue> strings = vm.getStringPool().snapshot();
+		dos.writeInt(strings.size());
+		for (InstanceValue value : strings) {
+			dos.writeLong(address(value));
+			String str = ops.readUtf8(value);
+			dos.writeInt(str.length());
+			dos.writeChars(str);
+		}
+
+		dos.writeLong(address(vm.getSystemThreadGroup()));
+		dos.writeLong(address(vm.getMainThreadGroup()));
+		JavaThread current = vm.currentJavaThread();
+		dos.writeLong(address(current.getOop()));
+		List<JavaThread> threads = new ArrayList<>(vm.getThreadManager().snapshot());
+		threads.remove(current);
+		dos.writeInt(threads.size());
+		for (JavaThread thread : threads) {
+			dos.writeLong(address(thread.getOop()));
+		}
+		dos.flush();
+	}
+
+	private void writeClasses(DataOutputStream dos, Set<ObjectValue> mirrors) throws IOException {
+		VirtualMachine vm = this.vm;
+		ClassStorage classStorage = vm.getClassStorage();
+		List<JavaClass> classes;
+		try (CloseableLock lock = classStorage.lock()) {
+			classes = new ArrayList<>(classStorage.list());
+		}
+		classes.sort(Comparator.comparingInt(JavaClass::getId));
+		long aclOffset = vm.getSymbols().java_lang_Class().getField(
+			InjectedClassLayout.java_lang_Class_anonymousClassLoader.name(),
+			InjectedClassLayout.java_lang_Class_anonymousClassLoader.descriptor()
+		).getOffset();
+		dos.writeInt(classes.size());
+		for (JavaClass jc : classes) {
+			InstanceValue oop = jc.getOop();
+			dos.writeInt(jc.getId());
+			if (jc instanceof InstanceClass) {
+				if (oop.getData().readInt(aclOffset) > 0) {
+					throw new IllegalStateException("Hidden classes are not supported: " + jc.getName());
+				}
+				InstanceClass klass = (InstanceClass) jc;
+				ObjectValue classLoader = klass.getClassLoader();
+				dos.writeByte(INSTANCE_CLASS);
+				dos.writeUTF(klass.getInternalName());
+				dos.writeLong(address(classLoader));
+				dos.writeBoolean(!classLoader.isNull());
+				if (!classLoader.isNull()) {
+					// Boot classes are taken from the boot class finder
+					ClassReader reader = klass.getClassReader();
+					if (reader == null) {
+						throw new IllegalStateException("Class file is not retained: " + klass.getName());
+					}
+					byte[] bytes = classBytes(reader);
+					dos.writeInt(bytes.length);
+					dos.write(bytes);
+				}
+				dos.writeByte(klass.state().get().ordinal());
+			} else if (jc.isArray()) {
+				dos.writeByte(ARRAY_CLASS);
+				dos.writeInt(jc.getComponentType().getId());
+			} else {
+				dos.writeByte(PRIMITIVE_CLASS);
+				dos.writeUTF(jc.getDescriptor());
+			}
+			dos.writeLong(address(oop));
+			dos.writeInt(oop.hashCode());
+			writeData(dos, oop);
+			mirrors.add(oop);
+		}
+	}
+
+	private void checkHostHandles() {
+		VirtualMachine vm = this.vm;
+		VMOperations ops = vm.getOperations();
+		FileManager fileManager = vm.getFileManager();
+		InstanceClass fd = vm.getSymbols().java_io_FileDescriptor();
+		long handleOffset = fd.getField(
+			InjectedClassLayout.java_io_FileDescriptor_handle.name(),
+			InjectedClassLayout.java_io_FileDescriptor_handle.descriptor()
+		).getOffset();
+		// Standard streams are re-opened by the reader
+		Set<ObjectValue> stdio = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (String name : new String[]{"in", "out", "err"}) {
+			stdio.add(ops.getReference(fd, name, "Ljava/io/FileDescriptor;"));
+		}
+		// Only present in JDK 8, later versions use file descriptors
+		InstanceClass zf = vm.getSymbols().java_util_zip_ZipFile();
+		JavaField jzfile = zf.getField("jzfile", "J");
+		for (ObjectValue value : vm.getMemoryManager().listObjects()) {
+			if (value.isNull()) {
+				continue;
+			}
+			JavaClass jc = value.getJavaClass();
+			if (jc == fd && !stdio.contains(value)) {
+				long handle = value.getData().readLong(handleOffset);
+				if (fileManager.getFdIn(handle) != null || fileManager.getFdOut(handle) != null) {
+					throw new IllegalStateException("Open file descriptors are not supported: " + handle);
+				}
+			} else if (jc == zf && jzfile != null) {
+				long handle = value.getData().readLong(jzfile.getOffset());
+				if (fileManager.getZipFile(handle) != null) {
+					throw new IllegalStateException("Open zip files are not supported: " + handle);
+				}
+			}
+		}
+	}
+
+	private static void writeData(DataOutputStream dos, ObjectValue value) throws IOException {
+		MemoryData data = value.getData();
+		int length = (int) data.length();
+		byte[] bytes = new byte[length];
+		data.read(0L, bytes, 0, length);
+		dos.writeInt(length);
+		dos.write(bytes);
+	}
+
+	private static byte[] classBytes(ClassReader reader) {
+		// First constant pool entry is right after
+		// magic, version and constant pool size
+		int offset = reader.getItem(1) - 11;
+		byte[] b = reader.b;
+		byte[] bytes = new byte[b.length - offset];
+		System.arraycopy(b, offset, bytes, 0, bytes.length);
+		return bytes;
+	}
+
+	private long address(ObjectValue value) {
+		return vm.getMemoryManager().referenceOf(value);
+	}
+}
@@ -0,0 +1,50 @@
+package dev.xdark.ssvm.synchronizer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tells the synchronizer which thread runs the code,
+ * and what to do while a monitor is held by another thread.
+ * <p>
+ * Threads that share one host thread, such as green threads,
+ * must not block it while they wait for a monitor,
+ * as the owner of the monitor would never get to run.
+ *
+ * @author xDark
+ */
+public interface MonitorScheduler {
+
+	/**
+	 * Every host thread is a separate owner,
+	 * and waits for monitors by blocking.
+	 */
+	MonitorScheduler HOST = new MonitorScheduler() {
+		private final AtomicInteger threadIds = new AtomicInteger();
+		private final ThreadLocal<Integer> threadId = ThreadLocal.withInitial(threadIds::incrementAndGet);
+
+		@Override
+		public int currentThreadId() {
+			return threadId.get();
+		}
+
+		@Override
+		public boolean onContention() {
+			return false;
+		}
+	};
+
+	/**
+	 * @return id of the current thread, must be positive.
+	 */
+	int currentThreadId();
+
+	/**
+	 * Called when the monitor the current thread
+	 * wants to enter is held by another thread.
+	 *
+	 * @return {@code true} if other threads were given a chance
+	 * to run and the monitor must be tried again,
+	 * {@code false} if the host thread may block.
+	 */
+	boolean onContention();
+}
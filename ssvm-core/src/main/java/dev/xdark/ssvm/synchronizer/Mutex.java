@@ -1,5 +1,7 @@
 package dev.xdark.ssvm.synchronizer;
 
+import java.util.function.BooleanSupplier;
+
 /**
  * Mutex.
  *
@@ -31,6 +33,39 @@ public interface Mutex {
 	 */
 	void doWait(long timeoutMillis) throws InterruptedException;
 
+	/**
+	 * Releases the mutex and puts the current thread
+	 * to the wait set, without blocking.
+	 * Used by threads that must not block the host thread.
+	 *
+	 * @param wakeup Called once the thread is notified.
+	 * @return Wait set entry, to be passed to {@link #tryEndWait(Object)}.
+	 */
+	Object beginWait(Runnable wakeup);
+
+	/**
+	 * Removes the thread from the wait set, if it was not notified yet,
+	 * and locks the mutex again.
+	 *
+	 * @param waiter Entry returned by {@link #beginWait(Runnable)}.
+	 * @return {@code false} if the mutex is held by another thread,
+	 * in which case the call must be repeated later.
+	 */
+	boolean tryEndWait(Object waiter);
+
+	/**
+	 * Registers a callback that is called when the mutex
+	 * is released by its owner. Used by threads that must not block
+	 * the host thread while they wait for the mutex.
+	 * Only one callback is called per release, unless it declines it.
+	 *
+	 * @param wakeup Callback to call, returns {@code false}
+	 *               if the thread no longer waits for the mutex.
+	 * @return {@code false} if the mutex is not held,
+	 * in which case it must be tried again right away.
+	 */
+	boolean awaitRelease(BooleanSupplier wakeup);
+
 	/**
 	 * Wakes up a single thread that is waiting
 	 * on this object's monitor.
@@ -1,28 +1,64 @@
 package dev.xdark.ssvm.synchronizer;
 
+import dev.xdark.ssvm.value.ObjectValue;
+
 /**
  * Object synchronizer.
+ * Synchronizer owns the lock word of the object header,
+ * which is {@code -1} for objects that were never locked.
  *
  * @author xDark
  */
 public interface ObjectSynchronizer {
 
 	/**
-	 * @return New mutex.
+	 * Locks object monitor.
+	 *
+	 * @param value  Object to lock.
+	 * @param offset Lock word offset.
+	 */
+	void monitorEnter(ObjectValue value, long offset);
+
+	/**
+	 * Locks object monitor, unless it is held by another thread.
+	 *
+	 * @param value  Object to lock.
+	 * @param offset Lock word offset.
+	 * @return {@code true} if an object was locked.
+	 */
+	boolean tryMonitorEnter(ObjectValue value, long offset);
+
+	/**
+	 * Unlocks object monitor.
+	 *
+	 * @param value  Object to unlock.
+	 * @param offset Lock word offset.
+	 * @return {@code true} if an object was unlocked,
+	 * or {@code false} if thread does not hold the monitor.
 	 */
-	Mutex acquire();
+	boolean monitorExit(ObjectValue value, long offset);
 
 	/**
-	 * @param id Mutex id.
-	 * @return Mutex by it's id.
+	 * @param value  Object to check.
+	 * @param offset Lock word offset.
+	 * @return {@code true} if current thread holds object monitor.
+	 */
+	boolean isHeldByCurrentThread(ObjectValue value, long offset);
+
+	/**
+	 * Inflates object monitor, if needed.
+	 *
+	 * @param value  Object to get monitor for.
+	 * @param offset Lock word offset.
+	 * @return Object monitor.
 	 */
-	Mutex get(int id);
+	Mutex inflate(ObjectValue value, long offset);
 
-	// TODO impl when GC is here
 	/**
-	 * Releases mutex.
+	 * Releases monitor of the collected object.
 	 *
-	 * @param mutex Mutex to release.
+	 * @param value  Collected object.
+	 * @param offset Lock word offset.
 	 */
-	void free(Mutex mutex);
+	void free(ObjectValue value, long offset);
 }
@@ -1,19 +1,56 @@
 package dev.xdark.ssvm.synchronizer.java;
 
+import dev.xdark.ssvm.synchronizer.MonitorScheduler;
 import dev.xdark.ssvm.synchronizer.Mutex;
+import dev.xdark.ssvm.value.ObjectValue;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
+/**
+ * Inflated object monitor.
+ * Owner is a thread id from the {@link MonitorScheduler},
+ * so that a thin lock can be inflated on behalf
+ * of the thread that holds it.
+ * <p>
+ * Host threads block on conditions, threads that must not block
+ * the host thread leave the wait set with {@link #tryEndWait(Object)},
+ * and are called back when the monitor is released.
+ */
 final class LockMutex implements Mutex {
+	static final int ENTERED = 0;
+	static final int BUSY = 1;
+	static final int DEFLATED = 2;
 
-	int id;
-	private final ReentrantLock lock;
-	private final Condition condition;
+	final int id;
+	final ObjectValue value;
+	private final long offset;
+	private final MonitorScheduler scheduler;
+	private final ReentrantLock guard = new ReentrantLock();
+	private final Condition entry = guard.newCondition();
+	private final Condition waitSet = guard.newCondition();
+	// Threads that were not notified yet, in the order they started waiting
+	private final Deque<Waiter> waiters = new ArrayDeque<>();
+	// Callbacks of the threads that wait for the monitor to be released
+	private final Deque<BooleanSupplier> entryWaiters = new ArrayDeque<>();
+	private int owner;
+	private int count;
+	private int contenders;
+	// Threads that left the monitor in wait and did not lock it again
+	private int waiting;
+	private boolean deflated;
 
-	LockMutex() {
-		condition = (lock = new ReentrantLock()).newCondition();
+	LockMutex(int id, ObjectValue value, long offset, MonitorScheduler scheduler, int owner, int count) {
+		this.id = id;
+		this.value = value;
+		this.offset = offset;
+		this.scheduler = scheduler;
+		this.owner = owner;
+		this.count = count;
 	}
 
 	@Override
@@ -23,36 +60,288 @@ public int id() {
 
 	@Override
 	public void lock() {
-		lock.lock();
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			acquire(scheduler.currentThreadId());
+		} finally {
+			guard.unlock();
+		}
 	}
 
 	@Override
 	public boolean tryUnlock() {
-		ReentrantLock lock = this.lock;
-		if (!lock.isHeldByCurrentThread()) {
-			return false;
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			if (owner != scheduler.currentThreadId()) {
+				return false;
+			}
+			if (--count == 0) {
+				owner = 0;
+				released();
+			}
+			return true;
+		} finally {
+			guard.unlock();
 		}
-		lock.unlock();
-		return true;
 	}
 
 	@Override
 	public void doWait(long timeoutMillis) throws InterruptedException {
-		condition.await(timeoutMillis, TimeUnit.MILLISECONDS);
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			int thread = scheduler.currentThreadId();
+			Waiter waiter = enterWaitSet(null);
+			try {
+				long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+				while (!waiter.notified && nanos > 0L) {
+					nanos = waitSet.awaitNanos(nanos);
+				}
+			} finally {
+				leaveWaitSet(waiter);
+				acquire(thread);
+				count = waiter.count;
+				waiting--;
+			}
+		} finally {
+			guard.unlock();
+		}
+	}
+
+	@Override
+	public Object beginWait(Runnable wakeup) {
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			return enterWaitSet(wakeup);
+		} finally {
+			guard.unlock();
+		}
+	}
+
+	@Override
+	public boolean tryEndWait(Object waiter) {
+		Waiter w = (Waiter) waiter;
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			leaveWaitSet(w);
+			if (owner != 0) {
+				return false;
+			}
+			owner = scheduler.currentThreadId();
+			count = w.count;
+			waiting--;
+			return true;
+		} finally {
+			guard.unlock();
+		}
+	}
+
+	@Override
+	public boolean awaitRelease(BooleanSupplier wakeup) {
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			if (deflated || owner == 0) {
+				return false;
+			}
+			entryWaiters.add(wakeup);
+			return true;
+		} finally {
+			guard.unlock();
+		}
 	}
 
 	@Override
 	public void doNotify() {
-		condition.signal();
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			Waiter waiter = waiters.poll();
+			if (waiter != null) {
+				notify(waiter);
+			}
+		} finally {
+			guard.unlock();
+		}
 	}
 
 	@Override
 	public void doNotifyAll() {
-		condition.signalAll();
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			Waiter waiter;
+			while ((waiter = waiters.poll()) != null) {
+				notify(waiter);
+			}
+		} finally {
+			guard.unlock();
+		}
 	}
 
 	@Override
 	public boolean isHeldByCurrentThread() {
-		return lock.isHeldByCurrentThread();
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			return owner == scheduler.currentThreadId();
+		} finally {
+			guard.unlock();
+		}
+	}
+
+	/**
+	 * Locks the monitor, unless it was deflated.
+	 *
+	 * @return {@code false} if the monitor was deflated,
+	 * and the lock word must be read again.
+	 */
+	boolean enter() {
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			// Deflation requires the monitor to be idle,
+			// thus it cannot happen once we are registered as a contender
+			if (deflated) {
+				return false;
+			}
+			acquire(scheduler.currentThreadId());
+			return true;
+		} finally {
+			guard.unlock();
+		}
+	}
+
+	/**
+	 * Locks the monitor without blocking.
+	 *
+	 * @return {@link #ENTERED} if the monitor was locked,
+	 * {@link #BUSY} if it is held by another thread,
+	 * or {@link #DEFLATED} if the lock word must be read again.
+	 */
+	int tryEnter() {
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			if (deflated) {
+				return DEFLATED;
+			}
+			int thread = scheduler.currentThreadId();
+			if (owner == thread) {
+				count++;
+				return ENTERED;
+			}
+			if (owner != 0) {
+				return BUSY;
+			}
+			owner = thread;
+			count = 1;
+			return ENTERED;
+		} finally {
+			guard.unlock();
+		}
+	}
+
+	/**
+	 * Unlocks the monitor and deflates it,
+	 * if nobody else uses it.
+	 *
+	 * @return {@code 0} if current thread does not own the monitor,
+	 * {@code 1} if the monitor was unlocked,
+	 * {@code 2} if the monitor was unlocked and deflated.
+	 */
+	int exit() {
+		ReentrantLock guard = this.guard;
+		guard.lock();
+		try {
+			if (owner != scheduler.currentThreadId()) {
+				return 0;
+			}
+			if (--count != 0) {
+				return 1;
+			}
+			owner = 0;
+			if (contenders == 0 && waiting == 0 && entryWaiters.isEmpty()) {
+				deflated = true;
+				// Only the owner may change inflated lock word
+				value.getData().writeIntVolatile(offset, LockObjectSynchronizer.NEUTRAL);
+				return 2;
+			}
+			released();
+			return 1;
+		} finally {
+			guard.unlock();
+		}
+	}
+
+	private Waiter enterWaitSet(Runnable wakeup) {
+		Waiter waiter = new Waiter(count, wakeup);
+		owner = 0;
+		count = 0;
+		released();
+		waiters.add(waiter);
+		waiting++;
+		return waiter;
+	}
+
+	private void leaveWaitSet(Waiter waiter) {
+		if (!waiter.notified) {
+			// Timed out or interrupted
+			waiter.notified = true;
+			waiters.remove(waiter);
+		}
+	}
+
+	private void released() {
+		entry.signal();
+		// Only one, others are woken up by the next release
+		BooleanSupplier wakeup;
+		while ((wakeup = entryWaiters.poll()) != null && !wakeup.getAsBoolean()) {
+		}
+	}
+
+	private void notify(Waiter waiter) {
+		waiter.notified = true;
+		Runnable wakeup = waiter.wakeup;
+		if (wakeup != null) {
+			wakeup.run();
+		} else {
+			// Every host waiter checks whether it was the one
+			waitSet.signalAll();
+		}
+	}
+
+	private void acquire(int thread) {
+		if (owner == thread) {
+			count++;
+			return;
+		}
+		if (owner != 0) {
+			contenders++;
+			try {
+				do {
+					entry.awaitUninterruptibly();
+				} while (owner != 0);
+			} finally {
+				contenders--;
+			}
+		}
+		owner = thread;
+		count = 1;
+	}
+
+	private static final class Waiter {
+		final int count;
+		final Runnable wakeup;
+		boolean notified;
+
+		Waiter(int count, Runnable wakeup) {
+			this.count = count;
+			this.wakeup = wakeup;
+		}
 	}
 }
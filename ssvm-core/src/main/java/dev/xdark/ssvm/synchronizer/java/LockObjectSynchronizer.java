@@ -1,33 +1,266 @@
 package dev.xdark.ssvm.synchronizer.java;
 
-import dev.xdark.ssvm.metadata.MetadataStorage;
-import dev.xdark.ssvm.metadata.SimpleMetadataStorage;
+import dev.xdark.ssvm.memory.allocation.MemoryData;
+import dev.xdark.ssvm.synchronizer.MonitorScheduler;
 import dev.xdark.ssvm.synchronizer.Mutex;
 import dev.xdark.ssvm.synchronizer.ObjectSynchronizer;
+import dev.xdark.ssvm.value.ObjectValue;
+
+import java.util.Arrays;
 
 /**
- * Synchronizer that uses Java locks.
+ * Synchronizer that keeps thin locks in the object header.
+ * <p>
+ * The lock word is either:
+ * <ul>
+ *     <li>{@code -1}, if the object is not locked;</li>
+ *     <li>negative, with owner thread id and recursion count, if the object is thin locked;</li>
+ *     <li>id of the inflated monitor otherwise.</li>
+ * </ul>
+ * Uncontended locking is a single CAS of the lock word.
+ * Thin locks are inflated to Java lock based monitors
+ * on contention, {@code wait} and {@code notify},
+ * and monitors are deflated once they are unlocked
+ * and no thread waits for them.
+ * Owners of the monitors are given by the {@link MonitorScheduler}.
  *
  * @author xDark
- * @deprecated Switch to object header for locking
  */
-@Deprecated
 public final class LockObjectSynchronizer implements ObjectSynchronizer {
-	private final MetadataStorage<Mutex> mutexStorage = new SimpleMetadataStorage<>();
+	static final int NEUTRAL = -1;
+	private static final int THIN = Integer.MIN_VALUE;
+	private static final int COUNT_BITS = 8;
+	private static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+	// Owner of 0x7FFFFF with max count would collide with NEUTRAL
+	private static final int MAX_THIN_OWNER = (Integer.MAX_VALUE >>> COUNT_BITS) - 1;
+	private final Object tableLock = new Object();
+	private final MonitorScheduler scheduler;
+	private volatile LockMutex[] monitors = new LockMutex[16];
+	private int[] freeIds = new int[16];
+	private int freeCount;
+	private int nextId;
+
+	/**
+	 * @param scheduler Monitor scheduler.
+	 */
+	public LockObjectSynchronizer(MonitorScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	public LockObjectSynchronizer() {
+		this(MonitorScheduler.HOST);
+	}
+
+	@Override
+	public void monitorEnter(ObjectValue value, long offset) {
+		enter(value, offset, true);
+	}
 
 	@Override
-	public Mutex acquire() {
-		LockMutex mutex = new LockMutex();
-		mutex.id = mutexStorage.register(mutex);
-		return mutex;
+	public boolean tryMonitorEnter(ObjectValue value, long offset) {
+		return enter(value, offset, false);
 	}
 
 	@Override
-	public Mutex get(int id) {
-		return mutexStorage.lookup(id);
+	public boolean monitorExit(ObjectValue value, long offset) {
+		MemoryData data = value.getData();
+		int thread = scheduler.currentThreadId();
+		while (true) {
+			int word = data.readIntVolatile(offset);
+			if (word == NEUTRAL) {
+				return false;
+			}
+			if (word < 0) {
+				if (thinOwner(word) != thread) {
+					return false;
+				}
+				int next = thinCount(word) == 1 ? NEUTRAL : word - 1;
+				if (data.compareAndSetInt(offset, word, next)) {
+					return true;
+				}
+				// Lock was inflated by another thread
+				continue;
+			}
+			// Monitor cannot be deflated while we own it
+			LockMutex monitor = lookup(value, word);
+			if (monitor == null) {
+				return false;
+			}
+			int result = monitor.exit();
+			if (result == 2) {
+				release(monitor);
+			}
+			return result != 0;
+		}
 	}
 
 	@Override
-	public void free(Mutex mutex) {
+	public boolean isHeldByCurrentThread(ObjectValue value, long offset) {
+		int word = value.getData().readIntVolatile(offset);
+		if (word == NEUTRAL) {
+			return false;
+		}
+		if (word < 0) {
+			return thinOwner(word) == scheduler.currentThreadId();
+		}
+		LockMutex monitor = lookup(value, word);
+		return monitor != null && monitor.isHeldByCurrentThread();
+	}
+
+	@Override
+	public Mutex inflate(ObjectValue value, long offset) {
+		MemoryData data = value.getData();
+		while (true) {
+			int word = data.readIntVolatile(offset);
+			if (word >= 0) {
+				LockMutex monitor = lookup(value, word);
+				if (monitor != null) {
+					return monitor;
+				}
+				continue;
+			}
+			LockMutex monitor = inflate(value, data, offset, word);
+			if (monitor != null) {
+				return monitor;
+			}
+		}
+	}
+
+	@Override
+	public void free(ObjectValue value, long offset) {
+		int word = value.getData().readInt(offset);
+		if (word >= 0) {
+			LockMutex monitor = lookup(value, word);
+			if (monitor != null) {
+				release(monitor);
+			}
+		}
+	}
+
+	private boolean enter(ObjectValue value, long offset, boolean block) {
+		MemoryData data = value.getData();
+		int thread = scheduler.currentThreadId();
+		while (true) {
+			int word = data.readIntVolatile(offset);
+			if (word == NEUTRAL) {
+				if (thread <= MAX_THIN_OWNER) {
+					if (data.compareAndSetInt(offset, NEUTRAL, thinLock(thread, 1))) {
+						return true;
+					}
+				} else {
+					inflate(value, data, offset, word);
+				}
+				continue;
+			}
+			if (word < 0) {
+				int owner = thinOwner(word);
+				if (owner == thread && thinCount(word) != MAX_COUNT) {
+					if (data.compareAndSetInt(offset, word, word + 1)) {
+						return true;
+					}
+				} else if (owner != thread && !block) {
+					return false;
+				} else {
+					// Contention or recursion overflow
+					inflate(value, data, offset, word);
+				}
+				continue;
+			}
+			LockMutex monitor = lookup(value, word);
+			if (monitor == null) {
+				continue;
+			}
+			int state = monitor.tryEnter();
+			if (state == LockMutex.ENTERED) {
+				return true;
+			}
+			if (state == LockMutex.BUSY) {
+				if (!block) {
+					return false;
+				}
+				// Either other threads were given a chance
+				// to release the monitor, or we wait for it
+				if (!scheduler.onContention() && monitor.enter()) {
+					return true;
+				}
+			}
+		}
+	}
+
+	private LockMutex inflate(ObjectValue value, MemoryData data, long offset, int word) {
+		LockMutex monitor;
+		if (word == NEUTRAL) {
+			monitor = allocate(value, offset, 0, 0);
+		} else {
+			// Monitor is owned by the thread that holds the thin lock
+			monitor = allocate(value, offset, thinOwner(word), thinCount(word));
+		}
+		if (data.compareAndSetInt(offset, word, monitor.id)) {
+			return monitor;
+		}
+		release(monitor);
+		return null;
+	}
+
+	private LockMutex lookup(ObjectValue value, int id) {
+		LockMutex[] monitors = this.monitors;
+		if (id >= monitors.length) {
+			return null;
+		}
+		LockMutex monitor = monitors[id];
+		// Slot may have been reused by a monitor of another object
+		if (monitor == null || monitor.value != value) {
+			return null;
+		}
+		return monitor;
+	}
+
+	private LockMutex allocate(ObjectValue value, long offset, int owner, int count) {
+		synchronized (tableLock) {
+			int id;
+			if (freeCount != 0) {
+				id = freeIds[--freeCount];
+			} else {
+				id = nextId++;
+			}
+			LockMutex monitor = new LockMutex(id, value, offset, scheduler, owner, count);
+			LockMutex[] monitors = this.monitors;
+			if (id >= monitors.length) {
+				monitors = Arrays.copyOf(monitors, monitors.length << 1);
+			}
+			monitors[id] = monitor;
+			// Republish the table so that lookups see the new slot
+			this.monitors = monitors;
+			return monitor;
+		}
+	}
+
+	private void release(LockMutex monitor) {
+		synchronized (tableLock) {
+			int id = monitor.id;
+			LockMutex[] monitors = this.monitors;
+			if (monitors[id] != monitor) {
+				return;
+			}
+			monitors[id] = null;
+			this.monitors = monitors;
+			int[] freeIds = this.freeIds;
+			if (freeCount == freeIds.length) {
+				this.freeIds = freeIds = Arrays.copyOf(freeIds, freeCount << 1);
+			}
+			freeIds[freeCount++] = id;
+		}
+	}
+
+	private static int thinLock(int owner, int count) {
+		return THIN | owner << COUNT_BITS | count;
+	}
+
+	private static int thinOwner(int word) {
+		return (word & ~THIN) >>> COUNT_BITS;
+	}
+
+	private static int thinCount(int word) {
+		return word & MAX_COUNT;
 	}
 }
@@ -9,9 +9,9 @@
  */
 public abstract class AbstractOSThread implements OSThread {
 
-	private String name;
-	private int priority = Thread.NORM_PRIORITY;
-	private ThreadState state = ThreadState.JVMTI_THREAD_STATE_TERMINATED;
+	private volatile String name;
+	private volatile int priority = Thread.NORM_PRIORITY;
+	private volatile ThreadState state = ThreadState.JVMTI_THREAD_STATE_TERMINATED;
 
 	@Override
 	public void setName(String name) {
@@ -18,4 +18,14 @@ public interface JavaThread {
 	 * @return OS thread.
 	 */
 	OSThread getOsThread();
+
+	/**
+	 * @return {@code true} if the thread is suspended
+	 * between two instructions by the scheduler,
+	 * and its frames keep no references outside
+	 * of their locals and stacks.
+	 */
+	default boolean isSuspended() {
+		return false;
+	}
 }
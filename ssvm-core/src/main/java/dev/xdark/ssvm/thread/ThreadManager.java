@@ -1,5 +1,6 @@
 package dev.xdark.ssvm.thread;
 
+import dev.xdark.ssvm.synchronizer.Mutex;
 import dev.xdark.ssvm.thread.backtrace.Backtrace;
 import dev.xdark.ssvm.value.InstanceValue;
 
@@ -7,6 +8,11 @@
 
 /**
  * Thread manager.
+ * <p>
+ * Blocking methods, such as {@link #sleep(long)}, {@link #park(boolean, long)}
+ * and {@link #monitorWait(Mutex, long)}, may return before the thread
+ * is woken up if the manager suspends the thread instead of blocking,
+ * in which case the thread continues once it is resumed.
  *
  * @author xDark
  * @see OSThread
@@ -134,6 +140,37 @@ default Backtrace currentBacktrace() {
 	 */
 	void yield();
 
+	/**
+	 * Parks current thread.
+	 *
+	 * @param absolute Whether the {@code time} is an absolute deadline
+	 *                 in milliseconds, or a relative timeout in nanoseconds.
+	 * @param time     Park deadline or timeout, {@code 0} for a relative
+	 *                 timeout means that the thread is parked until unparked.
+	 * @see java.util.concurrent.locks.LockSupport#park()
+	 */
+	void park(boolean absolute, long time);
+
+	/**
+	 * Unparks the thread.
+	 *
+	 * @param oop Thread to unpark.
+	 * @see java.util.concurrent.locks.LockSupport#unpark(Thread)
+	 */
+	void unpark(InstanceValue oop);
+
+	/**
+	 * Causes current thread to wait on the monitor it holds,
+	 * until it is notified, interrupted or the timeout passes.
+	 * Throws {@code InterruptedException} to the VM code,
+	 * if the thread was interrupted.
+	 *
+	 * @param mutex         Monitor to wait on.
+	 * @param timeoutMillis The maximum time to wait, in milliseconds.
+	 * @see Object#wait(long)
+	 */
+	void monitorWait(Mutex mutex, long timeoutMillis);
+
 	/**
 	 * Creates main thread.
 	 * After that call control will be passed into the VM and thread will be
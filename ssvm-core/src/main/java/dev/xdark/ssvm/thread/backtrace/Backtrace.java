@@ -2,6 +2,7 @@
 
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.ExecutionRequest;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.value.sink.ValueSink;
 
 /**
@@ -41,4 +42,34 @@ public interface Backtrace extends Iterable<ExecutionContext<?>> {
 	 * @return Backtrace depth.
 	 */
 	int depth();
+
+	/**
+	 * Marks the next frame of the method as a guest call,
+	 * i.e. the caller keeps all of its references in the VM frames.
+	 * Any other frame is a host call, see {@link #hostCalls()}.
+	 *
+	 * @param method Method that is about to be called.
+	 */
+	void markGuestCall(JavaMethod method);
+
+	/**
+	 * Host code may keep references to the objects
+	 * in host locals while it calls back into the VM.
+	 * The garbage collector can't see those.
+	 *
+	 * @return Amount of frames pushed by the host code.
+	 */
+	int hostCalls();
+
+	/**
+	 * Copies methods and line numbers of the topmost frames.
+	 * Unlike other methods, this one may be called from any thread,
+	 * the copy is racy and may be slightly off if the owner
+	 * pushes or pops frames concurrently.
+	 *
+	 * @param methods Array to copy frame methods to, top frame first.
+	 * @param lines   Array to copy frame line numbers to.
+	 * @return Amount of copied frames.
+	 */
+	int sample(JavaMethod[] methods, int[] lines);
 }
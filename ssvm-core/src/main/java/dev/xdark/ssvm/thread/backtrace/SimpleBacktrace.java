@@ -2,12 +2,12 @@
 
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.ExecutionRequest;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.util.CloseableUtil;
 import dev.xdark.ssvm.value.sink.ValueSink;
 
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
 
 /**
  * Simple backtrace.
@@ -17,26 +17,42 @@
 public final class SimpleBacktrace implements Backtrace {
 
 	private static final int RESERVED_FRAMES = 12;
-	private final List<ExecutionContext<?>> frames;
+	private ExecutionContext<?>[] frames;
 	private int frame;
+	private JavaMethod guestCall;
+	private int hostCalls;
 
+	/**
+	 * @param frameCount Initial amount of frames,
+	 *                   backtrace grows past it as needed.
+	 */
 	public SimpleBacktrace(int frameCount) {
-		frames = Arrays.asList(new ExecutionContext[Math.max(frameCount, RESERVED_FRAMES + 4)]);
+		frames = new ExecutionContext[Math.max(frameCount, RESERVED_FRAMES + 4)];
 	}
 
 	@Override
 	public <R extends ValueSink> ExecutionContext<R> push(ExecutionRequest<R> request) {
 		int frameIndex = this.frame;
-		List<ExecutionContext<?>> frames = this.frames;
-		if (frameIndex == frames.size() - RESERVED_FRAMES) {
-			// TODO stack overflow
+		ExecutionContext<?>[] frames = this.frames;
+		if (frameIndex == frames.length) {
+			// Stackless interpreter keeps all guest frames here
+			frames = Arrays.copyOf(frames, frameIndex << 1);
+			this.frames = frames;
 		}
-		SimpleExecutionContext<R> ctx = (SimpleExecutionContext<R>) frames.get(frameIndex);
+		SimpleExecutionContext<R> ctx = (SimpleExecutionContext<R>) frames[frameIndex];
 		if (ctx == null) {
 			ctx = new SimpleExecutionContext<>();
-			frames.set(frameIndex, ctx);
+			frames[frameIndex] = ctx;
+		}
+		JavaMethod method = request.getMethod();
+		ctx.init(method, request.getStack(), request.getLocals(), request.getResultSink());
+		// Mark only applies to the very next frame
+		boolean hostCall = guestCall != method;
+		guestCall = null;
+		ctx.hostCall = hostCall;
+		if (hostCall) {
+			hostCalls++;
 		}
-		ctx.init(request.getMethod(), request.getStack(), request.getLocals(), request.getResultSink());
 		this.frame = frameIndex + 1;
 		return ctx;
 	}
@@ -44,7 +60,7 @@ public <R extends ValueSink> ExecutionContext<R> push(ExecutionRequest<R> reques
 	@Override
 	public ExecutionContext<?> peek() {
 		int frame = this.frame;
-		return frame == 0 ? null : frames.get(frame - 1);
+		return frame == 0 ? null : frames[frame - 1];
 	}
 
 	@Override
@@ -53,12 +69,16 @@ public ExecutionContext<?> at(int index) {
 			throw new IllegalArgumentException("Out of bounds");
 		}
 		index = frame - index;
-		return index < 0 ? null : frames.get(index);
+		return index < 0 ? null : frames[index];
 	}
 
 	@Override
 	public void pop() {
-		CloseableUtil.close(frames.get(--frame));
+		SimpleExecutionContext<?> ctx = (SimpleExecutionContext<?>) frames[--frame];
+		if (ctx.hostCall) {
+			hostCalls--;
+		}
+		CloseableUtil.close(ctx);
 	}
 
 	@Override
@@ -66,8 +86,41 @@ public int depth() {
 		return frame;
 	}
 
+	@Override
+	public void markGuestCall(JavaMethod method) {
+		guestCall = method;
+	}
+
+	@Override
+	public int hostCalls() {
+		return hostCalls;
+	}
+
+	@Override
+	public int sample(JavaMethod[] methods, int[] lines) {
+		// Owner thread may grow the array and move the top
+		// while we are reading, never trust one to match another
+		ExecutionContext<?>[] frames = this.frames;
+		int top = Math.min(frame, frames.length);
+		int limit = Math.min(methods.length, lines.length);
+		int count = 0;
+		for (int i = top - 1; i >= 0 && count < limit; i--) {
+			ExecutionContext<?> ctx = frames[i];
+			if (ctx == null) {
+				continue;
+			}
+			JavaMethod method = ctx.getMethod();
+			if (method == null) {
+				continue;
+			}
+			methods[count] = method;
+			lines[count++] = ctx.getLineNumber();
+		}
+		return count;
+	}
+
 	@Override
 	public Iterator<ExecutionContext<?>> iterator() {
-		return frames.subList(0, frame).iterator();
+		return Arrays.asList(frames).subList(0, frame).iterator();
 	}
 }
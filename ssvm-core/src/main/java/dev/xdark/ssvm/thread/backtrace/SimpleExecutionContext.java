@@ -18,6 +18,7 @@
 	private R sink;
 	private int insnPosition;
 	private int lineNumber = -1;
+	boolean hostCall;
 
 	@Override
 	public JavaMethod getMethod() {
@@ -0,0 +1,93 @@
+package dev.xdark.ssvm.thread.backtrace;
+
+import dev.xdark.ssvm.asm.Modifier;
+import dev.xdark.ssvm.classloading.ClassStorage;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.value.ArrayValue;
+import lombok.experimental.UtilityClass;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Compact stack trace of a throwable,
+ * stored in the {@code backtrace} field.
+ * <p>
+ * Each frame is encoded as class id, method slot and line number,
+ * outermost frame first.
+ * {@link StackTraceElement} oops are only created on request.
+ * Class ids belong to the VM that captured the record,
+ * records restored by another VM must be remapped, see {@link #remapClasses(ArrayValue, IntUnaryOperator)}.
+ *
+ * @author xDark
+ */
+@UtilityClass
+public class StackTraceRecord {
+	private static final int FRAME_SIZE = 3;
+
+	/**
+	 * Captures visible frames of the backtrace.
+	 *
+	 * @param backtrace Backtrace to capture.
+	 * @return Encoded frames.
+	 */
+	public int[] capture(Backtrace backtrace) {
+		int[] record = new int[backtrace.depth() * FRAME_SIZE];
+		int index = 0;
+		for (ExecutionContext<?> frame : backtrace) {
+			JavaMethod method = frame.getMethod();
+			if (Modifier.isHiddenFrame(method.getModifiers())) {
+				continue;
+			}
+			record[index++] = method.getOwner().getId();
+			record[index++] = method.getSlot();
+			record[index++] = frame.getLineNumber();
+		}
+		return index == record.length ? record : Arrays.copyOf(record, index);
+	}
+
+	/**
+	 * @param record Encoded frames.
+	 * @return Amount of frames.
+	 */
+	public int depth(ArrayValue record) {
+		return record.getLength() / FRAME_SIZE;
+	}
+
+	/**
+	 * @param classStorage Class storage.
+	 * @param record       Encoded frames.
+	 * @param frame        Frame index, outermost frame first.
+	 * @return Frame method.
+	 */
+	public JavaMethod getMethod(ClassStorage classStorage, ArrayValue record, int frame) {
+		int index = frame * FRAME_SIZE;
+		InstanceClass owner = (InstanceClass) classStorage.lookup(record.getInt(index));
+		return owner.getMethodBySlot(record.getInt(index + 1));
+	}
+
+	/**
+	 * Rewrites class ids of the frames.
+	 * Method slots are kept, they do not depend on the VM.
+	 *
+	 * @param record  Encoded frames.
+	 * @param mapping Function that maps class id the record
+	 *                was captured with to the current one.
+	 */
+	public void remapClasses(ArrayValue record, IntUnaryOperator mapping) {
+		for (int i = 0, j = record.getLength(); i < j; i += FRAME_SIZE) {
+			record.setInt(i, mapping.applyAsInt(record.getInt(i)));
+		}
+	}
+
+	/**
+	 * @param record Encoded frames.
+	 * @param frame  Frame index, outermost frame first.
+	 * @return Frame line number.
+	 */
+	public int getLineNumber(ArrayValue record, int frame) {
+		return record.getInt(frame * FRAME_SIZE + 2);
+	}
+}
@@ -2,32 +2,37 @@
 
 import dev.xdark.ssvm.execution.Locals;
 import dev.xdark.ssvm.memory.allocation.MemoryData;
-import dev.xdark.ssvm.memory.management.ReferenceMap;
+import dev.xdark.ssvm.memory.management.MemoryManager;
 import dev.xdark.ssvm.thread.ThreadMemoryData;
 import dev.xdark.ssvm.util.SafeCloseable;
 import dev.xdark.ssvm.value.ObjectValue;
 
 /**
  * Locals implementation that uses heap memory.
+ * References are kept in a parallel array, see {@link HeapStack}.
  *
  * @author xDark
  */
 final class HeapLocals implements Locals, SafeCloseable {
-	private final ReferenceMap referenceMap;
+	final MemoryManager memoryManager;
 	ThreadMemoryData threadMemoryData;
+	ObjectValue[] references;
 
 	/**
-	 * @param referenceMap     Reference map.
+	 * @param memoryManager    Memory manager.
 	 * @param threadMemoryData Memory data.
+	 * @param references       Reference slots.
 	 */
-	HeapLocals(ReferenceMap referenceMap, ThreadMemoryData threadMemoryData) {
-		this.referenceMap = referenceMap;
+	HeapLocals(MemoryManager memoryManager, ThreadMemoryData threadMemoryData, ObjectValue[] references) {
+		this.memoryManager = memoryManager;
 		this.threadMemoryData = threadMemoryData;
+		this.references = references;
 	}
 
 	@Override
 	public void setReference(int index, ObjectValue value) {
-		region().writeLong(index * 8L, value.getMemory().getAddress());
+		region().writeLong(index * 8L, memoryManager.referenceOf(value));
+		references[index] = value;
 	}
 
 	@Override
@@ -52,7 +57,7 @@ public void setFloat(int index, float value) {
 
 	@Override
 	public <V extends ObjectValue> V loadReference(int index) {
-		return (V) referenceMap.getReference(region().readLong(index * 8L));
+		return (V) references[index];
 	}
 
 	@Override
@@ -77,8 +82,9 @@ public float loadFloat(int index) {
 
 	@Override
 	public void copyFrom(Locals locals, int srcOffset, int destOffset, int length) {
-		MemoryData from = ((HeapLocals) locals).region();
-		from.read(srcOffset * 8L, region(), destOffset * 8L, length * 8);
+		HeapLocals from = (HeapLocals) locals;
+		from.region().read(srcOffset * 8L, region(), destOffset * 8L, length * 8);
+		System.arraycopy(from.references, srcOffset, references, destOffset, length);
 	}
 
 	@Override
@@ -95,7 +101,8 @@ MemoryData region() {
 		return threadMemoryData.data();
 	}
 
-	void reset(ThreadMemoryData data) {
+	void reset(ThreadMemoryData data, ObjectValue[] references) {
 		threadMemoryData = data;
+		this.references = references;
 	}
 }
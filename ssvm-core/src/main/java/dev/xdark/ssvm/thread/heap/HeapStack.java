@@ -3,7 +3,7 @@
 import dev.xdark.ssvm.execution.Locals;
 import dev.xdark.ssvm.execution.Stack;
 import dev.xdark.ssvm.memory.allocation.MemoryData;
-import dev.xdark.ssvm.memory.management.ReferenceMap;
+import dev.xdark.ssvm.memory.management.MemoryManager;
 import dev.xdark.ssvm.thread.ThreadMemoryData;
 import dev.xdark.ssvm.util.SafeCloseable;
 import dev.xdark.ssvm.value.ObjectValue;
@@ -11,23 +11,39 @@
 
 /**
  * Stack implementation that uses heap memory.
+ * <p>
+ * References are kept in a parallel array indexed by slot,
+ * so that reading them does not need an address lookup.
+ * Their encoded references are still written to the memory,
+ * for the garbage collector to scan.
  *
  * @author xDark
  */
 public final class HeapStack implements Stack, SafeCloseable {
-	private final ReferenceMap referenceMap;
+	private final MemoryManager memoryManager;
 	private ThreadMemoryData threadMemoryData;
+	private ObjectValue[] references;
 	private long pointer;
 
 	/**
 	 * Visible only for testing.
 	 *
-	 * @param referenceMap     Reference map.
+	 * @param memoryManager    Memory manager.
 	 * @param threadMemoryData Memory data.
 	 */
-	public HeapStack(ReferenceMap referenceMap, ThreadMemoryData threadMemoryData) {
-		this.referenceMap = referenceMap;
+	public HeapStack(MemoryManager memoryManager, ThreadMemoryData threadMemoryData) {
+		this(memoryManager, threadMemoryData, new ObjectValue[(int) (threadMemoryData.data().length() >>> 3L)]);
+	}
+
+	/**
+	 * @param memoryManager    Memory manager.
+	 * @param threadMemoryData Memory data.
+	 * @param references       Reference slots.
+	 */
+	HeapStack(MemoryManager memoryManager, ThreadMemoryData threadMemoryData, ObjectValue[] references) {
+		this.memoryManager = memoryManager;
 		this.threadMemoryData = threadMemoryData;
+		this.references = references;
 	}
 
 	@Override
@@ -52,12 +68,17 @@ public void pushFloat(float value) {
 
 	@Override
 	public void pushReference(ObjectValue value) {
-		pushNormal(value.getMemory().getAddress());
+		long pointer = this.pointer;
+		region().writeLong(pointer, memoryManager.referenceOf(value));
+		references[(int) (pointer >>> 3L)] = value;
+		this.pointer = pointer + 8L;
 	}
 
 	@Override
 	public <V extends ObjectValue> V popReference() {
-		return (V) referenceMap.getReference(popCategory1());
+		long pointer = this.pointer - 8L;
+		this.pointer = pointer;
+		return (V) references[(int) (pointer >>> 3L)];
 	}
 
 	@Override
@@ -97,7 +118,7 @@ public byte popByte() {
 
 	@Override
 	public <V extends ObjectValue> V peekReference() {
-		return (V) referenceMap.getReference(peekCategory1());
+		return (V) references[(int) ((pointer >>> 3L) - 1L)];
 	}
 
 	@Override
@@ -172,10 +193,16 @@ public byte peekByte(int topOffset) {
 
 	@Override
 	public void swap() {
-		long v1 = popCategory1();
-		long v2 = popCategory1();
-		pushNormal(v1);
-		pushNormal(v2);
+		MemoryData region = region();
+		long pointer = this.pointer;
+		long v1 = region.readLong(pointer - 8L);
+		region.writeLong(pointer - 8L, region.readLong(pointer - 16L));
+		region.writeLong(pointer - 16L, v1);
+		ObjectValue[] references = this.references;
+		int slot = (int) (pointer >>> 3L);
+		ObjectValue r1 = references[slot - 1];
+		references[slot - 1] = references[slot - 2];
+		references[slot - 2] = r1;
 	}
 
 	@Override
@@ -256,7 +283,7 @@ public boolean isEmpty() {
 
 	@Override
 	public <V extends ObjectValue> V getReferenceAt(int index) {
-		return (V) referenceMap.getReference(region().readLong(index * 8L));
+		return (V) references[index];
 	}
 
 	@Override
@@ -300,7 +327,9 @@ public void sinkInto(Locals locals, int count) {
 			return;
 		}
 		long pointer = this.pointer - count * 8L;
-		region().read(pointer, ((HeapLocals) locals).region(), 0L, count * 8);
+		HeapLocals heapLocals = (HeapLocals) locals;
+		region().read(pointer, heapLocals.region(), 0L, count * 8);
+		System.arraycopy(references, (int) (pointer >>> 3L), heapLocals.references, 0, count);
 		this.pointer = pointer;
 	}
 
@@ -310,7 +339,9 @@ public void sinkInto(Locals locals, int dst, int count) {
 			return;
 		}
 		long pointer = this.pointer - count * 8L;
-		region().read(pointer, ((HeapLocals) locals).region(), dst * 8L, count * 8);
+		HeapLocals heapLocals = (HeapLocals) locals;
+		region().read(pointer, heapLocals.region(), dst * 8L, count * 8);
+		System.arraycopy(references, (int) (pointer >>> 3L), heapLocals.references, dst, count);
 		this.pointer = pointer;
 	}
 
@@ -386,6 +417,9 @@ private void move(int from, int to) {
 		MemoryData region = region();
 		long pointer = this.pointer;
 		region.writeLong(pointer + 8L * to, region.readLong(pointer + 8L * from));
+		ObjectValue[] references = this.references;
+		int slot = (int) (pointer >>> 3L);
+		references[slot + to] = references[slot + from];
 	}
 
 	private void movePointer(int count) {
@@ -396,8 +430,9 @@ private MemoryData region() {
 		return threadMemoryData.data();
 	}
 
-	void reset(ThreadMemoryData data) {
+	void reset(ThreadMemoryData data, ObjectValue[] references) {
 		threadMemoryData = data;
+		this.references = references;
 		pointer = 0L;
 	}
 }
@@ -13,6 +13,7 @@
 import dev.xdark.ssvm.thread.ThreadMemoryData;
 import dev.xdark.ssvm.thread.ThreadStorage;
 import dev.xdark.ssvm.util.BoundedQueue;
+import dev.xdark.ssvm.value.ObjectValue;
 
 import java.util.ArrayDeque;
 import java.util.Queue;
@@ -84,31 +85,46 @@ private final class HeapComponent {
 		HeapStack stack;
 		HeapLocals locals;
 		ThreadMemoryDataImpl threadData;
+		ObjectValue[] references;
 
 		Stack makeStack(long size) {
 			ThreadMemoryData data = makeThreadData(size);
+			ObjectValue[] references = makeReferences(size);
 			HeapStack stack = this.stack;
 			if (stack == null) {
-				stack = new HeapStack(manager, data);
+				stack = new HeapStack(manager, data, references);
 				this.stack = stack;
 			} else {
-				stack.reset(data);
+				stack.reset(data, references);
 			}
 			return stack;
 		}
 
 		Locals makeLocals(long size) {
 			ThreadMemoryData data = makeThreadData(size);
+			ObjectValue[] references = makeReferences(size);
 			HeapLocals locals = this.locals;
 			if (locals == null) {
-				locals = new HeapLocals(manager, data);
+				locals = new HeapLocals(manager, data, references);
 				this.locals = locals;
 			} else {
-				locals.reset(data);
+				locals.reset(data, references);
 			}
 			return locals;
 		}
 
+		ObjectValue[] makeReferences(long size) {
+			// Reused by later allocations of the component,
+			// stale slots are never read before being written
+			int slots = (int) (size / VALUE_SCALE);
+			ObjectValue[] references = this.references;
+			if (references == null || references.length < slots) {
+				references = new ObjectValue[slots];
+				this.references = references;
+			}
+			return references;
+		}
+
 		ThreadMemoryData makeThreadData(long size) {
 			ThreadMemoryDataImpl threadData = this.threadData;
 			if (threadData == null) {
@@ -0,0 +1,35 @@
+package dev.xdark.ssvm.thread.host;
+
+import dev.xdark.ssvm.io.Handle;
+import dev.xdark.ssvm.thread.JavaThread;
+import dev.xdark.ssvm.thread.OSThread;
+import dev.xdark.ssvm.value.InstanceValue;
+
+/**
+ * Java thread backed by a host thread.
+ *
+ * @author xDark
+ */
+final class HostJavaThread implements JavaThread {
+	private final InstanceValue oop;
+	final HostOSThread osThread;
+	final boolean attached;
+	Thread thread;
+	Handle eetop;
+
+	HostJavaThread(InstanceValue oop, HostOSThread osThread, boolean attached) {
+		this.oop = oop;
+		this.osThread = osThread;
+		this.attached = attached;
+	}
+
+	@Override
+	public InstanceValue getOop() {
+		return oop;
+	}
+
+	@Override
+	public OSThread getOsThread() {
+		return osThread;
+	}
+}
@@ -0,0 +1,36 @@
+package dev.xdark.ssvm.thread.host;
+
+import dev.xdark.ssvm.thread.AbstractOSThread;
+import dev.xdark.ssvm.thread.ThreadStorage;
+import dev.xdark.ssvm.thread.backtrace.Backtrace;
+
+/**
+ * OS thread backed by a host thread.
+ *
+ * @author xDark
+ */
+final class HostOSThread extends AbstractOSThread {
+	private Backtrace backtrace;
+	private ThreadStorage storage;
+
+	HostOSThread(Backtrace backtrace, ThreadStorage storage) {
+		this.backtrace = backtrace;
+		this.storage = storage;
+	}
+
+	@Override
+	public Backtrace getBacktrace() {
+		return backtrace;
+	}
+
+	@Override
+	public ThreadStorage getStorage() {
+		return storage;
+	}
+
+	void free() {
+		storage.free();
+		backtrace = null;
+		storage = null;
+	}
+}
@@ -0,0 +1,397 @@
+package dev.xdark.ssvm.thread.host;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.VMException;
+import dev.xdark.ssvm.io.Handle;
+import dev.xdark.ssvm.jvmti.ThreadState;
+import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.synchronizer.Mutex;
+import dev.xdark.ssvm.thread.JavaThread;
+import dev.xdark.ssvm.thread.OSThread;
+import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.thread.ThreadStorage;
+import dev.xdark.ssvm.thread.backtrace.Backtrace;
+import dev.xdark.ssvm.thread.backtrace.SimpleBacktrace;
+import dev.xdark.ssvm.thread.heap.HeapThreadStorage;
+import dev.xdark.ssvm.util.Assertions;
+import dev.xdark.ssvm.value.InstanceValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thread manager that runs every started
+ * Java thread on its own host thread.
+ * <p>
+ * Threads are created by the supplied {@link ThreadFactory},
+ * which may produce either platform or virtual threads.
+ * Monitors, sleeping, parking and interruption
+ * are delegated to the host threads.
+ *
+ * @author xDark
+ */
+public class HostThreadManager implements ThreadManager {
+	// Mapping between eetop and Java thread
+	private final Map<Handle, HostJavaThread> javaThreads = new ConcurrentHashMap<>();
+	// Alive threads
+	private final Set<HostJavaThread> threads = ConcurrentHashMap.newKeySet();
+	private final ThreadLocal<HostJavaThread> currentThread = new ThreadLocal<>();
+	private final VirtualMachine vm;
+	private final ThreadFactory threadFactory;
+
+	/**
+	 * @param vm            VM instance.
+	 * @param threadFactory Factory for host threads.
+	 */
+	public HostThreadManager(VirtualMachine vm, ThreadFactory threadFactory) {
+		this.vm = vm;
+		this.threadFactory = threadFactory;
+	}
+
+	/**
+	 * Creates thread manager that uses daemon platform threads,
+	 * so that VM threads never keep host process alive.
+	 *
+	 * @param vm VM instance.
+	 */
+	public HostThreadManager(VirtualMachine vm) {
+		this(vm, r -> {
+			Thread thread = new Thread(r);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public void startThread(InstanceValue oop) {
+		VMOperations ops = vm.getOperations();
+		HostOSThread osThread = newOsThread(ops.getLong(oop, "stackSize"));
+		syncThread(osThread, oop);
+		HostJavaThread javaThread = new HostJavaThread(oop, osThread, false);
+		Thread thread = threadFactory.newThread(() -> run(javaThread));
+		thread.setName(osThread.getName());
+		setHostPriority(thread, osThread.getPriority());
+		javaThread.thread = thread;
+		register(javaThread);
+		thread.start();
+	}
+
+	@Override
+	public void suspendThread(InstanceValue oop) {
+		vm.getOperations().throwException(vm.getSymbols().java_lang_UnsatisfiedLinkError());
+	}
+
+	@Override
+	public void resumeThread(InstanceValue oop) {
+		vm.getOperations().throwException(vm.getSymbols().java_lang_UnsatisfiedLinkError());
+	}
+
+	@Override
+	public void setPriority(InstanceValue oop, int priority) {
+		HostJavaThread th = forThread(oop);
+		if (th != null) {
+			th.osThread.setPriority(priority);
+			if (!th.attached) {
+				setHostPriority(th.thread, priority);
+			}
+		}
+	}
+
+	@Override
+	public void interrupt(InstanceValue oop) {
+		HostJavaThread th = forThread(oop);
+		if (th != null) {
+			th.thread.interrupt();
+		}
+	}
+
+	@Override
+	public void setName(InstanceValue oop, String name) {
+		HostJavaThread th = forThread(oop);
+		if (th != null) {
+			th.osThread.setName(name);
+			if (!th.attached) {
+				th.thread.setName(name);
+			}
+		}
+	}
+
+	@Override
+	public void stop(InstanceValue oop, InstanceValue exception) {
+		HostJavaThread th = forThread(oop);
+		if (th != null && th == currentThread.get()) {
+			vm.getOperations().throwException(exception);
+		} else {
+			vm.getOperations().throwException(vm.getSymbols().java_lang_UnsatisfiedLinkError());
+		}
+	}
+
+	@Override
+	public JavaThread currentJavaThread() {
+		return currentThread.get();
+	}
+
+	@Override
+	public OSThread currentOsThread() {
+		HostJavaThread th = currentThread.get();
+		return th == null ? null : th.osThread;
+	}
+
+	@Override
+	public void attachCurrentThread() {
+		ThreadLocal<HostJavaThread> currentThread = this.currentThread;
+		if (currentThread.get() != null) {
+			return;
+		}
+		Thread thread = Thread.currentThread();
+		VMOperations ops = vm.getOperations();
+		InstanceValue oop = vm.getMemoryManager().newInstance(vm.getSymbols().java_lang_Thread());
+		ops.putReference(oop, "name", "Ljava/lang/String;", ops.newUtf8(thread.getName()));
+		ops.putInt(oop, "priority", thread.getPriority());
+		HostOSThread osThread = newOsThread(0L);
+		syncThread(osThread, oop);
+		HostJavaThread javaThread = new HostJavaThread(oop, osThread, true);
+		javaThread.thread = thread;
+		register(javaThread);
+		currentThread.set(javaThread);
+	}
+
+	@Override
+	public void detachCurrentThread() {
+		ThreadLocal<HostJavaThread> currentThread = this.currentThread;
+		HostJavaThread th = currentThread.get();
+		if (th != null && th.attached) {
+			currentThread.remove();
+			unregister(th);
+			th.osThread.free();
+			vm.getMemoryAllocator().releaseCurrentThread();
+		}
+	}
+
+	@Override
+	public boolean isInterrupted(InstanceValue oop, boolean clear) {
+		HostJavaThread th = forThread(oop);
+		if (th == null) {
+			return false;
+		}
+		Thread thread = th.thread;
+		if (clear && thread == Thread.currentThread()) {
+			clearInterruptStatus(th);
+			return Thread.interrupted();
+		}
+		return thread.isInterrupted();
+	}
+
+	@Override
+	public List<JavaThread> snapshot() {
+		return new ArrayList<>(threads);
+	}
+
+	@Override
+	public void sleep(long millis) {
+		HostJavaThread th = currentThread();
+		OSThread osThread = th.osThread;
+		osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException ex) {
+			clearInterruptStatus(th);
+			vm.getOperations().throwException(vm.getSymbols().java_lang_InterruptedException(), "sleep interrupted");
+		} finally {
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+		}
+	}
+
+	@Override
+	public void yield() {
+		Thread.yield();
+	}
+
+	@Override
+	public void park(boolean absolute, long time) {
+		OSThread osThread = currentThread().osThread;
+		osThread.setThreadState(!absolute && time == 0L ? ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_WAITING : ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+		try {
+			if (absolute) {
+				LockSupport.parkUntil(time);
+			} else if (time == 0L) {
+				LockSupport.park();
+			} else {
+				LockSupport.parkNanos(time);
+			}
+		} finally {
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+		}
+	}
+
+	@Override
+	public void unpark(InstanceValue oop) {
+		HostJavaThread th = forThread(oop);
+		if (th != null) {
+			LockSupport.unpark(th.thread);
+		}
+	}
+
+	@Override
+	public void monitorWait(Mutex mutex, long timeoutMillis) {
+		HostJavaThread th = currentThread();
+		OSThread osThread = th.osThread;
+		osThread.setThreadState(timeoutMillis == Long.MAX_VALUE ? ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_WAITING : ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+		try {
+			mutex.doWait(timeoutMillis);
+		} catch (InterruptedException ex) {
+			clearInterruptStatus(th);
+			vm.getOperations().throwException(vm.getSymbols().java_lang_InterruptedException());
+		} finally {
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+		}
+	}
+
+	@Override
+	public JavaThread createMainThread() {
+		attachCurrentThread();
+		HostJavaThread th = currentThread();
+		VMOperations ops = vm.getOperations();
+		ops.putReference(th.getOop(), "name", "Ljava/lang/String;", ops.newUtf8("main"));
+		th.osThread.setName("main");
+		return th;
+	}
+
+	@Override
+	public JavaThread getThread(InstanceValue oop) {
+		return forThread(oop);
+	}
+
+	private void run(HostJavaThread th) {
+		currentThread.set(th);
+		InstanceValue oop = th.getOop();
+		VMOperations ops = vm.getOperations();
+		try {
+			try {
+				JavaMethod run = vm.getRuntimeResolver().resolveVirtualMethod(oop, "run", "()V");
+				Locals locals = th.osThread.getStorage().newLocals(run);
+				locals.setReference(0, oop);
+				ops.invokeVoid(run, locals);
+			} catch (VMException ex) {
+				dispatchUncaughtException(th, ex.getOop());
+			}
+		} finally {
+			exit(th);
+			currentThread.remove();
+		}
+	}
+
+	private void dispatchUncaughtException(HostJavaThread th, InstanceValue exception) {
+		JavaMethod dispatch = vm.getSymbols().java_lang_Thread().getMethod("dispatchUncaughtException", "(Ljava/lang/Throwable;)V");
+		if (dispatch != null) {
+			Locals locals = th.osThread.getStorage().newLocals(dispatch);
+			locals.setReference(0, th.getOop());
+			locals.setReference(1, exception);
+			try {
+				vm.getOperations().invokeVoid(dispatch, locals);
+			} catch (VMException ignored) {
+				// Exceptions thrown by the handler are ignored, as in HotSpot
+			}
+		}
+	}
+
+	private void exit(HostJavaThread th) {
+		InstanceValue oop = th.getOop();
+		VMOperations ops = vm.getOperations();
+		JavaMethod exit = vm.getSymbols().java_lang_Thread().getMethod("exit", "()V");
+		if (exit != null) {
+			Locals locals = th.osThread.getStorage().newLocals(exit);
+			locals.setReference(0, oop);
+			try {
+				ops.invokeVoid(exit, locals);
+			} catch (VMException ignored) {
+				// Thread is terminating anyway
+			}
+		}
+		HostOSThread osThread = th.osThread;
+		osThread.setThreadState(ThreadState.JVMTI_THREAD_STATE_TERMINATED);
+		unregister(th);
+		// Wake up threads waiting in Thread#join
+		MemoryManager memoryManager = vm.getMemoryManager();
+		memoryManager.monitorEnter(oop);
+		try {
+			memoryManager.getMutex(oop).doNotifyAll();
+		} finally {
+			memoryManager.monitorExit(oop);
+		}
+		osThread.free();
+		vm.getMemoryAllocator().releaseCurrentThread();
+	}
+
+	private void register(HostJavaThread th) {
+		Handle handle = Handle.of(0L);
+		// Insert into javaThreads map with free eetop
+		Map<Handle, HostJavaThread> javaThreads = this.javaThreads;
+		ThreadLocalRandom rng = ThreadLocalRandom.current();
+		do {
+			handle.set(rng.nextLong());
+		} while (handle.get() == 0L || javaThreads.putIfAbsent(handle, th) != null);
+		th.eetop = handle;
+		threads.add(th);
+		vm.getOperations().putLong(th.getOop(), "eetop", handle.get());
+	}
+
+	private void unregister(HostJavaThread th) {
+		threads.remove(th);
+		javaThreads.remove(th.eetop);
+		vm.getOperations().putLong(th.getOop(), "eetop", 0L);
+	}
+
+	private HostJavaThread currentThread() {
+		HostJavaThread th = currentThread.get();
+		Assertions.notNull(th, "not a Java thread");
+		return th;
+	}
+
+	private HostOSThread newOsThread(long stackSize) {
+		if (stackSize == 0L) {
+			// Default stack size, same as for virtual threads.
+			stackSize = 1024L * 1024L;
+		}
+		Backtrace backtrace = new SimpleBacktrace(1024);
+		MemoryAllocator memoryAllocator = vm.getMemoryAllocator();
+		ThreadStorage storage = new HeapThreadStorage(vm.getMemoryManager(), memoryAllocator, memoryAllocator.allocateHeap(stackSize));
+		return new HostOSThread(backtrace, storage);
+	}
+
+	private void syncThread(OSThread thread, InstanceValue oop) {
+		VMOperations ops = vm.getOperations();
+		thread.setName(ops.readUtf8(ops.getReference(oop, "name", "Ljava/lang/String;")));
+		thread.setPriority(ops.getInt(oop, "priority"));
+		thread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+	}
+
+	private void clearInterruptStatus(HostJavaThread th) {
+		// Since JDK 14 interrupt status is also stored in the Thread object
+		if (vm.getSymbols().java_lang_Thread().getField("interrupted", "Z") != null) {
+			vm.getOperations().putBoolean(th.getOop(), "interrupted", false);
+		}
+	}
+
+	private HostJavaThread forThread(InstanceValue oop) {
+		long eetop = vm.getOperations().getLong(oop, "eetop");
+		if (eetop == 0L) {
+			return null;
+		}
+		return javaThreads.get(Handle.threadLocal(eetop));
+	}
+
+	private static void setHostPriority(Thread thread, int priority) {
+		thread.setPriority(Math.max(Thread.MIN_PRIORITY, Math.min(Thread.MAX_PRIORITY, priority)));
+	}
+}
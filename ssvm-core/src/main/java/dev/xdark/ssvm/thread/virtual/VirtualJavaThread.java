@@ -1,9 +1,12 @@
 package dev.xdark.ssvm.thread.virtual;
 
+import dev.xdark.ssvm.execution.StacklessInterpreter;
 import dev.xdark.ssvm.thread.JavaThread;
 import dev.xdark.ssvm.thread.OSThread;
 import dev.xdark.ssvm.value.InstanceValue;
 
+import java.util.function.BooleanSupplier;
+
 /**
  * Virtual Java thread.
  *
@@ -12,14 +15,27 @@
 final class VirtualJavaThread implements JavaThread {
 	private final InstanceValue oop;
 	final VirtualOSThread osThread;
+	// Monitor owner id
+	final int id;
 	boolean attached;
 	Thread foreign;
-	// Scheduler state
-	boolean interrupted;
-	InstanceValue exception; // Thread#stop0/interrupt
-	long timeout;
+	StacklessInterpreter.Continuation continuation;
+	volatile boolean interrupted;
+	volatile InstanceValue exception; // Thread#stop0
+	// Scheduler state, guarded by the scheduler lock
+	volatile boolean mounted;
+	boolean blocked;
+	// Wake up that happened while the thread was not blocked
+	boolean signal;
+	boolean permit;
+	// Identifies the monitor release the thread waits for
+	Object entryToken;
+	long deadline;
+	// Checked on the thread before it is resumed
+	BooleanSupplier blocker;
 
-	VirtualJavaThread(InstanceValue oop, VirtualOSThread osThread) {
+	VirtualJavaThread(int id, InstanceValue oop, VirtualOSThread osThread) {
+		this.id = id;
 		this.oop = oop;
 		this.osThread = osThread;
 	}
@@ -33,4 +49,9 @@ public InstanceValue getOop() {
 	public OSThread getOsThread() {
 		return osThread;
 	}
+
+	@Override
+	public boolean isSuspended() {
+		return continuation != null && !mounted;
+	}
 }
@@ -1,10 +1,17 @@
 package dev.xdark.ssvm.thread.virtual;
 
 import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.StacklessInterpreter;
+import dev.xdark.ssvm.execution.VMException;
 import dev.xdark.ssvm.io.Handle;
 import dev.xdark.ssvm.jvmti.ThreadState;
 import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.synchronizer.MonitorScheduler;
+import dev.xdark.ssvm.synchronizer.Mutex;
 import dev.xdark.ssvm.thread.JavaThread;
 import dev.xdark.ssvm.thread.OSThread;
 import dev.xdark.ssvm.thread.ThreadManager;
@@ -14,46 +21,108 @@
 import dev.xdark.ssvm.thread.heap.HeapThreadStorage;
 import dev.xdark.ssvm.util.Assertions;
 import dev.xdark.ssvm.value.InstanceValue;
+import dev.xdark.ssvm.value.ObjectValue;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 /**
  * Virtual thread manager and scheduler.
+ * <p>
+ * Threads started by the VM are green threads, they do not
+ * get a host thread of their own. A green thread runs in the
+ * {@link StacklessInterpreter} and is suspended once it has run
+ * for a quantum of instructions, or when it sleeps, parks, waits
+ * or has to wait for a monitor. Green threads run in a round-robin
+ * fashion, priorities are ignored.
+ * <p>
+ * There is no carrier thread: green threads run on a host thread
+ * bound to the VM (the main thread or an attached thread)
+ * whenever it would block otherwise, so all of them may
+ * share a single host thread.
+ * A green thread that blocks while there are host frames
+ * on its backtrace, e.g. in a class initializer or a native method,
+ * cannot be suspended, and runs other threads in place
+ * in the same way.
  *
  * @author xDark
  */
-public final class VirtualThreadManager implements ThreadManager {
-	private static final VirtualJavaThread SENTINEL = new VirtualJavaThread(null, null);
+public final class VirtualThreadManager implements ThreadManager, MonitorScheduler {
+	/**
+	 * Default amount of instructions a green thread
+	 * runs for before it is preempted.
+	 */
+	public static final int DEFAULT_QUANTUM = 10000;
+	private static final long FOREVER = Long.MAX_VALUE;
+	// Longest wait of a host thread that has nothing to run,
+	// monitors released by host threads are polled
+	private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+	private static final VirtualJavaThread SENTINEL = new VirtualJavaThread(0, null, null);
 	// Mapping between eetop and Java thread
-	private final Map<Handle, VirtualJavaThread> javaThreads = new HashMap<>();
+	private final Map<Handle, VirtualJavaThread> javaThreads = new ConcurrentHashMap<>();
 	// Attached threads
 	private final Map<Thread, VirtualJavaThread> foreignThreads = new IdentityHashMap<>();
-	// All threads so far
+	// Java thread bound to the host thread, lookup must not take any locks
+	private final ThreadLocal<VirtualJavaThread> boundThread = new ThreadLocal<>();
+	private final AtomicInteger threadIds = new AtomicInteger();
+	// Monitor owner ids of host threads that are not attached
+	private final ThreadLocal<Integer> hostThreadId = ThreadLocal.withInitial(threadIds::incrementAndGet);
+	// Main thread and alive green threads
 	private final List<VirtualJavaThread> allThreads = new LinkedList<>();
-	// Threads for scheduling
-	private final Queue<VirtualJavaThread> scheduled = new PriorityQueue<>(Comparator.comparingInt(t -> t.getOsThread().getPriority()));
-	// TODO this is stupid
-	private final List<VirtualJavaThread> asleep = new ArrayList<>();
+	// Green threads ready to run
+	private final Deque<VirtualJavaThread> runQueue = new ArrayDeque<>();
+	// Blocked green threads with a deadline, earliest first
+	private final PriorityQueue<VirtualJavaThread> timers = new PriorityQueue<>((a, b) -> Long.signum(a.deadline - b.deadline));
 	private final Object threadLock = new Object[0];
+	// Guards scheduler state of all threads
+	private final Object schedulerLock = new Object[0];
 	private final VirtualMachine vm;
-	private VirtualJavaThread currentThread;
+	private final int quantum;
+	private int greenThreads;
+	private volatile VirtualJavaThread currentThread;
 
-	public VirtualThreadManager(VirtualMachine vm) {
+	/**
+	 * @param vm      VM instance.
+	 * @param quantum Amount of instructions a green thread
+	 *                runs for before it is preempted.
+	 */
+	public VirtualThreadManager(VirtualMachine vm, int quantum) {
+		Assertions.check(quantum > 0, "quantum must be positive");
 		this.vm = vm;
+		this.quantum = quantum;
+	}
+
+	public VirtualThreadManager(VirtualMachine vm) {
+		this(vm, DEFAULT_QUANTUM);
 	}
 
 	@Override
 	public void startThread(InstanceValue oop) {
-		startThread0(oop, false);
+		VMOperations ops = vm.getOperations();
+		long stackSize = ops.getLong(oop, "stackSize");
+		VirtualOSThread thread = newOsThread(stackSize);
+		// Do sync between OS thread and Java thread
+		syncThread(thread, oop);
+		VirtualJavaThread javaThread = new VirtualJavaThread(threadIds.incrementAndGet(), oop, thread);
+		setThreadEeetop(javaThread);
+		synchronized (schedulerLock) {
+			allThreads.add(javaThread);
+			greenThreads++;
+			runQueue.add(javaThread);
+			schedulerLock.notifyAll();
+		}
 	}
 
 	@Override
@@ -70,43 +139,19 @@ public void resumeThread(InstanceValue oop) {
 	public void setPriority(InstanceValue oop, int priority) {
 		VirtualJavaThread th = forThread(oop);
 		if (th != null) {
-			Queue<VirtualJavaThread> allThreads = this.scheduled;
-			OSThread ost = th.getOsThread();
-			if (ost.getPriority() != priority) {
-				boolean offer = allThreads.remove(th);
-				// Re-insert thread for the scheduler
-				ost.setPriority(priority);
-				if (offer) {
-					// setPriority may've been called
-					// from another thread on a thread that is asleep
-					allThreads.offer(th);
-				}
-			}
+			// Not used for scheduling
+			th.getOsThread().setPriority(priority);
 		}
 	}
 
 	@Override
 	public void interrupt(InstanceValue oop) {
 		VirtualJavaThread th = forThread(oop);
-		if (th != null) {
-			if (dead(th)) {
-				return;
-			}
-			Thread foreign = th.foreign;
-			if (foreign != null) {
-				foreign.interrupt();
-			} else {
-				if (th.timeout != 0L) {
-					th.timeout = 0L;
-					// Wake up thread from sleep
-					th.exception = vm.getOperations().newException(vm.getSymbols().java_lang_InterruptedException(), "sleep interrupted");
-					asleep.remove(th);
-					scheduled.offer(th);
-				} else {
-					th.interrupted = true;
-				}
-			}
+		if (dead(th)) {
+			return;
 		}
+		th.interrupted = true;
+		wakeUp(th);
 	}
 
 	@Override
@@ -120,9 +165,15 @@ public void setName(InstanceValue oop, String name) {
 	@Override
 	public void stop(InstanceValue oop, InstanceValue exception) {
 		VirtualJavaThread th = forThread(oop);
-		if (th != null) {
-			th.exception = exception;
+		if (dead(th)) {
+			return;
+		}
+		if (th == boundThread.get()) {
+			vm.getOperations().throwException(exception);
 		}
+		// Thrown once the thread is resumed
+		th.exception = exception;
+		wakeUp(th);
 	}
 
 	@Override
@@ -144,8 +195,9 @@ public void attachCurrentThread() {
 			if (foreignThreads.putIfAbsent(th, SENTINEL) == null) {
 				VirtualOSThread osThread = newOsThread(0L);
 				InstanceValue oop = vm.getMemoryManager().newInstance(vm.getSymbols().java_lang_Thread());
-				VirtualJavaThread javaThread = new VirtualJavaThread(oop, osThread);
+				VirtualJavaThread javaThread = new VirtualJavaThread(threadIds.incrementAndGet(), oop, osThread);
 				foreignThreads.put(th, javaThread);
+				boundThread.set(javaThread);
 				setThreadEeetop(javaThread);
 				javaThread.foreign = th;
 				String name = th.getName();
@@ -166,7 +218,9 @@ public void detachCurrentThread() {
 			jth = foreignThreads.remove(th);
 		}
 		if (jth != null) {
+			boundThread.remove();
 			jth.osThread.free();
+			vm.getMemoryAllocator().releaseCurrentThread();
 		}
 	}
 
@@ -185,49 +239,186 @@ public boolean isInterrupted(InstanceValue oop, boolean clear) {
 
 	@Override
 	public List<JavaThread> snapshot() {
-		return new ArrayList<>(allThreads);
+		List<JavaThread> threads;
+		synchronized (schedulerLock) {
+			threads = new ArrayList<>(allThreads);
+		}
+		synchronized (threadLock) {
+			for (VirtualJavaThread th : foreignThreads.values()) {
+				if (th != SENTINEL && !threads.contains(th)) {
+					threads.add(th);
+				}
+			}
+		}
+		return threads;
 	}
 
 	@Override
 	public void sleep(long millis) {
 		VirtualJavaThread th = currentThread();
+		Assertions.check(!dead(th), "thread is not alive");
+		if (th.interrupted) {
+			throwInterrupted(th, "sleep interrupted");
+		}
 		if (millis == 0L) {
+			this.yield();
 			return;
 		}
-		Assertions.check(!dead(th), "thread is not alive");
 		OSThread osThread = th.getOsThread();
-		if (th.attached) {
-			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_BLOCKED);
-			// Call to native Thread.sleep
-			th.timeout = millis;
+		osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+		long deadline = deadline(TimeUnit.MILLISECONDS.toNanos(millis));
+		boolean blocked = block(th, deadline, () -> {
+			if (!th.interrupted && !expired(deadline)) {
+				return false;
+			}
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+			if (th.interrupted) {
+				throwInterrupted(th, "sleep interrupted");
+			}
+			return true;
+		});
+		if (!blocked) {
 			try {
-				Thread.sleep(millis);
-			} catch (InterruptedException ex) {
-				// Propagate to VM code
-				th.timeout = 0L;
-				th.interrupted = true;
-				vm.getOperations().throwException(vm.getSymbols().java_lang_InterruptedException(), "sleep interrupted");
+				awaitInPlace(th, () -> false, deadline);
 			} finally {
 				osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
 			}
-		} else {
-			Assertions.check(th.timeout == 0L, "already sleeping");
 			if (th.interrupted) {
-				th.interrupted = false;
-				vm.getOperations().throwException(vm.getSymbols().java_lang_InterruptedException(), "sleep interrupted");
-			} else {
-				osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_BLOCKED);
-				th.timeout = millis;
-				// Remove form scheduled threads and put to asleep
-				scheduled.remove(th);
-				asleep.add(th);
+				throwInterrupted(th, "sleep interrupted");
 			}
 		}
 	}
 
 	@Override
 	public void yield() {
-		// Do nothing
+		VirtualJavaThread th = currentThread();
+		StacklessInterpreter.Continuation continuation = th.continuation;
+		if (continuation != null && continuation.canSuspend()) {
+			// Goes to the end of the run queue
+			continuation.suspend();
+		} else {
+			runOrWait(System.nanoTime());
+		}
+	}
+
+	@Override
+	public void park(boolean absolute, long time) {
+		if ((!absolute && time < 0L) || (absolute && time == 0L)) {
+			return;
+		}
+		VirtualJavaThread th = currentThread();
+		if (consumePermit(th) || th.interrupted) {
+			return;
+		}
+		long deadline;
+		if (absolute) {
+			deadline = deadline(TimeUnit.MILLISECONDS.toNanos(time - System.currentTimeMillis()));
+		} else if (time == 0L) {
+			deadline = FOREVER;
+		} else {
+			deadline = deadline(time);
+		}
+		OSThread osThread = th.getOsThread();
+		osThread.setThreadState(deadline == FOREVER ? ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_WAITING : ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+		// Park may return spuriously, any wake up will do
+		boolean blocked = block(th, deadline, () -> {
+			consumePermit(th);
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+			return true;
+		});
+		if (!blocked) {
+			try {
+				awaitInPlace(th, () -> consumePermit(th), deadline);
+			} finally {
+				osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+			}
+		}
+	}
+
+	@Override
+	public void unpark(InstanceValue oop) {
+		VirtualJavaThread th = forThread(oop);
+		if (th != null) {
+			synchronized (schedulerLock) {
+				th.permit = true;
+			}
+			wakeUp(th);
+		}
+	}
+
+	@Override
+	public void monitorWait(Mutex mutex, long timeoutMillis) {
+		VirtualJavaThread th = currentThread();
+		if (th.interrupted) {
+			throwInterrupted(th, null);
+		}
+		OSThread osThread = th.getOsThread();
+		long deadline;
+		if (timeoutMillis == Long.MAX_VALUE) {
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_WAITING);
+			deadline = FOREVER;
+		} else {
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+			deadline = deadline(TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+		}
+		AtomicBoolean notified = new AtomicBoolean();
+		Object waiter = mutex.beginWait(() -> {
+			notified.set(true);
+			wakeUp(th);
+		});
+		boolean blocked = block(th, deadline, () -> {
+			if (!mutex.tryEndWait(waiter)) {
+				// Monitor is held by another thread
+				th.deadline = FOREVER;
+				if (!mutex.awaitRelease(entryWakeup(th))) {
+					// Released in the meantime
+					wakeUp(th);
+				}
+				return false;
+			}
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+			if (th.interrupted) {
+				throwInterrupted(th, null);
+			}
+			return true;
+		});
+		if (!blocked) {
+			try {
+				awaitInPlace(th, notified::get, deadline);
+				while (!mutex.tryEndWait(waiter)) {
+					runOrWait(deadline(POLL_NANOS));
+				}
+			} finally {
+				osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+			}
+			if (th.interrupted) {
+				throwInterrupted(th, null);
+			}
+		}
+	}
+
+	@Override
+	public int currentThreadId() {
+		VirtualJavaThread th = boundThread.get();
+		if (th == null) {
+			return hostThreadId.get();
+		}
+		return th.id;
+	}
+
+	@Override
+	public boolean onContention() {
+		if (boundThread.get() == null) {
+			return false;
+		}
+		synchronized (schedulerLock) {
+			if (greenThreads == 0) {
+				// Monitor is owned by another host thread
+				return false;
+			}
+		}
+		runOrWait(deadline(POLL_NANOS));
+		return true;
 	}
 
 	@Override
@@ -237,7 +428,7 @@ public JavaThread createMainThread() {
 		VirtualJavaThread javaThread = foreignThreads.get(th); // TODO fixme
 		if (javaThread == null) {
 			VirtualOSThread osThread = newOsThread(0L);
-			javaThread = new VirtualJavaThread(oop, osThread);
+			javaThread = new VirtualJavaThread(threadIds.incrementAndGet(), oop, osThread);
 		} else {
 			// TODO this is invalid, VM must be started from valid thread created by ThreadManager
 			/*
@@ -246,6 +437,7 @@ public JavaThread createMainThread() {
 			*/
 		}
 		currentThread = javaThread;
+		boundThread.set(javaThread);
 		VMOperations ops = vm.getOperations();
 		ops.putReference(oop, "name", "Ljava/lang/String;", ops.newUtf8("main"));
 		int priority = th.getPriority();
@@ -254,7 +446,10 @@ public JavaThread createMainThread() {
 		syncThread(osThread, oop);
 		osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
 		setThreadEeetop(javaThread);
-		schedule(javaThread);
+		synchronized (schedulerLock) {
+			// Main thread runs on the host thread
+			allThreads.add(javaThread);
+		}
 		return javaThread;
 	}
 
@@ -268,11 +463,292 @@ public JavaThread getThread(InstanceValue oop) {
 		return forThread(oop);
 	}
 
-	private VirtualJavaThread currentThread() {
-		VirtualJavaThread th;
-		synchronized (threadLock) {
-			th = foreignThreads.get(Thread.currentThread());
+	/**
+	 * Blocks the current green thread until it is woken up.
+	 * The thread is suspended and the method returns,
+	 * the blocker is called before the thread is resumed.
+	 *
+	 * @param th       Current thread.
+	 * @param deadline Time at which the thread is woken up.
+	 * @param blocker  Returns {@code true} if the thread may continue,
+	 *                 may throw an exception to the thread.
+	 * @return {@code false} if the thread cannot be suspended
+	 * and must wait in place.
+	 */
+	private boolean block(VirtualJavaThread th, long deadline, BooleanSupplier blocker) {
+		StacklessInterpreter.Continuation continuation = th.continuation;
+		if (continuation == null || !continuation.canSuspend()) {
+			return false;
 		}
+		th.blocker = blocker;
+		synchronized (schedulerLock) {
+			th.deadline = deadline;
+			markBlocked(th);
+		}
+		continuation.suspend();
+		return true;
+	}
+
+	// Marks the thread as blocked unless it was woken up already,
+	// must be called under the scheduler lock
+	private void markBlocked(VirtualJavaThread th) {
+		if (th.signal || th.interrupted || th.exception != null) {
+			th.signal = false;
+			return;
+		}
+		th.blocked = true;
+		if (th.deadline != FOREVER) {
+			timers.add(th);
+		}
+	}
+
+	private void wakeUp(VirtualJavaThread th) {
+		synchronized (schedulerLock) {
+			if (th.blocked) {
+				th.blocked = false;
+				if (th.deadline != FOREVER) {
+					timers.remove(th);
+				}
+				if (!th.mounted) {
+					runQueue.add(th);
+				}
+			} else {
+				th.signal = true;
+			}
+			// Host threads waiting in place re-check their conditions
+			schedulerLock.notifyAll();
+		}
+	}
+
+	// Wakes the thread up once a monitor is released,
+	// unless the thread was resumed for another reason since
+	private BooleanSupplier entryWakeup(VirtualJavaThread th) {
+		Object token = new Object();
+		synchronized (schedulerLock) {
+			th.entryToken = token;
+		}
+		return () -> {
+			synchronized (schedulerLock) {
+				if (th.entryToken != token) {
+					return false;
+				}
+				th.entryToken = null;
+			}
+			wakeUp(th);
+			return true;
+		};
+	}
+
+	private boolean consumePermit(VirtualJavaThread th) {
+		synchronized (schedulerLock) {
+			boolean permit = th.permit;
+			th.permit = false;
+			return permit;
+		}
+	}
+
+	/**
+	 * Runs green threads on the current host thread
+	 * until the condition is met, the deadline passes
+	 * or the thread is interrupted.
+	 */
+	private void awaitInPlace(VirtualJavaThread th, BooleanSupplier condition, long deadline) {
+		while (!th.interrupted && !expired(deadline) && !condition.getAsBoolean()) {
+			runOrWait(deadline);
+		}
+	}
+
+	/**
+	 * Runs a slice of the next green thread,
+	 * or waits for one to become ready, but not past the deadline.
+	 */
+	private void runOrWait(long deadline) {
+		VirtualJavaThread next;
+		synchronized (schedulerLock) {
+			long now = System.nanoTime();
+			next = poll(now);
+			if (next == null) {
+				long wait = POLL_NANOS;
+				VirtualJavaThread timer = timers.peek();
+				if (timer != null) {
+					wait = Math.min(wait, timer.deadline - now);
+				}
+				if (deadline != FOREVER) {
+					wait = Math.min(wait, deadline - now);
+				}
+				if (wait > 0L) {
+					try {
+						TimeUnit.NANOSECONDS.timedWait(schedulerLock, wait);
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return;
+			}
+			next.mounted = true;
+			// Monitor is tried again by the thread itself
+			next.entryToken = null;
+		}
+		runSlice(next);
+	}
+
+	// Must be called under the scheduler lock
+	private VirtualJavaThread poll(long now) {
+		PriorityQueue<VirtualJavaThread> timers = this.timers;
+		VirtualJavaThread timer;
+		while ((timer = timers.peek()) != null && timer.deadline - now <= 0L) {
+			timers.poll();
+			timer.blocked = false;
+			if (!timer.mounted) {
+				runQueue.add(timer);
+			}
+		}
+		return runQueue.poll();
+	}
+
+	private void runSlice(VirtualJavaThread th) {
+		VirtualJavaThread previous = boundThread.get();
+		boundThread.set(th);
+		boolean done = true;
+		try {
+			try {
+				done = resume(th);
+			} catch (VMException ex) {
+				dispatchUncaughtException(th, ex.getOop());
+			} finally {
+				if (done) {
+					exit(th);
+				}
+			}
+		} finally {
+			unmount(th, done);
+			if (previous == null) {
+				boundThread.remove();
+			} else {
+				boundThread.set(previous);
+			}
+		}
+	}
+
+	private boolean resume(VirtualJavaThread th) {
+		StacklessInterpreter.Continuation continuation = th.continuation;
+		if (continuation == null) {
+			InstanceValue oop = th.getOop();
+			JavaMethod run = vm.getRuntimeResolver().resolveVirtualMethod(oop, "run", "()V");
+			Locals locals = th.osThread.getStorage().newLocals(run);
+			locals.setReference(0, oop);
+			if (!StacklessInterpreter.isInterpreted(vm, run)) {
+				// Cannot be preempted
+				vm.getOperations().invokeVoid(run, locals);
+				return true;
+			}
+			th.continuation = continuation = StacklessInterpreter.start(vm, run, locals);
+		}
+		BooleanSupplier blocker = th.blocker;
+		if (blocker != null) {
+			boolean ready;
+			try {
+				ready = blocker.getAsBoolean();
+			} catch (VMException ex) {
+				ready = true;
+				continuation.raise(ex);
+			}
+			if (!ready) {
+				synchronized (schedulerLock) {
+					markBlocked(th);
+				}
+				return false;
+			}
+			th.blocker = null;
+		}
+		InstanceValue exception = th.exception;
+		if (exception != null) {
+			th.exception = null;
+			continuation.raise(new VMException(exception));
+		}
+		if (StacklessInterpreter.resume(continuation, quantum)) {
+			return true;
+		}
+		ObjectValue monitor = continuation.getContendedMonitor();
+		if (monitor != null) {
+			// Sleep until the owner releases the monitor
+			Mutex mutex = vm.getMemoryManager().getMutex(monitor);
+			th.deadline = FOREVER;
+			if (mutex.awaitRelease(entryWakeup(th))) {
+				synchronized (schedulerLock) {
+					markBlocked(th);
+				}
+			}
+		}
+		return false;
+	}
+
+	private void unmount(VirtualJavaThread th, boolean done) {
+		synchronized (schedulerLock) {
+			th.mounted = false;
+			if (done) {
+				allThreads.remove(th);
+				greenThreads--;
+			} else if (!th.blocked) {
+				runQueue.add(th);
+			}
+			schedulerLock.notifyAll();
+		}
+	}
+
+	private void dispatchUncaughtException(VirtualJavaThread th, InstanceValue exception) {
+		JavaMethod dispatch = vm.getSymbols().java_lang_Thread().getMethod("dispatchUncaughtException", "(Ljava/lang/Throwable;)V");
+		if (dispatch != null) {
+			Locals locals = th.osThread.getStorage().newLocals(dispatch);
+			locals.setReference(0, th.getOop());
+			locals.setReference(1, exception);
+			try {
+				vm.getOperations().invokeVoid(dispatch, locals);
+			} catch (VMException ignored) {
+				// Exceptions thrown by the handler are ignored, as in HotSpot
+			}
+		}
+	}
+
+	private void exit(VirtualJavaThread th) {
+		InstanceValue oop = th.getOop();
+		VMOperations ops = vm.getOperations();
+		JavaMethod exit = vm.getSymbols().java_lang_Thread().getMethod("exit", "()V");
+		if (exit != null) {
+			Locals locals = th.osThread.getStorage().newLocals(exit);
+			locals.setReference(0, oop);
+			try {
+				ops.invokeVoid(exit, locals);
+			} catch (VMException ignored) {
+				// Thread is terminating anyway
+			}
+		}
+		VirtualOSThread osThread = th.osThread;
+		osThread.setThreadState(ThreadState.JVMTI_THREAD_STATE_TERMINATED);
+		javaThreads.remove(Handle.threadLocal(ops.getLong(oop, "eetop")));
+		ops.putLong(oop, "eetop", 0L);
+		// Wake up threads waiting in Thread#join
+		MemoryManager memoryManager = vm.getMemoryManager();
+		memoryManager.monitorEnter(oop);
+		try {
+			memoryManager.getMutex(oop).doNotifyAll();
+		} finally {
+			memoryManager.monitorExit(oop);
+		}
+		osThread.free();
+	}
+
+	private void throwInterrupted(VirtualJavaThread th, String message) {
+		th.interrupted = false;
+		// Since JDK 14 interrupt status is also stored in the Thread object
+		if (vm.getSymbols().java_lang_Thread().getField("interrupted", "Z") != null) {
+			vm.getOperations().putBoolean(th.getOop(), "interrupted", false);
+		}
+		vm.getOperations().throwException(vm.getSymbols().java_lang_InterruptedException(), message);
+	}
+
+	private VirtualJavaThread currentThread() {
+		VirtualJavaThread th = boundThread.get();
 		if (th == null) {
 			th = currentThread;
 			Assertions.notNull(th, "not a Java thread");
@@ -296,28 +772,6 @@ private VirtualOSThread newOsThread(long stackSize) {
 		return new VirtualOSThread(backtrace, storage);
 	}
 
-	private VirtualJavaThread startThread0(InstanceValue oop, boolean attached) {
-		VMOperations ops = vm.getOperations();
-		long stackSize = ops.getLong(oop, "stackSize");
-		VirtualOSThread thread = newOsThread(stackSize);
-		// Do sync between OS thread and Java thread
-		syncThread(thread, oop);
-		thread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
-		VirtualJavaThread javaThread = new VirtualJavaThread(oop, thread);
-		javaThread.attached = attached;
-		setThreadEeetop(javaThread);
-		if (!attached) {
-			// Insert into a list of all threads for the scheduler
-			schedule(javaThread);
-		}
-		return javaThread;
-	}
-
-	private void schedule(VirtualJavaThread thread) {
-		allThreads.add(thread);
-		scheduled.offer(thread);
-	}
-
 	private void setThreadEeetop(VirtualJavaThread th) {
 		Handle handle = Handle.of(0L);
 		// Insert into javaThreads map with free eetop
@@ -325,7 +779,7 @@ private void setThreadEeetop(VirtualJavaThread th) {
 		ThreadLocalRandom rng = ThreadLocalRandom.current();
 		do {
 			handle.set(rng.nextLong());
-		} while (javaThreads.putIfAbsent(handle, th) != null);
+		} while (handle.get() == 0L || javaThreads.putIfAbsent(handle, th) != null);
 		vm.getOperations().putLong(th.getOop(), "eetop", handle.get());
 	}
 
@@ -339,10 +793,25 @@ private void syncThread(OSThread thread, InstanceValue oop) {
 	private VirtualJavaThread forThread(InstanceValue oop) {
 		VMOperations ops = vm.getOperations();
 		long eetop = ops.getLong(oop, "eetop");
+		if (eetop == 0L) {
+			return null;
+		}
 		Handle handle = Handle.threadLocal(eetop);
 		return javaThreads.get(handle);
 	}
 
+	private static long deadline(long nanos) {
+		if (nanos >= FOREVER >> 1) {
+			// Too far away, never wake up
+			return FOREVER;
+		}
+		return System.nanoTime() + nanos;
+	}
+
+	private static boolean expired(long deadline) {
+		return deadline != FOREVER && deadline - System.nanoTime() <= 0L;
+	}
+
 	private static boolean dead(JavaThread th) {
 		return th == null || th.getOsThread().getThreadState() == ThreadState.JVMTI_THREAD_STATE_TERMINATED;
 	}
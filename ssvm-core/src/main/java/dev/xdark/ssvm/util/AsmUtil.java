@@ -4,6 +4,7 @@
 import lombok.experimental.UtilityClass;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.InsnNode;
 import sun.misc.Unsafe;
 
@@ -74,6 +75,22 @@ public boolean isValid(AbstractInsnNode insnNode) {
 		return getIndex(insnNode) != -1;
 	}
 
+	/**
+	 * Replaces the instruction, unless another thread
+	 * has already replaced it.
+	 *
+	 * @param list        Instruction list.
+	 * @param insnNode    Instruction to replace.
+	 * @param replacement Replacement.
+	 */
+	public void replace(InsnList list, AbstractInsnNode insnNode, AbstractInsnNode replacement) {
+		synchronized (list) {
+			if (isValid(insnNode)) {
+				list.set(insnNode, replacement);
+			}
+		}
+	}
+
 	/**
 	 * Returns opcode name.
 	 *
@@ -1,9 +1,15 @@
 package dev.xdark.ssvm.util;
 
+import dev.xdark.ssvm.asm.CodeSource;
+import dev.xdark.ssvm.asm.LazyMethodNode;
 import lombok.experimental.UtilityClass;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
 
+import java.util.ArrayList;
+
 /**
  * {@link ClassNode} utils.
  *
@@ -15,14 +21,80 @@ public class ClassUtil {
 	/**
 	 * Reads node from {@link ClassReader}.
 	 * <p>
-	 * This method will ignore stackmap of the class.
+	 * Code of the methods is not parsed until it is needed,
+	 * see {@link LazyMethodNode}.
 	 *
 	 * @param reader Source to read from.
 	 * @return read node.
 	 */
 	public ClassNode readNode(ClassReader reader) {
-		ClassNode node = new ClassNode();
-		reader.accept(node, ClassReader.SKIP_FRAMES);
+		return readNode(reader, true);
+	}
+
+	/**
+	 * Reads node from {@link ClassReader}.
+	 * <p>
+	 * This method will ignore stackmap of the class.
+	 *
+	 * @param reader   Source to read from.
+	 * @param lazyCode Whether the code of the methods
+	 *                 should be parsed on first use.
+	 * @return read node.
+	 */
+	public ClassNode readNode(ClassReader reader, boolean lazyCode) {
+		if (!lazyCode) {
+			ClassNode node = new ClassNode();
+			reader.accept(node, ClassReader.SKIP_FRAMES);
+			return node;
+		}
+		CodeSource source = new CodeSource(reader);
+		ClassNode node = new ClassNode(Opcodes.ASM9) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				// Methods are visited in the class file order
+				LazyMethodNode method = new LazyMethodNode(source, methods.size(), access, name, descriptor, signature, exceptions);
+				methods.add(method);
+				return method;
+			}
+		};
+		reader.accept(node, ClassReader.SKIP_CODE);
 		return node;
 	}
+
+	/**
+	 * Makes a shallow copy of the node.
+	 * Lists of the fields and the methods are copied,
+	 * everything else is shared with the node.
+	 *
+	 * @param node Node to copy.
+	 * @return copy of the node.
+	 */
+	public ClassNode copyNode(ClassNode node) {
+		ClassNode copy = new ClassNode(Opcodes.ASM9);
+		copy.version = node.version;
+		copy.access = node.access;
+		copy.name = node.name;
+		copy.signature = node.signature;
+		copy.superName = node.superName;
+		copy.interfaces = node.interfaces;
+		copy.sourceFile = node.sourceFile;
+		copy.sourceDebug = node.sourceDebug;
+		copy.module = node.module;
+		copy.outerClass = node.outerClass;
+		copy.outerMethod = node.outerMethod;
+		copy.outerMethodDesc = node.outerMethodDesc;
+		copy.visibleAnnotations = node.visibleAnnotations;
+		copy.invisibleAnnotations = node.invisibleAnnotations;
+		copy.visibleTypeAnnotations = node.visibleTypeAnnotations;
+		copy.invisibleTypeAnnotations = node.invisibleTypeAnnotations;
+		copy.attrs = node.attrs;
+		copy.innerClasses = node.innerClasses;
+		copy.nestHostClass = node.nestHostClass;
+		copy.nestMembers = node.nestMembers;
+		copy.permittedSubclasses = node.permittedSubclasses;
+		copy.recordComponents = node.recordComponents;
+		copy.fields = new ArrayList<>(node.fields);
+		copy.methods = new ArrayList<>(node.methods);
+		return copy;
+	}
 }
@@ -8,6 +8,8 @@
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Unsafe utilities.
@@ -21,6 +23,9 @@ public class UnsafeUtil {
 	public final int ARRAY_BYTE_BASE_OFFSET;
 	private final long STRING_CHARS_OFFSET;
 	private final long STRING_BYTES_OFFSET;
+	private final long STRING_CODER_OFFSET;
+	private final boolean COMPACT_STRINGS;
+	private final long BUFFER_ADDRESS_OFFSET;
 	private final MethodHandle NEW_STRING_FROM_CHARS;
 
 	/**
@@ -56,6 +61,58 @@ public byte[] getBytes(String str) {
 		return offset == -1L ? str.getBytes() : (byte[]) UNSAFE.getObject(str, offset);
 	}
 
+	/**
+	 * @param str String to get Latin-1 bytes of.
+	 * @return Latin-1 bytes of the string or {@code null},
+	 * if the string has characters outside of Latin-1.
+	 * The array may be shared with the string and must not be modified.
+	 */
+	public byte[] getLatin1Bytes(String str) {
+		int length = str.length();
+		if (COMPACT_STRINGS) {
+			byte[] bytes = (byte[]) UNSAFE.getObject(str, STRING_BYTES_OFFSET);
+			// Compact strings are only inflated if they do not fit into Latin-1
+			return bytes.length == length ? bytes : null;
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			char c = str.charAt(i);
+			if (c > 0xFF) {
+				return null;
+			}
+			bytes[i] = (byte) c;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param bytes Latin-1 bytes to create string from.
+	 *              The array is taken over by the string
+	 *              if possible, and must not be modified.
+	 * @return new string.
+	 */
+	public String newLatin1String(byte[] bytes) {
+		if (COMPACT_STRINGS) {
+			try {
+				String str = (String) UNSAFE.allocateInstance(String.class);
+				UNSAFE.putByte(str, STRING_CODER_OFFSET, (byte) 0);
+				UNSAFE.putObjectVolatile(str, STRING_BYTES_OFFSET, bytes);
+				return str;
+			} catch (InstantiationException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * @param buffer Direct buffer to get address of.
+	 * @return buffer address.
+	 */
+	public long address(Buffer buffer) {
+		return UNSAFE.getLong(buffer, BUFFER_ADDRESS_OFFSET);
+	}
+
 	/**
 	 * @param chars Character array to create string from.
 	 * @return new string.
@@ -98,6 +155,23 @@ public String newString(char[] chars) {
 			}
 			STRING_CHARS_OFFSET = charsOffset;
 			STRING_BYTES_OFFSET = bytesOffset;
+			long coderOffset = -1L;
+			if (bytesOffset != -1L) {
+				try {
+					coderOffset = unsafe.objectFieldOffset(String.class.getDeclaredField("coder"));
+				} catch (NoSuchFieldException ignored) {
+				}
+			}
+			STRING_CODER_OFFSET = coderOffset;
+			// Compact strings may be disabled, in which case all strings are UTF-16
+			COMPACT_STRINGS = coderOffset != -1L && ((byte[]) unsafe.getObject("a", bytesOffset)).length == 1;
+			try {
+				// Reading the field directly does not require
+				// sun.nio.ch to be exported on JDK 9+
+				BUFFER_ADDRESS_OFFSET = unsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+			} catch (NoSuchFieldException ex) {
+				throw new ExceptionInInitializerError(ex);
+			}
 			MethodHandle newString;
 			try {
 				Class<?> sharedSecrets = Class.forName("sun.misc.SharedSecrets");
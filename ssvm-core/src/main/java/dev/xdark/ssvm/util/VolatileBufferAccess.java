@@ -1,12 +1,11 @@
 package dev.xdark.ssvm.util;
 
 import sun.misc.Unsafe;
-import sun.nio.ch.DirectBuffer;
 
 import java.nio.ByteBuffer;
 
 /**
- * Volatile methods for {@link ByteBuffer}.
+ * Volatile and atomic methods for {@link ByteBuffer}.
  *
  * @author xDark
  */
@@ -92,6 +91,80 @@ public interface VolatileBufferAccess {
 	 */
 	byte getByte(int offset);
 
+	/**
+	 * Puts long at the specific offset with release semantics.
+	 *
+	 * @param offset Data offset.
+	 * @param value  Long value.
+	 */
+	void putLongRelease(int offset, long value);
+
+	/**
+	 * Puts int at the specific offset with release semantics.
+	 *
+	 * @param offset Data offset.
+	 * @param value  Int value.
+	 */
+	void putIntRelease(int offset, int value);
+
+	/**
+	 * Atomically sets long at the specific offset
+	 * if current value is equal to the expected value.
+	 *
+	 * @param offset   Data offset.
+	 * @param expected Expected value.
+	 * @param value    New value.
+	 * @return {@code true} if value was updated.
+	 */
+	boolean compareAndSetLong(int offset, long expected, long value);
+
+	/**
+	 * Atomically sets int at the specific offset
+	 * if current value is equal to the expected value.
+	 *
+	 * @param offset   Data offset.
+	 * @param expected Expected value.
+	 * @param value    New value.
+	 * @return {@code true} if value was updated.
+	 */
+	boolean compareAndSetInt(int offset, int expected, int value);
+
+	/**
+	 * Atomically adds to long at the specific offset.
+	 *
+	 * @param offset Data offset.
+	 * @param delta  Value to add.
+	 * @return previous value.
+	 */
+	long getAndAddLong(int offset, long delta);
+
+	/**
+	 * Atomically adds to int at the specific offset.
+	 *
+	 * @param offset Data offset.
+	 * @param delta  Value to add.
+	 * @return previous value.
+	 */
+	int getAndAddInt(int offset, int delta);
+
+	/**
+	 * Atomically exchanges long at the specific offset.
+	 *
+	 * @param offset Data offset.
+	 * @param value  New value.
+	 * @return previous value.
+	 */
+	long getAndSetLong(int offset, long value);
+
+	/**
+	 * Atomically exchanges int at the specific offset.
+	 *
+	 * @param offset Data offset.
+	 * @param value  New value.
+	 * @return previous value.
+	 */
+	int getAndSetInt(int offset, int value);
+
 	/**
 	 * Wraps byte buffer.
 	 *
@@ -165,6 +238,46 @@ public short getShort(int offset) {
 		public byte getByte(int offset) {
 			return U.getByteVolatile(array, this.offset + offset);
 		}
+
+		@Override
+		public void putLongRelease(int offset, long value) {
+			U.putOrderedLong(array, this.offset + offset, value);
+		}
+
+		@Override
+		public void putIntRelease(int offset, int value) {
+			U.putOrderedInt(array, this.offset + offset, value);
+		}
+
+		@Override
+		public boolean compareAndSetLong(int offset, long expected, long value) {
+			return U.compareAndSwapLong(array, this.offset + offset, expected, value);
+		}
+
+		@Override
+		public boolean compareAndSetInt(int offset, int expected, int value) {
+			return U.compareAndSwapInt(array, this.offset + offset, expected, value);
+		}
+
+		@Override
+		public long getAndAddLong(int offset, long delta) {
+			return U.getAndAddLong(array, this.offset + offset, delta);
+		}
+
+		@Override
+		public int getAndAddInt(int offset, int delta) {
+			return U.getAndAddInt(array, this.offset + offset, delta);
+		}
+
+		@Override
+		public long getAndSetLong(int offset, long value) {
+			return U.getAndSetLong(array, this.offset + offset, value);
+		}
+
+		@Override
+		public int getAndSetInt(int offset, int value) {
+			return U.getAndSetInt(array, this.offset + offset, value);
+		}
 	}
 
 	final class VolatileAddressAccess implements VolatileBufferAccess {
@@ -173,7 +286,7 @@ final class VolatileAddressAccess implements VolatileBufferAccess {
 		private final long address;
 
 		VolatileAddressAccess(ByteBuffer buffer) {
-			this.address = ((DirectBuffer) buffer).address();
+			this.address = UnsafeUtil.address(buffer);
 		}
 
 		@Override
@@ -225,5 +338,45 @@ public short getShort(int offset) {
 		public byte getByte(int offset) {
 			return U.getByteVolatile(null, address + offset);
 		}
+
+		@Override
+		public void putLongRelease(int offset, long value) {
+			U.putOrderedLong(null, address + offset, value);
+		}
+
+		@Override
+		public void putIntRelease(int offset, int value) {
+			U.putOrderedInt(null, address + offset, value);
+		}
+
+		@Override
+		public boolean compareAndSetLong(int offset, long expected, long value) {
+			return U.compareAndSwapLong(null, address + offset, expected, value);
+		}
+
+		@Override
+		public boolean compareAndSetInt(int offset, int expected, int value) {
+			return U.compareAndSwapInt(null, address + offset, expected, value);
+		}
+
+		@Override
+		public long getAndAddLong(int offset, long delta) {
+			return U.getAndAddLong(null, address + offset, delta);
+		}
+
+		@Override
+		public int getAndAddInt(int offset, int delta) {
+			return U.getAndAddInt(null, address + offset, delta);
+		}
+
+		@Override
+		public long getAndSetLong(int offset, long value) {
+			return U.getAndSetLong(null, address + offset, value);
+		}
+
+		@Override
+		public int getAndSetInt(int offset, int value) {
+			return U.getAndSetInt(null, address + offset, value);
+		}
 	}
 }
@@ -13,6 +13,7 @@ public abstract class SimpleObjectValue implements ObjectValue {
 
 	private final MemoryManager memoryManager;
 	protected final MemoryBlock memory;
+	private int hashCode;
 
 	/**
 	 * @param memoryManager Memory manager.
@@ -63,6 +64,27 @@ public MemoryBlock getMemory() {
 		return memory;
 	}
 
+	@Override
+	public int hashCode() {
+		int hashCode = this.hashCode;
+		if (hashCode == 0) {
+			hashCode = System.identityHashCode(this);
+			this.hashCode = hashCode;
+		}
+		return hashCode;
+	}
+
+	/**
+	 * Overrides identity hash code of this object.
+	 * Used when the object is restored from the VM image,
+	 * so that hash-based structures in the heap stay valid.
+	 *
+	 * @param hashCode Identity hash code.
+	 */
+	public void setIdentityHashCode(int hashCode) {
+		this.hashCode = hashCode;
+	}
+
 	protected MemoryManager getMemoryManager() {
 		return memoryManager;
 	}
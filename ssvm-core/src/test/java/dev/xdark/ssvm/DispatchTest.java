@@ -0,0 +1,263 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.VMException;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public final class DispatchTest {
+	private static VirtualMachine vm;
+	private static InstanceClass base, sub, i, j, k, m, c, hidden, revealer, caller;
+
+	@BeforeAll
+	public static void setup() {
+		vm = new VirtualMachine();
+		vm.bootstrap();
+		base = define(Base.class);
+		sub = define(Sub.class);
+		i = define(I.class);
+		j = define(J.class);
+		k = define(K.class);
+		m = define(M.class);
+		c = define(C.class);
+		hidden = define(Hidden.class);
+		revealer = define(Revealer.class);
+		caller = define(Caller.class);
+	}
+
+	@Test
+	public void testVirtualTable() {
+		int index = base.getVirtualMethodIndex("value", "()I");
+		assertSame(base.getMethod("value", "()I"), base.getVirtualMethod(index));
+		assertSame(sub.getMethod("value", "()I"), sub.getVirtualMethod(index));
+		JavaMethod callBase = caller.getMethod("callBase", "(L" + base.getInternalName() + ";)I");
+		assertEquals(1, invokeInt(callBase, base));
+		assertEquals(2, invokeInt(callBase, sub));
+	}
+
+	@Test
+	public void testMostSpecificDefault() {
+		// C implements I, J and J extends I, J.m wins
+		// even though I comes first
+		JavaMethod expected = j.getMethod("m", "()I");
+		assertSame(expected, c.getInterfaceMethod(i, i.getInterfaceMethodIndex("m", "()I")));
+		assertSame(expected, c.getInterfaceMethod(j, j.getInterfaceMethodIndex("m", "()I")));
+		assertEquals(2, invokeInt(caller.getMethod("callI", "(L" + i.getInternalName() + ";)I"), c));
+		assertEquals(2, invokeInt(caller.getMethod("callJ", "(L" + j.getInternalName() + ";)I"), c));
+	}
+
+	@Test
+	public void testConflictingDefaults() {
+		// Not expressible in Java, I.m and K.m are unrelated defaults
+		InstanceClass conflict = implement("Conflict", i, k);
+		assertEquals("java/lang/IncompatibleClassChangeError", exceptionType(caller.getMethod("callI", "(L" + i.getInternalName() + ";)I"), conflict));
+		assertEquals("java/lang/IncompatibleClassChangeError", exceptionType(caller.getMethod("callK", "(L" + k.getInternalName() + ";)I"), conflict));
+	}
+
+	@Test
+	public void testReabstractedDefault() {
+		// M redeclares I.m as abstract
+		InstanceClass abstracted = implement("Abstracted", m);
+		assertEquals("java/lang/AbstractMethodError", exceptionType(caller.getMethod("callI", "(L" + i.getInternalName() + ";)I"), abstracted));
+	}
+
+	@Test
+	public void testPackagePrivateOverride() {
+		JavaMethod callHidden = caller.getMethod("callHidden", "(L" + hidden.getInternalName() + ";)I");
+		int index = hidden.getVirtualMethodIndex("hidden", "()I");
+		// Same package, overrides
+		assertSame(revealer.getMethod("hidden", "()I"), revealer.getVirtualMethod(index));
+		assertEquals(3, invokeInt(callHidden, revealer));
+		// Other package, cannot access Hidden.hidden and gets a new slot
+		InstanceClass hider = subclass("dev/xdark/ssvm/other/Hider", hidden, 2);
+		assertSame(hidden.getMethod("hidden", "()I"), hider.getVirtualMethod(index));
+		assertNotEquals(index, hider.getVirtualMethodIndex("hidden", "()I"));
+		assertEquals(1, invokeInt(callHidden, hider));
+		// Back in the package of Hidden, overrides both slots
+		InstanceClass unhider = subclass("dev/xdark/ssvm/DispatchTest$Unhider", hider, 4);
+		JavaMethod expected = unhider.getMethod("hidden", "()I");
+		assertSame(expected, unhider.getVirtualMethod(index));
+		assertSame(expected, unhider.getVirtualMethod(hider.getVirtualMethodIndex("hidden", "()I")));
+		assertEquals(4, invokeInt(callHidden, unhider));
+	}
+
+	private static int invokeInt(JavaMethod method, InstanceClass receiverType) {
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setReference(0, newInstance(receiverType));
+		return vm.getOperations().invokeInt(method, locals);
+	}
+
+	private static String exceptionType(JavaMethod method, InstanceClass receiverType) {
+		try {
+			invokeInt(method, receiverType);
+		} catch (VMException ex) {
+			return ex.getOop().getJavaClass().getInternalName();
+		}
+		return fail("Exception expected");
+	}
+
+	private static ObjectValue newInstance(InstanceClass type) {
+		vm.getOperations().initialize(type);
+		return vm.getMemoryManager().newInstance(type);
+	}
+
+	private static InstanceClass implement(String name, InstanceClass... interfaces) {
+		String[] names = new String[interfaces.length];
+		for (int x = 0; x < names.length; x++) {
+			names[x] = interfaces[x].getInternalName();
+		}
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "dev/xdark/ssvm/DispatchTest$" + name, null, "java/lang/Object", names);
+		MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		writer.visitEnd();
+		return define(writer.toByteArray());
+	}
+
+	private static InstanceClass subclass(String name, InstanceClass superClass, int value) {
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, superClass.getInternalName(), null);
+		MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superClass.getInternalName(), "<init>", "()V", false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		// Package private
+		mv = writer.visitMethod(0, "hidden", "()I", null, null);
+		mv.visitCode();
+		mv.visitLdcInsn(value);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		writer.visitEnd();
+		return define(writer.toByteArray());
+	}
+
+	private static InstanceClass define(Class<?> klass) {
+		try (InputStream in = DispatchTest.class.getClassLoader().getResourceAsStream(klass.getName().replace('.', '/') + ".class")) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[1024];
+			int r;
+			while ((r = in.read(buf)) != -1) {
+				out.write(buf, 0, r);
+			}
+			return define(out.toByteArray());
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private static InstanceClass define(byte[] bytes) {
+		VMOperations ops = vm.getOperations();
+		ObjectValue nullValue = vm.getMemoryManager().nullValue();
+		return ops.defineClass(nullValue, null, bytes, 0, bytes.length, nullValue, "JVM_DefineClass");
+	}
+
+	public static class Base {
+
+		public int value() {
+			return 1;
+		}
+	}
+
+	public static class Sub extends Base {
+
+		@Override
+		public int value() {
+			return 2;
+		}
+	}
+
+	public interface I {
+
+		default int m() {
+			return 1;
+		}
+	}
+
+	public interface J extends I {
+
+		@Override
+		default int m() {
+			return 2;
+		}
+	}
+
+	public interface K {
+
+		default int m() {
+			return 3;
+		}
+	}
+
+	public interface M extends I {
+
+		@Override
+		int m();
+	}
+
+	public static class C implements I, J {
+	}
+
+	public static class Hidden {
+
+		int hidden() {
+			return 1;
+		}
+	}
+
+	public static class Revealer extends Hidden {
+
+		@Override
+		int hidden() {
+			return 3;
+		}
+	}
+
+	public static final class Caller {
+
+		public static int callBase(Base base) {
+			return base.value();
+		}
+
+		public static int callI(I i) {
+			return i.m();
+		}
+
+		public static int callJ(J j) {
+			return j.m();
+		}
+
+		public static int callK(K k) {
+			return k.m();
+		}
+
+		public static int callHidden(Hidden hidden) {
+			return hidden.hidden();
+		}
+	}
+}
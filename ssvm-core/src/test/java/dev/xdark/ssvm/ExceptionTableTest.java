@@ -0,0 +1,131 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.execution.ExceptionTable;
+import dev.xdark.ssvm.execution.VMTryCatchBlock;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.util.AsmUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.LabelNode;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public final class ExceptionTableTest {
+	private static VirtualMachine vm;
+	private static InstanceClass host, exception, runtimeException, ioException, error;
+	// Labels and instructions alternate, label i has index 2 * i
+	private static LabelNode[] labels;
+
+	@BeforeAll
+	public static void setup() {
+		vm = new VirtualMachine();
+		vm.bootstrap();
+		host = vm.getSymbols().java_lang_Object();
+		exception = find("java/lang/Exception");
+		runtimeException = find("java/lang/RuntimeException");
+		ioException = find("java/io/IOException");
+		error = find("java/lang/Error");
+		InsnList list = new InsnList();
+		labels = new LabelNode[8];
+		for (int i = 0; i < labels.length; i++) {
+			list.add(labels[i] = new LabelNode());
+			list.add(new InsnNode(Opcodes.NOP));
+		}
+		// Assigns instruction indices
+		list.toArray();
+	}
+
+	@Test
+	public void testNestedBlocks() {
+		// try { try { 1 } catch (IOException) { 4 } 2 } catch (Exception) { 5 }
+		// javac emits the inner block first
+		ExceptionTable table = table(
+			block(1, 2, 4, "java/io/IOException"),
+			block(0, 3, 5, "java/lang/Exception")
+		);
+		assertEquals(index(4), table.findHandler(index(1), ioException));
+		assertEquals(index(5), table.findHandler(index(1), runtimeException));
+		assertEquals(index(5), table.findHandler(index(0), ioException));
+		assertEquals(-1, table.findHandler(index(1), error));
+		assertEquals(-1, table.findHandler(index(6), exception));
+	}
+
+	@Test
+	public void testOverlappingBlocks() {
+		ExceptionTable table = table(
+			block(0, 2, 4, "java/lang/RuntimeException"),
+			block(1, 3, 5, "java/lang/Exception")
+		);
+		// First matching block in class file order wins
+		assertEquals(index(4), table.findHandler(index(1), runtimeException));
+		assertEquals(index(5), table.findHandler(index(1), ioException));
+		assertEquals(index(5), table.findHandler(index(3), runtimeException));
+		assertEquals(index(4), table.findHandler(index(0), runtimeException));
+		assertEquals(-1, table.findHandler(index(0), ioException));
+	}
+
+	@Test
+	public void testCatchAll() {
+		// try { 1 } catch (IOException) { 4 } finally { 5 }
+		ExceptionTable table = table(
+			block(1, 2, 4, "java/io/IOException"),
+			block(1, 2, 5, null),
+			block(4, 4, 5, null)
+		);
+		assertEquals(index(4), table.findHandler(index(1), ioException));
+		assertEquals(index(5), table.findHandler(index(1), error));
+		assertEquals(index(5), table.findHandler(index(4), runtimeException));
+		assertEquals(-1, table.findHandler(index(6), error));
+	}
+
+	@Test
+	public void testAlternatingTypes() {
+		ExceptionTable table = table(
+			block(0, 2, 4, "java/lang/RuntimeException"),
+			block(0, 2, 5, "java/lang/Exception")
+		);
+		// Each block caches the last type it was matched against,
+		// the result must follow the type, not the cached entry
+		for (int i = 0; i < 4; i++) {
+			assertEquals(index(4), table.findHandler(index(1), runtimeException));
+			assertEquals(index(5), table.findHandler(index(1), ioException));
+			assertEquals(-1, table.findHandler(index(1), error));
+		}
+	}
+
+	@Test
+	public void testUnresolvedCatchType() {
+		// Resolution error is thrown from the handler of the block,
+		// and the search continues from there
+		ExceptionTable table = table(
+			block(0, 2, 4, "dev/xdark/ssvm/DoesNotExist"),
+			block(0, 2, 5, "java/lang/Exception"),
+			block(4, 4, 6, null)
+		);
+		assertEquals(index(6), table.findHandler(index(1), ioException));
+		// Table stays usable after the failure
+		assertEquals(index(6), table.findHandler(index(1), runtimeException));
+		assertEquals(-1, table.findHandler(index(3), runtimeException));
+	}
+
+	private static ExceptionTable table(VMTryCatchBlock... blocks) {
+		return ExceptionTable.create(Arrays.asList(blocks));
+	}
+
+	private static VMTryCatchBlock block(int start, int end, int handler, String type) {
+		return new VMTryCatchBlock(labels[start], labels[end], labels[handler], type, vm, host);
+	}
+
+	private static int index(int label) {
+		return AsmUtil.getIndex(labels[label]);
+	}
+
+	private static InstanceClass find(String name) {
+		return (InstanceClass) vm.findBootstrapClass(name);
+	}
+}
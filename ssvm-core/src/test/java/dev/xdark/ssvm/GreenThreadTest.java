@@ -0,0 +1,291 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.value.InstanceValue;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public final class GreenThreadTest {
+	private static VirtualMachine vm;
+
+	@BeforeAll
+	public static void setup() {
+		vm = new VirtualMachine();
+		vm.bootstrap();
+	}
+
+	@Test
+	public void testStartJoin() {
+		VMOperations ops = vm.getOperations();
+		InstanceClass jlt = vm.getSymbols().java_lang_Thread();
+		InstanceValue thread = vm.getMemoryManager().newInstance(jlt);
+		invoke(jlt.getMethod("<init>", "()V"), thread);
+		invoke(jlt.getMethod("start", "()V"), thread);
+		invoke(jlt.getMethod("join", "()V"), thread);
+		JavaMethod isAlive = jlt.getMethod("isAlive", "()Z");
+		Locals locals = vm.getThreadStorage().newLocals(isAlive);
+		locals.setReference(0, thread);
+		assertFalse(ops.invokeBoolean(isAlive, locals));
+	}
+
+	@Test
+	public void testPreemption() throws IOException {
+		// Spinner never blocks, the stopper only runs if it is preempted
+		InstanceClass spinner = define(Spinner.class);
+		JavaMethod spin = spinner.getMethod("spin", "()Z");
+		assertTrue(vm.getOperations().invokeBoolean(spin, vm.getThreadStorage().newLocals(spin)));
+	}
+
+	@Test
+	public void testMonitors() throws IOException {
+		InstanceClass counter = define(Counter.class);
+		JavaMethod count = counter.getMethod("count", "(I)I");
+		Locals locals = vm.getThreadStorage().newLocals(count);
+		locals.setInt(0, 1000);
+		assertEquals(1000 * Counter.ITERATIONS, vm.getOperations().invokeInt(count, locals));
+	}
+
+	@Test
+	public void testWaitNotify() throws IOException {
+		InstanceClass game = define(PingPong.class);
+		define(Player.class);
+		JavaMethod play = game.getMethod("play", "(I)I");
+		Locals locals = vm.getThreadStorage().newLocals(play);
+		locals.setInt(0, 100);
+		assertEquals(200, vm.getOperations().invokeInt(play, locals));
+	}
+
+	@Test
+	public void testSleep() throws IOException {
+		InstanceClass sleeper = define(Sleeper.class);
+		JavaMethod sleep = sleeper.getMethod("sleep", "(I)I");
+		Locals locals = vm.getThreadStorage().newLocals(sleep);
+		locals.setInt(0, 100);
+		assertEquals(100, vm.getOperations().invokeInt(sleep, locals));
+	}
+
+	@Test
+	public void testExecutor() throws IOException {
+		InstanceClass task = define(Task.class);
+		JavaMethod execute = task.getMethod("execute", "(II)J");
+		Locals locals = vm.getThreadStorage().newLocals(execute);
+		locals.setInt(0, 4);
+		locals.setInt(1, 16);
+		assertEquals(16L * Task.ITERATIONS, vm.getOperations().invokeLong(execute, locals));
+	}
+
+	private static InstanceClass define(Class<?> klass) throws IOException {
+		byte[] bytes;
+		try (InputStream in = GreenThreadTest.class.getClassLoader().getResourceAsStream(klass.getName().replace('.', '/') + ".class")) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[1024];
+			int r;
+			while ((r = in.read(buf)) != -1) {
+				out.write(buf, 0, r);
+			}
+			bytes = out.toByteArray();
+		}
+		ObjectValue nullValue = vm.getMemoryManager().nullValue();
+		return vm.getOperations().defineClass(nullValue, null, bytes, 0, bytes.length, nullValue, "JVM_DefineClass");
+	}
+
+	private static void invoke(JavaMethod method, InstanceValue instance) {
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setReference(0, instance);
+		vm.getOperations().invokeVoid(method, locals);
+	}
+
+	public static final class Spinner implements Runnable {
+		static volatile boolean stop;
+		private final boolean stopper;
+
+		public Spinner(boolean stopper) {
+			this.stopper = stopper;
+		}
+
+		@Override
+		public void run() {
+			if (stopper) {
+				stop = true;
+				return;
+			}
+			while (!stop) {
+			}
+		}
+
+		public static boolean spin() throws InterruptedException {
+			Thread spinner = new Thread(new Spinner(false));
+			Thread stopper = new Thread(new Spinner(true));
+			spinner.start();
+			stopper.start();
+			spinner.join();
+			stopper.join();
+			return stop;
+		}
+	}
+
+	public static final class Counter implements Runnable {
+		static final int ITERATIONS = 10;
+		private final Object lock = new Object();
+		private int value;
+
+		@Override
+		public void run() {
+			for (int i = 0; i < ITERATIONS; i++) {
+				synchronized (lock) {
+					int value = this.value;
+					// Other threads run while the monitor is held
+					Thread.yield();
+					this.value = value + 1;
+				}
+				synchronized (this) {
+					reentrant();
+				}
+			}
+		}
+
+		private synchronized void reentrant() {
+		}
+
+		public static int count(int threads) throws InterruptedException {
+			Counter counter = new Counter();
+			Thread[] array = new Thread[threads];
+			for (int i = 0; i < threads; i++) {
+				// Small stacks, there are a lot of threads
+				(array[i] = new Thread(null, counter, "Counter-" + i, 64L * 1024L)).start();
+			}
+			for (Thread thread : array) {
+				thread.join();
+			}
+			synchronized (counter.lock) {
+				return counter.value;
+			}
+		}
+	}
+
+	public static final class PingPong {
+		int turn;
+
+		public static int play(int rounds) throws InterruptedException {
+			PingPong game = new PingPong();
+			Thread ping = new Thread(new Player(game, 0, rounds));
+			Thread pong = new Thread(new Player(game, 1, rounds));
+			ping.start();
+			pong.start();
+			ping.join();
+			pong.join();
+			synchronized (game) {
+				return game.turn;
+			}
+		}
+	}
+
+	public static final class Player implements Runnable {
+		private final PingPong game;
+		private final int side;
+		private final int rounds;
+
+		public Player(PingPong game, int side, int rounds) {
+			this.game = game;
+			this.side = side;
+			this.rounds = rounds;
+		}
+
+		@Override
+		public void run() {
+			PingPong game = this.game;
+			for (int i = 0; i < rounds; i++) {
+				synchronized (game) {
+					while ((game.turn & 1) != side) {
+						try {
+							game.wait();
+						} catch (InterruptedException ex) {
+							throw new IllegalStateException(ex);
+						}
+					}
+					game.turn++;
+					game.notifyAll();
+				}
+			}
+		}
+	}
+
+	public static final class Sleeper implements Runnable {
+		private final AtomicInteger counter;
+
+		public Sleeper(AtomicInteger counter) {
+			this.counter = counter;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Thread.sleep(10L);
+			} catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+			counter.incrementAndGet();
+		}
+
+		public static int sleep(int threads) throws InterruptedException {
+			AtomicInteger counter = new AtomicInteger();
+			Thread[] array = new Thread[threads];
+			for (int i = 0; i < threads; i++) {
+				(array[i] = new Thread(new Sleeper(counter))).start();
+			}
+			for (Thread thread : array) {
+				thread.join();
+			}
+			return counter.get();
+		}
+	}
+
+	public static final class Task implements Runnable {
+		static final int ITERATIONS = 1000;
+		private final AtomicLong counter;
+
+		public Task(AtomicLong counter) {
+			this.counter = counter;
+		}
+
+		@Override
+		public void run() {
+			for (int i = 0; i < ITERATIONS; i++) {
+				counter.incrementAndGet();
+			}
+		}
+
+		public static long execute(int threads, int tasks) throws InterruptedException {
+			AtomicLong counter = new AtomicLong();
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			for (int i = 0; i < tasks; i++) {
+				executor.execute(new Task(counter));
+			}
+			executor.shutdown();
+			if (!executor.awaitTermination(1L, TimeUnit.MINUTES)) {
+				throw new IllegalStateException("Executor did not terminate");
+			}
+			return counter.get();
+		}
+	}
+}
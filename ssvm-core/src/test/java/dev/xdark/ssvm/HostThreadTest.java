@@ -0,0 +1,161 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.thread.host.HostThreadManager;
+import dev.xdark.ssvm.value.InstanceValue;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public final class HostThreadTest {
+	private static VirtualMachine vm;
+
+	@BeforeAll
+	public static void setup() {
+		vm = new VirtualMachine() {
+			@Override
+			protected ThreadManager createThreadManager() {
+				return new HostThreadManager(this);
+			}
+		};
+		vm.bootstrap();
+	}
+
+	@Test
+	public void testStartJoin() {
+		VMOperations ops = vm.getOperations();
+		InstanceClass jlt = vm.getSymbols().java_lang_Thread();
+		InstanceValue thread = vm.getMemoryManager().newInstance(jlt);
+		invoke(jlt.getMethod("<init>", "()V"), thread);
+		invoke(jlt.getMethod("start", "()V"), thread);
+		invoke(jlt.getMethod("join", "()V"), thread);
+		JavaMethod isAlive = jlt.getMethod("isAlive", "()Z");
+		Locals locals = vm.getThreadStorage().newLocals(isAlive);
+		locals.setReference(0, thread);
+		assertFalse(ops.invokeBoolean(isAlive, locals));
+	}
+
+	@Test
+	public void testExecutor() throws IOException {
+		InstanceClass task = define(Task.class);
+		JavaMethod execute = task.getMethod("execute", "(II)J");
+		Locals locals = vm.getThreadStorage().newLocals(execute);
+		locals.setInt(0, 4);
+		locals.setInt(1, 16);
+		assertEquals(16L * Task.ITERATIONS, vm.getOperations().invokeLong(execute, locals));
+	}
+
+	@Test
+	public void testMonitors() throws IOException {
+		InstanceClass counter = define(Counter.class);
+		JavaMethod count = counter.getMethod("count", "(I)I");
+		Locals locals = vm.getThreadStorage().newLocals(count);
+		locals.setInt(0, 4);
+		assertEquals(4 * Counter.ITERATIONS, vm.getOperations().invokeInt(count, locals));
+	}
+
+	private static InstanceClass define(Class<?> klass) throws IOException {
+		byte[] bytes;
+		try (InputStream in = HostThreadTest.class.getClassLoader().getResourceAsStream(klass.getName().replace('.', '/') + ".class")) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[1024];
+			int r;
+			while ((r = in.read(buf)) != -1) {
+				out.write(buf, 0, r);
+			}
+			bytes = out.toByteArray();
+		}
+		ObjectValue nullValue = vm.getMemoryManager().nullValue();
+		return vm.getOperations().defineClass(nullValue, null, bytes, 0, bytes.length, nullValue, "JVM_DefineClass");
+	}
+
+	private static void invoke(JavaMethod method, InstanceValue instance) {
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setReference(0, instance);
+		vm.getOperations().invokeVoid(method, locals);
+	}
+
+	public static final class Task implements Runnable {
+		static final int ITERATIONS = 1000;
+		private final AtomicLong counter;
+
+		public Task(AtomicLong counter) {
+			this.counter = counter;
+		}
+
+		@Override
+		public void run() {
+			for (int i = 0; i < ITERATIONS; i++) {
+				counter.incrementAndGet();
+			}
+		}
+
+		public static long execute(int threads, int tasks) throws InterruptedException {
+			AtomicLong counter = new AtomicLong();
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			for (int i = 0; i < tasks; i++) {
+				executor.execute(new Task(counter));
+			}
+			executor.shutdown();
+			if (!executor.awaitTermination(1L, TimeUnit.MINUTES)) {
+				throw new IllegalStateException("Executor did not terminate");
+			}
+			return counter.get();
+		}
+	}
+
+	public static final class Counter implements Runnable {
+		static final int ITERATIONS = 1000;
+		private final Object lock = new Object();
+		private int value;
+
+		@Override
+		public void run() {
+			for (int i = 0; i < ITERATIONS; i++) {
+				synchronized (lock) {
+					value++;
+					// Forces the monitor to inflate
+					lock.notifyAll();
+				}
+				synchronized (this) {
+					reentrant();
+				}
+			}
+		}
+
+		private synchronized void reentrant() {
+		}
+
+		public static int count(int threads) throws InterruptedException {
+			Counter counter = new Counter();
+			Thread[] array = new Thread[threads];
+			for (int i = 0; i < threads; i++) {
+				(array[i] = new Thread(counter)).start();
+			}
+			for (Thread thread : array) {
+				thread.join();
+			}
+			synchronized (counter.lock) {
+				return counter.value;
+			}
+		}
+	}
+}
@@ -1,18 +1,44 @@
 package dev.xdark.ssvm;
 
 import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.PanicException;
+import dev.xdark.ssvm.execution.Result;
 import dev.xdark.ssvm.execution.Stack;
+import dev.xdark.ssvm.memory.allocation.ArenaMemoryAllocator;
 import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
+import dev.xdark.ssvm.memory.allocation.MemoryBlock;
+import dev.xdark.ssvm.memory.allocation.MemoryData;
 import dev.xdark.ssvm.memory.allocation.NavigableMemoryAllocator;
+import dev.xdark.ssvm.memory.gc.GCHandle;
+import dev.xdark.ssvm.memory.gc.GarbageCollector;
+import dev.xdark.ssvm.memory.gc.GarbageCollectorStatistics;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.memory.management.ObjectTableMemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
 import dev.xdark.ssvm.thread.ThreadStorage;
 import dev.xdark.ssvm.thread.heap.HeapThreadStorage;
+import dev.xdark.ssvm.value.ArrayValue;
+import dev.xdark.ssvm.value.InstanceValue;
+import dev.xdark.ssvm.value.ObjectValue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Execution(ExecutionMode.SAME_THREAD)
@@ -60,48 +86,335 @@ public void testLocalsCopy() {
 		assertEquals(1, b.maxSlots());
 	}
 
-	/*
-	@Disabled
+	@Test
+	public void testReferenceSlots() {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		VMOperations ops = vm.getOperations();
+		InstanceValue a = ops.newUtf8("a");
+		InstanceValue b = ops.newUtf8("b");
+		ThreadStorage ts = vm.getThreadStorage();
+		Stack stack = ts.newStack(3);
+		Locals locals = ts.newLocals(3);
+		stack.pushReference(a);
+		stack.pushReference(b);
+		stack.swap();
+		assertSame(a, stack.peekReference());
+		stack.dupx1();
+		assertSame(b, stack.getReferenceAt(1));
+		stack.sinkInto(locals, 3);
+		assertSame(a, locals.loadReference(0));
+		assertSame(b, locals.loadReference(1));
+		assertSame(a, locals.loadReference(2));
+		Locals copy = ts.newLocals(3);
+		copy.copyFrom(locals, 1, 0, 2);
+		assertSame(b, copy.loadReference(0));
+		assertSame(a, copy.loadReference(1));
+	}
+
+	@Test
+	public void testStringCache() {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		VMOperations ops = vm.getOperations();
+		InstanceValue latin1 = ops.newUtf8("cache");
+		String str = ops.readUtf8(latin1);
+		assertEquals("cache", str);
+		assertSame(str, ops.readUtf8(latin1));
+		// Backing arrays are immutable, but the string
+		// may be pointed to another one
+		if (vm.getJvmVersion() >= 9) {
+			ops.putReference(latin1, "value", "[B", ops.toVMBytes("Cache".getBytes(StandardCharsets.ISO_8859_1)));
+		} else {
+			ops.putReference(latin1, "value", "[C", ops.toVMChars("Cache".toCharArray()));
+		}
+		assertEquals("Cache", ops.readUtf8(latin1));
+		// Writes to the backing array invalidate the entry
+		ArrayValue array;
+		if (vm.getJvmVersion() >= 9) {
+			array = (ArrayValue) ops.getReference(latin1, "value", "[B");
+			array.setByte(0, (byte) 'K');
+		} else {
+			array = (ArrayValue) ops.getReference(latin1, "value", "[C");
+			array.setChar(0, 'K');
+		}
+		str = ops.readUtf8(latin1);
+		assertEquals("Kache", str);
+		assertSame(str, ops.readUtf8(latin1));
+		InstanceValue utf16 = ops.newUtf8("\u0436\u00e9t\u00e9");
+		assertEquals("\u0436\u00e9t\u00e9", ops.readUtf8(utf16));
+		assertEquals("\u00e9t\u00e9", ops.readUtf8(ops.newUtf8("\u00e9t\u00e9")));
+	}
+
+	@Test
+	public void testArenaAllocator() {
+		MemoryAllocator allocator = new ArenaMemoryAllocator(12);
+		MemoryBlock a = allocator.allocateHeap(16L);
+		MemoryBlock b = allocator.allocateHeap(0L);
+		MemoryBlock large = allocator.allocateHeap(8192L);
+		assertEquals(16L, a.getData().length());
+		assertEquals(0L, b.getData().length());
+		assertSame(a, allocator.findHeapBlock(a.getAddress()));
+		assertSame(a, allocator.findHeapBlock(a.getAddress() + 15L));
+		assertSame(large, allocator.findHeapBlock(large.getAddress() + 4096L));
+		a.getData().writeLong(8L, 42L);
+		assertEquals(42L, allocator.findHeapBlock(a.getAddress()).getData().readLong(8L));
+		assertTrue(allocator.freeHeap(a.getAddress()));
+		assertFalse(allocator.freeHeap(a.getAddress()));
+		assertNull(allocator.findHeapBlock(a.getAddress()));
+		assertTrue(allocator.freeHeap(large.getAddress()));
+		assertNull(allocator.findHeapBlock(large.getAddress()));
+		assertNull(allocator.findDirectBlock(b.getAddress()));
+	}
+
+	@Test
+	public void testArenaRegionReuse() throws InterruptedException {
+		MemoryAllocator allocator = new ArenaMemoryAllocator(12);
+		MemoryBlock[] blocks = new MemoryBlock[2];
+		for (int i = 0; i < blocks.length; i++) {
+			int index = i;
+			Thread thread = new Thread(() -> {
+				blocks[index] = allocator.allocateHeap(16L);
+				allocator.releaseCurrentThread();
+			});
+			thread.start();
+			thread.join();
+		}
+		// Second thread continues in the region of the first one
+		assertEquals(blocks[0].getAddress() + 16L, blocks[1].getAddress());
+		assertEquals(4096L, allocator.dumpStatistics().totalSpace());
+		MemoryBlock first = allocator.allocateHeap(8192L);
+		MemoryBlock second = allocator.allocateHeap(8192L);
+		assertTrue(allocator.freeHeap(first.getAddress()));
+		MemoryBlock third = allocator.allocateHeap(8192L);
+		assertEquals(first.getAddress(), third.getAddress());
+		assertSame(third, allocator.findHeapBlock(third.getAddress() + 4096L));
+		assertTrue(allocator.freeHeap(second.getAddress()));
+		assertTrue(allocator.freeHeap(third.getAddress()));
+		assertEquals(4096L, allocator.dumpStatistics().totalSpace());
+	}
+
+	@Test
+	public void testAtomics() throws InterruptedException {
+		for (MemoryData data : new MemoryData[]{
+			MemoryData.buffer(ByteBuffer.allocate(32).order(ByteOrder.nativeOrder())),
+			MemoryData.buffer(ByteBuffer.allocateDirect(32).order(ByteOrder.nativeOrder())).slice(8L, 24L),
+			MemoryData.array(new byte[48], 16, 32)
+		}) {
+			assertTrue(data.compareAndSetInt(0L, 0, 5));
+			assertFalse(data.compareAndSetInt(0L, 0, 6));
+			assertEquals(5, data.compareAndExchangeInt(0L, 0, 7));
+			assertEquals(5, data.getAndSetInt(0L, 9));
+			assertEquals(9, data.getAndAddInt(0L, 1));
+			assertEquals(10, data.readIntAcquire(0L));
+			data.writeLongRelease(8L, Long.MIN_VALUE);
+			assertEquals(Long.MIN_VALUE, data.compareAndExchangeLong(8L, Long.MIN_VALUE, 1L));
+			assertEquals(1L, data.readLongVolatile(8L));
+			Thread[] threads = new Thread[4];
+			for (int i = 0; i < threads.length; i++) {
+				threads[i] = new Thread(() -> {
+					for (int j = 0; j < 10000; j++) {
+						data.getAndAddLong(8L, 1L);
+						int value;
+						do {
+							value = data.readIntVolatile(0L);
+						} while (!data.compareAndSetInt(0L, value, value + 1));
+					}
+				});
+				threads[i].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertEquals(40001L, data.readLong(8L));
+			assertEquals(40010, data.readInt(0L));
+		}
+	}
+
+	@Test
+	public void testArrayData() {
+		byte[] array = new byte[64];
+		MemoryData data = MemoryData.array(array, 8, 32);
+		assertEquals(32L, data.length());
+		data.write(0L, new int[]{1, 2, 3}, 0, 3);
+		int[] ints = new int[3];
+		data.read(0L, ints, 0, 3);
+		assertArrayEquals(new int[]{1, 2, 3}, ints);
+		assertEquals(2, ByteBuffer.wrap(array).order(ByteOrder.nativeOrder()).getInt(12));
+		data.writeLong(24L, -1L);
+		assertEquals(-1L, data.readLong(24L));
+		assertEquals(0, array[40]);
+		assertThrows(PanicException.class, () -> data.readLong(25L));
+		assertThrows(PanicException.class, () -> data.writeByte(-1L, (byte) 0));
+		// Copies between the implementations
+		MemoryData buffer = MemoryData.buffer(ByteBuffer.allocate(32).order(ByteOrder.nativeOrder()));
+		data.write(0L, buffer, 0L, 32L);
+		assertEquals(3, buffer.readInt(8L));
+		buffer.writeInt(16L, 7);
+		buffer.write(16L, data, 0L, 4L);
+		assertEquals(7, data.readInt(0L));
+		int version = data.writeVersion();
+		buffer.read(0L, data, 0L, 4);
+		assertNotEquals(version, data.writeVersion());
+		assertEquals(1, data.readInt(0L));
+		MemoryData slice = data.slice(4L, 8L);
+		assertEquals(2, slice.readInt(0L));
+		version = data.writeVersion();
+		slice.writeInt(4L, 9);
+		assertEquals(9, data.readInt(8L));
+		assertNotEquals(version, slice.writeVersion());
+	}
+
 	@Test
 	public void testGC() {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		MemoryManager memoryManager = vm.getMemoryManager();
+		GarbageCollector gc = memoryManager.getGarbageCollector();
+		VMOperations ops = vm.getOperations();
+		InstanceValue pinned = ops.newUtf8("pinned");
+		GCHandle handle = gc.makeHandle(pinned);
+		int allocated = memoryManager.listObjects().size();
+		GarbageCollectorStatistics statistics = gc.statistics();
+		long collections = statistics.collections();
+		assertTrue(gc.invoke());
+		assertEquals(collections + 1L, statistics.collections());
+		assertTrue(statistics.lastReclaimedBytes() > 0L);
+		assertTrue(memoryManager.listObjects().size() < allocated);
+		assertTrue(memoryManager.listObjects().contains(pinned));
+		assertEquals("pinned", ops.readUtf8(pinned));
+		handle.release();
+		assertNull(gc.getHandle(pinned));
+		// VM must be usable after collection
+		gc.setHeapCeiling(statistics.usedSpace());
+		InstanceClass arrays = (InstanceClass) ops.findClass(memoryManager.nullValue(), "java/util/Arrays", true);
+		JavaMethod toString = arrays.getMethod("toString", "([I)Ljava/lang/String;");
+		for (int i = 0; i < 64; i++) {
+			int[] array = {i, -i};
+			Locals locals = vm.getThreadStorage().newLocals(toString);
+			locals.setReference(0, ops.toVMInts(array));
+			assertEquals(Arrays.toString(array), ops.readUtf8(ops.invokeReference(toString, locals)));
+		}
+		assertTrue(statistics.collections() > collections + 1L);
+		assertFalse(memoryManager.listObjects().contains(pinned));
+	}
+
+	@Test
+	public void testReferences() {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		MemoryManager memoryManager = vm.getMemoryManager();
+		GarbageCollector gc = memoryManager.getGarbageCollector();
+		VMOperations ops = vm.getOperations();
+		InstanceValue queue = newInstance(vm, "java/lang/ref/ReferenceQueue", "()V");
+		gc.makeHandle(queue);
+		InstanceValue strongReferent = ops.newUtf8("strong");
+		gc.makeHandle(strongReferent);
+		InstanceValue weak = newInstance(vm, "java/lang/ref/WeakReference", "(Ljava/lang/Object;Ljava/lang/ref/ReferenceQueue;)V", ops.newUtf8("weak"), queue);
+		InstanceValue strong = newInstance(vm, "java/lang/ref/WeakReference", "(Ljava/lang/Object;)V", strongReferent);
+		InstanceValue soft = newInstance(vm, "java/lang/ref/SoftReference", "(Ljava/lang/Object;)V", ops.newUtf8("soft"));
+		gc.makeHandle(weak);
+		gc.makeHandle(strong);
+		gc.makeHandle(soft);
+		assertTrue(gc.invoke());
+		assertTrue(referent(vm, weak).isNull());
+		assertSame(strongReferent, referent(vm, strong));
+		// Soft references survive until the heap is over the ceiling
+		assertEquals("soft", ops.readUtf8(referent(vm, soft)));
+		// Reference handler thread enqueues the cleared reference
+		InstanceClass queueClass = (InstanceClass) queue.getJavaClass();
+		JavaMethod remove = vm.getRuntimeResolver().resolveVirtualMethod(queueClass, "remove", "(J)Ljava/lang/ref/Reference;");
+		Locals locals = vm.getThreadStorage().newLocals(remove);
+		locals.setReference(0, queue);
+		locals.setLong(1, 10000L);
+		assertSame(weak, ops.invokeReference(remove, locals));
+		gc.setHeapCeiling(0L);
+		assertTrue(gc.invoke());
+		gc.setHeapCeiling(Long.MAX_VALUE);
+		assertTrue(referent(vm, soft).isNull());
+		assertSame(strongReferent, referent(vm, strong));
+	}
+
+	private static InstanceValue newInstance(VirtualMachine vm, String type, String desc, ObjectValue... args) {
+		InstanceClass klass = (InstanceClass) vm.getOperations().findClass(vm.getMemoryManager().nullValue(), type, true);
+		InstanceValue value = vm.getMemoryManager().newInstance(klass);
+		JavaMethod init = klass.getMethod("<init>", desc);
+		Locals locals = vm.getThreadStorage().newLocals(init);
+		locals.setReference(0, value);
+		for (int i = 0; i < args.length; i++) {
+			locals.setReference(i + 1, args[i]);
+		}
+		vm.getOperations().invokeVoid(init, locals);
+		return value;
+	}
+
+	private static ObjectValue referent(VirtualMachine vm, InstanceValue reference) {
+		return vm.getOperations().getReference(reference, "referent", "Ljava/lang/Object;");
+	}
+
+	@Test
+	public void testGCDuringHostCall() {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		MemoryManager memoryManager = vm.getMemoryManager();
+		GarbageCollector gc = memoryManager.getGarbageCollector();
+		GarbageCollectorStatistics statistics = gc.statistics();
+		VMOperations ops = vm.getOperations();
+		InstanceClass arrays = (InstanceClass) ops.findClass(memoryManager.nullValue(), "java/util/Arrays", true);
+		JavaMethod toString = arrays.getMethod("toString", "([I)Ljava/lang/String;");
+		JavaMethod hashCode = arrays.getMethod("hashCode", "([J)I");
+		long[] collections = new long[1];
+		vm.getInterface().setInvoker(hashCode, ctx -> {
+			// Only referenced from the host local
+			InstanceValue held = ops.newUtf8("held");
+			gc.setHeapCeiling(statistics.usedSpace());
+			collections[0] = statistics.collections();
+			Locals locals = vm.getThreadStorage().newLocals(toString);
+			locals.setReference(0, ops.toVMInts(new int[]{1}));
+			assertEquals("[1]", ops.readUtf8(ops.invokeReference(toString, locals)));
+			assertTrue(memoryManager.listObjects().contains(held));
+			assertEquals("held", ops.readUtf8(held));
+			ctx.setResult(0);
+			return Result.ABORT;
+		});
+		Locals locals = vm.getThreadStorage().newLocals(hashCode);
+		locals.setReference(0, ops.toVMLongs(new long[0]));
+		assertEquals(0, ops.invokeInt(hashCode, locals));
+		// Collection was deferred while the invoker was running
+		assertEquals(collections[0], statistics.collections());
+		locals = vm.getThreadStorage().newLocals(toString);
+		locals.setReference(0, ops.toVMInts(new int[]{2}));
+		assertEquals("[2]", ops.readUtf8(ops.invokeReference(toString, locals)));
+		assertTrue(statistics.collections() > collections[0]);
+	}
+
+	@Test
+	public void testObjectTable() {
 		VirtualMachine vm = new VirtualMachine() {
 			@Override
 			protected MemoryManager createMemoryManager() {
-				return new SimpleMemoryManager(this) {
-					@Override
-					protected GarbageCollector createGarbageCollector() {
-						return new MarkAndSweepGarbageCollector(vm);
-					}
-				};
+				return new ObjectTableMemoryManager(this);
 			}
 		};
-		vm.initialize();
-		vm.getInterface().setInvoker(vm.getSymbols().java_lang_System(), "loadLibrary", "(Ljava/lang/String;)V", MethodInvoker.interpreted(ctx -> {
-			if ("zip".equals(vm.getHelper().readUtf8(ctx.getLocals().loadReference(0)))) {
-				invokeGC(vm.getMemoryManager());
-			}
-			return Result.CONTINUE;
-		}));
 		vm.bootstrap();
 		MemoryManager memoryManager = vm.getMemoryManager();
-		invokeGC(memoryManager);
-		invokeGC(memoryManager);
-	}
-
-	private static void invokeGC(MemoryManager memoryManager) {
-		Collection<ObjectValue> objects = memoryManager.listObjects();
-		System.out.println("allocated objects: " + objects.size());
-		Thread invokeGC = new Thread(() -> {
-			long now = System.currentTimeMillis();
-			memoryManager.getGarbageCollector().invoke();
-			System.out.println("gc took:" + (System.currentTimeMillis() - now));
-		}, "GC Thread");
-		invokeGC.start();
-		try {
-			invokeGC.join();
-		} catch (InterruptedException ignored) {
-		}
-		System.out.println("allocated objects after GC: " + objects.size());
+		assertEquals(4, memoryManager.objectSize());
+		VMOperations ops = vm.getOperations();
+		InstanceValue value = ops.newUtf8("handle");
+		assertSame(value, memoryManager.getReference(memoryManager.referenceOf(value)));
+		assertEquals(0L, memoryManager.referenceOf(memoryManager.nullValue()));
+		GarbageCollector gc = memoryManager.getGarbageCollector();
+		GCHandle handle = gc.makeHandle(value);
+		int allocated = memoryManager.listObjects().size();
+		assertTrue(gc.invoke());
+		assertTrue(memoryManager.listObjects().size() < allocated);
+		assertEquals("handle", ops.readUtf8(value));
+		handle.release();
+		InstanceClass arrays = (InstanceClass) ops.findClass(memoryManager.nullValue(), "java/util/Arrays", true);
+		JavaMethod toString = arrays.getMethod("toString", "([I)Ljava/lang/String;");
+		int[] array = {1, 2, 3};
+		Locals locals = vm.getThreadStorage().newLocals(toString);
+		locals.setReference(0, ops.toVMInts(array));
+		assertEquals(Arrays.toString(array), ops.readUtf8(ops.invokeReference(toString, locals)));
 	}
-	*/
 }
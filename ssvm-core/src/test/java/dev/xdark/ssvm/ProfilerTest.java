@@ -0,0 +1,117 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.profiler.SamplingProfiler;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ProfilerTest {
+	private static final long SAMPLES = 10L;
+
+	@Test
+	public void testCollapsedStacks() throws IOException {
+		AtomicReference<SamplingProfiler> profiler = new AtomicReference<>();
+		TestUtil.test(Profiled.class, 0, klass -> {
+			SamplingProfiler p = new SamplingProfiler(klass.getVM(), 1L, TimeUnit.SECONDS);
+			profiler.set(p);
+			// Take the sample while guest frames are on the stack
+			klass.getVM().getInterface().setInvoker(klass, "inner", "()V", ctx -> {
+				p.sample();
+				return Result.ABORT;
+			});
+		});
+		SamplingProfiler p = profiler.get();
+		assertNotNull(p);
+		assertEquals(1L, p.getSamples());
+		StringBuilder collapsed = new StringBuilder();
+		p.writeCollapsed(collapsed);
+		String name = Profiled.class.getName().replace('.', '/');
+		String stack = collapsed.toString().trim();
+		assertTrue(stack.startsWith(name + ".profile:"), stack);
+		assertTrue(stack.contains(';' + name + ".outer:"), stack);
+		assertTrue(stack.endsWith(';' + name + ".inner 1"), stack);
+		StringBuilder hot = new StringBuilder();
+		p.writeHotMethods(hot, 1);
+		String method = Profiled.class.getName() + ".inner()";
+		assertTrue(hot.toString().contains(method), hot.toString());
+	}
+
+	@Test
+	public void testTimer() throws IOException {
+		AtomicReference<SamplingProfiler> profiler = new AtomicReference<>();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30L);
+		TestUtil.test(Looping.class, 0, klass -> {
+			SamplingProfiler p = new SamplingProfiler(klass.getVM(), 1L, TimeUnit.MILLISECONDS);
+			profiler.set(p);
+			// Guest loops until the timer took enough samples
+			klass.getVM().getInterface().setInvoker(klass, "done", "()Z", ctx -> {
+				ctx.setResult(p.getSamples() >= SAMPLES || System.nanoTime() - deadline >= 0L ? 1 : 0);
+				return Result.ABORT;
+			});
+			p.start();
+		});
+		SamplingProfiler p = profiler.get();
+		assertNotNull(p);
+		assertTrue(p.isRunning());
+		p.stop();
+		assertFalse(p.isRunning());
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			assertNotEquals("SSVM Sampling Profiler", thread.getName());
+		}
+		long samples = p.getSamples();
+		assertTrue(samples >= SAMPLES, Long.toString(samples));
+		LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20L));
+		assertEquals(samples, p.getSamples());
+		StringBuilder collapsed = new StringBuilder();
+		p.writeCollapsed(collapsed);
+		String name = Looping.class.getName().replace('.', '/');
+		assertTrue(collapsed.toString().contains(name + ".loop"), collapsed.toString());
+	}
+
+	private static final class Looping {
+
+		@VMTest
+		private static void loop() {
+			while (!done()) {
+				work();
+			}
+		}
+
+		private static boolean done() {
+			return true;
+		}
+
+		private static int work() {
+			int x = 0;
+			for (int i = 0; i < 100; i++) {
+				x += i;
+			}
+			return x;
+		}
+	}
+
+	private static final class Profiled {
+
+		@VMTest
+		private static void profile() {
+			outer();
+		}
+
+		private static void outer() {
+			inner();
+		}
+
+		private static void inner() {
+		}
+	}
+}
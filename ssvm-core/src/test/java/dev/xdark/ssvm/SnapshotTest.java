@@ -0,0 +1,248 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.filesystem.FileManager;
+import dev.xdark.ssvm.filesystem.HostFileManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.thread.backtrace.StackTraceRecord;
+import dev.xdark.ssvm.value.ArrayValue;
+import dev.xdark.ssvm.value.InstanceValue;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class SnapshotTest {
+
+	@Test
+	public void testRestore() throws IOException {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		vm.writeSnapshot(out);
+
+		VirtualMachine restored = new VirtualMachine();
+		restored.bootstrap(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(InitializationState.BOOTED, restored.getState());
+		VMOperations ops = restored.getOperations();
+		InstanceClass system = restored.getSymbols().java_lang_System();
+		assertEquals(vm.getSymbols().java_lang_System().state().get(), system.state().get());
+		JavaMethod getProperty = system.getMethod("getProperty", "(Ljava/lang/String;)Ljava/lang/String;");
+		Locals locals = restored.getThreadStorage().newLocals(getProperty);
+		locals.setReference(0, ops.newUtf8("java.version"));
+		assertEquals(System.getProperty("java.version"), ops.readUtf8(ops.invokeReference(getProperty, locals)));
+		JavaMethod getSystemClassLoader = restored.getSymbols().java_lang_ClassLoader().getMethod("getSystemClassLoader", "()Ljava/lang/ClassLoader;");
+		ObjectValue classLoader = ops.invokeReference(getSystemClassLoader, restored.getThreadStorage().newLocals(getSystemClassLoader));
+		assertFalse(classLoader.isNull());
+	}
+
+	@Test
+	public void testFork() throws InterruptedException {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		VirtualMachine fork = vm.fork();
+		assertEquals(InitializationState.BOOTED, fork.getState());
+		// Both VMs run at the same time, each on its own thread
+		VirtualMachine[] vms = {vm, fork};
+		String[] values = {"parent", "fork"};
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[vms.length];
+		for (int i = 0; i < vms.length; i++) {
+			VirtualMachine target = vms[i];
+			String value = values[i];
+			threads[i] = new Thread(() -> {
+				target.getThreadManager().attachCurrentThread();
+				try {
+					start.await();
+					for (int j = 0; j < 200; j++) {
+						setProperty(target, "ssvm.fork", value + j);
+						assertEquals(value + j, getProperty(target, "ssvm.fork"));
+					}
+				} catch (Throwable t) {
+					error.compareAndSet(null, t);
+				} finally {
+					target.getThreadManager().detachCurrentThread();
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(error.get());
+		assertEquals("parent199", getProperty(vm, "ssvm.fork"));
+		assertEquals("fork199", getProperty(fork, "ssvm.fork"));
+	}
+
+	@Test
+	public void testForkSharesNodes() {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		VirtualMachine fork = vm.fork();
+		InstanceClass system = vm.getSymbols().java_lang_System();
+		InstanceClass forked = fork.getSymbols().java_lang_System();
+		// Parsed skeleton is shared, each VM modifies its own copy
+		assertSame(system.getParsedNode(), forked.getParsedNode());
+		assertNotSame(system.getNode(), forked.getNode());
+		String desc = "(Ljava/lang/String;)Ljava/lang/String;";
+		assertNotSame(system.getMethod("getProperty", desc).getNode(), forked.getMethod("getProperty", desc).getNode());
+		assertEquals(System.getProperty("java.version"), getProperty(fork, "java.version"));
+	}
+
+	@Test
+	public void testStackTrace() throws IOException {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		VMOperations ops = vm.getOperations();
+		byte[] bytes = classBytes(Thrower.class);
+		ObjectValue nullValue = vm.getMemoryManager().nullValue();
+		InstanceClass thrower = ops.defineClass(nullValue, null, bytes, 0, bytes.length, nullValue, "JVM_DefineClass");
+		JavaMethod capture = thrower.getMethod("capture", "()V");
+		ops.invokeVoid(capture, vm.getThreadStorage().newLocals(capture));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		vm.writeSnapshot(out);
+
+		// Stack trace is only decoded now, after the restore
+		VirtualMachine restored = new VirtualMachine();
+		restored.bootstrap(new ByteArrayInputStream(out.toByteArray()));
+		assertStackTrace(restored);
+		assertStackTrace(vm.fork());
+	}
+
+	@Test
+	public void testOpenHandles() throws IOException {
+		VirtualMachine vm = new VirtualMachine() {
+			@Override
+			protected FileManager createFileManager() {
+				return new HostFileManager();
+			}
+		};
+		vm.bootstrap();
+		VMOperations ops = vm.getOperations();
+		byte[] bytes = classBytes(Opener.class);
+		ObjectValue nullValue = vm.getMemoryManager().nullValue();
+		InstanceClass opener = ops.defineClass(nullValue, null, bytes, 0, bytes.length, nullValue, "JVM_DefineClass");
+		Path file = Files.createTempFile("ssvm", ".snapshot");
+		try {
+			JavaMethod open = opener.getMethod("open", "(Ljava/lang/String;)V");
+			Locals locals = vm.getThreadStorage().newLocals(open);
+			locals.setReference(0, ops.newUtf8(file.toString()));
+			ops.invokeVoid(open, locals);
+			// Host handle would not survive the restore
+			assertThrows(IllegalStateException.class, () -> vm.writeSnapshot(new ByteArrayOutputStream()));
+			JavaMethod close = opener.getMethod("close", "()V");
+			ops.invokeVoid(close, vm.getThreadStorage().newLocals(close));
+			vm.writeSnapshot(new ByteArrayOutputStream());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static void assertStackTrace(VirtualMachine vm) {
+		VMOperations ops = vm.getOperations();
+		InstanceClass thrower = (InstanceClass) vm.findBootstrapClass(Thrower.class.getName().replace('.', '/'));
+		InstanceValue saved = (InstanceValue) ops.getReference(thrower, "saved", "Ljava/lang/Throwable;");
+		// Raw record refers to classes of this VM
+		ArrayValue record = (ArrayValue) ops.getReference(saved, "backtrace", "Ljava/lang/Object;");
+		int depth = StackTraceRecord.depth(record);
+		List<String> methods = new ArrayList<>();
+		for (int i = 0; i < depth; i++) {
+			JavaMethod method = StackTraceRecord.getMethod(vm.getClassStorage(), record, i);
+			if (method.getOwner() == thrower) {
+				methods.add(method.getName());
+			}
+		}
+		assertEquals(Arrays.asList("capture", "nested"), methods);
+		// Lazy StackTraceElement creation
+		JavaMethod getStackTrace = vm.getRuntimeResolver().resolveVirtualMethod(saved, "getStackTrace", "()[Ljava/lang/StackTraceElement;");
+		Locals locals = vm.getThreadStorage().newLocals(getStackTrace);
+		locals.setReference(0, saved);
+		ArrayValue stackTrace = (ArrayValue) ops.invokeReference(getStackTrace, locals);
+		methods.clear();
+		for (int i = 0; i < stackTrace.getLength(); i++) {
+			ObjectValue element = stackTrace.getReference(i);
+			if (Thrower.class.getName().equals(ops.readUtf8(ops.getReference(element, "declaringClass", "Ljava/lang/String;")))) {
+				methods.add(ops.readUtf8(ops.getReference(element, "methodName", "Ljava/lang/String;")));
+			}
+		}
+		// Innermost frame first
+		assertEquals(Arrays.asList("nested", "capture"), methods);
+	}
+
+	private static byte[] classBytes(Class<?> klass) throws IOException {
+		try (InputStream in = SnapshotTest.class.getClassLoader().getResourceAsStream(klass.getName().replace('.', '/') + ".class")) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[1024];
+			int r;
+			while ((r = in.read(buf)) != -1) {
+				out.write(buf, 0, r);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	private static String getProperty(VirtualMachine vm, String key) {
+		VMOperations ops = vm.getOperations();
+		JavaMethod getProperty = vm.getSymbols().java_lang_System().getMethod("getProperty", "(Ljava/lang/String;)Ljava/lang/String;");
+		Locals locals = vm.getThreadStorage().newLocals(getProperty);
+		locals.setReference(0, ops.newUtf8(key));
+		ObjectValue value = ops.invokeReference(getProperty, locals);
+		return value.isNull() ? null : ops.readUtf8(value);
+	}
+
+	private static void setProperty(VirtualMachine vm, String key, String value) {
+		VMOperations ops = vm.getOperations();
+		JavaMethod setProperty = vm.getSymbols().java_lang_System().getMethod("setProperty", "(Ljava/lang/String;Ljava/lang/String;)Ljava/lang/String;");
+		Locals locals = vm.getThreadStorage().newLocals(setProperty);
+		locals.setReference(0, ops.newUtf8(key));
+		locals.setReference(1, ops.newUtf8(value));
+		ops.invokeReference(setProperty, locals);
+	}
+
+	public static final class Opener {
+		static InputStream stream;
+
+		public static void open(String path) throws IOException {
+			stream = new FileInputStream(path);
+		}
+
+		public static void close() throws IOException {
+			stream.close();
+			stream = null;
+		}
+	}
+
+	public static final class Thrower {
+		static Throwable saved;
+
+		public static void capture() {
+			nested();
+		}
+
+		private static void nested() {
+			saved = new Throwable();
+		}
+	}
+}
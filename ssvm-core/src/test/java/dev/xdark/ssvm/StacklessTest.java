@@ -0,0 +1,193 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.api.InstructionInterceptor;
+import dev.xdark.ssvm.api.MethodEnterListener;
+import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.execution.ExecutionEngine;
+import dev.xdark.ssvm.execution.ExecutionMode;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.execution.SimpleExecutionEngine;
+import dev.xdark.ssvm.jvmti.JVMTIEnv;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class StacklessTest {
+	private static VirtualMachine vm;
+	private static InstanceClass recursion;
+
+	@BeforeAll
+	public static void setup() throws IOException {
+		vm = new VirtualMachine() {
+			@Override
+			protected ExecutionEngine createExecutionEngine() {
+				return new SimpleExecutionEngine(this, ExecutionMode.STACKLESS);
+			}
+		};
+		vm.bootstrap();
+		byte[] bytes;
+		try (InputStream in = StacklessTest.class.getClassLoader().getResourceAsStream(Recursion.class.getName().replace('.', '/') + ".class")) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[1024];
+			int r;
+			while ((r = in.read(buf)) != -1) {
+				out.write(buf, 0, r);
+			}
+			bytes = out.toByteArray();
+		}
+		ObjectValue nullValue = vm.getMemoryManager().nullValue();
+		recursion = vm.getOperations().defineClass(nullValue, null, bytes, 0, bytes.length, nullValue, "JVM_DefineClass");
+	}
+
+	@Test
+	public void testDeepRecursion() throws InterruptedException {
+		// Host stack would not fit that many interpreted frames
+		assertEquals(20000, onSmallStack("depth", 20000));
+	}
+
+	@Test
+	public void testUnwind() throws InterruptedException {
+		assertEquals(5000, onSmallStack("unwind", 5000));
+	}
+
+	@Test
+	public void testInvokerOverride() throws InterruptedException {
+		assertEquals(5, onSmallStack("identity", 5));
+		// Invoker binding cached by the first call must be invalidated
+		JavaMethod method = recursion.getMethod("identity", "(I)I");
+		vm.getInterface().setInvoker(method, ctx -> {
+			ctx.setResult(ctx.getLocals().loadInt(0) * 2);
+			return Result.ABORT;
+		});
+		assertEquals(10, onSmallStack("identity", 5));
+	}
+
+	@Test
+	public void testHookRegistration() throws InterruptedException {
+		AtomicInteger listener = new AtomicInteger();
+		AtomicInteger jvmti = new AtomicInteger();
+		MethodEnterListener enter = ctx -> {
+			if ("depth".equals(ctx.getMethod().getName())) {
+				listener.incrementAndGet();
+			}
+		};
+		VMInterface vmi = vm.getInterface();
+		vmi.registerMethodEnterListener(enter);
+		try (JVMTIEnv env = vm.newJvmtiEnv()) {
+			env.setMethodEnter(ctx -> {
+				if ("depth".equals(ctx.getMethod().getName())) {
+					jvmti.incrementAndGet();
+				}
+			});
+			assertEquals(10, onSmallStack("depth", 10));
+		} finally {
+			vmi.removeMethodEnterListener(enter);
+		}
+		assertEquals(11, listener.get());
+		assertEquals(11, jvmti.get());
+		// Hooks are gone, nothing must be notified anymore
+		assertEquals(10, onSmallStack("depth", 10));
+		assertEquals(11, listener.get());
+		assertEquals(11, jvmti.get());
+	}
+
+	@Test
+	public void testHooksRegisteredMidCall() throws InterruptedException {
+		AtomicInteger enters = new AtomicInteger();
+		AtomicInteger exits = new AtomicInteger();
+		AtomicInteger insns = new AtomicInteger();
+		AtomicReference<JVMTIEnv> env = new AtomicReference<>();
+		InstructionInterceptor interceptor = (ctx, insn) -> {
+			insns.incrementAndGet();
+			return Result.CONTINUE;
+		};
+		VMInterface vmi = vm.getInterface();
+		MethodEnterListener enter = ctx -> {
+			if ("depth".equals(ctx.getMethod().getName()) && ctx.getLocals().loadInt(0) == 5 && env.get() == null) {
+				JVMTIEnv jvmti = vm.newJvmtiEnv();
+				jvmti.setMethodEnter(frame -> enters.incrementAndGet());
+				jvmti.setMethodExit(frame -> exits.incrementAndGet());
+				env.set(jvmti);
+				vmi.registerInstructionInterceptor(interceptor);
+			}
+		};
+		vmi.registerMethodEnterListener(enter);
+		try {
+			assertEquals(10, onSmallStack("depth", 10));
+		} finally {
+			vmi.removeMethodEnterListener(enter);
+			vmi.removeInstructionInterceptor(interceptor);
+			JVMTIEnv jvmti = env.get();
+			if (jvmti != null) {
+				jvmti.close();
+			}
+		}
+		// Only frames entered after the hooks were set are notified, on both ends
+		assertEquals(5, enters.get());
+		assertEquals(5, exits.get());
+		assertTrue(insns.get() > 0);
+	}
+
+	private static int onSmallStack(String name, int arg) throws InterruptedException {
+		AtomicReference<Object> result = new AtomicReference<>();
+		Thread thread = new Thread(null, () -> {
+			vm.getThreadManager().attachCurrentThread();
+			try {
+				JavaMethod method = recursion.getMethod(name, "(I)I");
+				Locals locals = vm.getThreadStorage().newLocals(method);
+				locals.setInt(0, arg);
+				result.set(vm.getOperations().invokeInt(method, locals));
+			} catch (Throwable t) {
+				result.set(t);
+			} finally {
+				vm.getThreadManager().detachCurrentThread();
+			}
+		}, "stackless", 256L * 1024L);
+		thread.start();
+		thread.join();
+		Object value = result.get();
+		if (value instanceof Throwable) {
+			throw new AssertionError((Throwable) value);
+		}
+		return (Integer) value;
+	}
+
+	public static final class Recursion {
+
+		public static int identity(int n) {
+			return n;
+		}
+
+		public static int depth(int n) {
+			return n == 0 ? 0 : depth(n - 1) + 1;
+		}
+
+		public static int unwind(int n) {
+			try {
+				fail(n);
+				return -1;
+			} catch (IllegalStateException ex) {
+				return n;
+			}
+		}
+
+		private static void fail(int n) {
+			if (n == 0) {
+				throw new IllegalStateException();
+			}
+			fail(n - 1);
+		}
+	}
+}
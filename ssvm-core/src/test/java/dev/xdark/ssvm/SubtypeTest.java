@@ -0,0 +1,233 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.asm.VMOpcodes;
+import dev.xdark.ssvm.asm.VMTypeInsnNode;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.VMException;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.mirror.type.SimpleInstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.TypeInsnNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public final class SubtypeTest {
+	private static VirtualMachine vm;
+	private static InstanceClass a0, a1, a2, a3, a4, a5, b, p, q, r, d, e, caller;
+
+	@BeforeAll
+	public static void setup() {
+		vm = new VirtualMachine();
+		vm.bootstrap();
+		a0 = define(A0.class);
+		a1 = define(A1.class);
+		a2 = define(A2.class);
+		a3 = define(A3.class);
+		a4 = define(A4.class);
+		a5 = define(A5.class);
+		b = define(B.class);
+		p = define(P.class);
+		q = define(Q.class);
+		r = define(R.class);
+		d = define(D.class);
+		e = define(E.class);
+		caller = define(Caller.class);
+		for (InstanceClass klass : new InstanceClass[]{a5, b, e, caller}) {
+			vm.getOperations().initialize(klass);
+		}
+	}
+
+	@Test
+	public void testDeepChain() {
+		InstanceClass[] chain = {a0, a1, a2, a3, a4, a5};
+		for (int x = 0; x < chain.length; x++) {
+			for (int y = 0; y < chain.length; y++) {
+				assertEquals(x <= y, chain[x].isAssignableFrom(chain[y]), chain[x] + " <- " + chain[y]);
+			}
+		}
+		// B is a sibling of A3 at the same depth
+		assertTrue(a2.isAssignableFrom(b));
+		assertFalse(a3.isAssignableFrom(b));
+		assertFalse(a5.isAssignableFrom(b));
+		assertFalse(b.isAssignableFrom(a5));
+	}
+
+	@Test
+	public void testInheritedInterfaces() {
+		// E extends D, D implements Q, Q extends P
+		assertTrue(p.isAssignableFrom(e));
+		assertTrue(q.isAssignableFrom(e));
+		assertTrue(p.isAssignableFrom(q));
+		assertTrue(d.isAssignableFrom(e));
+		assertFalse(q.isAssignableFrom(p));
+		assertFalse(r.isAssignableFrom(e));
+		assertFalse(p.isAssignableFrom(a5));
+		assertFalse(e.isAssignableFrom(d));
+	}
+
+	@Test
+	public void testSecondarySuperCache() {
+		assertTrue(p.isAssignableFrom(e));
+		assertSame(p, secondarySuperCache(e));
+		// Hit
+		assertTrue(p.isAssignableFrom(e));
+		assertSame(p, secondarySuperCache(e));
+		// Misses do not replace the cached entry
+		assertFalse(r.isAssignableFrom(e));
+		assertSame(p, secondarySuperCache(e));
+		assertTrue(q.isAssignableFrom(e));
+		assertSame(q, secondarySuperCache(e));
+		assertTrue(p.isAssignableFrom(e));
+		assertSame(p, secondarySuperCache(e));
+	}
+
+	@Test
+	public void testTypeInsnCache() {
+		VMTypeInsnNode insn = new VMTypeInsnNode(new TypeInsnNode(Opcodes.INSTANCEOF, p.getInternalName()), VMOpcodes.VM_INSTANCEOF, p);
+		InstanceClass object = vm.getSymbols().java_lang_Object();
+		for (int x = 0; x < 4; x++) {
+			assertTrue(insn.isAssignableFrom(e));
+			assertFalse(insn.isAssignableFrom(a5));
+			assertTrue(insn.isAssignableFrom(d));
+			assertFalse(insn.isAssignableFrom(object));
+			assertTrue(insn.isAssignableFrom(q));
+		}
+	}
+
+	@Test
+	public void testInstanceofSite() {
+		JavaMethod isP = caller.getMethod("isP", "(Ljava/lang/Object;)Z");
+		ObjectValue subtype = newInstance(e);
+		ObjectValue other = newInstance(a5);
+		ObjectValue nullValue = vm.getMemoryManager().nullValue();
+		// Same site sees both receivers in turn
+		for (int x = 0; x < 4; x++) {
+			assertEquals(1, invokeInt(isP, subtype));
+			assertEquals(0, invokeInt(isP, other));
+			assertEquals(1, invokeInt(isP, newInstance(d)));
+			assertEquals(0, invokeInt(isP, nullValue));
+		}
+	}
+
+	@Test
+	public void testCheckcastSite() {
+		JavaMethod castP = caller.getMethod("castP", "(Ljava/lang/Object;)I");
+		ObjectValue subtype = newInstance(e);
+		ObjectValue other = newInstance(b);
+		for (int x = 0; x < 4; x++) {
+			assertEquals(1, invokeInt(castP, subtype));
+			assertEquals("java/lang/ClassCastException", exceptionType(castP, other));
+			assertEquals(1, invokeInt(castP, subtype));
+		}
+	}
+
+	private static InstanceClass secondarySuperCache(InstanceClass klass) {
+		try {
+			Field field = SimpleInstanceClass.class.getDeclaredField("secondarySuperCache");
+			field.setAccessible(true);
+			return (InstanceClass) field.get(klass);
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static int invokeInt(JavaMethod method, ObjectValue argument) {
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setReference(0, argument);
+		return vm.getOperations().invokeInt(method, locals);
+	}
+
+	private static String exceptionType(JavaMethod method, ObjectValue argument) {
+		try {
+			invokeInt(method, argument);
+		} catch (VMException ex) {
+			return ex.getOop().getJavaClass().getInternalName();
+		}
+		return fail("Exception expected");
+	}
+
+	private static ObjectValue newInstance(InstanceClass type) {
+		vm.getOperations().initialize(type);
+		return vm.getMemoryManager().newInstance(type);
+	}
+
+	private static InstanceClass define(Class<?> klass) {
+		try (InputStream in = SubtypeTest.class.getClassLoader().getResourceAsStream(klass.getName().replace('.', '/') + ".class")) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[1024];
+			int r;
+			while ((r = in.read(buf)) != -1) {
+				out.write(buf, 0, r);
+			}
+			byte[] bytes = out.toByteArray();
+			VMOperations ops = vm.getOperations();
+			ObjectValue nullValue = vm.getMemoryManager().nullValue();
+			return ops.defineClass(nullValue, null, bytes, 0, bytes.length, nullValue, "JVM_DefineClass");
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	public static class A0 {
+	}
+
+	public static class A1 extends A0 {
+	}
+
+	public static class A2 extends A1 {
+	}
+
+	public static class A3 extends A2 {
+	}
+
+	public static class A4 extends A3 {
+	}
+
+	public static class A5 extends A4 {
+	}
+
+	public static class B extends A2 {
+	}
+
+	public interface P {
+	}
+
+	public interface Q extends P {
+	}
+
+	public interface R {
+	}
+
+	public static class D implements Q {
+	}
+
+	public static class E extends D {
+	}
+
+	public static final class Caller {
+
+		public static boolean isP(Object o) {
+			return o instanceof P;
+		}
+
+		public static int castP(Object o) {
+			P p = (P) o;
+			return p != null ? 1 : 0;
+		}
+	}
+}
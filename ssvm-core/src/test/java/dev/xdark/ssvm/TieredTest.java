@@ -0,0 +1,421 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.execution.ExecutionEngine;
+import dev.xdark.ssvm.execution.ExecutionMode;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.SimpleExecutionEngine;
+import dev.xdark.ssvm.execution.VMException;
+import dev.xdark.ssvm.execution.compiler.CompiledCode;
+import dev.xdark.ssvm.execution.compiler.TieredInvoker;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.util.ClassUtil;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public final class TieredTest {
+	// Every method runs past the threshold
+	private static final int ITERATIONS = TieredInvoker.DEFAULT_THRESHOLD + 500;
+	private static VirtualMachine vm;
+	private static InstanceClass tiered;
+
+	@BeforeAll
+	public static void setup() {
+		vm = new VirtualMachine() {
+			@Override
+			protected ExecutionEngine createExecutionEngine() {
+				return new SimpleExecutionEngine(this, ExecutionMode.TIERED);
+			}
+		};
+		vm.bootstrap();
+		tiered = define(Tiered.class);
+		vm.getOperations().initialize(tiered);
+	}
+
+	@Test
+	public void testStaticCalls() {
+		for (int i = 0; i < ITERATIONS; i++) {
+			assertEquals(Tiered.staticCalls(i), invokeInt("staticCalls", i));
+		}
+		assertCompiled(tiered.getMethod("staticCalls", "(I)I"));
+		assertCompiled(tiered.getMethod("add", "(II)I"));
+	}
+
+	@Test
+	public void testVirtualCalls() {
+		for (int i = 0; i < ITERATIONS; i++) {
+			assertEquals(Tiered.virtualCalls(i), invokeInt("virtualCalls", i));
+		}
+		assertCompiled(tiered.getMethod("virtualCalls", "(I)I"));
+	}
+
+	@Test
+	public void testInterfaceCalls() {
+		for (int i = 0; i < ITERATIONS; i++) {
+			assertEquals(Tiered.interfaceCalls(i), invokeInt("interfaceCalls", i));
+		}
+		assertCompiled(tiered.getMethod("interfaceCalls", "(I)I"));
+	}
+
+	@Test
+	public void testFields() {
+		JavaMethod method = tiered.getMethod("fields", "(I)J");
+		for (int i = 0; i < ITERATIONS; i++) {
+			Locals locals = vm.getThreadStorage().newLocals(method);
+			locals.setInt(0, i);
+			assertEquals(Tiered.fields(i), vm.getOperations().invokeLong(method, locals));
+		}
+		assertCompiled(method);
+	}
+
+	@Test
+	public void testArrays() {
+		for (int i = 0; i < ITERATIONS; i++) {
+			assertEquals(Tiered.arrays(i), invokeInt("arrays", i));
+		}
+		assertCompiled(tiered.getMethod("arrays", "(I)I"));
+	}
+
+	@Test
+	public void testSwitches() {
+		for (int i = 0; i < ITERATIONS; i++) {
+			int value = i % 2 == 0 ? i : -i;
+			assertEquals(Tiered.switches(value), invokeInt("switches", value));
+		}
+		assertEquals(Tiered.switches(100000), invokeInt("switches", 100000));
+		assertCompiled(tiered.getMethod("switches", "(I)I"));
+	}
+
+	@Test
+	public void testWideMath() {
+		VMOperations ops = vm.getOperations();
+		JavaMethod longMath = tiered.getMethod("longMath", "(JJ)J");
+		JavaMethod doubleMath = tiered.getMethod("doubleMath", "(DD)D");
+		for (int i = 0; i < ITERATIONS; i++) {
+			long a = i * 0x9E3779B97F4A7C15L;
+			long b = -i * 31L;
+			Locals locals = vm.getThreadStorage().newLocals(longMath);
+			locals.setLong(0, a);
+			locals.setLong(2, b);
+			assertEquals(Tiered.longMath(a, b), ops.invokeLong(longMath, locals));
+			double x = i * 1.25D - 300D;
+			double y = i / 7D;
+			locals = vm.getThreadStorage().newLocals(doubleMath);
+			locals.setDouble(0, x);
+			locals.setDouble(2, y);
+			assertEquals(Tiered.doubleMath(x, y), ops.invokeDouble(doubleMath, locals));
+		}
+		assertCompiled(longMath);
+		assertCompiled(doubleMath);
+	}
+
+	@Test
+	public void testDivisionByZero() {
+		VMOperations ops = vm.getOperations();
+		JavaMethod divide = tiered.getMethod("divide", "(II)I");
+		JavaMethod remainder = tiered.getMethod("remainder", "(JJ)J");
+		for (int i = 0; i < ITERATIONS; i++) {
+			int divisor = i % 3 - 1;
+			Locals intLocals = vm.getThreadStorage().newLocals(divide);
+			intLocals.setInt(0, i);
+			intLocals.setInt(1, divisor);
+			Locals longLocals = vm.getThreadStorage().newLocals(remainder);
+			longLocals.setLong(0, i);
+			longLocals.setLong(2, divisor);
+			if (divisor == 0) {
+				assertEquals("java/lang/ArithmeticException", exceptionType(() -> ops.invokeInt(divide, intLocals)));
+				assertEquals("java/lang/ArithmeticException", exceptionType(() -> ops.invokeLong(remainder, longLocals)));
+			} else {
+				assertEquals(Tiered.divide(i, divisor), ops.invokeInt(divide, intLocals));
+				assertEquals(Tiered.remainder(i, divisor), ops.invokeLong(remainder, longLocals));
+			}
+		}
+		assertCompiled(divide);
+		assertCompiled(remainder);
+	}
+
+	@Test
+	public void testNullPointer() {
+		VMOperations ops = vm.getOperations();
+		JavaMethod nested = tiered.getMethod("nested", "([I)I");
+		JavaMethod value = tiered.getMethod("value", "(L" + tiered.getInternalName() + ";)I");
+		ObjectValue nullValue = vm.getMemoryManager().nullValue();
+		ObjectValue instance = vm.getMemoryManager().newInstance(tiered);
+		for (int i = 0; i < ITERATIONS; i++) {
+			boolean isNull = i % 2 == 0;
+			Locals arrayLocals = vm.getThreadStorage().newLocals(nested);
+			arrayLocals.setReference(0, isNull ? nullValue : ops.toVMInts(new int[i % 5]));
+			Locals valueLocals = vm.getThreadStorage().newLocals(value);
+			valueLocals.setReference(0, isNull ? nullValue : instance);
+			if (isNull) {
+				// Thrown by the compiled callee, propagates through the compiled caller
+				assertEquals("java/lang/NullPointerException", exceptionType(() -> ops.invokeInt(nested, arrayLocals)));
+				assertEquals("java/lang/NullPointerException", exceptionType(() -> ops.invokeInt(value, valueLocals)));
+			} else {
+				assertEquals(i % 5 + 1, ops.invokeInt(nested, arrayLocals));
+				assertEquals(0, ops.invokeInt(value, valueLocals));
+			}
+		}
+		assertCompiled(nested);
+		assertCompiled(tiered.getMethod("length", "([I)I"));
+		assertCompiled(value);
+	}
+
+	@Test
+	public void testRedefine() {
+		InstanceClass versioned = define(Versioned.class);
+		JavaMethod version = versioned.getMethod("version", "()I");
+		JavaMethod callVersion = versioned.getMethod("callVersion", "()I");
+		for (int i = 0; i < ITERATIONS; i++) {
+			assertEquals(1, invokeInt(callVersion));
+		}
+		assertCompiled(version);
+		assertCompiled(callVersion);
+		CompiledCode stale = version.getCompiledCode();
+		ClassReader reader = new ClassReader(patchVersion(classBytes(Versioned.class), 2));
+		versioned.redefine(reader, ClassUtil.readNode(reader));
+		assertNull(version.getCompiledCode());
+		assertNull(callVersion.getCompiledCode());
+		assertEquals(2, invokeInt(version));
+		for (int i = 0; i < ITERATIONS; i++) {
+			assertEquals(2, invokeInt(callVersion));
+		}
+		// Compiled again from the new code
+		assertCompiled(version);
+		assertNotSame(stale, version.getCompiledCode());
+	}
+
+	private static int invokeInt(String name, int arg) {
+		JavaMethod method = tiered.getMethod(name, "(I)I");
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setInt(0, arg);
+		return vm.getOperations().invokeInt(method, locals);
+	}
+
+	private static int invokeInt(JavaMethod method) {
+		return vm.getOperations().invokeInt(method, vm.getThreadStorage().newLocals(method));
+	}
+
+	private static String exceptionType(Runnable runnable) {
+		try {
+			runnable.run();
+		} catch (VMException ex) {
+			return ex.getOop().getJavaClass().getInternalName();
+		}
+		throw new AssertionError("Exception expected");
+	}
+
+	private static void assertCompiled(JavaMethod method) {
+		CompiledCode code = method.getCompiledCode();
+		assertNotNull(code, method.toString());
+		assertNotSame(CompiledCode.UNSUPPORTED, code, method.toString());
+	}
+
+	private static InstanceClass define(Class<?> klass) {
+		byte[] bytes = classBytes(klass);
+		ObjectValue nullValue = vm.getMemoryManager().nullValue();
+		return vm.getOperations().defineClass(nullValue, null, bytes, 0, bytes.length, nullValue, "JVM_DefineClass");
+	}
+
+	private static byte[] classBytes(Class<?> klass) {
+		try (InputStream in = TieredTest.class.getClassLoader().getResourceAsStream(klass.getName().replace('.', '/') + ".class")) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[1024];
+			int r;
+			while ((r = in.read(buf)) != -1) {
+				out.write(buf, 0, r);
+			}
+			return out.toByteArray();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private static byte[] patchVersion(byte[] bytes, int version) {
+		ClassReader reader = new ClassReader(bytes);
+		ClassWriter writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+		reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+				if (!"version".equals(name)) {
+					return mv;
+				}
+				mv.visitCode();
+				mv.visitIntInsn(Opcodes.BIPUSH, version);
+				mv.visitInsn(Opcodes.IRETURN);
+				mv.visitMaxs(0, 0);
+				mv.visitEnd();
+				return null;
+			}
+		}, 0);
+		return writer.toByteArray();
+	}
+
+	public static final class Tiered {
+		static int counter;
+		int value;
+		long wide;
+
+		public static int add(int a, int b) {
+			return a + b;
+		}
+
+		public static int staticCalls(int n) {
+			return add(n, 1) * add(n, -1);
+		}
+
+		public static int virtualCalls(int n) {
+			// More receiver types than the inline cache holds
+			Number[] numbers = {n, (long) n, (double) n, (short) n, (byte) n, (float) n};
+			int sum = 0;
+			for (Number number : numbers) {
+				sum += number.intValue();
+			}
+			return sum;
+		}
+
+		public static int interfaceCalls(int n) {
+			CharSequence[] sequences = {"abc", new StringBuilder("de"), new StringBuffer("f"), CharBuffer.wrap("ghij")};
+			int sum = n;
+			for (CharSequence sequence : sequences) {
+				sum = sum * 31 + sequence.length();
+			}
+			return sum;
+		}
+
+		public static long fields(int n) {
+			Tiered tiered = new Tiered();
+			tiered.value = n;
+			tiered.wide = n * 3L;
+			counter = -n;
+			return tiered.value + tiered.wide + counter;
+		}
+
+		public static int arrays(int n) {
+			int[] ints = new int[4];
+			long[] longs = new long[4];
+			byte[] bytes = new byte[4];
+			char[] chars = new char[4];
+			short[] shorts = new short[4];
+			float[] floats = new float[4];
+			double[] doubles = new double[4];
+			boolean[] booleans = new boolean[4];
+			Object[] objects = new Object[2];
+			for (int i = 0; i < ints.length; i++) {
+				ints[i] = n + i;
+				longs[i] = ints[i] * 10L;
+				bytes[i] = (byte) (n + i);
+				chars[i] = (char) (n - i);
+				shorts[i] = (short) (n * i);
+				floats[i] = n / 2F;
+				doubles[i] = n / 4D;
+				booleans[i] = (n & i) != 0;
+			}
+			objects[0] = ints;
+			int sum = 0;
+			for (int i = 0; i < ints.length; i++) {
+				sum += ints[i] + (int) longs[i] + bytes[i] + chars[i] + shorts[i] + (int) floats[i] + (int) doubles[i];
+				if (booleans[i]) {
+					sum++;
+				}
+			}
+			return sum + ((int[]) objects[0]).length + (objects[1] == null ? 1 : 0);
+		}
+
+		public static int switches(int n) {
+			int r;
+			switch (Math.abs(n % 5)) {
+				case 0:
+					r = 10;
+					break;
+				case 1:
+					r = 20;
+					break;
+				case 2:
+					r = 30;
+					break;
+				case 3:
+					r = 40;
+					break;
+				default:
+					r = -1;
+			}
+			switch (n) {
+				case -1000:
+					r += 1;
+					break;
+				case 7:
+					r += 2;
+					break;
+				case 1000:
+					r += 3;
+					break;
+				case 100000:
+					r += 5;
+					break;
+				default:
+					r += 4;
+			}
+			return r;
+		}
+
+		public static long longMath(long a, long b) {
+			return (a * b + (a << 3) - (b >>> 2)) ^ (a / (b | 1L)) + a % (b | 1L);
+		}
+
+		public static double doubleMath(double a, double b) {
+			float f = (float) a * 0.5F - (float) b;
+			return a * b / (b + 0.5D) - Math.abs(a) + (long) a % 7L + f;
+		}
+
+		public static int divide(int a, int b) {
+			return a / b;
+		}
+
+		public static long remainder(long a, long b) {
+			return a % b;
+		}
+
+		public static int length(int[] array) {
+			return array.length;
+		}
+
+		public static int nested(int[] array) {
+			return length(array) + 1;
+		}
+
+		public static int value(Tiered tiered) {
+			return tiered.value;
+		}
+	}
+
+	public static final class Versioned {
+
+		public static int version() {
+			return 1;
+		}
+
+		public static int callVersion() {
+			return version();
+		}
+	}
+}
@@ -1,9 +1,32 @@
 package dev.xdark.ssvm;
 
+import dev.xdark.ssvm.asm.LazyMethodNode;
+import dev.xdark.ssvm.classloading.ClassDefiner;
+import dev.xdark.ssvm.classloading.SimpleClassDefiner;
+import dev.xdark.ssvm.execution.Locals;
 import dev.xdark.ssvm.execution.VMException;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.symbol.Symbols;
 import dev.xdark.ssvm.value.InstanceValue;
+import dev.xdark.ssvm.value.ObjectValue;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public final class VMBootTest {
 
 	@Test
@@ -24,4 +47,132 @@ public void testBoot() {
 			}
 		}
 	}
+
+	@Test
+	public void testLazyCode() {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		VMOperations ops = vm.getOperations();
+		InstanceClass arrays = (InstanceClass) vm.findBootstrapClass("java/util/Arrays");
+		LazyMethodNode node = (LazyMethodNode) arrays.getNode().methods.stream()
+			.filter(x -> "deepToString".equals(x.name) && "([Ljava/lang/Object;)Ljava/lang/String;".equals(x.desc))
+			.findFirst()
+			.orElseThrow(IllegalStateException::new);
+		// Not used during boot, metadata is available without the code
+		assertFalse(node.isLoaded());
+		assertEquals(0, node.instructions.size());
+		JavaMethod method = arrays.getMethod(node.name, node.desc);
+		assertEquals("deepToString", method.getName());
+		assertFalse(node.isLoaded());
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setReference(0, ops.toVMReferences(new ObjectValue[]{ops.newUtf8("lazy")}));
+		assertEquals("[lazy]", ops.readUtf8(ops.invokeReference(method, locals)));
+		// Code is parsed into the copy owned by the method,
+		// node itself may be shared with forks
+		assertFalse(node.isLoaded());
+		assertNotSame(node, method.getNode());
+		assertNotEquals(0, method.getNode().instructions.size());
+	}
+
+	@Test
+	public void testClassFileNotRetained() throws IOException {
+		VirtualMachine vm = new VirtualMachine() {
+			@Override
+			protected ClassDefiner createClassDefiner() {
+				return new SimpleClassDefiner(true, false);
+			}
+		};
+		vm.bootstrap();
+		VMOperations ops = vm.getOperations();
+		byte[] bytes;
+		try (InputStream in = VMBootTest.class.getClassLoader().getResourceAsStream(Adder.class.getName().replace('.', '/') + ".class")) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[1024];
+			int r;
+			while ((r = in.read(buf)) != -1) {
+				out.write(buf, 0, r);
+			}
+			bytes = out.toByteArray();
+		}
+		ObjectValue nullValue = vm.getMemoryManager().nullValue();
+		InstanceClass adder = ops.defineClass(nullValue, null, bytes, 0, bytes.length, nullValue, "JVM_DefineClass");
+		assertNull(adder.getClassReader());
+		assertEquals(5, add(vm, adder));
+		// Boot class file is read again
+		assertNotNull(adder.getRawClassFile());
+		VirtualMachine fork = vm.fork();
+		InstanceClass forked = (InstanceClass) fork.findBootstrapClass(adder.getInternalName());
+		assertNotNull(forked.getClassReader());
+		assertEquals(5, add(fork, forked));
+	}
+
+	private static int add(VirtualMachine vm, InstanceClass adder) {
+		JavaMethod add = adder.getMethod("add", "(II)I");
+		Locals locals = vm.getThreadStorage().newLocals(add);
+		locals.setInt(0, 2);
+		locals.setInt(1, 3);
+		return vm.getOperations().invokeInt(add, locals);
+	}
+
+	@Test
+	public void testReflection() {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		VMOperations ops = vm.getOperations();
+		Symbols symbols = vm.getSymbols();
+		JavaMethod getMethod = symbols.java_lang_Class().getMethod("getMethod", "(Ljava/lang/String;[Ljava/lang/Class;)Ljava/lang/reflect/Method;");
+		Locals locals = vm.getThreadStorage().newLocals(getMethod);
+		locals.setReference(0, symbols.java_lang_Object().getOop());
+		locals.setReference(1, ops.newUtf8("toString"));
+		locals.setReference(2, ops.allocateArray(symbols.java_lang_Class(), 0));
+		InstanceValue toString = (InstanceValue) ops.invokeReference(getMethod, locals);
+		// Skip access checks, there is no caller
+		ops.putBoolean(toString, "override", true);
+		JavaMethod invoke = symbols.java_lang_reflect_Method().getMethod("invoke", "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;");
+		// Same method, different receivers
+		ObjectValue[] receivers = {ops.newUtf8("abc"), ops.boxInt(5), ops.newUtf8("def")};
+		String[] expected = {"abc", "5", "def"};
+		for (int i = 0; i < receivers.length; i++) {
+			locals = vm.getThreadStorage().newLocals(invoke);
+			locals.setReference(0, toString);
+			locals.setReference(1, receivers[i]);
+			locals.setReference(2, vm.getMemoryManager().nullValue());
+			assertEquals(expected[i], ops.readUtf8(ops.invokeReference(invoke, locals)));
+		}
+	}
+
+	@Test
+	public void testReflectionReceiverCheck() {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		VMOperations ops = vm.getOperations();
+		Symbols symbols = vm.getSymbols();
+		JavaMethod getMethod = symbols.java_lang_Class().getMethod("getMethod", "(Ljava/lang/String;[Ljava/lang/Class;)Ljava/lang/reflect/Method;");
+		JavaMethod invoke = symbols.java_lang_reflect_Method().getMethod("invoke", "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;");
+		// Exact and virtual targets
+		InstanceClass[] owners = {symbols.java_lang_String(), (InstanceClass) vm.findBootstrapClass("java/lang/Number")};
+		String[] names = {"length", "intValue"};
+		for (int i = 0; i < owners.length; i++) {
+			Locals locals = vm.getThreadStorage().newLocals(getMethod);
+			locals.setReference(0, owners[i].getOop());
+			locals.setReference(1, ops.newUtf8(names[i]));
+			locals.setReference(2, ops.allocateArray(symbols.java_lang_Class(), 0));
+			InstanceValue method = (InstanceValue) ops.invokeReference(getMethod, locals);
+			ops.putBoolean(method, "override", true);
+			locals = vm.getThreadStorage().newLocals(invoke);
+			locals.setReference(0, method);
+			locals.setReference(1, symbols.java_lang_Object().getOop());
+			locals.setReference(2, vm.getMemoryManager().nullValue());
+			Locals args = locals;
+			VMException ex = assertThrows(VMException.class, () -> ops.invokeReference(invoke, args));
+			assertSame(symbols.java_lang_IllegalArgumentException(), ex.getOop().getJavaClass());
+		}
+	}
+
+	public static final class Adder {
+
+		public static int add(int a, int b) {
+			return a + b;
+		}
+	}
 }
@@ -2,6 +2,7 @@
 
 import dev.xdark.ssvm.TestUtil;
 import dev.xdark.ssvm.VMTest;
+import dev.xdark.ssvm.execution.ExecutionMode;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
@@ -13,6 +14,11 @@ public void doTest() {
 		TestUtil.test(ArrayTest.class, true);
 	}
 
+	@Test
+	public void doThreadedTest() {
+		TestUtil.test(ArrayTest.class, true, ExecutionMode.THREADED);
+	}
+
 	@dev.xdark.ssvm.VMTest
 	private static void testArrays() {
 		long[] array = new long[8];
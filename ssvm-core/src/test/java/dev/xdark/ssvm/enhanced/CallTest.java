@@ -2,6 +2,7 @@
 
 import dev.xdark.ssvm.TestUtil;
 import dev.xdark.ssvm.VMTest;
+import dev.xdark.ssvm.execution.ExecutionMode;
 import org.junit.jupiter.api.Test;
 
 import java.util.Objects;
@@ -14,6 +15,11 @@ public void doTest() {
 		TestUtil.test(InnerCallTest.class, true);
 	}
 
+	@Test
+	public void doThreadedTest() {
+		TestUtil.test(InnerCallTest.class, true, ExecutionMode.THREADED);
+	}
+
 	private static final class InnerCallTest {
 
 		private static int field1, field2;
@@ -37,6 +43,24 @@ private static void doVirtualCall() {
 			obj.doVirtualCallImpl(field1, field2, field3, field4, field5, field6);
 		}
 
+		@VMTest
+		private static void doPolymorphicCall() {
+			// Goes past inline cache capacity
+			Object[] values = {1, 2L, "3", '4', 5.0D, 6.0F, (short) 7, (byte) 8, true, 1, "3"};
+			String[] strings = {"1", "2", "3", "4", "5.0", "6.0", "7", "8", "true", "1", "3"};
+			for (int i = 0; i < 4; i++) {
+				for (int j = 0; j < values.length; j++) {
+					Object value = values[j];
+					if (!strings[j].equals(value.toString())) {
+						throw new IllegalStateException();
+					}
+					if (((Comparable) value).compareTo(value) != 0) {
+						throw new IllegalStateException();
+					}
+				}
+			}
+		}
+
 		private static void setFields() {
 			ThreadLocalRandom r = ThreadLocalRandom.current();
 			field1 = r.nextInt();
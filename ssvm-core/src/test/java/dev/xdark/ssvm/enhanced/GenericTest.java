@@ -2,6 +2,7 @@
 
 import dev.xdark.ssvm.TestUtil;
 import dev.xdark.ssvm.VMTest;
+import dev.xdark.ssvm.execution.ExecutionMode;
 import org.junit.jupiter.api.Test;
 
 import java.util.concurrent.ThreadLocalRandom;
@@ -16,6 +17,11 @@ public void doTest() {
 		TestUtil.test(GenericTest.class, true);
 	}
 
+	@Test
+	public void doThreadedTest() {
+		TestUtil.test(GenericTest.class, true, ExecutionMode.THREADED);
+	}
+
 	@dev.xdark.ssvm.VMTest
 	private static void testClone() throws CloneNotSupportedException {
 		ThreadLocalRandom r = ThreadLocalRandom.current();
@@ -1,6 +1,9 @@
 package dev.xdark.ssvm;
 
+import dev.xdark.ssvm.execution.ExecutionEngine;
+import dev.xdark.ssvm.execution.ExecutionMode;
 import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.SimpleExecutionEngine;
 import dev.xdark.ssvm.execution.VMException;
 import dev.xdark.ssvm.filesystem.FileManager;
 import dev.xdark.ssvm.filesystem.HostFileManager;
@@ -34,7 +37,11 @@ public class TestUtil {
 	public final int SYSTEM = 2;
 
 	public void test(Class<?> klass, int flag, Consumer<InstanceClass> init) {
-		VirtualMachine vm = newVirtualMachine();
+		test(klass, flag, ExecutionMode.INTERPRETED, init);
+	}
+
+	public void test(Class<?> klass, int flag, ExecutionMode mode, Consumer<InstanceClass> init) {
+		VirtualMachine vm = newVirtualMachine(mode);
 		if ((flag & BOOTSTRAP) != 0) {
 			vm.bootstrap();
 		} else {
@@ -117,8 +124,21 @@ public void test(Class<?> klass) {
 		test(klass, 0, null);
 	}
 
+	public void test(Class<?> klass, boolean bootstrap, ExecutionMode mode) {
+		test(klass, bootstrap ? BOOTSTRAP : 0, mode, null);
+	}
+
 	public VirtualMachine newVirtualMachine() {
+		return newVirtualMachine(ExecutionMode.INTERPRETED);
+	}
+
+	public VirtualMachine newVirtualMachine(ExecutionMode mode) {
 		return new VirtualMachine() {
+			@Override
+			protected ExecutionEngine createExecutionEngine() {
+				return new SimpleExecutionEngine(this, mode);
+			}
+
 			@Override
 			protected FileManager createFileManager() {
 				return new HostFileManager();